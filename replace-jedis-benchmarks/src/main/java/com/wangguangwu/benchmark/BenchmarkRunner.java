@@ -0,0 +1,30 @@
+package com.wangguangwu.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 运行所有基准测试并开启 GC/分配统计。
+ * <p>
+ * 用法：{@code java -jar replace-jedis-benchmarks/target/benchmarks.jar [JMH 参数]}，
+ * 例如只运行解析相关的测试：{@code java -jar benchmarks.jar ProtocolRead}
+ *
+ * @author wangguangwu
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        final CommandLineOptions cmdOptions = new CommandLineOptions(args);
+        final OptionsBuilder builder = new OptionsBuilder();
+        builder.parent(cmdOptions);
+        if (cmdOptions.getIncludes().isEmpty()) {
+            builder.include("com.wangguangwu.benchmark.*");
+        }
+        builder.addProfiler(GCProfiler.class);
+        new Runner(builder.build()).run();
+    }
+}
@@ -0,0 +1,27 @@
+package com.wangguangwu.benchmark;
+
+import java.io.OutputStream;
+
+/**
+ * 丢弃所有数据的输出流，只统计写入的字节数
+ *
+ * @author wangguangwu
+ */
+public class NullOutputStream extends OutputStream {
+
+    private long written;
+
+    @Override
+    public void write(int b) {
+        written++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        written += len;
+    }
+
+    public long getWritten() {
+        return written;
+    }
+}
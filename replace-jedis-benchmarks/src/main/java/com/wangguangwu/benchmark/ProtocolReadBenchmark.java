@@ -0,0 +1,102 @@
+package com.wangguangwu.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import redis.clients.jedis.Protocol;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.jedis.util.RedisInputStream;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Protocol#read} 解析各种类型、各种大小的响应
+ *
+ * @author wangguangwu
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ProtocolReadBenchmark {
+
+    @Param({"status", "error", "integer", "bulk", "nullBulk", "multiBulk"})
+    public String replyType;
+
+    /**
+     * bulk 为值的字节数，multiBulk 为元素个数，其他类型忽略
+     */
+    @Param({"16", "1024", "65536"})
+    public int size;
+
+    private RedisInputStream in;
+
+    @Setup
+    public void setup() {
+        in = new RedisInputStream(new RepeatingInputStream(encode(replyType, size)));
+    }
+
+    @Benchmark
+    public Object read() {
+        try {
+            return Protocol.read(in);
+        } catch (JedisDataException e) {
+            return e;
+        }
+    }
+
+    static byte[] encode(final String replyType, final int size) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        switch (replyType) {
+            case "status":
+                write(out, "+OK\r\n");
+                break;
+            case "error":
+                write(out, "-ERR wrong number of arguments\r\n");
+                break;
+            case "integer":
+                write(out, ":1234567890\r\n");
+                break;
+            case "bulk":
+                writeBulk(out, size);
+                break;
+            case "nullBulk":
+                write(out, "$-1\r\n");
+                break;
+            case "multiBulk":
+                write(out, "*" + size + "\r\n");
+                for (int i = 0; i < size; i++) {
+                    writeBulk(out, 16);
+                }
+                break;
+            default:
+                throw new IllegalArgumentException(replyType);
+        }
+        return out.toByteArray();
+    }
+
+    private static void writeBulk(final ByteArrayOutputStream out, final int len) {
+        write(out, "$" + len + "\r\n");
+        for (int i = 0; i < len; i++) {
+            out.write('x');
+        }
+        write(out, "\r\n");
+    }
+
+    private static void write(final ByteArrayOutputStream out, final String s) {
+        final byte[] b = s.getBytes(StandardCharsets.US_ASCII);
+        out.write(b, 0, b.length);
+    }
+}
@@ -0,0 +1,96 @@
+package com.wangguangwu.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import redis.clients.jedis.CommandArguments;
+import redis.clients.jedis.Protocol;
+import redis.clients.jedis.util.RedisOutputStream;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Protocol#sendCommand} 的编码开销，输出写入内存中被丢弃
+ *
+ * @author wangguangwu
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ProtocolSendCommandBenchmark {
+
+    @Param({"16", "1024", "65536"})
+    public int valueSize;
+
+    private RedisOutputStream out;
+    private CommandArguments ping;
+    private CommandArguments set;
+    private CommandArguments mget;
+    private CommandArguments reused;
+    private byte[] key;
+    private byte[] value;
+
+    @Setup
+    public void setup() {
+        out = new RedisOutputStream(new NullOutputStream());
+        key = "benchmark:key".getBytes();
+        value = new byte[valueSize];
+        Arrays.fill(value, (byte) 'x');
+        ping = new CommandArguments(Protocol.Command.PING);
+        set = new CommandArguments(Protocol.Command.SET).key(key).add(value);
+        reused = new CommandArguments(Protocol.Command.SET, 3);
+        mget = new CommandArguments(Protocol.Command.MGET);
+        for (int i = 0; i < 10; i++) {
+            mget.key("benchmark:key:" + i);
+        }
+    }
+
+    @Benchmark
+    public void ping() throws IOException {
+        Protocol.sendCommand(out, ping);
+        out.flush();
+    }
+
+    @Benchmark
+    public void set() throws IOException {
+        Protocol.sendCommand(out, set);
+        out.flush();
+    }
+
+    @Benchmark
+    public void mget10() throws IOException {
+        Protocol.sendCommand(out, mget);
+        out.flush();
+    }
+
+    /**
+     * 包含构造 CommandArguments 的开销
+     */
+    @Benchmark
+    public void setWithArguments() throws IOException {
+        Protocol.sendCommand(out, new CommandArguments(Protocol.Command.SET).key(key).add(value));
+        out.flush();
+    }
+
+    /**
+     * 重复使用同一个 CommandArguments
+     */
+    @Benchmark
+    public void setWithReusedArguments() throws IOException {
+        Protocol.sendCommand(out, reused.reset(Protocol.Command.SET).key(key).add(value));
+        out.flush();
+    }
+}
@@ -0,0 +1,63 @@
+package com.wangguangwu.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import redis.clients.jedis.util.RedisInputStream;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author wangguangwu
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RedisInputStreamBenchmark {
+
+    /**
+     * 行的字节数，不包含 \r\n
+     */
+    @Param({"2", "32", "512"})
+    public int lineLength;
+
+    @Param({"7", "1234567890", "-9223372036854775807"})
+    public String longValue;
+
+    private RedisInputStream lines;
+    private RedisInputStream longs;
+
+    @Setup
+    public void setup() {
+        final StringBuilder line = new StringBuilder();
+        for (int i = 0; i < lineLength; i++) {
+            line.append('x');
+        }
+        lines = new RedisInputStream(new RepeatingInputStream(
+                (line + "\r\n").getBytes(StandardCharsets.US_ASCII)));
+        longs = new RedisInputStream(new RepeatingInputStream(
+                (longValue + "\r\n").getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    @Benchmark
+    public byte[] readLineBytes() {
+        return lines.readLineBytes();
+    }
+
+    @Benchmark
+    public long readLongCrLf() {
+        return longs.readLongCrLf();
+    }
+}
@@ -0,0 +1,44 @@
+package com.wangguangwu.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import redis.clients.jedis.util.RedisOutputStream;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author wangguangwu
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RedisOutputStreamBenchmark {
+
+    @Param({"3", "1024", "65535", "1000000", "2147483647"})
+    public int value;
+
+    private RedisOutputStream out;
+
+    @Setup
+    public void setup() {
+        out = new RedisOutputStream(new NullOutputStream());
+    }
+
+    @Benchmark
+    public void writeIntCrLf() throws IOException {
+        out.writeIntCrLf(value);
+    }
+}
@@ -0,0 +1,38 @@
+package com.wangguangwu.benchmark;
+
+import java.io.InputStream;
+
+/**
+ * 无限重复同一段数据的输入流，用来在内存中反复解析同一个响应
+ *
+ * @author wangguangwu
+ */
+public class RepeatingInputStream extends InputStream {
+
+    private final byte[] data;
+    private int pos;
+
+    public RepeatingInputStream(byte[] data) {
+        this.data = data;
+    }
+
+    @Override
+    public int read() {
+        final int b = data[pos++] & 0xFF;
+        if (pos == data.length) {
+            pos = 0;
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+        final int n = Math.min(len, data.length - pos);
+        System.arraycopy(data, pos, b, off, n);
+        pos += n;
+        if (pos == data.length) {
+            pos = 0;
+        }
+        return n;
+    }
+}
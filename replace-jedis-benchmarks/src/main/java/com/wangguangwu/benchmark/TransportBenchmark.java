@@ -0,0 +1,87 @@
+package com.wangguangwu.benchmark;
+
+import com.wangguangwu.server.EmbeddedRedisServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import redis.clients.jedis.Connection;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.UnixDomainSocketFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 同一台机器上通过 TCP 回环地址和 Unix domain socket 访问嵌入式服务端的往返耗时对比，
+ * unix 需要在 Java 16 及以上运行
+ *
+ * @author wangguangwu
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TransportBenchmark {
+
+    @Param({"tcp", "unix"})
+    private String transport;
+
+    @Param({"16", "16384"})
+    private int valueSize;
+
+    private Path socketDir;
+    private EmbeddedRedisServer server;
+    private Jedis jedis;
+    private byte[] key;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        if ("unix".equals(transport)) {
+            socketDir = Files.createTempDirectory("jedis-benchmark");
+            final Path path = socketDir.resolve("redis.sock");
+            server = new EmbeddedRedisServer().startUnixSocket(path);
+            jedis = new Jedis(new Connection(new UnixDomainSocketFactory(path)));
+        } else {
+            server = new EmbeddedRedisServer().start();
+            jedis = new Jedis(server.getHostAndPort());
+        }
+        key = "benchmark:value".getBytes();
+        final byte[] value = new byte[valueSize];
+        Arrays.fill(value, (byte) 'v');
+        jedis.set(key, value);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        jedis.close();
+        server.close();
+        if (socketDir != null) {
+            Files.deleteIfExists(socketDir);
+        }
+    }
+
+    @Benchmark
+    public String ping() {
+        return jedis.ping();
+    }
+
+    @Benchmark
+    public byte[] get() {
+        return jedis.get(key);
+    }
+}
@@ -0,0 +1,114 @@
+package com.wangguangwu.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import redis.clients.jedis.Protocol;
+import redis.clients.jedis.ReplyVisitor;
+import redis.clients.jedis.util.RedisInputStream;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 通用解析和不分配对象的解析方式的对比
+ *
+ * @author wangguangwu
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TypedReplyBenchmark {
+
+    private RedisInputStream integers;
+    private RedisInputStream statuses;
+    private RedisInputStream arrays;
+    private ReplyVisitor visitor;
+
+    @Setup
+    public void setup(final Blackhole bh) {
+        visitor = new BlackholeVisitor(bh);
+        integers = new RedisInputStream(new RepeatingInputStream(ProtocolReadBenchmark.encode("integer", 0)));
+        statuses = new RedisInputStream(new RepeatingInputStream(ProtocolReadBenchmark.encode("status", 0)));
+        arrays = new RedisInputStream(new RepeatingInputStream(ProtocolReadBenchmark.encode("multiBulk", 16)));
+    }
+
+    @Benchmark
+    public Object readInteger() {
+        return Protocol.read(integers);
+    }
+
+    @Benchmark
+    public long readLongReply() {
+        return Protocol.readLongReply(integers);
+    }
+
+    @Benchmark
+    public Object readStatus() {
+        return Protocol.read(statuses);
+    }
+
+    @Benchmark
+    public boolean readStatusEquals() {
+        return Protocol.readStatusEquals(statuses, Protocol.BYTES_OK);
+    }
+
+    @Benchmark
+    public Object readArray() {
+        return Protocol.read(arrays);
+    }
+
+    @Benchmark
+    public void visitArray() {
+        Protocol.read(arrays, visitor);
+    }
+
+    private static final class BlackholeVisitor implements ReplyVisitor {
+
+        private final Blackhole bh;
+
+        BlackholeVisitor(Blackhole bh) {
+            this.bh = bh;
+        }
+
+        @Override
+        public void onStatus(byte[] buf, int off, int len) {
+            bh.consume(buf[off]);
+        }
+
+        @Override
+        public void onInteger(long value) {
+            bh.consume(value);
+        }
+
+        @Override
+        public void onBulk(byte[] buf, int off, int len) {
+            bh.consume(len);
+        }
+
+        @Override
+        public void onNull() {
+            bh.consume(0);
+        }
+
+        @Override
+        public void onArrayStart(int length) {
+            bh.consume(length);
+        }
+
+        @Override
+        public void onError(RuntimeException error) {
+            bh.consume(error);
+        }
+    }
+}
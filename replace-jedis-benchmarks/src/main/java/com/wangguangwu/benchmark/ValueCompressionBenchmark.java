@@ -0,0 +1,81 @@
+package com.wangguangwu.benchmark;
+
+import com.wangguangwu.server.EmbeddedRedisServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.codec.DeflateValueCodec;
+import redis.clients.jedis.util.SafeEncoder;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 读写 JSON 值时开启和不开启压缩的往返耗时对比，压缩节省的网络传输和增加的 CPU 开销都包含在内
+ *
+ * @author wangguangwu
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ValueCompressionBenchmark {
+
+    @Param({"none", "deflate"})
+    private String codec;
+
+    @Param({"20480", "204800"})
+    private int valueSize;
+
+    private EmbeddedRedisServer server;
+    private Jedis jedis;
+    private byte[] key;
+    private byte[] value;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        server = new EmbeddedRedisServer().start();
+        jedis = new Jedis(server.getHostAndPort());
+        if ("deflate".equals(codec)) {
+            jedis.setValueCodec(new DeflateValueCodec());
+        }
+        final StringBuilder json = new StringBuilder("[");
+        for (int i = 0; json.length() < valueSize - 2; i++) {
+            json.append("{\"id\":").append(i).append(",\"name\":\"user-").append(i).append("\",\"score\":")
+                    .append(i * 31 % 1000).append("},");
+        }
+        json.setLength(valueSize - 1);
+        value = SafeEncoder.encode(json.append(']').toString());
+        key = SafeEncoder.encode("benchmark:json");
+        jedis.set(key, value);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        jedis.close();
+        server.close();
+    }
+
+    @Benchmark
+    public String set() {
+        return jedis.set(key, value);
+    }
+
+    @Benchmark
+    public byte[] get() {
+        return jedis.get(key);
+    }
+}
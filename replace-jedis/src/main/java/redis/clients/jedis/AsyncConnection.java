@@ -0,0 +1,321 @@
+package redis.clients.jedis;
+
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisException;
+import redis.clients.jedis.util.IOUtils;
+import redis.clients.jedis.util.RedisOutputStream;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 非阻塞连接。命令在调用线程入队，由事件循环线程统一编码、写出，响应按发送顺序完成对应的 future。
+ * <p>
+ * future 在事件循环线程上完成，回调中不要执行阻塞操作。
+ * <p>
+ * 提交后超过 commandTimeout 还没有响应的命令以 {@link JedisConnectionException} 失败，它仍然留在等待队列中，
+ * 迟到的响应被丢弃，后续命令的响应不会错位。已提交还没有响应的命令超过 maxPendingCommands 时，
+ * 新命令直接失败，服务端停顿时队列和写缓冲区不会无限增长。
+ *
+ * @author wangguangwu
+ */
+class AsyncConnection implements Closeable {
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private final EventLoop eventLoop;
+    private final SocketChannel channel;
+    private SelectionKey selectionKey;
+    private final long commandTimeoutNanos;
+    private final int maxPendingCommands;
+    // outbound 和 inFlight 中的命令数
+    private final AtomicInteger pendingCommands = new AtomicInteger();
+
+    // 调用线程提交、等待事件循环写出的命令
+    private final ConcurrentLinkedQueue<PendingCommand<?>> outbound = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+    // 已经写出、等待响应的命令，只在事件循环线程上访问
+    private final ArrayDeque<PendingCommand<?>> inFlight = new ArrayDeque<>();
+
+    // 写缓冲区保持写模式，position 即待写出的字节数
+    private ByteBuffer writeBuffer = ByteBuffer.allocate(16 * 1024);
+    private final RedisOutputStream outputStream = new RedisOutputStream(new WriteBufferOutputStream());
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+    private final RespDecoder decoder = new RespDecoder();
+
+    private volatile boolean closed = false;
+
+    /**
+     * @param commandTimeout     毫秒，0 表示不超时
+     * @param maxPendingCommands 已提交还没有响应的命令数上限
+     */
+    AsyncConnection(final EventLoop eventLoop, final HostAndPort hostAndPort, final int connectionTimeout,
+                    final int commandTimeout, final int maxPendingCommands) {
+        if (maxPendingCommands <= 0) {
+            throw new IllegalArgumentException("maxPendingCommands <= 0");
+        }
+        this.eventLoop = eventLoop;
+        this.commandTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(commandTimeout);
+        this.maxPendingCommands = maxPendingCommands;
+        SocketChannel ch = null;
+        try {
+            ch = SocketChannel.open();
+            ch.socket().setTcpNoDelay(true);
+            ch.socket().setKeepAlive(true);
+            ch.socket().connect(new InetSocketAddress(hostAndPort.getHost(), hostAndPort.getPort()), connectionTimeout);
+            ch.configureBlocking(false);
+        } catch (IOException e) {
+            IOUtils.closeQuietly(ch);
+            throw new JedisConnectionException("Failed to connect to " + hostAndPort, e);
+        }
+        this.channel = ch;
+
+        final CompletableFuture<Void> registered = new CompletableFuture<>();
+        eventLoop.execute(() -> {
+            try {
+                selectionKey = channel.register(eventLoop.selector(), SelectionKey.OP_READ, this);
+                registered.complete(null);
+            } catch (IOException e) {
+                registered.completeExceptionally(e);
+            }
+        }, registered::completeExceptionally);
+        try {
+            registered.join();
+        } catch (RuntimeException e) {
+            IOUtils.closeQuietly(channel);
+            throw new JedisConnectionException("Failed to register channel.", e.getCause());
+        }
+    }
+
+    <T> CompletableFuture<T> execute(final CommandObject<T> commandObject) {
+        final PendingCommand<T> command = new PendingCommand<>(commandObject);
+        if (closed) {
+            command.future.completeExceptionally(new JedisConnectionException("Connection is closed."));
+            return command.future;
+        }
+        if (pendingCommands.incrementAndGet() > maxPendingCommands) {
+            pendingCommands.decrementAndGet();
+            command.future.completeExceptionally(new JedisException("Too many pending commands, limit is "
+                    + maxPendingCommands + "."));
+            return command.future;
+        }
+        outbound.add(command);
+        if (closed) {
+            // 入队之前连接可能已经关闭并清空了队列
+            failOutbound(new JedisConnectionException("Connection is closed."));
+            return command.future;
+        }
+        // 同一批提交的命令只调度一次写出
+        if (flushScheduled.compareAndSet(false, true)) {
+            eventLoop.execute(this::flushOutbound, this::failAndClose);
+        }
+        return command.future;
+    }
+
+    private void flushOutbound() {
+        flushScheduled.set(false);
+        if (closed) {
+            failAll(new JedisConnectionException("Connection is closed."));
+            return;
+        }
+        try {
+            PendingCommand<?> command;
+            while ((command = outbound.poll()) != null) {
+                Protocol.sendCommand(outputStream, command.arguments);
+                inFlight.add(command);
+            }
+            outputStream.flush();
+            writeToChannel();
+        } catch (Exception e) {
+            failAndClose(e);
+        }
+    }
+
+    void onWritable() throws IOException {
+        writeToChannel();
+    }
+
+    private void writeToChannel() throws IOException {
+        if (writeBuffer.position() == 0) {
+            return;
+        }
+        writeBuffer.flip();
+        channel.write(writeBuffer);
+        final boolean remaining = writeBuffer.hasRemaining();
+        writeBuffer.compact();
+        // 内核缓冲区已满时等待可写事件
+        final int ops = selectionKey.interestOps();
+        if (remaining) {
+            selectionKey.interestOps(ops | SelectionKey.OP_WRITE);
+        } else if ((ops & SelectionKey.OP_WRITE) != 0) {
+            selectionKey.interestOps(ops & ~SelectionKey.OP_WRITE);
+        }
+    }
+
+    void onReadable() throws IOException {
+        while (true) {
+            final int n = channel.read(readBuffer);
+            if (n == -1) {
+                failAndClose(new JedisConnectionException("Unexpected end of stream."));
+                return;
+            }
+            if (n == 0) {
+                return;
+            }
+            readBuffer.flip();
+            decoder.decode(readBuffer, this::onReply);
+            readBuffer.clear();
+        }
+    }
+
+    private void onReply(final Object reply) {
+        final PendingCommand<?> command = inFlight.poll();
+        if (command == null) {
+            throw new JedisConnectionException("Received a reply without a pending command.");
+        }
+        pendingCommands.decrementAndGet();
+        command.complete(reply);
+    }
+
+    /**
+     * 在事件循环线程上定期调用。命令按提交顺序排列，遇到第一个没有超时的命令就停止
+     */
+    void checkTimeouts(final long now) {
+        if (commandTimeoutNanos == 0) {
+            return;
+        }
+        for (PendingCommand<?> command : inFlight) {
+            if (now - command.submitTime < commandTimeoutNanos) {
+                return;
+            }
+            if (!command.future.isDone()) {
+                command.future.completeExceptionally(new JedisConnectionException("No reply within "
+                        + TimeUnit.NANOSECONDS.toMillis(commandTimeoutNanos) + " ms."));
+            }
+        }
+    }
+
+    void failAndClose(final Throwable cause) {
+        close();
+        failAll(cause instanceof JedisConnectionException ? cause : new JedisConnectionException(cause));
+    }
+
+    private void failAll(final Throwable cause) {
+        PendingCommand<?> command;
+        while ((command = inFlight.poll()) != null) {
+            pendingCommands.decrementAndGet();
+            command.future.completeExceptionally(cause);
+        }
+        failOutbound(cause);
+    }
+
+    /**
+     * 可以在任意线程调用，inFlight 只能在事件循环线程上访问
+     */
+    private void failOutbound(final Throwable cause) {
+        PendingCommand<?> command;
+        while ((command = outbound.poll()) != null) {
+            pendingCommands.decrementAndGet();
+            command.future.completeExceptionally(cause);
+        }
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (eventLoop.inEventLoop()) {
+            if (selectionKey != null) {
+                selectionKey.cancel();
+            }
+            IOUtils.closeQuietly(channel);
+            failAll(new JedisConnectionException("Connection is closed."));
+        } else {
+            eventLoop.execute(() -> {
+                if (selectionKey != null) {
+                    selectionKey.cancel();
+                }
+                IOUtils.closeQuietly(channel);
+                failAll(new JedisConnectionException("Connection is closed."));
+            }, cause -> {
+                // 事件循环已经退出，退出时已经让所有命令失败
+                IOUtils.closeQuietly(channel);
+                failOutbound(new JedisConnectionException("Connection is closed.", cause));
+            });
+        }
+    }
+
+    /**
+     * 把 {@link RedisOutputStream} 的输出追加到写缓冲区，空间不足时扩容
+     */
+    private final class WriteBufferOutputStream extends OutputStream {
+
+        @Override
+        public void write(final int b) {
+            ensureCapacity(1);
+            writeBuffer.put((byte) b);
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) {
+            ensureCapacity(len);
+            writeBuffer.put(b, off, len);
+        }
+
+        private void ensureCapacity(final int len) {
+            if (writeBuffer.remaining() < len) {
+                final int required = writeBuffer.position() + len;
+                final ByteBuffer bigger = ByteBuffer.allocate(Math.max(required, writeBuffer.capacity() << 1));
+                writeBuffer.flip();
+                bigger.put(writeBuffer);
+                writeBuffer = bigger;
+            }
+        }
+    }
+
+    private static final class PendingCommand<T> {
+
+        final CommandArguments arguments;
+        final Builder<T> builder;
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        final long submitTime = System.nanoTime();
+
+        PendingCommand(final CommandObject<T> commandObject) {
+            this.arguments = commandObject.getArguments();
+            this.builder = commandObject.getBuilder();
+        }
+
+        void complete(final Object reply) {
+            if (reply instanceof Throwable) {
+                future.completeExceptionally((Throwable) reply);
+                return;
+            }
+            try {
+                future.complete(builder.build(reply));
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            } catch (Error e) {
+                // 先完成这个 future，再让事件循环退出
+                future.completeExceptionally(e);
+                throw e;
+            }
+        }
+    }
+}
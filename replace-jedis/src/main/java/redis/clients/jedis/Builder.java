@@ -0,0 +1,10 @@
+package redis.clients.jedis;
+
+/**
+ * @author wangguangwu
+ */
+public abstract class Builder<T> {
+
+    public abstract T build(Object data);
+
+}
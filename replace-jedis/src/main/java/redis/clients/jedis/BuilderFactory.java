@@ -0,0 +1,237 @@
+package redis.clients.jedis;
+
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.jedis.util.SafeEncoder;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author wangguangwu
+ */
+public final class BuilderFactory {
+
+    public static final Builder<Object> RAW_OBJECT = new Builder<Object>() {
+        @Override
+        public Object build(Object data) {
+            return data;
+        }
+
+        @Override
+        public String toString() {
+            return "Object";
+        }
+    };
+
+    public static final Builder<String> STRING = new Builder<String>() {
+        @Override
+        public String build(Object data) {
+            return data == null ? null : SafeEncoder.encode((byte[]) data);
+        }
+
+        @Override
+        public String toString() {
+            return "String";
+        }
+    };
+
+    public static final Builder<byte[]> BINARY = new Builder<byte[]>() {
+        @Override
+        public byte[] build(Object data) {
+            return (byte[]) data;
+        }
+
+        @Override
+        public String toString() {
+            return "byte[]";
+        }
+    };
+
+    public static final Builder<Long> LONG = new Builder<Long>() {
+        @Override
+        public Long build(Object data) {
+            return (Long) data;
+        }
+
+        @Override
+        public String toString() {
+            return "Long";
+        }
+    };
+
+    public static final Builder<Boolean> BOOLEAN = new Builder<Boolean>() {
+        @Override
+        public Boolean build(Object data) {
+            if (data == null) {
+                return null;
+            }
+            // RESP3 直接返回布尔类型
+            if (data instanceof Boolean) {
+                return (Boolean) data;
+            }
+            return ((Long) data) == 1L;
+        }
+
+        @Override
+        public String toString() {
+            return "Boolean";
+        }
+    };
+
+    public static final Builder<List<String>> STRING_LIST = new Builder<List<String>>() {
+        @Override
+        @SuppressWarnings("unchecked")
+        public List<String> build(Object data) {
+            if (data == null) {
+                return null;
+            }
+            List<byte[]> l = (List<byte[]>) data;
+            final List<String> result = new ArrayList<>(l.size());
+            for (final byte[] barray : l) {
+                result.add(barray == null ? null : SafeEncoder.encode(barray));
+            }
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return "List<String>";
+        }
+    };
+
+    public static final Builder<List<byte[]>> BINARY_LIST = new Builder<List<byte[]>>() {
+        @Override
+        @SuppressWarnings("unchecked")
+        public List<byte[]> build(Object data) {
+            return (List<byte[]>) data;
+        }
+
+        @Override
+        public String toString() {
+            return "List<byte[]>";
+        }
+    };
+
+    /**
+     * 按 field、value 交替排列的数组，例如 HSCAN 的一页结果
+     */
+    public static final Builder<List<Map.Entry<String, String>>> STRING_PAIR_LIST =
+            new Builder<List<Map.Entry<String, String>>>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public List<Map.Entry<String, String>> build(Object data) {
+                    if (data == null) {
+                        return null;
+                    }
+                    final List<byte[]> l = (List<byte[]>) data;
+                    final List<Map.Entry<String, String>> result = new ArrayList<>(l.size() / 2);
+                    for (int i = 0; i + 1 < l.size(); i += 2) {
+                        result.add(new AbstractMap.SimpleImmutableEntry<>(
+                                STRING.build(l.get(i)), STRING.build(l.get(i + 1))));
+                    }
+                    return result;
+                }
+
+                @Override
+                public String toString() {
+                    return "List<Map.Entry<String, String>>";
+                }
+            };
+
+    /**
+     * 按 member、score 交替排列的数组，例如 ZSCAN 的一页结果
+     */
+    public static final Builder<List<Map.Entry<String, Double>>> STRING_DOUBLE_PAIR_LIST =
+            new Builder<List<Map.Entry<String, Double>>>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public List<Map.Entry<String, Double>> build(Object data) {
+                    if (data == null) {
+                        return null;
+                    }
+                    final List<byte[]> l = (List<byte[]>) data;
+                    final List<Map.Entry<String, Double>> result = new ArrayList<>(l.size() / 2);
+                    for (int i = 0; i + 1 < l.size(); i += 2) {
+                        result.add(new AbstractMap.SimpleImmutableEntry<>(
+                                STRING.build(l.get(i)), parseDouble(STRING.build(l.get(i + 1)))));
+                    }
+                    return result;
+                }
+
+                @Override
+                public String toString() {
+                    return "List<Map.Entry<String, Double>>";
+                }
+            };
+
+    public static final Builder<List<Object>> RAW_OBJECT_LIST = new Builder<List<Object>>() {
+        @Override
+        @SuppressWarnings("unchecked")
+        public List<Object> build(Object data) {
+            if (data == null) {
+                return Collections.emptyList();
+            }
+            return (List<Object>) data;
+        }
+
+        @Override
+        public String toString() {
+            return "List<Object>";
+        }
+    };
+
+    /**
+     * 脚本等返回类型不固定的响应：bulk 和状态转换成字符串，数组中的元素递归转换，整数等其他类型原样返回
+     */
+    public static final Builder<Object> ENCODED_OBJECT = new Builder<Object>() {
+        @Override
+        public Object build(Object data) {
+            if (data instanceof byte[]) {
+                return SafeEncoder.encode((byte[]) data);
+            }
+            if (data instanceof List) {
+                final List<?> list = (List<?>) data;
+                final List<Object> result = new ArrayList<>(list.size());
+                for (Object element : list) {
+                    result.add(build(element));
+                }
+                return result;
+            }
+            return data;
+        }
+
+        @Override
+        public String toString() {
+            return "Object";
+        }
+    };
+
+    /**
+     * Redis 用 inf、-inf 表示无穷大
+     */
+    private static Double parseDouble(final String value) {
+        if ("inf".equals(value) || "+inf".equals(value)) {
+            return Double.POSITIVE_INFINITY;
+        } else if ("-inf".equals(value)) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        return Double.valueOf(value);
+    }
+
+    /**
+     * 管道、事务中返回的错误以 {@link JedisDataException} 对象的形式保存，这里原样返回
+     */
+    public static Object buildOrError(Builder<?> builder, Object data) {
+        if (data instanceof JedisDataException) {
+            return data;
+        }
+        return builder.build(data);
+    }
+
+    private BuilderFactory() {
+        throw new InstantiationError("Must not instantiate this class");
+    }
+}
@@ -0,0 +1,53 @@
+package redis.clients.jedis;
+
+import redis.clients.jedis.args.Rawable;
+import redis.clients.jedis.commands.ProtocolCommand;
+import redis.clients.jedis.exceptions.JedisClusterOperationException;
+import redis.clients.jedis.util.JedisClusterCRC16;
+
+/**
+ * 集群模式下的命令参数，添加 key 时计算哈希槽，并要求所有 key 位于同一个槽
+ *
+ * @author wangguangwu
+ */
+public class ClusterCommandArguments extends CommandArguments {
+
+    private int commandHashSlot = -1;
+
+    public ClusterCommandArguments(ProtocolCommand command) {
+        super(command);
+    }
+
+    @Override
+    public CommandArguments reset(ProtocolCommand command) {
+        commandHashSlot = -1;
+        return super.reset(command);
+    }
+
+    /**
+     * 命令的哈希槽，没有 key 的命令返回 -1
+     */
+    public int getCommandHashSlot() {
+        return commandHashSlot;
+    }
+
+    @Override
+    protected void processKey(Object key) {
+        final int hashSlot;
+        if (key instanceof byte[]) {
+            hashSlot = JedisClusterCRC16.getSlot((byte[]) key);
+        } else if (key instanceof String) {
+            hashSlot = JedisClusterCRC16.getSlot((String) key);
+        } else if (key instanceof Rawable) {
+            hashSlot = JedisClusterCRC16.getSlot(((Rawable) key).getRaw());
+        } else {
+            throw new IllegalArgumentException("\"" + key + "\" is not a valid argument.");
+        }
+
+        if (commandHashSlot < 0) {
+            commandHashSlot = hashSlot;
+        } else if (commandHashSlot != hashSlot) {
+            throw new JedisClusterOperationException("Keys must belong to same hashslot.");
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package redis.clients.jedis;
+
+import redis.clients.jedis.exceptions.JedisAskDataException;
+import redis.clients.jedis.exceptions.JedisClusterOperationException;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.jedis.exceptions.JedisException;
+import redis.clients.jedis.exceptions.JedisMovedDataException;
+import redis.clients.jedis.exceptions.JedisNoScriptException;
+import redis.clients.jedis.util.IOUtils;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * 按哈希槽把命令直接发给负责的节点，处理 MOVED/ASK 重定向和连接失败重试
+ *
+ * @author wangguangwu
+ */
+public class ClusterCommandExecutor implements Closeable {
+
+    public static final int DEFAULT_MAX_ATTEMPTS = 5;
+
+    private final JedisClusterInfoCache cache;
+    private final int maxAttempts;
+
+    public ClusterCommandExecutor(final JedisClusterInfoCache cache, final int maxAttempts) {
+        this.cache = cache;
+        this.maxAttempts = maxAttempts;
+    }
+
+    public JedisClusterInfoCache getClusterInfoCache() {
+        return cache;
+    }
+
+    public <T> T executeCommand(final CommandObject<T> commandObject) {
+        final CommandArguments args = commandObject.getArguments();
+        final int slot = args instanceof ClusterCommandArguments
+                ? ((ClusterCommandArguments) args).getCommandHashSlot() : -1;
+
+        HostAndPort askTarget = null;
+        JedisException lastException = null;
+        for (int attempt = 0; attempt < maxAttempts; attempt++) {
+            Connection connection = null;
+            try {
+                if (askTarget != null) {
+                    final HostAndPort target = askTarget;
+                    connection = borrow(() -> cache.setupNodeIfNotExist(target));
+                    return executeAsking(connection, commandObject);
+                }
+                connection = getConnection(slot);
+                return connection.executeCommand(commandObject);
+            } catch (JedisMovedDataException moved) {
+                // 槽已经迁移到新节点：先更新这个槽，再在后台刷新整个拓扑
+                lastException = moved;
+                askTarget = null;
+                cache.assignSlot(moved.getSlot(), moved.getTargetNode());
+                cache.renewClusterSlotsAsync();
+            } catch (JedisAskDataException ask) {
+                // 槽正在迁移，只有这一次请求需要发给目标节点
+                lastException = ask;
+                askTarget = ask.getTargetNode();
+            } catch (JedisConnectionException jce) {
+                lastException = jce;
+                askTarget = null;
+                cache.renewClusterSlotsAsync();
+            } finally {
+                IOUtils.closeQuietly(connection);
+            }
+        }
+        throw new JedisClusterOperationException("No more cluster attempts left.", lastException);
+    }
+
+    private Connection getConnection(final int slot) {
+        if (slot < 0) {
+            return borrow(cache::getRandomPool);
+        }
+        if (cache.getSlotPool(slot) == null) {
+            // 槽还没有分配，刷新一次拓扑后再试，仍然没有就随便找一个节点，由 MOVED 纠正
+            cache.renewClusterSlots();
+        }
+        return borrow(() -> {
+            final ConnectionPool pool = cache.getSlotPool(slot);
+            return pool != null ? pool : cache.getRandomPool();
+        });
+    }
+
+    /**
+     * 从 poolSupplier 返回的连接池借用连接。
+     * <p>
+     * 拓扑刷新会关闭已经下线的节点的连接池，拿到旧连接池的线程借用时会失败：这时重新查找连接池，
+     * 槽表仍然指向这个已关闭的连接池时先同步刷新一次拓扑；仍然失败就按连接失败处理，由外层重试。
+     */
+    private Connection borrow(final Supplier<ConnectionPool> poolSupplier) {
+        final ConnectionPool pool = poolSupplier.get();
+        try {
+            return pool.getResource();
+        } catch (JedisException e) {
+            if (!pool.isClosed() || cache.isClosed()) {
+                throw e;
+            }
+        }
+        ConnectionPool next = poolSupplier.get();
+        if (next == pool) {
+            cache.renewClusterSlots();
+            next = poolSupplier.get();
+        }
+        try {
+            return next.getResource();
+        } catch (JedisException e) {
+            if (!next.isClosed() || cache.isClosed()) {
+                throw e;
+            }
+            throw new JedisConnectionException("Node pool was closed by a topology refresh.", e);
+        }
+    }
+
+    /**
+     * ASKING 和命令一起写出、一起读取，只需要一次往返；目标节点上没有脚本时加载后再发送一次
+     */
+    private <T> T executeAsking(final Connection connection, final CommandObject<T> commandObject) {
+        connection.sendCommand(Protocol.Command.ASKING);
+        connection.sendCommand(commandObject.getArguments());
+        List<Object> replies = connection.getMany(2);
+        if (replies.get(1) instanceof JedisNoScriptException && commandObject instanceof ScriptCommandObject) {
+            connection.sendCommand(ScriptRegistry.scriptLoadArguments(
+                    ((ScriptCommandObject<T>) commandObject).getScript()));
+            connection.sendCommand(Protocol.Command.ASKING);
+            connection.sendCommand(commandObject.getArguments());
+            final List<Object> retried = connection.getMany(3);
+            if (retried.get(0) instanceof JedisDataException) {
+                throw (JedisDataException) retried.get(0);
+            }
+            replies = retried.subList(1, 3);
+        }
+        if (replies.get(0) instanceof JedisDataException) {
+            throw (JedisDataException) replies.get(0);
+        }
+        if (replies.get(1) instanceof JedisDataException) {
+            throw (JedisDataException) replies.get(1);
+        }
+        return commandObject.getBuilder().build(replies.get(1));
+    }
+
+    @Override
+    public void close() {
+        cache.close();
+    }
+}
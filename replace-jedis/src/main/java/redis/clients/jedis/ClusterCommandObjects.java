@@ -0,0 +1,14 @@
+package redis.clients.jedis;
+
+import redis.clients.jedis.commands.ProtocolCommand;
+
+/**
+ * @author wangguangwu
+ */
+public class ClusterCommandObjects extends CommandObjects {
+
+    @Override
+    protected ClusterCommandArguments commandArguments(ProtocolCommand command) {
+        return new ClusterCommandArguments(command);
+    }
+}
@@ -1,29 +1,143 @@
 package redis.clients.jedis;
 
 import redis.clients.jedis.args.Rawable;
+import redis.clients.jedis.args.RawableFactory;
 import redis.clients.jedis.commands.ProtocolCommand;
+import redis.clients.jedis.util.SafeEncoder;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 /**
+ * 命令及其参数，参数在添加时就编码为 byte[] 保存在数组中，不再为每个参数创建包装对象。
+ * <p>
+ * 同一个实例可以通过 {@link #reset(ProtocolCommand)} 重复使用，数组只在容量不足时扩容。
+ *
  * @author wangguangwu
  */
 public class CommandArguments implements Iterable<Rawable> {
 
-    private final ArrayList<Rawable> args;
+    private static final int DEFAULT_CAPACITY = 4;
+
+    private ProtocolCommand command;
+    /**
+     * 第 0 个元素为命令名
+     */
+    private byte[][] args;
+    private int size;
 
     public CommandArguments(ProtocolCommand command) {
-        args = new ArrayList<>();
-        args.add(command);
+        this(command, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity 预计的参数个数，包含命令名
+     */
+    public CommandArguments(ProtocolCommand command, int capacity) {
+        this.args = new byte[Math.max(capacity, 1)][];
+        reset(command);
+    }
+
+    /**
+     * 清空参数并换成新的命令，保留已经分配的数组
+     */
+    public CommandArguments reset(ProtocolCommand command) {
+        if (size > 1) {
+            Arrays.fill(args, 1, size, null);
+        }
+        this.command = command;
+        args[0] = command.getRaw();
+        size = 1;
+        return this;
+    }
+
+    public ProtocolCommand getCommand() {
+        return command;
+    }
+
+    public CommandArguments add(Object arg) {
+        final byte[] raw;
+        if (arg == null) {
+            throw new IllegalArgumentException("null is not a valid argument.");
+        } else if (arg instanceof byte[]) {
+            raw = (byte[]) arg;
+        } else if (arg instanceof String) {
+            raw = SafeEncoder.encode((String) arg);
+        } else if (arg instanceof Rawable) {
+            raw = ((Rawable) arg).getRaw();
+        } else if (arg instanceof Integer || arg instanceof Long) {
+            raw = Protocol.toByteArray(((Number) arg).longValue());
+        } else {
+            raw = SafeEncoder.encode(String.valueOf(arg));
+        }
+        if (size == args.length) {
+            args = Arrays.copyOf(args, size << 1);
+        }
+        args[size++] = raw;
+        return this;
+    }
+
+    public CommandArguments addObjects(Object... args) {
+        for (Object arg : args) {
+            add(arg);
+        }
+        return this;
+    }
+
+    /**
+     * 添加 key 参数，和 {@link #add(Object)} 的区别在于调用方明确表示这是一个 key
+     */
+    public CommandArguments key(Object key) {
+        processKey(key);
+        return add(key);
+    }
+
+    /**
+     * 子类可以在这里处理 key，例如集群模式下计算哈希槽
+     */
+    protected void processKey(Object key) {
+    }
+
+    public final CommandArguments keys(Object... keys) {
+        for (Object key : keys) {
+            key(key);
+        }
+        return this;
+    }
+
+    /**
+     * 第 index 个参数的编码，0 为命令名
+     */
+    public byte[] get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return args[index];
     }
 
     @Override
     public Iterator<Rawable> iterator() {
-        return args.iterator();
+        return new Iterator<Rawable>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public Rawable next() {
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                final int index = next++;
+                return index == 0 ? command : RawableFactory.from(args[index]);
+            }
+        };
     }
 
     public int size() {
-        return args.size();
+        return size;
     }
 }
@@ -0,0 +1,26 @@
+package redis.clients.jedis;
+
+/**
+ * 命令拦截器，通过 {@link Connection#addInterceptor(CommandInterceptor)} 添加，按添加的顺序调用。
+ * <p>
+ * 方法在执行命令的线程中同步调用，耗时的处理需要交给其他线程。
+ * args 在响应读完之前不会被修改，但调用返回之后可能被重复使用，不能保存引用。
+ *
+ * @author wangguangwu
+ */
+public interface CommandInterceptor {
+
+    /**
+     * 命令写入输出缓冲区之前调用
+     */
+    default void beforeCommand(Connection connection, CommandArguments args) {
+    }
+
+    /**
+     * 命令的响应读完之后调用，不论成功还是失败；管道中的命令按写出的顺序调用
+     *
+     * @param elapsedNanos 从开始写出命令到读完响应的耗时
+     */
+    default void afterCommand(Connection connection, CommandArguments args, long elapsedNanos) {
+    }
+}
@@ -0,0 +1,25 @@
+package redis.clients.jedis;
+
+/**
+ * 一条命令的参数及其响应的解析方式
+ *
+ * @author wangguangwu
+ */
+public class CommandObject<T> {
+
+    private final CommandArguments arguments;
+    private final Builder<T> builder;
+
+    public CommandObject(CommandArguments args, Builder<T> builder) {
+        this.arguments = args;
+        this.builder = builder;
+    }
+
+    public CommandArguments getArguments() {
+        return arguments;
+    }
+
+    public Builder<T> getBuilder() {
+        return builder;
+    }
+}
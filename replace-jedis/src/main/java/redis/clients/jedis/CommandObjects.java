@@ -0,0 +1,99 @@
+package redis.clients.jedis;
+
+import redis.clients.jedis.Protocol.Command;
+import redis.clients.jedis.codec.ValueCodec;
+import redis.clients.jedis.commands.ProtocolCommand;
+
+import java.util.List;
+
+/**
+ * 统一构建各个命令的 {@link CommandObject}，供 {@link Jedis}、{@link Pipeline} 等共用
+ *
+ * @author wangguangwu
+ */
+public class CommandObjects {
+
+    private volatile ValueCodec valueCodec;
+    private volatile Builder<byte[]> binaryValueBuilder = BuilderFactory.BINARY;
+
+    /**
+     * 之后构建的二进制 SET 的值先经过 codec 编码，二进制 GET 的结果经过 codec 解码；null 表示不编解码
+     */
+    public void setValueCodec(final ValueCodec codec) {
+        this.valueCodec = codec;
+        this.binaryValueBuilder = codec == null ? BuilderFactory.BINARY : new Builder<byte[]>() {
+            @Override
+            public byte[] build(Object data) {
+                final byte[] stored = BuilderFactory.BINARY.build(data);
+                return stored == null ? null : codec.decode(stored);
+            }
+        };
+    }
+
+    public ValueCodec getValueCodec() {
+        return valueCodec;
+    }
+
+    protected CommandArguments commandArguments(ProtocolCommand command) {
+        return new CommandArguments(command);
+    }
+
+    public final CommandObject<String> ping() {
+        return new CommandObject<>(commandArguments(Command.PING), BuilderFactory.STRING);
+    }
+
+    public final CommandObject<String> get(String key) {
+        return new CommandObject<>(commandArguments(Command.GET).key(key), BuilderFactory.STRING);
+    }
+
+    public final CommandObject<byte[]> get(byte[] key) {
+        return new CommandObject<>(commandArguments(Command.GET).key(key), binaryValueBuilder);
+    }
+
+    public final CommandObject<String> set(String key, String value) {
+        return new CommandObject<>(commandArguments(Command.SET).key(key).add(value), BuilderFactory.STRING);
+    }
+
+    public final CommandObject<String> set(byte[] key, byte[] value) {
+        final ValueCodec codec = valueCodec;
+        final byte[] stored = codec == null ? value : codec.encode(value);
+        return new CommandObject<>(commandArguments(Command.SET).key(key).add(stored), BuilderFactory.STRING);
+    }
+
+    public final CommandObject<Long> incr(String key) {
+        return new CommandObject<>(commandArguments(Command.INCR).key(key), BuilderFactory.LONG);
+    }
+
+    public final CommandObject<Long> del(String... keys) {
+        return new CommandObject<>(commandArguments(Command.DEL).keys((Object[]) keys), BuilderFactory.LONG);
+    }
+
+    public final CommandObject<String> watch(String... keys) {
+        return new CommandObject<>(commandArguments(Command.WATCH).keys((Object[]) keys), BuilderFactory.STRING);
+    }
+
+    public final CommandObject<Boolean> exists(String key) {
+        return new CommandObject<>(commandArguments(Command.EXISTS).key(key), BuilderFactory.BOOLEAN);
+    }
+
+    public final CommandObject<List<String>> mget(String... keys) {
+        return new CommandObject<>(commandArguments(Command.MGET).keys((Object[]) keys), BuilderFactory.STRING_LIST);
+    }
+
+    /**
+     * EVALSHA，只发送脚本的摘要；返回的对象带着脚本，节点上没有脚本时可以加载后重试
+     */
+    public final CommandObject<Object> evalsha(Script script, List<String> keys, List<String> args) {
+        final CommandArguments arguments = commandArguments(Command.EVALSHA).add(script.getRawSha1()).add(keys.size())
+                .keys(keys.toArray()).addObjects(args.toArray());
+        return new ScriptCommandObject<>(arguments, BuilderFactory.ENCODED_OBJECT, script);
+    }
+
+    public final CommandObject<Object> sendCommand(ProtocolCommand cmd, String... args) {
+        return new CommandObject<>(commandArguments(cmd).addObjects((Object[]) args), BuilderFactory.RAW_OBJECT);
+    }
+
+    public final CommandObject<Object> sendCommand(ProtocolCommand cmd, byte[]... args) {
+        return new CommandObject<>(commandArguments(cmd).addObjects((Object[]) args), BuilderFactory.RAW_OBJECT);
+    }
+}
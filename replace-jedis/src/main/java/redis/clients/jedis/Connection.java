@@ -2,26 +2,59 @@ package redis.clients.jedis;
 
 import redis.clients.jedis.commands.ProtocolCommand;
 import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.jedis.exceptions.JedisException;
+import redis.clients.jedis.exceptions.JedisNoScriptException;
+import redis.clients.jedis.metrics.ConnectionMetrics;
+import redis.clients.jedis.metrics.MetricsRegistry;
+import redis.clients.jedis.util.BufferPool;
+import redis.clients.jedis.util.ChannelRedisOutputStream;
 import redis.clients.jedis.util.IOUtils;
 import redis.clients.jedis.util.RedisInputStream;
 import redis.clients.jedis.util.RedisOutputStream;
 import redis.clients.jedis.util.SafeEncoder;
+import redis.clients.jedis.util.TimedQueue;
 
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * @author wangguangwu
  */
-public class Connection {
+public class Connection implements Closeable {
+
+    private static final CommandInterceptor[] NO_INTERCEPTORS = new CommandInterceptor[0];
 
     private Socket socket;
+    private HostAndPort hostAndPort;
     private final JedisSocketFactory socketFactory;
     private int soTimeout = 0;
     private RedisOutputStream outputStream;
     private RedisInputStream inputStream;
     private boolean broken = false;
-
+    private long maxBulkReplySize = Long.MAX_VALUE;
+    private ConnectionPool memberOf;
+    private BufferPool bufferPool = BufferPool.getDefault();
+    /**
+     * 没有设置 {@link MetricsRegistry} 时为 null，不做任何计时
+     */
+    private ConnectionMetrics metrics;
+    private CommandInterceptor[] interceptors = NO_INTERCEPTORS;
+    /**
+     * 有拦截器时记录已经写出、还没有读到响应的命令
+     */
+    private TimedQueue<CommandArguments> interceptedCommands;
 
     public Connection(final String host, final int port) {
         this(new HostAndPort(host, port));
@@ -31,66 +64,164 @@ public class Connection {
         this(new DefaultJedisSocketFactory(hostAndPort));
     }
 
+    public Connection(final HostAndPort hostAndPort, final JedisClientConfig config) {
+        this(new DefaultJedisSocketFactory(hostAndPort, config));
+    }
 
     public Connection(final JedisSocketFactory socketFactory) {
         this.socketFactory = socketFactory;
     }
 
+    /**
+     * 发送没有参数的命令，命令名使用预先编码好的字节
+     */
     public void sendCommand(final ProtocolCommand cmd) {
-        sendCommand(new CommandArguments(cmd));
+        if (interceptors.length != 0) {
+            // 拦截器需要完整的参数
+            sendCommand(new CommandArguments(cmd));
+            return;
+        }
+        try {
+            connect();
+            if (metrics != null) {
+                metrics.beforeSend();
+            }
+            Protocol.sendCommand(outputStream, cmd);
+            if (metrics != null) {
+                metrics.afterSend(cmd);
+            }
+        } catch (JedisConnectionException ex) {
+            throw sendFailed(ex);
+        }
+    }
+
+    /**
+     * 执行命令并解析响应；{@link ScriptCommandObject} 遇到 NOSCRIPT 时在这个连接上加载脚本并重试一次
+     */
+    public <T> T executeCommand(final CommandObject<T> commandObject) {
+        sendCommand(commandObject.getArguments());
+        try {
+            return commandObject.getBuilder().build(getOne());
+        } catch (JedisNoScriptException e) {
+            if (!(commandObject instanceof ScriptCommandObject)) {
+                throw e;
+            }
+            return loadScriptAndRetry((ScriptCommandObject<T>) commandObject);
+        }
+    }
+
+    /**
+     * SCRIPT LOAD 和重试的 EVALSHA 一起写出、一起读取，只需要一次往返
+     */
+    private <T> T loadScriptAndRetry(final ScriptCommandObject<T> commandObject) {
+        sendCommand(ScriptRegistry.scriptLoadArguments(commandObject.getScript()));
+        sendCommand(commandObject.getArguments());
+        final List<Object> replies = getMany(2);
+        for (Object reply : replies) {
+            if (reply instanceof JedisDataException) {
+                throw (JedisDataException) reply;
+            }
+        }
+        return commandObject.getBuilder().build(replies.get(1));
     }
 
     public void sendCommand(final CommandArguments args) {
         try {
             // 连接 redis
             connect();
+            final long start = interceptors.length == 0 ? 0 : beforeCommand(args);
+            if (metrics != null) {
+                metrics.beforeSend();
+            }
             // 把命令写入输出流中
             Protocol.sendCommand(outputStream, args);
+            if (metrics != null) {
+                metrics.afterSend(args.getCommand());
+            }
+            if (interceptors.length != 0) {
+                interceptedCommands.add(args, start);
+            }
         } catch (JedisConnectionException ex) {
+            throw sendFailed(ex);
+        }
+    }
+
+    private JedisConnectionException sendFailed(JedisConnectionException ex) {
+        /*
+         * When client send request which formed by invalid protocol, Redis send back error message
+         * before close connection. We try to read it to provide reason of failure.
+         */
+        try {
+            String errorMessage = Protocol.readErrorLineIfPossible(inputStream);
+            if (errorMessage != null && errorMessage.length() > 0) {
+                ex = new JedisConnectionException(errorMessage, ex.getCause());
+            }
+        } catch (Exception e) {
             /*
-             * When client send request which formed by invalid protocol, Redis send back error message
-             * before close connection. We try to read it to provide reason of failure.
+             * Catch any IOException or JedisConnectionException occurred from InputStream#read and just
+             * ignore. This approach is safe because reading error message is optional and connection
+             * will eventually be closed.
              */
-            try {
-                String errorMessage = Protocol.readErrorLineIfPossible(inputStream);
-                if (errorMessage != null && errorMessage.length() > 0) {
-                    ex = new JedisConnectionException(errorMessage, ex.getCause());
-                }
-            } catch (Exception e) {
-                /*
-                 * Catch any IOException or JedisConnectionException occurred from InputStream#read and just
-                 * ignore. This approach is safe because reading error message is optional and connection
-                 * will eventually be closed.
-                 */
-            }
-            // Any other exceptions related to connection?
-            // 设置标注为为断开
-            broken = true;
-            throw ex;
         }
+        // Any other exceptions related to connection?
+        // 设置标注为为断开
+        markBroken();
+        return ex;
     }
 
     public void connect() throws JedisConnectionException {
         if (!isConnected()) {
             try {
-                socket = socketFactory.createSocket();
+                final long start = metrics == null ? 0 : System.nanoTime();
+                if (socketFactory instanceof JedisChannelFactory) {
+                    // 通过通道聚集写出大参数，读取仍然走 socket 适配器，保证读超时生效
+                    final SocketChannel channel = ((JedisChannelFactory) socketFactory).createChannel();
+                    socket = channel.socket();
+                    final ChannelRedisOutputStream channelOutputStream = bufferPool == null
+                            ? new ChannelRedisOutputStream(channel) : new ChannelRedisOutputStream(channel, bufferPool);
+                    if (metrics != null) {
+                        channelOutputStream.setMeter(metrics.getWriteMeter());
+                    }
+                    outputStream = channelOutputStream;
+                } else {
+                    socket = socketFactory.createSocket();
+                    OutputStream out = socket.getOutputStream();
+                    if (metrics != null) {
+                        out = metrics.getWriteMeter().wrap(out);
+                    }
+                    outputStream = bufferPool == null ? new RedisOutputStream(out)
+                            : new RedisOutputStream(out, bufferPool);
+                }
                 soTimeout = socket.getSoTimeout(); //?
+                final SocketAddress remote = socket.getRemoteSocketAddress();
+                // Unix domain socket 使用路径作为主机名
+                hostAndPort = remote instanceof InetSocketAddress
+                        ? new HostAndPort(socket.getInetAddress().getHostAddress(), socket.getPort())
+                        : new HostAndPort(String.valueOf(remote), 0);
+                if (interceptedCommands != null) {
+                    interceptedCommands.clear();
+                }
 
-                // 输出、输入流
-                outputStream = new RedisOutputStream(socket.getOutputStream());
-                inputStream = new RedisInputStream(socket.getInputStream());
+                // 输入流
+                InputStream in = socket.getInputStream();
+                if (metrics != null) {
+                    in = metrics.getReadMeter().wrap(in);
+                    metrics.connected(System.nanoTime() - start);
+                }
+                inputStream = bufferPool == null ? new RedisInputStream(in)
+                        : new RedisInputStream(in, bufferPool);
 
                 // 成功初始化后，设置标志位为 false
                 broken = false;
 
             } catch (JedisConnectionException jce) {
                 // 设置标志位为 false
-                setBroken();
+                markBroken();
                 throw jce;
 
             } catch (IOException ioe) {
                 // 设置标志位为 false
-                setBroken();
+                markBroken();
                 throw new JedisConnectionException("Failed to create input/output stream", ioe);
 
             } finally {
@@ -103,10 +234,139 @@ public class Connection {
     }
 
 
+    /**
+     * 读取时不再超时，用于长时间等待推送消息的连接
+     */
+    public void setTimeoutInfinite() {
+        try {
+            if (!isConnected()) {
+                connect();
+            }
+            socket.setSoTimeout(0);
+        } catch (IOException ex) {
+            markBroken();
+            throw new JedisConnectionException(ex);
+        }
+    }
+
+    public void rollbackTimeout() {
+        try {
+            socket.setSoTimeout(soTimeout);
+        } catch (IOException ex) {
+            markBroken();
+            throw new JedisConnectionException(ex);
+        }
+    }
+
+    /**
+     * 读写缓冲区使用的缓冲池，null 表示每个连接使用固定大小的独立缓冲区，需要在连接建立之前设置
+     */
+    public void setBufferPool(final BufferPool bufferPool) {
+        this.bufferPool = bufferPool;
+    }
+
+    /**
+     * 指标的接收方，null 表示不统计，需要在连接建立之前设置
+     */
+    public void setMetricsRegistry(final MetricsRegistry registry) {
+        this.metrics = registry == null ? null : new ConnectionMetrics(registry);
+    }
+
+    public MetricsRegistry getMetricsRegistry() {
+        return metrics == null ? null : metrics.getRegistry();
+    }
+
+    /**
+     * 添加命令拦截器，按添加的顺序调用
+     */
+    public void addInterceptor(final CommandInterceptor interceptor) {
+        final CommandInterceptor[] copy = Arrays.copyOf(interceptors, interceptors.length + 1);
+        copy[interceptors.length] = interceptor;
+        if (interceptedCommands == null) {
+            interceptedCommands = new TimedQueue<>();
+        }
+        interceptors = copy;
+    }
+
+    /**
+     * 当前连接的服务端地址，连接建立之前为 null
+     */
+    public HostAndPort getHostAndPort() {
+        return hostAndPort;
+    }
+
+    public void setHandlingPool(final ConnectionPool pool) {
+        this.memberOf = pool;
+    }
+
+    /**
+     * 属于连接池的连接归还给连接池，否则断开连接
+     */
+    @Override
+    public void close() {
+        if (memberOf != null) {
+            ConnectionPool pool = this.memberOf;
+            this.memberOf = null;
+            if (isBroken()) {
+                pool.returnBrokenResource(this);
+            } else {
+                pool.returnResource(this);
+            }
+        } else {
+            disconnect();
+        }
+    }
+
+    public void disconnect() {
+        if (isConnected()) {
+            try {
+                // 已经断开的连接不再刷新缓冲区，避免关闭时再抛出异常
+                if (!broken) {
+                    outputStream.flush();
+                }
+                socket.close();
+            } catch (IOException ex) {
+                throw new JedisConnectionException(ex);
+            } finally {
+                IOUtils.closeQuietly(socket);
+                setBroken();
+            }
+        }
+    }
+
     public void setBroken() {
         broken = true;
     }
 
+    /**
+     * 建立连接时 socket 的读超时，毫秒，0 表示不超时
+     */
+    public int getSoTimeout() {
+        return soTimeout;
+    }
+
+    /**
+     * 读写失败导致连接不可用，和主动断开区分开统计
+     */
+    private void markBroken() {
+        if (!broken && metrics != null) {
+            metrics.broken();
+        }
+        broken = true;
+    }
+
+    public boolean isBroken() {
+        return broken;
+    }
+
+    public boolean ping() {
+        sendCommand(Protocol.Command.PING);
+        if (!readStatusEquals(Protocol.BYTES_PONG)) {
+            throw new JedisException("Unexpected reply to PING.");
+        }
+        return true;
+    }
+
     public boolean isConnected() {
         return socket != null && socket.isBound() && !socket.isClosed() && socket.isConnected()
                 && !socket.isInputShutdown() && !socket.isOutputShutdown();
@@ -125,28 +385,241 @@ public class Connection {
         }
     }
 
+    public Object getOne() {
+        flush();
+        return readProtocolWithCheckingBroken();
+    }
+
+    /**
+     * 一次性刷新缓冲区，再按顺序读取 count 个响应，错误响应以 {@link JedisDataException} 对象放入结果
+     */
+    public List<Object> getMany(final int count) {
+        flush();
+        final List<Object> responses = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            try {
+                responses.add(readProtocolWithCheckingBroken());
+            } catch (JedisDataException e) {
+                responses.add(e);
+            }
+        }
+        return responses;
+    }
+
+    /**
+     * 读取一个响应并回调 visitor，不构造响应对象
+     */
+    public void readReply(final ReplyVisitor visitor) {
+        flush();
+        beforeRead();
+        try {
+            Protocol.read(inputStream, visitor);
+        } catch (JedisConnectionException exc) {
+            markBroken();
+            throw exc;
+        } finally {
+            afterRead();
+        }
+    }
+
+    /**
+     * 读取数组响应的头部，返回按需解析元素的游标，游标读完或关闭之前不能在这个连接上执行其他命令。
+     * 响应在游标读完或读取出错时才算读完，读取耗时和拦截器的回调都包括读取元素的时间
+     */
+    public ReplyCursor getReplyCursor() {
+        flush();
+        beforeRead();
+        final int size;
+        try {
+            size = Protocol.readArrayHeader(inputStream);
+        } catch (JedisConnectionException exc) {
+            markBroken();
+            afterRead();
+            throw exc;
+        } catch (RuntimeException exc) {
+            afterRead();
+            throw exc;
+        }
+        final ReplyCursor cursor = new ReplyCursor(inputStream, size) {
+            private boolean done;
+
+            @Override
+            protected void onFinished() {
+                if (!done) {
+                    done = true;
+                    afterRead();
+                }
+            }
+
+            @Override
+            protected void onConnectionError(final JedisConnectionException e) {
+                markBroken();
+                if (!done) {
+                    done = true;
+                    afterRead();
+                }
+            }
+        };
+        cursor.notifyIfFinished();
+        return cursor;
+    }
+
+    /**
+     * 读取整数响应，不装箱
+     */
+    public long readLongReply() {
+        flush();
+        beforeRead();
+        try {
+            return Protocol.readLongReply(inputStream);
+        } catch (JedisConnectionException exc) {
+            markBroken();
+            throw exc;
+        } finally {
+            afterRead();
+        }
+    }
+
+    /**
+     * 读取状态响应并和 expected 比较，例如 {@link Protocol#BYTES_OK}，不构造字符串
+     */
+    public boolean readStatusEquals(final byte[] expected) {
+        flush();
+        beforeRead();
+        try {
+            return Protocol.readStatusEquals(inputStream, expected);
+        } catch (JedisConnectionException exc) {
+            markBroken();
+            throw exc;
+        } finally {
+            afterRead();
+        }
+    }
+
+    /**
+     * 流式读取的 bulk 响应的长度上限，超过时丢弃响应并抛出 {@link JedisDataException}
+     */
+    public void setMaxBulkReplySize(final long maxBulkReplySize) {
+        this.maxBulkReplySize = maxBulkReplySize;
+    }
+
+    public long getMaxBulkReplySize() {
+        return maxBulkReplySize;
+    }
+
+    /**
+     * 把 bulk 响应直接写入 out，返回长度，值不存在时返回 -1
+     */
+    public long getBulkReply(final OutputStream out) {
+        flush();
+        beforeRead();
+        try {
+            return Protocol.readBulkReply(inputStream, out, maxBulkReplySize);
+        } catch (IOException e) {
+            // 响应只读了一部分，连接已经无法继续使用
+            markBroken();
+            throw new JedisException("Failed to write the bulk reply to the output stream.", e);
+        } catch (JedisConnectionException exc) {
+            markBroken();
+            throw exc;
+        } finally {
+            afterRead();
+        }
+    }
+
+    public long getBulkReply(final WritableByteChannel channel) {
+        flush();
+        beforeRead();
+        try {
+            return Protocol.readBulkReply(inputStream, channel, maxBulkReplySize);
+        } catch (IOException e) {
+            markBroken();
+            throw new JedisException("Failed to write the bulk reply to the channel.", e);
+        } catch (JedisConnectionException exc) {
+            markBroken();
+            throw exc;
+        } finally {
+            afterRead();
+        }
+    }
+
+    public long getBulkReply(final ByteBuffer dst) {
+        flush();
+        beforeRead();
+        try {
+            return Protocol.readBulkReply(inputStream, dst, maxBulkReplySize);
+        } catch (JedisConnectionException exc) {
+            markBroken();
+            throw exc;
+        } finally {
+            afterRead();
+        }
+    }
+
+    /**
+     * 响应读完后归还读缓冲区，管道中还有未读的响应时缓冲区不会被归还
+     */
+    private void releaseInputBuffer() {
+        if (!broken) {
+            inputStream.releaseBuffer();
+        }
+    }
+
+    private void beforeRead() {
+        if (broken) {
+            throw new JedisConnectionException("Attempting to read from a broken connection");
+        }
+        if (metrics != null) {
+            metrics.beforeRead();
+        }
+    }
+
+    /**
+     * 一个响应读完，不论成功还是失败
+     */
+    private void afterRead() {
+        if (metrics != null) {
+            metrics.afterRead();
+        }
+        if (interceptors.length != 0 && !interceptedCommands.isEmpty()) {
+            final long elapsed = System.nanoTime() - interceptedCommands.peekTime();
+            final CommandArguments args = interceptedCommands.poll();
+            for (CommandInterceptor interceptor : interceptors) {
+                interceptor.afterCommand(this, args, elapsed);
+            }
+        }
+        releaseInputBuffer();
+    }
+
+    private long beforeCommand(final CommandArguments args) {
+        for (CommandInterceptor interceptor : interceptors) {
+            interceptor.beforeCommand(this, args);
+        }
+        return System.nanoTime();
+    }
+
     protected void flush() {
         try {
             // 刷新缓冲区，将所有数据都发送到 redis 服务器
             outputStream.flush();
         } catch (IOException ex) {
             // 断开
-            broken = true;
+            markBroken();
             throw new JedisConnectionException(ex);
         }
     }
 
     protected Object readProtocolWithCheckingBroken() {
         // 判断连接是否断开
-        if (broken) {
-            throw new JedisConnectionException("Attempting to read from a broken connection");
-        }
+        beforeRead();
 
         try {
             return Protocol.read(inputStream);
         } catch (JedisConnectionException exc) {
-            broken = true;
+            markBroken();
             throw exc;
+        } finally {
+            afterRead();
         }
     }
 }
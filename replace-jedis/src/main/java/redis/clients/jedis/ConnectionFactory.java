@@ -0,0 +1,93 @@
+package redis.clients.jedis;
+
+import redis.clients.jedis.csc.CacheConnection;
+import redis.clients.jedis.csc.ClientSideCache;
+import redis.clients.jedis.metrics.MetricsRegistry;
+import redis.clients.jedis.util.PooledObjectFactory;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * @author wangguangwu
+ */
+public class ConnectionFactory implements PooledObjectFactory<Connection> {
+
+    private final JedisSocketFactory jedisSocketFactory;
+    private final ClientSideCache clientSideCache;
+    private MetricsRegistry metricsRegistry;
+    private ScriptRegistry scriptRegistry;
+    private final List<CommandInterceptor> interceptors = new CopyOnWriteArrayList<>();
+
+    public ConnectionFactory(final HostAndPort hostAndPort) {
+        this(new DefaultJedisSocketFactory(hostAndPort));
+    }
+
+    public ConnectionFactory(final JedisSocketFactory jedisSocketFactory) {
+        this(jedisSocketFactory, null);
+    }
+
+    public ConnectionFactory(final JedisSocketFactory jedisSocketFactory, final ClientSideCache clientSideCache) {
+        this.jedisSocketFactory = jedisSocketFactory;
+        this.clientSideCache = clientSideCache;
+    }
+
+    /**
+     * 之后创建的连接都向 registry 汇报指标，使用 {@link DefaultJedisSocketFactory} 时同时汇报 TLS 握手
+     */
+    public void setMetricsRegistry(final MetricsRegistry registry) {
+        this.metricsRegistry = registry;
+        if (jedisSocketFactory instanceof DefaultJedisSocketFactory) {
+            ((DefaultJedisSocketFactory) jedisSocketFactory).setMetricsRegistry(registry);
+        }
+    }
+
+    /**
+     * 之后创建的连接在建立后预先加载 registry 中的所有脚本
+     */
+    public void setScriptRegistry(final ScriptRegistry registry) {
+        this.scriptRegistry = registry;
+    }
+
+    /**
+     * 之后创建的连接都会添加这个拦截器
+     */
+    public void addInterceptor(final CommandInterceptor interceptor) {
+        interceptors.add(interceptor);
+    }
+
+    @Override
+    public Connection makeObject() throws Exception {
+        Connection connection = clientSideCache == null ? new Connection(jedisSocketFactory)
+                : new CacheConnection(jedisSocketFactory, clientSideCache);
+        connection.setMetricsRegistry(metricsRegistry);
+        for (CommandInterceptor interceptor : interceptors) {
+            connection.addInterceptor(interceptor);
+        }
+        try {
+            connection.connect();
+            if (scriptRegistry != null) {
+                // 加载失败的脚本在执行时再处理，不影响连接的创建
+                scriptRegistry.preload(connection);
+            }
+            return connection;
+        } catch (Exception e) {
+            connection.disconnect();
+            throw e;
+        }
+    }
+
+    @Override
+    public void destroyObject(final Connection connection) throws Exception {
+        connection.disconnect();
+    }
+
+    @Override
+    public boolean validateObject(final Connection connection) {
+        try {
+            return connection.isConnected() && connection.ping();
+        } catch (final Exception e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package redis.clients.jedis;
+
+import redis.clients.jedis.util.GenericPoolConfig;
+import redis.clients.jedis.util.Pool;
+
+/**
+ * @author wangguangwu
+ */
+public class ConnectionPool extends Pool<Connection> {
+
+    public ConnectionPool(final HostAndPort hostAndPort) {
+        this(hostAndPort, new JedisPoolConfig());
+    }
+
+    public ConnectionPool(final HostAndPort hostAndPort, final GenericPoolConfig poolConfig) {
+        this(poolConfig, new ConnectionFactory(hostAndPort));
+    }
+
+    public ConnectionPool(final HostAndPort hostAndPort, final JedisClientConfig clientConfig,
+                          final GenericPoolConfig poolConfig) {
+        this(poolConfig, new ConnectionFactory(new DefaultJedisSocketFactory(hostAndPort, clientConfig)));
+    }
+
+    public ConnectionPool(final GenericPoolConfig poolConfig, final ConnectionFactory factory) {
+        super(poolConfig, factory);
+    }
+
+    @Override
+    public Connection getResource() {
+        Connection conn = super.getResource();
+        conn.setHandlingPool(this);
+        return conn;
+    }
+}
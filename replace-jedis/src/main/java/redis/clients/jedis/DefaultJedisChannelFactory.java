@@ -0,0 +1,58 @@
+package redis.clients.jedis;
+
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.util.IOUtils;
+
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.SocketChannel;
+
+/**
+ * 基于 {@link SocketChannel} 的连接工厂，不支持 SSL
+ *
+ * @author wangguangwu
+ */
+public class DefaultJedisChannelFactory implements JedisChannelFactory {
+
+    private final HostAndPort hostAndPort;
+    private int connectionTimeout = Protocol.DEFAULT_TIMEOUT;
+    private int socketTimeout = Protocol.DEFAULT_TIMEOUT;
+
+    public DefaultJedisChannelFactory(final HostAndPort hostAndPort) {
+        this.hostAndPort = hostAndPort;
+    }
+
+    @Override
+    public SocketChannel createChannel() throws JedisConnectionException {
+        SocketChannel channel = null;
+        try {
+            channel = SocketChannel.open();
+            channel.configureBlocking(true);
+
+            final Socket socket = channel.socket();
+            socket.setReuseAddress(true);
+            socket.setKeepAlive(true);
+            socket.setTcpNoDelay(true);
+            socket.setSoLinger(true, 0);
+            // 通过 socket 适配器连接和读取，连接超时和读超时才会生效
+            socket.connect(new InetSocketAddress(hostAndPort.getHost(), hostAndPort.getPort()), connectionTimeout);
+            socket.setSoTimeout(socketTimeout);
+            return channel;
+        } catch (Exception ex) {
+            IOUtils.closeQuietly(channel);
+            throw new JedisConnectionException("Failed to create socket channel.", ex);
+        }
+    }
+
+    public HostAndPort getHostAndPort() {
+        return hostAndPort;
+    }
+
+    public void setConnectionTimeout(final int connectionTimeout) {
+        this.connectionTimeout = connectionTimeout;
+    }
+
+    public void setSocketTimeout(final int socketTimeout) {
+        this.socketTimeout = socketTimeout;
+    }
+}
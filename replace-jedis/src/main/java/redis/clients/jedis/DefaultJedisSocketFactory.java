@@ -1,18 +1,33 @@
 package redis.clients.jedis;
 
 import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.metrics.MetricsRegistry;
+import redis.clients.jedis.util.DnsCache;
 import redis.clients.jedis.util.IOUtils;
 
 import javax.net.ssl.HostnameVerifier;
 import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSession;
 import javax.net.ssl.SSLSocket;
 import javax.net.ssl.SSLSocketFactory;
+import java.io.IOException;
+import java.net.Inet6Address;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.net.SocketException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * @author wangguangwu
@@ -31,6 +46,12 @@ public class DefaultJedisSocketFactory implements JedisSocketFactory {
     private SSLParameters sslParameters = null;
     private HostnameVerifier hostnameVerifier = null;
     private int connectionTimeout = Protocol.DEFAULT_TIMEOUT;
+    private DnsCache dnsCache = DnsCache.getDefault();
+    /**
+     * 小于 0 表示依次尝试解析出的地址
+     */
+    private long happyEyeballsDelayMillis = -1;
+    private volatile MetricsRegistry metricsRegistry;
 
     @Override
     public Socket createSocket() throws JedisConnectionException {
@@ -45,22 +66,7 @@ public class DefaultJedisSocketFactory implements JedisSocketFactory {
 
             // ssl 处理
             if (ssl) {
-                SSLSocketFactory _sslSocketFactory = this.sslSocketFactory;
-                if (null == _sslSocketFactory) {
-                    _sslSocketFactory = (SSLSocketFactory) SSLSocketFactory.getDefault();
-                }
-                socket = _sslSocketFactory.createSocket(socket, _hostAndPort.getHost(), _hostAndPort.getPort(), true);
-
-                if (null != sslParameters) {
-                    ((SSLSocket) socket).setSSLParameters(sslParameters);
-                }
-
-                if (null != hostnameVerifier
-                        && !hostnameVerifier.verify(_hostAndPort.getHost(), ((SSLSocket) socket).getSession())) {
-                    String message = String.format(
-                            "The connection to '%s' failed ssl/tls hostname verification.", _hostAndPort.getHost());
-                    throw new JedisConnectionException(message);
-                }
+                socket = upgradeToTls(socket, _hostAndPort);
             }
 
             return socket;
@@ -85,17 +91,38 @@ public class DefaultJedisSocketFactory implements JedisSocketFactory {
             this.hostAndPort = hostAndPort;
         }
         if (config != null) {
-            // 当前方法传入的 config 为空，也就是不支持 ssl 模块，暂时跳过
-//            this.connectionTimeout = config.getConnectionTimeoutMillis();
-//            this.socketTimeout = config.getSocketTimeoutMillis();
-//            this.ssl = config.isSsl();
-//            this.sslSocketFactory = config.getSslSocketFactory();
-//            this.sslParameters = config.getSslParameters();
-//            this.hostnameVerifier = config.getHostnameVerifier();
-//            this.hostAndPortMapper = config.getHostAndPortMapper();
+            this.connectionTimeout = config.getConnectionTimeoutMillis();
+            this.socketTimeout = config.getSocketTimeoutMillis();
+            this.ssl = config.isSsl();
+            this.sslSocketFactory = config.getSslSocketFactory();
+            this.sslParameters = config.getSslParameters();
+            this.hostnameVerifier = config.getHostnameVerifier();
+            this.hostAndPortMapper = config.getHostAndPortMapper();
         }
     }
 
+    /**
+     * 主机名解析使用的缓存，null 表示每次连接都重新解析
+     */
+    public void setDnsCache(final DnsCache dnsCache) {
+        this.dnsCache = dnsCache;
+    }
+
+    /**
+     * TLS 握手的耗时和是否恢复了之前的会话汇报给 registry，null 表示不汇报
+     */
+    public void setMetricsRegistry(final MetricsRegistry metricsRegistry) {
+        this.metricsRegistry = metricsRegistry;
+    }
+
+    /**
+     * 开启并行连接：解析出多个地址时，每隔 delayMillis 向下一个地址发起连接，前一个连接失败时立即发起下一个，
+     * 使用最先连接成功的 socket 并关闭其余的。小于 0 表示依次尝试，每个地址最多等待 connectionTimeout。
+     */
+    public void setHappyEyeballsDelay(final long delayMillis) {
+        this.happyEyeballsDelayMillis = delayMillis;
+    }
+
     protected HostAndPort getSocketHostAndPort() {
         HostAndPortMapper mapper = hostAndPortMapper;
         HostAndPort hap = this.hostAndPort;
@@ -108,28 +135,186 @@ public class DefaultJedisSocketFactory implements JedisSocketFactory {
         return hap;
     }
 
+    /**
+     * 在已经连接的 socket 上完成 TLS 握手。
+     * <p>
+     * 会话按 hostAndPort 的主机名和端口在 SSLSocketFactory 所属的 SSLContext 中缓存，
+     * 同一个 SSLContext 再次连接这个节点时恢复缓存的会话。握手在这里同步完成，超时受 socketTimeout 限制。
+     */
+    private SSLSocket upgradeToTls(final Socket socket, final HostAndPort hostAndPort) throws IOException {
+        SSLSocketFactory _sslSocketFactory = this.sslSocketFactory;
+        if (null == _sslSocketFactory) {
+            _sslSocketFactory = (SSLSocketFactory) SSLSocketFactory.getDefault();
+        }
+        final SSLSocket sslSocket = (SSLSocket) _sslSocketFactory.createSocket(socket, hostAndPort.getHost(),
+                hostAndPort.getPort(), true);
+
+        if (null != sslParameters) {
+            sslSocket.setSSLParameters(sslParameters);
+        }
+
+        final long startMillis = System.currentTimeMillis();
+        final long start = System.nanoTime();
+        sslSocket.startHandshake();
+        final long elapsed = System.nanoTime() - start;
+        final SSLSession session = sslSocket.getSession();
+        final MetricsRegistry registry = this.metricsRegistry;
+        if (registry != null) {
+            // 恢复的会话保留第一次握手时的创建时间
+            registry.recordTlsHandshake(elapsed, session.getCreationTime() < startMillis);
+        }
+
+        if (null != hostnameVerifier && !hostnameVerifier.verify(hostAndPort.getHost(), session)) {
+            String message = String.format(
+                    "The connection to '%s' failed ssl/tls hostname verification.", hostAndPort.getHost());
+            throw new JedisConnectionException(message);
+        }
+        return sslSocket;
+    }
+
     private Socket connectToFirstSuccessfulHost(HostAndPort hostAndPort) throws Exception {
-        List<InetAddress> hosts = Arrays.asList(InetAddress.getAllByName(hostAndPort.getHost()));
+        final DnsCache cache = this.dnsCache;
+        List<InetAddress> hosts = cache == null ? Arrays.asList(InetAddress.getAllByName(hostAndPort.getHost()))
+                : cache.resolve(hostAndPort.getHost());
         if (hosts.size() > 1) {
+            // 缓存中的列表是共享的，打乱副本
+            hosts = new ArrayList<>(hosts);
             Collections.shuffle(hosts);
         }
 
-        JedisConnectionException jce = new JedisConnectionException("Failed to connect to any host resolved for DNS name.");
+        final JedisConnectionException jce = new JedisConnectionException(
+                "Failed to connect to any host resolved for DNS name.");
+        if (happyEyeballsDelayMillis >= 0 && hosts.size() > 1) {
+            final Socket socket = connectInParallel(interleaveFamilies(hosts), hostAndPort.getPort(), jce);
+            if (socket != null) {
+                return socket;
+            }
+        } else {
+            for (InetAddress host : hosts) {
+                final Socket socket = newSocket();
+                try {
+                    socket.connect(new InetSocketAddress(host, hostAndPort.getPort()), connectionTimeout);
+                    return socket;
+                } catch (Exception e) {
+                    IOUtils.closeQuietly(socket);
+                    jce.addSuppressed(e);
+                }
+            }
+        }
+        // 地址可能已经变化，下次连接重新解析
+        if (cache != null) {
+            cache.invalidate(hostAndPort.getHost());
+        }
+        throw jce;
+    }
+
+    private Socket newSocket() throws SocketException {
+        Socket socket = new Socket();
+
+        socket.setReuseAddress(true);
+        socket.setKeepAlive(true); // Will monitor the TCP connection is valid
+        socket.setTcpNoDelay(true); // Socket buffer Whetherclosed, to ensure timely delivery of data
+        socket.setSoLinger(true, 0); // Control calls close () method, the underlying socket is closed immediately
+        return socket;
+    }
+
+    /**
+     * 按 IPv6、IPv4 交替排列，被屏蔽的往往是整个地址族
+     */
+    private static List<InetAddress> interleaveFamilies(final List<InetAddress> hosts) {
+        final List<InetAddress> v6 = new ArrayList<>();
+        final List<InetAddress> v4 = new ArrayList<>();
         for (InetAddress host : hosts) {
-            try {
-                Socket socket = new Socket();
+            (host instanceof Inet6Address ? v6 : v4).add(host);
+        }
+        final List<InetAddress> result = new ArrayList<>(hosts.size());
+        for (int i = 0; i < Math.max(v6.size(), v4.size()); i++) {
+            if (i < v6.size()) {
+                result.add(v6.get(i));
+            }
+            if (i < v4.size()) {
+                result.add(v4.get(i));
+            }
+        }
+        return result;
+    }
 
-                socket.setReuseAddress(true);
-                socket.setKeepAlive(true); // Will monitor the TCP connection is valid
-                socket.setTcpNoDelay(true); // Socket buffer Whetherclosed, to ensure timely delivery of data
-                socket.setSoLinger(true, 0); // Control calls close () method, the underlying socket is closed immediately
+    /**
+     * 错开时间并行连接，返回最先成功的 socket，全部失败时返回 null，失败原因加入 jce
+     */
+    private Socket connectInParallel(final List<InetAddress> hosts, final int port,
+                                     final JedisConnectionException jce) throws InterruptedException {
+        final int n = hosts.size();
+        final Socket[] sockets = new Socket[n];
+        final AtomicBoolean closed = new AtomicBoolean(false);
+        final CompletionService<Socket> attempts = new ExecutorCompletionService<>(ConnectExecutorHolder.EXECUTOR);
+        int started = 0;
+        int finished = 0;
+        Socket winner = null;
+        try {
+            while (winner == null && finished < n) {
+                if (started == finished) {
+                    // 没有进行中的连接，立即发起下一个
+                    started = startAttempt(attempts, sockets, closed, hosts, started, port);
+                    continue;
+                }
+                final Future<Socket> done = started < n
+                        ? attempts.poll(happyEyeballsDelayMillis, TimeUnit.MILLISECONDS) : attempts.take();
+                if (done == null) {
+                    started = startAttempt(attempts, sockets, closed, hosts, started, port);
+                    continue;
+                }
+                finished++;
+                try {
+                    winner = done.get();
+                } catch (ExecutionException e) {
+                    jce.addSuppressed(e.getCause());
+                }
+            }
+            return winner;
+        } finally {
+            // 关闭其余的 socket，还在连接中的尝试会因此立即失败
+            synchronized (sockets) {
+                closed.set(true);
+                for (Socket socket : sockets) {
+                    if (socket != null && socket != winner) {
+                        IOUtils.closeQuietly(socket);
+                    }
+                }
+            }
+        }
+    }
 
-                socket.connect(new InetSocketAddress(host.getHostAddress(), hostAndPort.getPort()), connectionTimeout);
+    private int startAttempt(final CompletionService<Socket> attempts, final Socket[] sockets,
+                             final AtomicBoolean closed, final List<InetAddress> hosts, final int index,
+                             final int port) {
+        attempts.submit(() -> {
+            final Socket socket = newSocket();
+            synchronized (sockets) {
+                // 已经有连接成功或者放弃等待，不再发起连接
+                if (closed.get()) {
+                    IOUtils.closeQuietly(socket);
+                    throw new SocketException("Connect attempt cancelled.");
+                }
+                sockets[index] = socket;
+            }
+            try {
+                socket.connect(new InetSocketAddress(hosts.get(index), port), connectionTimeout);
                 return socket;
             } catch (Exception e) {
-                jce.addSuppressed(e);
+                IOUtils.closeQuietly(socket);
+                throw e;
             }
-        }
-        throw jce;
+        });
+        return index + 1;
+    }
+
+    private static final class ConnectExecutorHolder {
+
+        private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "jedis-parallel-connect");
+            t.setDaemon(true);
+            return t;
+        });
     }
 }
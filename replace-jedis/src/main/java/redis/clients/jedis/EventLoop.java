@@ -0,0 +1,212 @@
+package redis.clients.jedis;
+
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.util.IOUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * 单线程的 Selector 事件循环，负责若干 {@link AsyncConnection} 的读写。
+ * 其他线程通过 {@link #execute(Runnable, Consumer)} 提交的任务也在这个线程上执行。
+ * <p>
+ * 任务抛出的异常交给提交任务时指定的 onFailure，不影响其他任务；select 失败或者出现 Error 时事件循环退出，
+ * 所有连接以 {@link JedisConnectionException} 失败，之后提交的任务直接失败。
+ * <p>
+ * select 最多等待 {@link #TIMEOUT_CHECK_INTERVAL_MILLIS}，之后检查各个连接上等待响应超时的命令。
+ *
+ * @author wangguangwu
+ */
+class EventLoop implements Runnable, Closeable {
+
+    static final long TIMEOUT_CHECK_INTERVAL_MILLIS = 50;
+
+    private final Selector selector;
+    private final Thread thread;
+    private final ConcurrentLinkedQueue<Task> tasks = new ConcurrentLinkedQueue<>();
+    // 避免每次提交任务都唤醒 selector
+    private final AtomicBoolean wakenUp = new AtomicBoolean(false);
+    private volatile boolean running = true;
+    // 事件循环已经退出，不再执行任务
+    private volatile boolean terminated = false;
+    private volatile Throwable terminationCause;
+
+    EventLoop(final String name) {
+        try {
+            this.selector = Selector.open();
+        } catch (IOException e) {
+            throw new JedisConnectionException("Failed to open selector.", e);
+        }
+        this.thread = new Thread(this, name);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    Selector selector() {
+        return selector;
+    }
+
+    boolean inEventLoop() {
+        return Thread.currentThread() == thread;
+    }
+
+    /**
+     * @param onFailure task 抛出异常，或者事件循环已经退出、task 不会再执行时调用，用于完成等待这个任务的 future
+     */
+    void execute(final Runnable task, final Consumer<Throwable> onFailure) {
+        tasks.add(new Task(task, onFailure));
+        if (terminated) {
+            // 事件循环可能在入队之前已经清空了队列
+            failTasks();
+            return;
+        }
+        if (!inEventLoop() && wakenUp.compareAndSet(false, true)) {
+            selector.wakeup();
+        }
+    }
+
+    @Override
+    public void run() {
+        Throwable cause = null;
+        try {
+            long lastTimeoutCheck = System.nanoTime();
+            while (running) {
+                selector.select(TIMEOUT_CHECK_INTERVAL_MILLIS);
+                wakenUp.set(false);
+                processSelectedKeys();
+                runTasks();
+                final long now = System.nanoTime();
+                if (now - lastTimeoutCheck >= TimeUnit.MILLISECONDS.toNanos(TIMEOUT_CHECK_INTERVAL_MILLIS)) {
+                    lastTimeoutCheck = now;
+                    checkTimeouts(now);
+                }
+            }
+        } catch (Throwable t) {
+            // 单个连接和任务的异常已经各自处理，到这里说明 selector 不可用或者出现了 Error
+            cause = t;
+        } finally {
+            shutdown(cause);
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+    }
+
+    private void shutdown(final Throwable cause) {
+        running = false;
+        terminationCause = cause;
+        final JedisConnectionException failure = terminatedException();
+        try {
+            for (SelectionKey key : selector.keys()) {
+                if (key.attachment() instanceof AsyncConnection) {
+                    ((AsyncConnection) key.attachment()).failAndClose(failure);
+                }
+            }
+        } catch (Throwable t) {
+            // selector 已经关闭时无法再遍历
+            failure.addSuppressed(t);
+        } finally {
+            IOUtils.closeQuietly(selector);
+            terminated = true;
+            failTasks();
+        }
+    }
+
+    private void failTasks() {
+        final JedisConnectionException failure = terminatedException();
+        Task task;
+        while ((task = tasks.poll()) != null) {
+            task.fail(failure);
+        }
+    }
+
+    private JedisConnectionException terminatedException() {
+        final Throwable cause = terminationCause;
+        return cause == null ? new JedisConnectionException("Event loop is closed.")
+                : new JedisConnectionException("Event loop terminated unexpectedly.", cause);
+    }
+
+    private void processSelectedKeys() {
+        final Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+        while (it.hasNext()) {
+            final SelectionKey key = it.next();
+            it.remove();
+            final AsyncConnection connection = (AsyncConnection) key.attachment();
+            try {
+                if (!key.isValid()) {
+                    connection.close();
+                    continue;
+                }
+                if (key.isWritable()) {
+                    connection.onWritable();
+                }
+                if (key.isValid() && key.isReadable()) {
+                    connection.onReadable();
+                }
+            } catch (Exception e) {
+                connection.failAndClose(e);
+            }
+        }
+    }
+
+    private void checkTimeouts(final long now) {
+        for (SelectionKey key : selector.keys()) {
+            if (key.isValid() && key.attachment() instanceof AsyncConnection) {
+                ((AsyncConnection) key.attachment()).checkTimeouts(now);
+            }
+        }
+    }
+
+    private void runTasks() {
+        Task task;
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.runnable.run();
+            } catch (Exception e) {
+                task.fail(e);
+            } catch (Error e) {
+                task.fail(e);
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+        if (!inEventLoop()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static final class Task {
+
+        final Runnable runnable;
+        final Consumer<Throwable> onFailure;
+
+        Task(final Runnable runnable, final Consumer<Throwable> onFailure) {
+            this.runnable = runnable;
+            this.onFailure = onFailure;
+        }
+
+        void fail(final Throwable cause) {
+            try {
+                onFailure.accept(cause);
+            } catch (RuntimeException e) {
+                // onFailure 只完成 future，不应该抛出异常
+            }
+        }
+    }
+}
@@ -1,16 +1,102 @@
 package redis.clients.jedis;
 
+import redis.clients.jedis.codec.ValueCodec;
+import redis.clients.jedis.commands.ProtocolCommand;
+import redis.clients.jedis.util.Pool;
+import redis.clients.jedis.util.SafeEncoder;
+
+import java.io.Closeable;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
 /**
  * @author wangguangwu
  */
-public class Jedis implements ServerCommands {
+public class Jedis implements ServerCommands, StringCommands, KeyCommands, Closeable {
 
     protected final Connection connection;
+    private final CommandObjects commandObjects = new CommandObjects();
+    private Pipeline pipeline = null;
+    private Transaction transaction = null;
+    private ReplyCursor cursor = null;
+    private ScanSpliterator<?> scan = null;
+    protected Pool<Jedis> dataSource = null;
 
     public Jedis(final String host, final int port) {
         connection = new Connection(host, port);
     }
 
+    public Jedis(final HostAndPort hostAndPort) {
+        connection = new Connection(hostAndPort);
+    }
+
+    public Jedis(final Connection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * 设置二进制值的编解码，例如用 {@link redis.clients.jedis.codec.DeflateValueCodec} 压缩大的值，null 表示不编解码。
+     * <p>
+     * 直接写入 OutputStream、通道或 ByteBuffer 的 GET 得到的是 Redis 中保存的原始字节，不经过解码
+     */
+    public void setValueCodec(final ValueCodec codec) {
+        commandObjects.setValueCodec(codec);
+    }
+
+    public Connection getConnection() {
+        return connection;
+    }
+
+    protected void setDataSource(final Pool<Jedis> jedisPool) {
+        this.dataSource = jedisPool;
+    }
+
+    /**
+     * 从连接池借出的 Jedis 归还给连接池，否则关闭连接
+     */
+    @Override
+    public void close() {
+        if (dataSource != null) {
+            Pool<Jedis> pool = this.dataSource;
+            this.dataSource = null;
+            if (connection.isBroken()) {
+                pool.returnBrokenResource(this);
+            } else {
+                resetState();
+                pool.returnResource(this);
+            }
+        } else {
+            connection.close();
+        }
+    }
+
+    /**
+     * 读取管道中未读取的响应，保证连接可以被复用
+     */
+    public void resetState() {
+        if (scan != null) {
+            scan.close();
+            scan = null;
+        }
+        if (cursor != null) {
+            cursor.close();
+            cursor = null;
+        }
+        if (transaction != null) {
+            transaction.close();
+            transaction = null;
+        }
+        if (pipeline != null) {
+            pipeline.close();
+            pipeline = null;
+        }
+    }
+
     @Override
     public String ping() {
         checkIsInMultiOrPipeline();
@@ -19,15 +105,217 @@ public class Jedis implements ServerCommands {
         return connection.getStatusCodeReply();
     }
 
+    @Override
+    public String get(final String key) {
+        checkIsInMultiOrPipeline();
+        return connection.executeCommand(commandObjects.get(key));
+    }
+
+    @Override
+    public byte[] get(final byte[] key) {
+        checkIsInMultiOrPipeline();
+        return connection.executeCommand(commandObjects.get(key));
+    }
+
+    /**
+     * 把值直接写入 out，不在堆上构造完整的值，适合很大的值
+     *
+     * @return 值的长度，key 不存在时返回 -1
+     */
+    public long get(final byte[] key, final OutputStream out) {
+        checkIsInMultiOrPipeline();
+        connection.sendCommand(commandObjects.get(key).getArguments());
+        return connection.getBulkReply(out);
+    }
+
+    public long get(final byte[] key, final WritableByteChannel channel) {
+        checkIsInMultiOrPipeline();
+        connection.sendCommand(commandObjects.get(key).getArguments());
+        return connection.getBulkReply(channel);
+    }
+
+    /**
+     * 值写入 dst 的剩余空间，值超过剩余空间时抛出 {@link redis.clients.jedis.exceptions.JedisDataException}
+     */
+    public long get(final byte[] key, final ByteBuffer dst) {
+        checkIsInMultiOrPipeline();
+        connection.sendCommand(commandObjects.get(key).getArguments());
+        return connection.getBulkReply(dst);
+    }
+
+    @Override
+    public String set(final String key, final String value) {
+        checkIsInMultiOrPipeline();
+        return connection.executeCommand(commandObjects.set(key, value));
+    }
+
+    @Override
+    public String set(final byte[] key, final byte[] value) {
+        checkIsInMultiOrPipeline();
+        return connection.executeCommand(commandObjects.set(key, value));
+    }
+
+    @Override
+    public long incr(final String key) {
+        checkIsInMultiOrPipeline();
+        connection.sendCommand(commandObjects.incr(key).getArguments());
+        return connection.readLongReply();
+    }
+
+    @Override
+    public List<String> mget(final String... keys) {
+        checkIsInMultiOrPipeline();
+        return connection.executeCommand(commandObjects.mget(keys));
+    }
+
+    @Override
+    public long del(final String... keys) {
+        checkIsInMultiOrPipeline();
+        connection.sendCommand(commandObjects.del(keys).getArguments());
+        return connection.readLongReply();
+    }
+
+    @Override
+    public boolean exists(final String key) {
+        checkIsInMultiOrPipeline();
+        connection.sendCommand(commandObjects.exists(key).getArguments());
+        return connection.readLongReply() == 1;
+    }
+
+    /**
+     * 执行已注册的脚本，只发送 EVALSHA；服务端没有这个脚本时加载并重试
+     */
+    public Object eval(final Script script, final List<String> keys, final List<String> args) {
+        checkIsInMultiOrPipeline();
+        return connection.executeCommand(commandObjects.evalsha(script, keys, args));
+    }
+
+    /**
+     * 发送返回数组的命令，例如 KEYS、LRANGE、HGETALL，返回按需解析元素的游标，可以在有限的内存中处理很大的响应。
+     * 游标读完或关闭之前不能执行其他命令。
+     */
+    public ReplyCursor sendCommandCursor(final ProtocolCommand cmd, final String... args) {
+        checkIsInMultiOrPipeline();
+        connection.sendCommand(commandObjects.sendCommand(cmd, args).getArguments());
+        cursor = connection.getReplyCursor();
+        return cursor;
+    }
+
+    public ReplyCursor sendCommandCursor(final ProtocolCommand cmd, final byte[]... args) {
+        checkIsInMultiOrPipeline();
+        connection.sendCommand(commandObjects.sendCommand(cmd, args).getArguments());
+        cursor = connection.getReplyCursor();
+        return cursor;
+    }
+
+    /**
+     * 用 SCAN 遍历 key，按页拉取并预取下一页。遍历期间连接上始终有一个未读取的请求，
+     * 流读完或关闭之前不能执行其他命令。
+     *
+     * @param pattern MATCH 参数，null 表示不过滤
+     * @param count   COUNT 参数，不大于 0 时使用服务端的默认值
+     */
+    public Stream<String> scanStream(final String pattern, final int count) {
+        return scanStream(Protocol.Command.SCAN, null, pattern, count, BuilderFactory.STRING_LIST);
+    }
+
+    public Stream<Map.Entry<String, String>> hscanStream(final String key, final String pattern, final int count) {
+        return scanStream(Protocol.Command.HSCAN, key, pattern, count, BuilderFactory.STRING_PAIR_LIST);
+    }
+
+    public Stream<String> sscanStream(final String key, final String pattern, final int count) {
+        return scanStream(Protocol.Command.SSCAN, key, pattern, count, BuilderFactory.STRING_LIST);
+    }
+
+    public Stream<Map.Entry<String, Double>> zscanStream(final String key, final String pattern, final int count) {
+        return scanStream(Protocol.Command.ZSCAN, key, pattern, count, BuilderFactory.STRING_DOUBLE_PAIR_LIST);
+    }
+
+    private <T> Stream<T> scanStream(final ProtocolCommand cmd, final String key, final String pattern,
+                                     final int count, final Builder<List<T>> pageBuilder) {
+        checkIsInMultiOrPipeline();
+        // 只有一个连接，无法拆分
+        final ScanSpliterator.Source source = new ScanSpliterator.Source() {
+            @Override
+            public Connection borrow() {
+                return connection;
+            }
+
+            @Override
+            public void giveBack(final Connection connection) {
+                // 连接属于当前 Jedis
+            }
+        };
+        final ScanSpliterator<T> spliterator = new ScanSpliterator<>(Collections.singletonList(source), cmd,
+                key == null ? null : SafeEncoder.encode(key), pattern == null ? null : SafeEncoder.encode(pattern),
+                count, pageBuilder);
+        scan = spliterator;
+        return spliterator.stream(false);
+    }
+
+    /**
+     * 开启管道，管道中还有未读取的响应时，不能再直接使用当前 Jedis 执行命令
+     */
+    public Pipeline pipelined() {
+        if (pipeline != null && pipeline.hasPipelinedResponse()) {
+            throw new IllegalStateException(
+                    "Cannot open a new Pipeline while the previous one has pending responses.");
+        }
+        if (transaction != null && transaction.isInMulti()) {
+            throw new IllegalStateException("Cannot open a Pipeline while in Multi.");
+        }
+        if (cursor != null && !cursor.isFinished()) {
+            throw new IllegalStateException("Cannot open a Pipeline while a ReplyCursor is open.");
+        }
+        if (scan != null && scan.isActive()) {
+            throw new IllegalStateException("Cannot open a Pipeline while a scan stream is open.");
+        }
+        pipeline = new Pipeline(connection, commandObjects);
+        return pipeline;
+    }
+
+    /**
+     * 开启事务，{@link Transaction#exec()} 或 {@link Transaction#discard()} 之前不能直接使用当前 Jedis 执行命令
+     */
+    public Transaction multi() {
+        checkIsInMultiOrPipeline();
+        transaction = new Transaction(connection, commandObjects);
+        return transaction;
+    }
+
+    /**
+     * 之后的事务执行前这些 key 被其他客户端修改时，{@link Transaction#exec()} 返回 null
+     */
+    public String watch(final String... keys) {
+        checkIsInMultiOrPipeline();
+        connection.sendCommand(commandObjects.watch(keys).getArguments());
+        return connection.getStatusCodeReply();
+    }
+
+    public String unwatch() {
+        checkIsInMultiOrPipeline();
+        connection.sendCommand(Protocol.Command.UNWATCH);
+        return connection.getStatusCodeReply();
+    }
+
     protected void checkIsInMultiOrPipeline() {
         // 判断这个 Jedis 连接是否处于事务或者管道状态
         // 这两种状态下不支持执行普康 Jedis 操作
-//        if (transaction != null) {
-//            throw new IllegalStateException(
-//                    "Cannot use Jedis when in Multi. Please use Transaction or reset jedis state.");
-//        } else if (pipeline != null && pipeline.hasPipelinedResponse()) {
-//            throw new IllegalStateException(
-//                    "Cannot use Jedis when in Pipeline. Please use Pipeline or reset jedis state.");
-//        }
+        if (transaction != null && transaction.isInMulti()) {
+            throw new IllegalStateException(
+                    "Cannot use Jedis when in Multi. Please use Transaction or reset jedis state.");
+        }
+        if (pipeline != null && pipeline.hasPipelinedResponse()) {
+            throw new IllegalStateException(
+                    "Cannot use Jedis when in Pipeline. Please use Pipeline or reset jedis state.");
+        }
+        if (cursor != null && !cursor.isFinished()) {
+            throw new IllegalStateException(
+                    "Cannot use Jedis while a ReplyCursor is open. Please close the cursor or reset jedis state.");
+        }
+        if (scan != null && scan.isActive()) {
+            throw new IllegalStateException(
+                    "Cannot use Jedis while a scan stream is open. Please close the stream or reset jedis state.");
+        }
     }
 }
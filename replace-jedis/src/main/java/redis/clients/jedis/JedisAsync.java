@@ -0,0 +1,139 @@
+package redis.clients.jedis;
+
+import redis.clients.jedis.codec.ValueCodec;
+import redis.clients.jedis.commands.ProtocolCommand;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 基于 NIO 的异步客户端，每个命令立即返回 {@link CompletableFuture}。
+ * <p>
+ * 默认按 CPU 核数创建事件循环线程，每个事件循环持有一个到 Redis 的连接。同一个线程发出的命令总是走同一个连接，
+ * 因此保持发送顺序。future 在事件循环线程上完成，回调中不要执行阻塞操作。
+ * <p>
+ * 超过 commandTimeout（默认和同步客户端的 soTimeout 相同）没有响应的命令以 {@link
+ * redis.clients.jedis.exceptions.JedisConnectionException} 失败；每个连接上等待响应的命令超过 maxPendingCommands 时，
+ * 新命令直接失败。
+ *
+ * @author wangguangwu
+ */
+public class JedisAsync implements Closeable {
+
+    public static final int DEFAULT_MAX_PENDING_COMMANDS = 64 * 1024;
+
+    private final EventLoop[] eventLoops;
+    private final AsyncConnection[] connections;
+    private final CommandObjects commandObjects = new CommandObjects();
+
+    public JedisAsync(final String host, final int port) {
+        this(new HostAndPort(host, port));
+    }
+
+    public JedisAsync(final HostAndPort hostAndPort) {
+        this(hostAndPort, Runtime.getRuntime().availableProcessors());
+    }
+
+    public JedisAsync(final HostAndPort hostAndPort, final int ioThreads) {
+        this(hostAndPort, ioThreads, Protocol.DEFAULT_TIMEOUT, DEFAULT_MAX_PENDING_COMMANDS);
+    }
+
+    /**
+     * @param commandTimeout     毫秒，0 表示不超时
+     * @param maxPendingCommands 每个连接上已提交还没有响应的命令数上限
+     */
+    public JedisAsync(final HostAndPort hostAndPort, final int ioThreads, final int commandTimeout,
+                      final int maxPendingCommands) {
+        if (ioThreads <= 0) {
+            throw new IllegalArgumentException("ioThreads <= 0");
+        }
+        eventLoops = new EventLoop[ioThreads];
+        connections = new AsyncConnection[ioThreads];
+        try {
+            for (int i = 0; i < ioThreads; i++) {
+                eventLoops[i] = new EventLoop("jedis-async-" + i);
+                connections[i] = new AsyncConnection(eventLoops[i], hostAndPort, Protocol.DEFAULT_TIMEOUT,
+                        commandTimeout, maxPendingCommands);
+            }
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    public <T> CompletableFuture<T> executeCommand(final CommandObject<T> commandObject) {
+        return connectionForCurrentThread().execute(commandObject);
+    }
+
+    private AsyncConnection connectionForCurrentThread() {
+        // 同一线程的命令固定在一个连接上，保证顺序
+        final int index = (int) (Thread.currentThread().getId() % connections.length);
+        return connections[index];
+    }
+
+    public CompletableFuture<String> ping() {
+        return executeCommand(commandObjects.ping());
+    }
+
+    public CompletableFuture<String> get(final String key) {
+        return executeCommand(commandObjects.get(key));
+    }
+
+    public CompletableFuture<byte[]> get(final byte[] key) {
+        return executeCommand(commandObjects.get(key));
+    }
+
+    public CompletableFuture<String> set(final String key, final String value) {
+        return executeCommand(commandObjects.set(key, value));
+    }
+
+    public CompletableFuture<String> set(final byte[] key, final byte[] value) {
+        return executeCommand(commandObjects.set(key, value));
+    }
+
+    public CompletableFuture<Long> incr(final String key) {
+        return executeCommand(commandObjects.incr(key));
+    }
+
+    public CompletableFuture<Long> del(final String... keys) {
+        return executeCommand(commandObjects.del(keys));
+    }
+
+    public CompletableFuture<Boolean> exists(final String key) {
+        return executeCommand(commandObjects.exists(key));
+    }
+
+    public CompletableFuture<List<String>> mget(final String... keys) {
+        return executeCommand(commandObjects.mget(keys));
+    }
+
+    public CompletableFuture<Object> sendCommand(final ProtocolCommand cmd, final String... args) {
+        return executeCommand(commandObjects.sendCommand(cmd, args));
+    }
+
+    public CompletableFuture<Object> sendCommand(final ProtocolCommand cmd, final byte[]... args) {
+        return executeCommand(commandObjects.sendCommand(cmd, args));
+    }
+
+    /**
+     * @see CommandObjects#setValueCodec(ValueCodec)
+     */
+    public void setValueCodec(final ValueCodec codec) {
+        commandObjects.setValueCodec(codec);
+    }
+
+    @Override
+    public void close() {
+        for (AsyncConnection connection : connections) {
+            if (connection != null) {
+                connection.close();
+            }
+        }
+        for (EventLoop eventLoop : eventLoops) {
+            if (eventLoop != null) {
+                eventLoop.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package redis.clients.jedis;
+
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+import java.net.Socket;
+import java.nio.channels.SocketChannel;
+
+/**
+ * 创建阻塞模式的 {@link SocketChannel}，{@link Connection} 使用这类工厂时直接通过通道聚集写出命令
+ *
+ * @author wangguangwu
+ */
+public interface JedisChannelFactory extends JedisSocketFactory {
+
+    SocketChannel createChannel() throws JedisConnectionException;
+
+    @Override
+    default Socket createSocket() throws JedisConnectionException {
+        return createChannel().socket();
+    }
+}
@@ -1,7 +1,175 @@
 package redis.clients.jedis;
 
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.SSLSocketFactory;
+
 /**
+ * 客户端连接配置，通过 {@link #builder()} 创建，创建之后不能修改。
+ * <p>
+ * 设置了 {@link Builder#sslContext(SSLContext)} 时，使用这个配置的所有连接共享同一个 SSLContext，
+ * 也就共享它的客户端会话缓存：会话按连接的主机名和端口缓存，同一个节点的新连接恢复之前的会话，
+ * 只需要一次简化握手，不再做完整的密钥交换和证书校验。
+ *
  * @author wangguangwu
  */
 public class JedisClientConfig {
+
+    private final int connectionTimeoutMillis;
+    private final int socketTimeoutMillis;
+    private final boolean ssl;
+    private final SSLContext sslContext;
+    private final SSLSocketFactory sslSocketFactory;
+    private final SSLParameters sslParameters;
+    private final HostnameVerifier hostnameVerifier;
+    private final HostAndPortMapper hostAndPortMapper;
+
+    private JedisClientConfig(final Builder builder) {
+        this.connectionTimeoutMillis = builder.connectionTimeoutMillis;
+        this.socketTimeoutMillis = builder.socketTimeoutMillis;
+        this.ssl = builder.ssl;
+        this.sslContext = builder.sslContext;
+        this.sslSocketFactory = builder.sslSocketFactory;
+        this.sslParameters = builder.sslParameters;
+        this.hostnameVerifier = builder.hostnameVerifier;
+        this.hostAndPortMapper = builder.hostAndPortMapper;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int getConnectionTimeoutMillis() {
+        return connectionTimeoutMillis;
+    }
+
+    public int getSocketTimeoutMillis() {
+        return socketTimeoutMillis;
+    }
+
+    public boolean isSsl() {
+        return ssl;
+    }
+
+    public SSLContext getSslContext() {
+        return sslContext;
+    }
+
+    /**
+     * 设置了 sslContext 时返回它的 socket 工厂，同一个配置总是返回同一个实例
+     */
+    public SSLSocketFactory getSslSocketFactory() {
+        return sslSocketFactory;
+    }
+
+    public SSLParameters getSslParameters() {
+        return sslParameters;
+    }
+
+    public HostnameVerifier getHostnameVerifier() {
+        return hostnameVerifier;
+    }
+
+    public HostAndPortMapper getHostAndPortMapper() {
+        return hostAndPortMapper;
+    }
+
+    public static class Builder {
+
+        private int connectionTimeoutMillis = Protocol.DEFAULT_TIMEOUT;
+        private int socketTimeoutMillis = Protocol.DEFAULT_TIMEOUT;
+        private boolean ssl = false;
+        private SSLContext sslContext = null;
+        private SSLSocketFactory sslSocketFactory = null;
+        private SSLParameters sslParameters = null;
+        private HostnameVerifier hostnameVerifier = null;
+        private HostAndPortMapper hostAndPortMapper = null;
+        private int tlsSessionCacheSize = -1;
+        private int tlsSessionTimeoutSeconds = -1;
+
+        private Builder() {
+        }
+
+        public Builder connectionTimeoutMillis(final int connectionTimeoutMillis) {
+            this.connectionTimeoutMillis = connectionTimeoutMillis;
+            return this;
+        }
+
+        public Builder socketTimeoutMillis(final int socketTimeoutMillis) {
+            this.socketTimeoutMillis = socketTimeoutMillis;
+            return this;
+        }
+
+        /**
+         * 没有设置 sslContext 和 sslSocketFactory 时使用 JVM 默认的 SSLSocketFactory
+         */
+        public Builder ssl(final boolean ssl) {
+            this.ssl = ssl;
+            return this;
+        }
+
+        /**
+         * 所有连接共享的 SSLContext，同时开启 ssl；优先于 {@link #sslSocketFactory(SSLSocketFactory)}
+         */
+        public Builder sslContext(final SSLContext sslContext) {
+            this.sslContext = sslContext;
+            this.ssl = sslContext != null || ssl;
+            return this;
+        }
+
+        public Builder sslSocketFactory(final SSLSocketFactory sslSocketFactory) {
+            this.sslSocketFactory = sslSocketFactory;
+            return this;
+        }
+
+        public Builder sslParameters(final SSLParameters sslParameters) {
+            this.sslParameters = sslParameters;
+            return this;
+        }
+
+        public Builder hostnameVerifier(final HostnameVerifier hostnameVerifier) {
+            this.hostnameVerifier = hostnameVerifier;
+            return this;
+        }
+
+        public Builder hostAndPortMapper(final HostAndPortMapper hostAndPortMapper) {
+            this.hostAndPortMapper = hostAndPortMapper;
+            return this;
+        }
+
+        /**
+         * sslContext 的客户端会话缓存最多保存的会话数，0 表示不限制，不设置时使用 JDK 的默认值
+         */
+        public Builder tlsSessionCacheSize(final int size) {
+            this.tlsSessionCacheSize = size;
+            return this;
+        }
+
+        /**
+         * 缓存的会话可以恢复的时间，秒，不设置时使用 JDK 的默认值
+         */
+        public Builder tlsSessionTimeoutSeconds(final int seconds) {
+            this.tlsSessionTimeoutSeconds = seconds;
+            return this;
+        }
+
+        /**
+         * 会话缓存的设置直接修改 sslContext，对共享它的其他配置同样生效
+         */
+        public JedisClientConfig build() {
+            if (sslContext != null) {
+                final SSLSessionContext sessions = sslContext.getClientSessionContext();
+                if (tlsSessionCacheSize >= 0) {
+                    sessions.setSessionCacheSize(tlsSessionCacheSize);
+                }
+                if (tlsSessionTimeoutSeconds >= 0) {
+                    sessions.setSessionTimeout(tlsSessionTimeoutSeconds);
+                }
+                sslSocketFactory = sslContext.getSocketFactory();
+            }
+            return new JedisClientConfig(this);
+        }
+    }
 }
@@ -0,0 +1,171 @@
+package redis.clients.jedis;
+
+import redis.clients.jedis.codec.ValueCodec;
+import redis.clients.jedis.commands.ProtocolCommand;
+import redis.clients.jedis.util.GenericPoolConfig;
+import redis.clients.jedis.util.JedisClusterCRC16;
+import redis.clients.jedis.util.SafeEncoder;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Redis 集群客户端：在本地计算 key 的哈希槽，直接把命令发给负责这个槽的节点
+ *
+ * @author wangguangwu
+ */
+public class JedisCluster implements ServerCommands, StringCommands, KeyCommands, Closeable {
+
+    private final ClusterCommandExecutor executor;
+    private final ClusterCommandObjects commandObjects = new ClusterCommandObjects();
+
+    public JedisCluster(final HostAndPort node) {
+        this(Collections.singleton(node));
+    }
+
+    public JedisCluster(final Set<HostAndPort> nodes) {
+        this(nodes, new JedisPoolConfig(), ClusterCommandExecutor.DEFAULT_MAX_ATTEMPTS);
+    }
+
+    public JedisCluster(final Set<HostAndPort> nodes, final GenericPoolConfig poolConfig, final int maxAttempts) {
+        this(nodes, poolConfig, maxAttempts, null);
+    }
+
+    /**
+     * @param scriptRegistry 每个节点新建的连接预先加载其中的脚本，可以为 null
+     */
+    public JedisCluster(final Set<HostAndPort> nodes, final GenericPoolConfig poolConfig, final int maxAttempts,
+                        final ScriptRegistry scriptRegistry) {
+        final JedisClusterInfoCache cache = new JedisClusterInfoCache(poolConfig, scriptRegistry);
+        try {
+            cache.initialize(nodes);
+        } catch (RuntimeException e) {
+            cache.close();
+            throw e;
+        }
+        this.executor = new ClusterCommandExecutor(cache, maxAttempts);
+    }
+
+    public <T> T executeCommand(final CommandObject<T> commandObject) {
+        return executor.executeCommand(commandObject);
+    }
+
+    /**
+     * 所有节点共用的值编解码，见 {@link CommandObjects#setValueCodec(ValueCodec)}
+     */
+    public void setValueCodec(final ValueCodec codec) {
+        commandObjects.setValueCodec(codec);
+    }
+
+    public JedisClusterInfoCache getClusterInfoCache() {
+        return executor.getClusterInfoCache();
+    }
+
+    @Override
+    public String ping() {
+        return executeCommand(commandObjects.ping());
+    }
+
+    @Override
+    public String get(final String key) {
+        return executeCommand(commandObjects.get(key));
+    }
+
+    @Override
+    public byte[] get(final byte[] key) {
+        return executeCommand(commandObjects.get(key));
+    }
+
+    @Override
+    public String set(final String key, final String value) {
+        return executeCommand(commandObjects.set(key, value));
+    }
+
+    @Override
+    public String set(final byte[] key, final byte[] value) {
+        return executeCommand(commandObjects.set(key, value));
+    }
+
+    @Override
+    public long incr(final String key) {
+        return executeCommand(commandObjects.incr(key));
+    }
+
+    /**
+     * 所有 key 必须位于同一个哈希槽，可以用 {hashtag} 保证
+     */
+    @Override
+    public List<String> mget(final String... keys) {
+        return executeCommand(commandObjects.mget(keys));
+    }
+
+    @Override
+    public long del(final String... keys) {
+        return executeCommand(commandObjects.del(keys));
+    }
+
+    @Override
+    public boolean exists(final String key) {
+        return executeCommand(commandObjects.exists(key));
+    }
+
+    /**
+     * 在 keys 所在的节点上执行已注册的脚本，只发送 EVALSHA；这个节点上没有脚本时加载并重试
+     */
+    public Object eval(final Script script, final List<String> keys, final List<String> args) {
+        return executeCommand(commandObjects.evalsha(script, keys, args));
+    }
+
+    /**
+     * 在每个主节点上各自用 SCAN 遍历 key，每个节点从自己的连接池借用连接。
+     * 调用 {@link Stream#parallel()} 后不同节点在不同线程中同时扫描；提前结束遍历时需要关闭流。
+     */
+    public Stream<String> scanStream(final String pattern, final int count) {
+        final List<ScanSpliterator.Source> sources = new ArrayList<>();
+        for (ConnectionPool pool : getClusterInfoCache().getNodes().values()) {
+            sources.add(pool::getResource);
+        }
+        return new ScanSpliterator<>(sources, Protocol.Command.SCAN, null, encode(pattern), count,
+                BuilderFactory.STRING_LIST).stream(false);
+    }
+
+    /**
+     * 扫描过程中槽发生迁移时抛出重定向异常，不会自动重试
+     */
+    public Stream<Map.Entry<String, String>> hscanStream(final String key, final String pattern, final int count) {
+        return keyScanStream(Protocol.Command.HSCAN, key, pattern, count, BuilderFactory.STRING_PAIR_LIST);
+    }
+
+    public Stream<String> sscanStream(final String key, final String pattern, final int count) {
+        return keyScanStream(Protocol.Command.SSCAN, key, pattern, count, BuilderFactory.STRING_LIST);
+    }
+
+    public Stream<Map.Entry<String, Double>> zscanStream(final String key, final String pattern, final int count) {
+        return keyScanStream(Protocol.Command.ZSCAN, key, pattern, count, BuilderFactory.STRING_DOUBLE_PAIR_LIST);
+    }
+
+    private <T> Stream<T> keyScanStream(final ProtocolCommand cmd, final String key, final String pattern,
+                                        final int count, final Builder<List<T>> pageBuilder) {
+        final JedisClusterInfoCache cache = getClusterInfoCache();
+        final ScanSpliterator.Source source = () -> {
+            final ConnectionPool pool = cache.getSlotPool(JedisClusterCRC16.getSlot(key));
+            return (pool == null ? cache.getRandomPool() : pool).getResource();
+        };
+        return new ScanSpliterator<>(Collections.singletonList(source), cmd, SafeEncoder.encode(key),
+                encode(pattern), count, pageBuilder).stream(false);
+    }
+
+    private static byte[] encode(final String pattern) {
+        return pattern == null ? null : SafeEncoder.encode(pattern);
+    }
+
+    @Override
+    public void close() {
+        executor.close();
+    }
+}
@@ -0,0 +1,222 @@
+package redis.clients.jedis;
+
+import redis.clients.jedis.exceptions.JedisClusterOperationException;
+import redis.clients.jedis.exceptions.JedisException;
+import redis.clients.jedis.util.GenericPoolConfig;
+import redis.clients.jedis.util.SafeEncoder;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 集群拓扑缓存：16384 个槽到节点连接池的映射。
+ * <p>
+ * 槽表是一个数组，每次更新都复制出新数组再整体替换，读路径没有锁；写入方之间用锁串行。
+ * 遇到重定向时先更新单个槽，再在后台线程中重新拉取完整的拓扑。
+ *
+ * @author wangguangwu
+ */
+public class JedisClusterInfoCache implements Closeable {
+
+    public static final int CLUSTER_HASHSLOTS = 16384;
+
+    private final GenericPoolConfig poolConfig;
+    private final ScriptRegistry scriptRegistry;
+    private final Map<HostAndPort, ConnectionPool> nodes = new ConcurrentHashMap<>();
+    private volatile ConnectionPool[] slots = new ConnectionPool[CLUSTER_HASHSLOTS];
+    private final Object writeLock = new Object();
+
+    private final ExecutorService topologyRefreshExecutor;
+    private final AtomicBoolean refreshing = new AtomicBoolean(false);
+    private volatile boolean closed = false;
+
+    public JedisClusterInfoCache(final GenericPoolConfig poolConfig) {
+        this(poolConfig, null);
+    }
+
+    /**
+     * @param scriptRegistry 每个节点新建的连接预先加载其中的脚本，可以为 null
+     */
+    public JedisClusterInfoCache(final GenericPoolConfig poolConfig, final ScriptRegistry scriptRegistry) {
+        this.poolConfig = poolConfig;
+        this.scriptRegistry = scriptRegistry;
+        this.topologyRefreshExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "jedis-cluster-topology-refresh");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * 依次尝试种子节点，用第一个成功返回 CLUSTER SLOTS 的节点初始化槽表
+     */
+    public void initialize(final Set<HostAndPort> startNodes) {
+        JedisException last = null;
+        for (HostAndPort startNode : startNodes) {
+            try {
+                discoverClusterSlots(startNode);
+                return;
+            } catch (JedisException e) {
+                last = e;
+            }
+        }
+        throw new JedisClusterOperationException("Could not initialize cluster slots cache.", last);
+    }
+
+    public ConnectionPool getSlotPool(final int slot) {
+        return slots[slot];
+    }
+
+    /**
+     * 已经被并发的拓扑刷新关闭的连接池会被替换成新的
+     */
+    public ConnectionPool setupNodeIfNotExist(final HostAndPort node) {
+        return nodes.compute(node, (n, pool) -> {
+            if (pool != null && !pool.isClosed()) {
+                return pool;
+            }
+            final ConnectionFactory factory = new ConnectionFactory(n);
+            factory.setScriptRegistry(scriptRegistry);
+            return new ConnectionPool(poolConfig, factory);
+        });
+    }
+
+    public ConnectionPool getRandomPool() {
+        final List<ConnectionPool> pools = new ArrayList<>(nodes.values());
+        if (pools.isEmpty()) {
+            throw new JedisClusterOperationException("No reachable node in cluster.");
+        }
+        return pools.get(ThreadLocalRandom.current().nextInt(pools.size()));
+    }
+
+    public Map<HostAndPort, ConnectionPool> getNodes() {
+        return Collections.unmodifiableMap(nodes);
+    }
+
+    /**
+     * 收到 MOVED 后立即把这个槽指向新节点
+     */
+    public void assignSlot(final int slot, final HostAndPort node) {
+        final ConnectionPool pool = setupNodeIfNotExist(node);
+        synchronized (writeLock) {
+            if (slots[slot] == pool) {
+                return;
+            }
+            final ConnectionPool[] copy = slots.clone();
+            copy[slot] = pool;
+            slots = copy;
+        }
+    }
+
+    /**
+     * 在后台重新拉取拓扑，同一时间最多只有一次刷新
+     */
+    public void renewClusterSlotsAsync() {
+        if (refreshing.compareAndSet(false, true)) {
+            try {
+                topologyRefreshExecutor.execute(() -> {
+                    try {
+                        renewClusterSlots();
+                    } finally {
+                        refreshing.set(false);
+                    }
+                });
+            } catch (RuntimeException e) {
+                refreshing.set(false);
+            }
+        }
+    }
+
+    public void renewClusterSlots() {
+        final List<HostAndPort> candidates = new ArrayList<>(nodes.keySet());
+        Collections.shuffle(candidates);
+        for (HostAndPort node : candidates) {
+            try {
+                discoverClusterSlots(node);
+                return;
+            } catch (JedisException e) {
+                // 换一个节点重试
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void discoverClusterSlots(final HostAndPort seed) {
+        final List<Object> slotsInfo;
+        try (Connection connection = new Connection(seed)) {
+            slotsInfo = connection.executeCommand(new CommandObject<>(
+                    new CommandArguments(Protocol.Command.CLUSTER).add("SLOTS"), BuilderFactory.RAW_OBJECT_LIST));
+        }
+
+        final ConnectionPool[] newSlots = new ConnectionPool[CLUSTER_HASHSLOTS];
+        final Set<HostAndPort> masters = new HashSet<>();
+        for (Object slotInfoObj : slotsInfo) {
+            final List<Object> slotInfo = (List<Object>) slotInfoObj;
+            if (slotInfo.size() < 3) {
+                continue;
+            }
+            final int start = ((Long) slotInfo.get(0)).intValue();
+            final int end = ((Long) slotInfo.get(1)).intValue();
+            final HostAndPort master = generateHostAndPort((List<Object>) slotInfo.get(2), seed);
+            masters.add(master);
+            final ConnectionPool pool = setupNodeIfNotExist(master);
+            for (int slot = start; slot <= end; slot++) {
+                newSlots[slot] = pool;
+            }
+        }
+
+        synchronized (writeLock) {
+            slots = newSlots;
+        }
+        removeStaleNodes(masters);
+    }
+
+    /**
+     * 在替换槽表之后调用；正在使用这些连接池的线程借用失败后会重新查找，见 {@link ClusterCommandExecutor}
+     */
+    private void removeStaleNodes(final Collection<HostAndPort> masters) {
+        for (HostAndPort node : new ArrayList<>(nodes.keySet())) {
+            if (!masters.contains(node)) {
+                final ConnectionPool pool = nodes.remove(node);
+                if (pool != null) {
+                    pool.close();
+                }
+            }
+        }
+    }
+
+    private static HostAndPort generateHostAndPort(final List<Object> hostInfo, final HostAndPort seed) {
+        String host = SafeEncoder.encode((byte[]) hostInfo.get(0));
+        // 节点没有配置地址时返回空字符串，表示和被查询的节点相同
+        if (host.isEmpty()) {
+            host = seed.getHost();
+        }
+        final int port = ((Long) hostInfo.get(1)).intValue();
+        return new HostAndPort(host, port);
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        topologyRefreshExecutor.shutdownNow();
+        for (ConnectionPool pool : nodes.values()) {
+            pool.close();
+        }
+        nodes.clear();
+    }
+}
@@ -0,0 +1,82 @@
+package redis.clients.jedis;
+
+import redis.clients.jedis.codec.ValueCodec;
+import redis.clients.jedis.csc.ClientSideCache;
+import redis.clients.jedis.metrics.MetricsRegistry;
+import redis.clients.jedis.util.PooledObjectFactory;
+
+/**
+ * 由 {@link ConnectionFactory} 创建连接并包装成 {@link Jedis}，连接相关的配置都委托给它
+ *
+ * @author wangguangwu
+ */
+public class JedisFactory implements PooledObjectFactory<Jedis> {
+
+    private final ConnectionFactory connectionFactory;
+    private ValueCodec valueCodec;
+
+    public JedisFactory(final HostAndPort hostAndPort) {
+        this(new ConnectionFactory(hostAndPort));
+    }
+
+    public JedisFactory(final JedisSocketFactory jedisSocketFactory) {
+        this(new ConnectionFactory(jedisSocketFactory));
+    }
+
+    public JedisFactory(final JedisSocketFactory jedisSocketFactory, final ClientSideCache clientSideCache) {
+        this(new ConnectionFactory(jedisSocketFactory, clientSideCache));
+    }
+
+    public JedisFactory(final ConnectionFactory connectionFactory) {
+        this.connectionFactory = connectionFactory;
+    }
+
+    public ConnectionFactory getConnectionFactory() {
+        return connectionFactory;
+    }
+
+    /**
+     * @see ConnectionFactory#setMetricsRegistry(MetricsRegistry)
+     */
+    public void setMetricsRegistry(final MetricsRegistry registry) {
+        connectionFactory.setMetricsRegistry(registry);
+    }
+
+    /**
+     * @see ConnectionFactory#setScriptRegistry(ScriptRegistry)
+     */
+    public void setScriptRegistry(final ScriptRegistry registry) {
+        connectionFactory.setScriptRegistry(registry);
+    }
+
+    /**
+     * 之后创建的 Jedis 使用这个值编解码
+     */
+    public void setValueCodec(final ValueCodec codec) {
+        this.valueCodec = codec;
+    }
+
+    /**
+     * @see ConnectionFactory#addInterceptor(CommandInterceptor)
+     */
+    public void addInterceptor(final CommandInterceptor interceptor) {
+        connectionFactory.addInterceptor(interceptor);
+    }
+
+    @Override
+    public Jedis makeObject() throws Exception {
+        final Jedis jedis = new Jedis(connectionFactory.makeObject());
+        jedis.setValueCodec(valueCodec);
+        return jedis;
+    }
+
+    @Override
+    public void destroyObject(final Jedis jedis) throws Exception {
+        connectionFactory.destroyObject(jedis.getConnection());
+    }
+
+    @Override
+    public boolean validateObject(final Jedis jedis) {
+        return connectionFactory.validateObject(jedis.getConnection());
+    }
+}
@@ -0,0 +1,361 @@
+package redis.clients.jedis;
+
+import redis.clients.jedis.codec.ValueCodec;
+import redis.clients.jedis.commands.ProtocolCommand;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisException;
+import redis.clients.jedis.exceptions.JedisExhaustedPoolException;
+import redis.clients.jedis.util.GenericPoolConfig;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 主从客户端：写命令发给主节点，只读命令分散到从节点。
+ * <p>
+ * 从节点列表和复制偏移量由后台线程定期从主节点的 INFO replication 中获取，
+ * 状态不是 online 或落后主节点超过 maxReplicationLag 字节的从节点不参与读取。
+ * 每次读取随机取两个可用的从节点，选择 EWMA 延迟乘以（进行中的请求数 + 1）较小的一个；
+ * 没有可用的从节点、从节点连接失败、连接池耗尽或已经被移除时，读取发给主节点，
+ * 连接失败和连接池耗尽的从节点在下次刷新之前不参与读取。
+ *
+ * @author wangguangwu
+ */
+public class JedisMasterReplica implements ServerCommands, StringCommands, KeyCommands, Closeable {
+
+    public static final long DEFAULT_MAX_REPLICATION_LAG = 1024 * 1024;
+    public static final long DEFAULT_REFRESH_INTERVAL_MILLIS = 1000;
+
+    private static final Set<Protocol.Command> READ_ONLY_COMMANDS = EnumSet.of(Protocol.Command.GET,
+            Protocol.Command.MGET, Protocol.Command.EXISTS, Protocol.Command.KEYS, Protocol.Command.LRANGE,
+            Protocol.Command.HGETALL, Protocol.Command.ZRANGE, Protocol.Command.SMEMBERS, Protocol.Command.SCAN,
+            Protocol.Command.HSCAN, Protocol.Command.SSCAN, Protocol.Command.ZSCAN);
+
+    /**
+     * 新的延迟样本在 EWMA 中的权重
+     */
+    private static final double EWMA_WEIGHT = 0.2;
+    /**
+     * 连接失败的从节点在下次刷新之前的 EWMA 延迟
+     */
+    private static final double FAILURE_PENALTY_NANOS = TimeUnit.SECONDS.toNanos(1);
+    /**
+     * close 时等待正在进行的刷新结束的最长时间
+     */
+    private static final long CLOSE_TIMEOUT_MILLIS = 5000;
+
+    private final ConnectionPool primaryPool;
+    private final GenericPoolConfig poolConfig;
+    private final CommandObjects commandObjects = new CommandObjects();
+    private final Map<HostAndPort, Replica> replicas = new ConcurrentHashMap<>();
+    private volatile Replica[] readable = new Replica[0];
+    private volatile long maxReplicationLag = DEFAULT_MAX_REPLICATION_LAG;
+    private volatile HostAndPortMapper hostAndPortMapper;
+    private final ScheduledExecutorService refreshExecutor;
+    private volatile boolean closed;
+
+    public JedisMasterReplica(final HostAndPort primary) {
+        this(primary, new JedisPoolConfig(), DEFAULT_REFRESH_INTERVAL_MILLIS);
+    }
+
+    public JedisMasterReplica(final HostAndPort primary, final GenericPoolConfig poolConfig,
+                              final long refreshIntervalMillis) {
+        this.poolConfig = poolConfig;
+        this.primaryPool = new ConnectionPool(primary, poolConfig);
+        this.refreshExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "jedis-replica-refresh");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            refreshReplicas();
+        } catch (JedisException e) {
+            // 主节点暂时不可用时先只使用主节点，等待下次刷新
+        }
+        refreshExecutor.scheduleWithFixedDelay(() -> {
+            try {
+                refreshReplicas();
+            } catch (RuntimeException e) {
+                // 保留上一次的从节点列表
+            }
+        }, refreshIntervalMillis, refreshIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 从节点落后主节点的复制偏移量超过 lag 字节时不再从它读取，下次刷新时生效
+     */
+    public void setMaxReplicationLag(final long lag) {
+        this.maxReplicationLag = lag;
+    }
+
+    /**
+     * 把主节点报告的从节点地址转换成客户端可以访问的地址，例如经过 NAT 时，下次刷新时生效
+     */
+    public void setHostAndPortMapper(final HostAndPortMapper hostAndPortMapper) {
+        this.hostAndPortMapper = hostAndPortMapper;
+    }
+
+    /**
+     * 当前参与读取的从节点
+     */
+    public List<HostAndPort> getReadableReplicas() {
+        final List<HostAndPort> result = new ArrayList<>();
+        for (Replica replica : readable) {
+            result.add(replica.hostAndPort);
+        }
+        return result;
+    }
+
+    public <T> T executeCommand(final CommandObject<T> commandObject) {
+        final ProtocolCommand command = commandObject.getArguments().getCommand();
+        if (command instanceof Protocol.Command && READ_ONLY_COMMANDS.contains(command)) {
+            final Replica replica = chooseReplica();
+            if (replica != null) {
+                try {
+                    return replica.executeCommand(commandObject);
+                } catch (JedisConnectionException | JedisExhaustedPoolException e) {
+                    // 这个从节点暂时不可用，改为读取主节点
+                }
+            }
+        }
+        try (Connection connection = primaryPool.getResource()) {
+            return connection.executeCommand(commandObject);
+        }
+    }
+
+    /**
+     * 立即从主节点获取从节点列表和复制偏移量
+     */
+    public void refreshReplicas() {
+        if (closed) {
+            return;
+        }
+        final String info;
+        try (Connection connection = primaryPool.getResource()) {
+            info = connection.executeCommand(new CommandObject<>(
+                    new CommandArguments(Protocol.Command.INFO).add("replication"), BuilderFactory.STRING));
+        }
+
+        long primaryOffset = 0;
+        final List<Map<String, String>> reported = new ArrayList<>();
+        for (String line : info.split("\r\n")) {
+            if (line.startsWith("master_repl_offset:")) {
+                primaryOffset = Long.parseLong(line.substring("master_repl_offset:".length()).trim());
+            } else if (line.startsWith("slave") && line.length() > 5 && Character.isDigit(line.charAt(5))) {
+                // slave0:ip=10.0.0.2,port=6379,state=online,offset=123,lag=0
+                final Map<String, String> fields = new HashMap<>();
+                for (String field : line.substring(line.indexOf(':') + 1).split(",")) {
+                    final int eq = field.indexOf('=');
+                    if (eq > 0) {
+                        fields.put(field.substring(0, eq), field.substring(eq + 1));
+                    }
+                }
+                if (fields.containsKey("ip") && fields.containsKey("port")) {
+                    reported.add(fields);
+                }
+            }
+        }
+
+        final Map<HostAndPort, Replica> current = new HashMap<>();
+        final List<Replica> newReadable = new ArrayList<>();
+        for (Map<String, String> fields : reported) {
+            HostAndPort node = new HostAndPort(fields.get("ip"), Integer.parseInt(fields.get("port")));
+            final HostAndPortMapper mapper = hostAndPortMapper;
+            if (mapper != null) {
+                final HostAndPort mapped = mapper.getHostAndPort(node);
+                if (mapped != null) {
+                    node = mapped;
+                }
+            }
+            final Replica replica = replicas.computeIfAbsent(node, n -> new Replica(n, poolConfig));
+            current.put(node, replica);
+            final long offset = Long.parseLong(fields.getOrDefault("offset", "0"));
+            if ("online".equals(fields.get("state")) && primaryOffset - offset <= maxReplicationLag) {
+                replica.failed = false;
+                newReadable.add(replica);
+            }
+        }
+        readable = newReadable.toArray(new Replica[0]);
+
+        for (Map.Entry<HostAndPort, Replica> entry : replicas.entrySet()) {
+            if (!current.containsKey(entry.getKey()) && replicas.remove(entry.getKey(), entry.getValue())) {
+                entry.getValue().pool.close();
+            }
+        }
+        if (closed) {
+            // 刷新过程中客户端被关闭，这次创建的连接池由这里关闭
+            closeReplicas();
+        }
+    }
+
+    /**
+     * 两个随机选择中负载较小的一个，连接失败过的从节点在下次刷新之前不参与
+     */
+    private Replica chooseReplica() {
+        final Replica[] candidates = readable;
+        final int n = candidates.length;
+        if (n == 0) {
+            return null;
+        }
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final int i = random.nextInt(n);
+        final Replica first = candidates[i];
+        if (n == 1) {
+            return first.failed ? null : first;
+        }
+        int j = random.nextInt(n - 1);
+        if (j >= i) {
+            j++;
+        }
+        final Replica second = candidates[j];
+        if (first.failed) {
+            return second.failed ? null : second;
+        }
+        if (second.failed) {
+            return first;
+        }
+        return first.load() <= second.load() ? first : second;
+    }
+
+    /**
+     * @see CommandObjects#setValueCodec(ValueCodec)
+     */
+    public void setValueCodec(final ValueCodec codec) {
+        commandObjects.setValueCodec(codec);
+    }
+
+    @Override
+    public String ping() {
+        return executeCommand(commandObjects.ping());
+    }
+
+    @Override
+    public String get(final String key) {
+        return executeCommand(commandObjects.get(key));
+    }
+
+    @Override
+    public byte[] get(final byte[] key) {
+        return executeCommand(commandObjects.get(key));
+    }
+
+    @Override
+    public String set(final String key, final String value) {
+        return executeCommand(commandObjects.set(key, value));
+    }
+
+    @Override
+    public String set(final byte[] key, final byte[] value) {
+        return executeCommand(commandObjects.set(key, value));
+    }
+
+    @Override
+    public long incr(final String key) {
+        return executeCommand(commandObjects.incr(key));
+    }
+
+    @Override
+    public List<String> mget(final String... keys) {
+        return executeCommand(commandObjects.mget(keys));
+    }
+
+    @Override
+    public long del(final String... keys) {
+        return executeCommand(commandObjects.del(keys));
+    }
+
+    @Override
+    public boolean exists(final String key) {
+        return executeCommand(commandObjects.exists(key));
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        refreshExecutor.shutdownNow();
+        try {
+            refreshExecutor.awaitTermination(CLOSE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        closeReplicas();
+        primaryPool.close();
+    }
+
+    private void closeReplicas() {
+        readable = new Replica[0];
+        for (Map.Entry<HostAndPort, Replica> entry : replicas.entrySet()) {
+            if (replicas.remove(entry.getKey(), entry.getValue())) {
+                entry.getValue().pool.close();
+            }
+        }
+    }
+
+    private static final class Replica {
+
+        private final HostAndPort hostAndPort;
+        private final ConnectionPool pool;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        /**
+         * 多个线程同时更新时可能丢失个别样本，对平均值的影响可以忽略
+         */
+        private volatile double ewmaNanos;
+        private volatile boolean failed;
+
+        private Replica(final HostAndPort hostAndPort, final GenericPoolConfig poolConfig) {
+            this.hostAndPort = hostAndPort;
+            this.pool = new ConnectionPool(hostAndPort, poolConfig);
+        }
+
+        private double load() {
+            return ewmaNanos * (inFlight.get() + 1);
+        }
+
+        private <T> T executeCommand(final CommandObject<T> commandObject) {
+            inFlight.incrementAndGet();
+            final long start = System.nanoTime();
+            try (Connection connection = borrow()) {
+                final T result = connection.executeCommand(commandObject);
+                final long elapsed = System.nanoTime() - start;
+                final double ewma = ewmaNanos;
+                ewmaNanos = ewma == 0 ? elapsed : ewma + EWMA_WEIGHT * (elapsed - ewma);
+                return result;
+            } catch (JedisConnectionException e) {
+                failed = true;
+                ewmaNanos = FAILURE_PENALTY_NANOS;
+                throw e;
+            } catch (JedisExhaustedPoolException e) {
+                // 连接都在使用中，节点本身没有问题，不计入延迟
+                failed = true;
+                throw e;
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }
+
+        /**
+         * 刷新时从节点被移除会关闭它的连接池，已经选中它的读取按连接失败处理，改为读取主节点
+         */
+        private Connection borrow() {
+            try {
+                return pool.getResource();
+            } catch (JedisException e) {
+                if (!pool.isClosed()) {
+                    throw e;
+                }
+                throw new JedisConnectionException("Replica " + hostAndPort + " has been removed.", e);
+            }
+        }
+    }
+}
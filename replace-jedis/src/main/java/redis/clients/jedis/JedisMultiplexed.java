@@ -0,0 +1,90 @@
+package redis.clients.jedis;
+
+import redis.clients.jedis.codec.ValueCodec;
+
+import java.io.Closeable;
+import java.util.List;
+
+/**
+ * 线程安全的 Jedis，所有线程共享一个 {@link MultiplexedConnection}，并发命令自动合并为管道
+ *
+ * @author wangguangwu
+ */
+public class JedisMultiplexed implements ServerCommands, StringCommands, KeyCommands, Closeable {
+
+    private final MultiplexedConnection connection;
+    private final CommandObjects commandObjects = new CommandObjects();
+
+    public JedisMultiplexed(final String host, final int port) {
+        this(new HostAndPort(host, port));
+    }
+
+    public JedisMultiplexed(final HostAndPort hostAndPort) {
+        this(new MultiplexedConnection(hostAndPort));
+    }
+
+    public JedisMultiplexed(final MultiplexedConnection connection) {
+        this.connection = connection;
+    }
+
+    public MultiplexedConnection getConnection() {
+        return connection;
+    }
+
+    /**
+     * @see CommandObjects#setValueCodec(ValueCodec)
+     */
+    public void setValueCodec(final ValueCodec codec) {
+        commandObjects.setValueCodec(codec);
+    }
+
+    @Override
+    public String ping() {
+        return connection.executeCommand(commandObjects.ping());
+    }
+
+    @Override
+    public String get(final String key) {
+        return connection.executeCommand(commandObjects.get(key));
+    }
+
+    @Override
+    public byte[] get(final byte[] key) {
+        return connection.executeCommand(commandObjects.get(key));
+    }
+
+    @Override
+    public String set(final String key, final String value) {
+        return connection.executeCommand(commandObjects.set(key, value));
+    }
+
+    @Override
+    public String set(final byte[] key, final byte[] value) {
+        return connection.executeCommand(commandObjects.set(key, value));
+    }
+
+    @Override
+    public long incr(final String key) {
+        return connection.executeCommand(commandObjects.incr(key));
+    }
+
+    @Override
+    public List<String> mget(final String... keys) {
+        return connection.executeCommand(commandObjects.mget(keys));
+    }
+
+    @Override
+    public long del(final String... keys) {
+        return connection.executeCommand(commandObjects.del(keys));
+    }
+
+    @Override
+    public boolean exists(final String key) {
+        return connection.executeCommand(commandObjects.exists(key));
+    }
+
+    @Override
+    public void close() {
+        connection.close();
+    }
+}
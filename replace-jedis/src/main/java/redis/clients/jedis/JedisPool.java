@@ -0,0 +1,44 @@
+package redis.clients.jedis;
+
+import redis.clients.jedis.csc.ClientSideCache;
+import redis.clients.jedis.util.GenericPoolConfig;
+import redis.clients.jedis.util.Pool;
+
+/**
+ * Jedis 连接池，借出的 {@link Jedis} 调用 {@link Jedis#close()} 即归还
+ *
+ * @author wangguangwu
+ */
+public class JedisPool extends Pool<Jedis> {
+
+    public JedisPool(final String host, final int port) {
+        this(new JedisPoolConfig(), new HostAndPort(host, port));
+    }
+
+    public JedisPool(final GenericPoolConfig poolConfig, final String host, final int port) {
+        this(poolConfig, new HostAndPort(host, port));
+    }
+
+    public JedisPool(final GenericPoolConfig poolConfig, final HostAndPort hostAndPort) {
+        this(poolConfig, new JedisFactory(hostAndPort));
+    }
+
+    /**
+     * 借出的 Jedis 通过 clientSideCache 缓存读命令
+     */
+    public JedisPool(final GenericPoolConfig poolConfig, final HostAndPort hostAndPort,
+                     final ClientSideCache clientSideCache) {
+        this(poolConfig, new JedisFactory(new DefaultJedisSocketFactory(hostAndPort), clientSideCache));
+    }
+
+    public JedisPool(final GenericPoolConfig poolConfig, final JedisFactory factory) {
+        super(poolConfig, factory);
+    }
+
+    @Override
+    public Jedis getResource() {
+        Jedis jedis = super.getResource();
+        jedis.setDataSource(this);
+        return jedis;
+    }
+}
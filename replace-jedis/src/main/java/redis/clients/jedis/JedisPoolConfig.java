@@ -0,0 +1,17 @@
+package redis.clients.jedis;
+
+import redis.clients.jedis.util.GenericPoolConfig;
+
+/**
+ * 适合 Jedis 的默认连接池配置：定期检测空闲连接
+ *
+ * @author wangguangwu
+ */
+public class JedisPoolConfig extends GenericPoolConfig {
+
+    public JedisPoolConfig() {
+        setTestWhileIdle(true);
+        setMinEvictableIdleTimeMillis(60000);
+        setTimeBetweenEvictionRunsMillis(30000);
+    }
+}
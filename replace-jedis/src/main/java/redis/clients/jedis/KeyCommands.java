@@ -0,0 +1,12 @@
+package redis.clients.jedis;
+
+/**
+ * @author wangguangwu
+ */
+public interface KeyCommands {
+
+    long del(String... keys);
+
+    boolean exists(String key);
+
+}
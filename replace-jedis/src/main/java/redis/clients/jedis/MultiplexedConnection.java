@@ -0,0 +1,219 @@
+package redis.clients.jedis;
+
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisException;
+
+import java.io.Closeable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 多个线程共享的单个 {@link Connection}，自动把并发的命令合并成管道。
+ * <p>
+ * 调用线程把命令放入队列，抢到写锁的线程把队列中所有命令连续写入输出缓冲区后只刷新一次；
+ * 唯一的读线程按写出的顺序读取响应并交给对应的调用方。
+ * 同时在途的命令数不超过 maxInFlight，服务端变慢时调用方会被阻塞，而不是无限堆积。
+ * <p>
+ * 所有命令共享一个连接，BLPOP 之类的阻塞命令会阻塞其他所有调用方，不要在这里使用。
+ * 连接断开后关闭 socket，所有在途命令失败，之后的命令直接失败，需要重新创建。
+ *
+ * @author wangguangwu
+ */
+public class MultiplexedConnection implements Closeable {
+
+    public static final int DEFAULT_MAX_IN_FLIGHT = 1024;
+
+    private final Connection connection;
+    private final Semaphore inFlightWindow;
+
+    // 等待写出的命令
+    private final ConcurrentLinkedQueue<PendingCommand<?>> outbound = new ConcurrentLinkedQueue<>();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    // 已经写出、等待响应的命令，顺序和写出顺序一致
+    private final LinkedBlockingQueue<PendingCommand<?>> inFlight = new LinkedBlockingQueue<>();
+
+    private final Thread reader;
+    private volatile JedisConnectionException failure;
+
+    public MultiplexedConnection(final HostAndPort hostAndPort) {
+        this(new DefaultJedisSocketFactory(hostAndPort), DEFAULT_MAX_IN_FLIGHT);
+    }
+
+    public MultiplexedConnection(final JedisSocketFactory socketFactory, final int maxInFlight) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("maxInFlight <= 0");
+        }
+        this.connection = new Connection(socketFactory);
+        this.connection.connect();
+        this.inFlightWindow = new Semaphore(maxInFlight);
+        this.reader = new Thread(this::readLoop, "jedis-multiplexed-reader");
+        this.reader.setDaemon(true);
+        this.reader.start();
+    }
+
+    /**
+     * 等待响应的时间不超过连接的 soTimeout，超时时抛出 {@link JedisConnectionException}，命令的响应到达后被丢弃
+     */
+    public <T> T executeCommand(final CommandObject<T> commandObject) {
+        final CompletableFuture<T> future = executeCommandAsync(commandObject);
+        final int timeout = connection.getSoTimeout();
+        try {
+            return timeout > 0 ? future.get(timeout, TimeUnit.MILLISECONDS) : future.get();
+        } catch (TimeoutException e) {
+            throw new JedisConnectionException("Timed out waiting for the reply after " + timeout + " ms.", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JedisException("Interrupted while waiting for the reply.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new JedisException(e.getCause());
+        }
+    }
+
+    public <T> CompletableFuture<T> executeCommandAsync(final CommandObject<T> commandObject) {
+        final PendingCommand<T> command = new PendingCommand<>(commandObject);
+        if (failure != null) {
+            command.future.completeExceptionally(failure);
+            return command.future;
+        }
+        // 在途命令过多时阻塞调用方
+        try {
+            inFlightWindow.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            command.future.completeExceptionally(new JedisException("Interrupted while waiting to send.", e));
+            return command.future;
+        }
+        outbound.add(command);
+        flushOutbound();
+        return command.future;
+    }
+
+    /**
+     * 抢到写锁的线程负责写出队列中的所有命令，其他线程直接返回。
+     * 释放锁之后再检查一次队列，避免在持锁线程最后一次检查之后入队的命令无人写出。
+     */
+    private void flushOutbound() {
+        while (!outbound.isEmpty() && writeLock.tryLock()) {
+            try {
+                PendingCommand<?> command;
+                int written = 0;
+                while ((command = outbound.poll()) != null) {
+                    if (failure != null) {
+                        command.fail(failure);
+                        continue;
+                    }
+                    connection.sendCommand(command.arguments);
+                    inFlight.add(command);
+                    written++;
+                }
+                if (written > 0) {
+                    connection.flush();
+                }
+                if (failure != null) {
+                    // 读线程可能在上面检查之后失败并清空了 inFlight，已经退出的读线程不会再取这些命令
+                    failInFlight(failure);
+                }
+            } catch (JedisConnectionException e) {
+                fail(e);
+            } finally {
+                writeLock.unlock();
+            }
+        }
+    }
+
+    private void readLoop() {
+        while (failure == null) {
+            final PendingCommand<?> command;
+            try {
+                command = inFlight.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                command.complete(connection.readProtocolWithCheckingBroken());
+            } catch (JedisConnectionException e) {
+                command.fail(e);
+                fail(e);
+            } catch (RuntimeException e) {
+                // 错误响应已经完整读取，连接仍然可用
+                command.fail(e);
+            }
+        }
+    }
+
+    /**
+     * 记录失败并关闭 socket，之后的写出立即失败；阻塞在 socket 上的读线程随之退出
+     */
+    private synchronized void fail(final JedisConnectionException cause) {
+        if (failure == null) {
+            failure = cause;
+            connection.setBroken();
+            connection.disconnect();
+            if (Thread.currentThread() != reader) {
+                // 读线程可能在等待在途命令
+                reader.interrupt();
+            }
+        }
+        failInFlight(failure);
+        PendingCommand<?> command;
+        while ((command = outbound.poll()) != null) {
+            command.fail(failure);
+        }
+    }
+
+    private void failInFlight(final JedisConnectionException cause) {
+        PendingCommand<?> command;
+        while ((command = inFlight.poll()) != null) {
+            command.fail(cause);
+        }
+    }
+
+    public boolean isBroken() {
+        return failure != null;
+    }
+
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    @Override
+    public void close() {
+        fail(new JedisConnectionException("Connection is closed."));
+    }
+
+    private final class PendingCommand<T> {
+
+        final CommandArguments arguments;
+        final Builder<T> builder;
+        final CompletableFuture<T> future = new CompletableFuture<>();
+
+        PendingCommand(final CommandObject<T> commandObject) {
+            this.arguments = commandObject.getArguments();
+            this.builder = commandObject.getBuilder();
+        }
+
+        void complete(final Object reply) {
+            inFlightWindow.release();
+            try {
+                future.complete(builder.build(reply));
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        }
+
+        void fail(final Throwable cause) {
+            if (future.completeExceptionally(cause)) {
+                inFlightWindow.release();
+            }
+        }
+    }
+}
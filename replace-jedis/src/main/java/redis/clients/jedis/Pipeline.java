@@ -0,0 +1,72 @@
+package redis.clients.jedis;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 管道：命令只写入输出缓冲区，在 {@link #sync()} 时一次性刷新并按顺序读取所有响应
+ *
+ * @author wangguangwu
+ */
+public class Pipeline extends PipeliningBase implements Closeable {
+
+    protected final Connection connection;
+
+    public Pipeline(Connection connection) {
+        this(connection, new CommandObjects());
+    }
+
+    public Pipeline(Connection connection, CommandObjects commandObjects) {
+        super(commandObjects);
+        this.connection = connection;
+    }
+
+    @Override
+    protected final <T> Response<T> appendCommand(CommandObject<T> commandObject) {
+        // 只写入缓冲区，不刷新、不读取
+        connection.sendCommand(commandObject.getArguments());
+        return enqueResponse(commandObject.getBuilder());
+    }
+
+    /**
+     * 刷新缓冲区并读取所有响应，填充之前返回的 {@link Response}
+     */
+    public void sync() {
+        if (!hasPipelinedResponse()) {
+            return;
+        }
+        List<Object> unformatted = connection.getMany(getPipelinedResponseLength());
+        for (Object o : unformatted) {
+            generateResponse(o);
+        }
+    }
+
+    /**
+     * 和 {@link #sync()} 一样，同时按顺序返回所有已解析的响应，错误响应以异常对象返回
+     */
+    public List<Object> syncAndReturnAll() {
+        if (!hasPipelinedResponse()) {
+            return new ArrayList<>(0);
+        }
+        List<Object> unformatted = connection.getMany(getPipelinedResponseLength());
+        List<Object> formatted = new ArrayList<>(unformatted.size());
+        for (Object o : unformatted) {
+            try {
+                formatted.add(generateResponse(o).get());
+            } catch (RuntimeException e) {
+                formatted.add(e);
+            }
+        }
+        return formatted;
+    }
+
+    public final boolean hasPipelinedResponse() {
+        return getPipelinedResponseLength() > 0;
+    }
+
+    @Override
+    public void close() {
+        sync();
+    }
+}
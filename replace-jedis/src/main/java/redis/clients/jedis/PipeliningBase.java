@@ -0,0 +1,65 @@
+package redis.clients.jedis;
+
+import redis.clients.jedis.commands.ProtocolCommand;
+
+import java.util.List;
+
+/**
+ * 管道和事务共用的命令方法，命令只写入输出缓冲区，返回稍后才能取值的 {@link Response}
+ *
+ * @author wangguangwu
+ */
+public abstract class PipeliningBase extends Queable {
+
+    protected final CommandObjects commandObjects;
+
+    protected PipeliningBase(CommandObjects commandObjects) {
+        this.commandObjects = commandObjects;
+    }
+
+    protected abstract <T> Response<T> appendCommand(CommandObject<T> commandObject);
+
+    public Response<String> ping() {
+        return appendCommand(commandObjects.ping());
+    }
+
+    public Response<String> get(String key) {
+        return appendCommand(commandObjects.get(key));
+    }
+
+    public Response<byte[]> get(byte[] key) {
+        return appendCommand(commandObjects.get(key));
+    }
+
+    public Response<String> set(String key, String value) {
+        return appendCommand(commandObjects.set(key, value));
+    }
+
+    public Response<String> set(byte[] key, byte[] value) {
+        return appendCommand(commandObjects.set(key, value));
+    }
+
+    public Response<Long> incr(String key) {
+        return appendCommand(commandObjects.incr(key));
+    }
+
+    public Response<Long> del(String... keys) {
+        return appendCommand(commandObjects.del(keys));
+    }
+
+    public Response<Boolean> exists(String key) {
+        return appendCommand(commandObjects.exists(key));
+    }
+
+    public Response<List<String>> mget(String... keys) {
+        return appendCommand(commandObjects.mget(keys));
+    }
+
+    public Response<Object> sendCommand(ProtocolCommand cmd, String... args) {
+        return appendCommand(commandObjects.sendCommand(cmd, args));
+    }
+
+    public Response<Object> sendCommand(ProtocolCommand cmd, byte[]... args) {
+        return appendCommand(commandObjects.sendCommand(cmd, args));
+    }
+}
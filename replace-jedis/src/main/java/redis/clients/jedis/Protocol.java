@@ -2,17 +2,27 @@ package redis.clients.jedis;
 
 import redis.clients.jedis.args.Rawable;
 import redis.clients.jedis.commands.ProtocolCommand;
+import redis.clients.jedis.exceptions.JedisAccessControlException;
 import redis.clients.jedis.exceptions.JedisAskDataException;
+import redis.clients.jedis.exceptions.JedisBusyException;
+import redis.clients.jedis.exceptions.JedisClusterException;
 import redis.clients.jedis.exceptions.JedisConnectionException;
 import redis.clients.jedis.exceptions.JedisDataException;
 import redis.clients.jedis.exceptions.JedisMovedDataException;
+import redis.clients.jedis.exceptions.JedisNoScriptException;
 import redis.clients.jedis.util.RedisInputStream;
 import redis.clients.jedis.util.RedisOutputStream;
 import redis.clients.jedis.util.SafeEncoder;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * @author wangguangwu
@@ -30,6 +40,42 @@ public class Protocol {
     public static final byte PLUS_BYTE = '+';
     public static final byte COLON_BYTE = ':';
 
+    // RESP3 新增的类型
+    public static final byte UNDERSCORE_BYTE = '_';
+    public static final byte POUND_BYTE = '#';
+    public static final byte COMMA_BYTE = ',';
+    public static final byte LEFT_BRACE_BYTE = '(';
+    public static final byte EXCLAMATION_BYTE = '!';
+    public static final byte EQUAL_BYTE = '=';
+    public static final byte PERCENT_BYTE = '%';
+    public static final byte TILDE_BYTE = '~';
+    public static final byte PIPE_BYTE = '|';
+    public static final byte GREATER_THAN_BYTE = '>';
+
+    private static final byte[][] ARRAY_HEADERS = encodeHeaders(ASTERISK_BYTE, 64);
+    private static final byte[][] BULK_HEADERS = encodeHeaders(DOLLAR_BYTE, 1024);
+    private static final byte[][] NUMBERS = new byte[256][];
+
+    static {
+        for (int i = 0; i < NUMBERS.length; i++) {
+            NUMBERS[i] = SafeEncoder.encode(Integer.toString(i));
+        }
+    }
+
+    /**
+     * {@link #readArrayHeaderIfPresent} 遇到非数组响应时的返回值
+     */
+    static final int NOT_AN_ARRAY = -2;
+
+    /**
+     * 数组长度来自服务端，预分配的容量不超过这个值，更长的数组在读取过程中扩容
+     */
+    static final int MAX_INITIAL_ARRAY_CAPACITY = 1024;
+
+    public static final byte[] BYTES_OK = SafeEncoder.encode("OK");
+    public static final byte[] BYTES_PONG = SafeEncoder.encode("PONG");
+    public static final byte[] BYTES_QUEUED = SafeEncoder.encode("QUEUED");
+
     private static final String ASK_PREFIX = "ASK ";
     private static final String MOVED_PREFIX = "MOVED ";
     private static final String CLUSTERDOWN_PREFIX = "CLUSTERDOWN ";
@@ -40,12 +86,40 @@ public class Protocol {
 
 
     public static enum Command implements ProtocolCommand {
-        PING;
+        PING, GET, SET, INCR, DEL, EXISTS, MGET, KEYS, LRANGE, HGETALL, ZRANGE, SMEMBERS, CLUSTER, ASKING,
+        HELLO, CLIENT, SCAN, HSCAN, SSCAN, ZSCAN, INFO, MULTI, EXEC, DISCARD, WATCH, UNWATCH, EVALSHA, SCRIPT;
 
         private final byte[] raw;
+        /**
+         * 命令名编码后的 bulk，即 $len\r\nNAME\r\n，发送时直接整体复制
+         */
+        private final byte[] encoded;
 
         private Command() {
             this.raw = SafeEncoder.encode(name());
+            this.encoded = SafeEncoder.encode("$" + raw.length + "\r\n" + name() + "\r\n");
+        }
+
+        @Override
+        public byte[] getRaw() {
+            return raw;
+        }
+
+        public byte[] getEncoded() {
+            return encoded;
+        }
+    }
+
+    /**
+     * 命令中的关键字参数
+     */
+    public static enum Keyword implements Rawable {
+        MATCH, COUNT, LOAD;
+
+        private final byte[] raw;
+
+        private Keyword() {
+            this.raw = SafeEncoder.encode(name());
         }
 
         @Override
@@ -60,15 +134,15 @@ public class Protocol {
             // 在 Redis 协议中，这个符号用于表示接下来要读取的参数数量。
             // 比如说，*3 表示接下来会有 3 个参数
             // 将参数的个数写入流中
-            os.write(ASTERISK_BYTE);
-            os.writeIntCrLf(args.size());
-            for (Rawable arg : args) {
+            final int size = args.size();
+            writeHeader(os, ARRAY_HEADERS, ASTERISK_BYTE, size);
+            writeCommand(os, args.getCommand());
+            for (int i = 1; i < size; i++) {
                 // DOLLAR_BYTE ($) 符号
                 // 在 Redis 协议中，这个符号用于表示接下来要读取的参数的字节长度。
                 // 比如说，$3 表示接下来的参数是一个由 3 个字节组成的数据。
-                os.write(DOLLAR_BYTE);
-                final byte[] bin = arg.getRaw();
-                os.writeIntCrLf(bin.length);
+                final byte[] bin = args.get(i);
+                writeHeader(os, BULK_HEADERS, DOLLAR_BYTE, bin.length);
                 os.write(bin);
                 // 写个换行符
                 os.writeCrLf();
@@ -78,6 +152,60 @@ public class Protocol {
         }
     }
 
+    /**
+     * 发送没有参数的命令，不需要构造 {@link CommandArguments}
+     */
+    public static void sendCommand(final RedisOutputStream os, final ProtocolCommand command) {
+        try {
+            os.write(ARRAY_HEADERS[1]);
+            writeCommand(os, command);
+        } catch (IOException e) {
+            throw new JedisConnectionException(e);
+        }
+    }
+
+    private static void writeCommand(final RedisOutputStream os, final ProtocolCommand command) throws IOException {
+        if (command instanceof Command) {
+            os.write(((Command) command).getEncoded());
+        } else {
+            final byte[] name = command.getRaw();
+            writeHeader(os, BULK_HEADERS, DOLLAR_BYTE, name.length);
+            os.write(name);
+            os.writeCrLf();
+        }
+    }
+
+    /**
+     * 常见长度使用预先编码好的头部，其他长度逐位写入
+     */
+    private static void writeHeader(final RedisOutputStream os, final byte[][] cache, final byte type,
+                                    final int length) throws IOException {
+        if (length < cache.length) {
+            os.write(cache[length]);
+        } else {
+            os.write(type);
+            os.writeIntCrLf(length);
+        }
+    }
+
+    private static byte[][] encodeHeaders(final byte type, final int count) {
+        final byte[][] headers = new byte[count][];
+        for (int i = 0; i < count; i++) {
+            headers[i] = SafeEncoder.encode((char) type + Integer.toString(i) + "\r\n");
+        }
+        return headers;
+    }
+
+    /**
+     * 整数参数的编码，小整数使用缓存
+     */
+    public static byte[] toByteArray(final long value) {
+        if (value >= 0 && value < NUMBERS.length) {
+            return NUMBERS[(int) value];
+        }
+        return SafeEncoder.encode(Long.toString(value));
+    }
+
     public static String readErrorLineIfPossible(RedisInputStream is) {
         final byte b = is.readByte();
         // if buffer contains other type of response, just ignore.
@@ -92,6 +220,334 @@ public class Protocol {
         return process(is);
     }
 
+    /**
+     * RESP3 连接上读取一个响应，期间遇到的推送消息交给 pushConsumer，不作为响应返回
+     */
+    public static Object read(final RedisInputStream is, final Consumer<List<Object>> pushConsumer) {
+        while (is.peekByte() == GREATER_THAN_BYTE) {
+            pushConsumer.accept(readPush(is));
+        }
+        return process(is);
+    }
+
+    /**
+     * 解析一个响应并依次回调 visitor，状态和 bulk 直接指向输入流的缓冲区，常规大小的响应不分配对象
+     */
+    public static void read(final RedisInputStream is, final ReplyVisitor visitor) {
+        final byte b = is.readByte();
+        switch (b) {
+            case PLUS_BYTE: {
+                final int len = is.scanLine();
+                if (len >= 0) {
+                    visitor.onStatus(is.getBuffer(), is.getPosition(), len);
+                    is.skipBuffered(len + 2);
+                } else {
+                    final byte[] line = is.readLineBytes();
+                    visitor.onStatus(line, 0, line.length);
+                }
+                break;
+            }
+            case DOLLAR_BYTE:
+                visitBulk(is, is.readIntCrLf(), 0, visitor);
+                break;
+            case ASTERISK_BYTE:
+            case TILDE_BYTE:
+            case GREATER_THAN_BYTE:
+                visitArray(is, is.readIntCrLf(), visitor);
+                break;
+            case PERCENT_BYTE: {
+                final int num = is.readIntCrLf();
+                visitArray(is, num == -1 ? -1 : num * 2, visitor);
+                break;
+            }
+            case COLON_BYTE:
+                visitor.onInteger(is.readLongCrLf());
+                break;
+            case MINUS_BYTE:
+                visitor.onError(buildError(is.readLine()));
+                break;
+            case UNDERSCORE_BYTE:
+                skipCrLf(is);
+                visitor.onNull();
+                break;
+            case POUND_BYTE: {
+                final byte value = is.readByte();
+                skipCrLf(is);
+                visitor.onBoolean(value == 't');
+                break;
+            }
+            case COMMA_BYTE:
+            case LEFT_BRACE_BYTE: {
+                final int len = is.scanLine();
+                if (len >= 0) {
+                    visitor.onBulk(is.getBuffer(), is.getPosition(), len);
+                    is.skipBuffered(len + 2);
+                } else {
+                    final byte[] line = is.readLineBytes();
+                    visitor.onBulk(line, 0, line.length);
+                }
+                break;
+            }
+            case EXCLAMATION_BYTE:
+                visitor.onError(buildError(SafeEncoder.encode(processBulkReply(is))));
+                break;
+            case EQUAL_BYTE:
+                // 跳过前 4 个字节的格式说明
+                visitBulk(is, is.readIntCrLf(), 4, visitor);
+                break;
+            case PIPE_BYTE:
+                processMapReply(is);
+                read(is, visitor);
+                break;
+            default:
+                throw new JedisConnectionException("Unknown reply: " + (char) b);
+        }
+    }
+
+    /**
+     * 读取整数响应，不装箱
+     *
+     * @throws JedisDataException 服务端返回错误时抛出
+     */
+    public static long readLongReply(final RedisInputStream is) {
+        final byte b = is.readByte();
+        if (b == COLON_BYTE) {
+            return is.readLongCrLf();
+        }
+        if (b == MINUS_BYTE) {
+            processError(is);
+        }
+        throw new JedisConnectionException("Expected an integer reply but got: " + (char) b);
+    }
+
+    /**
+     * 读取状态响应并和 expected 比较，不构造字符串
+     *
+     * @throws JedisDataException 服务端返回错误时抛出
+     */
+    public static boolean readStatusEquals(final RedisInputStream is, final byte[] expected) {
+        final byte b = is.readByte();
+        if (b == MINUS_BYTE) {
+            processError(is);
+        }
+        if (b != PLUS_BYTE) {
+            throw new JedisConnectionException("Expected a status reply but got: " + (char) b);
+        }
+        final int len = is.scanLine();
+        if (len < 0) {
+            return Arrays.equals(is.readLineBytes(), expected);
+        }
+        boolean equals = len == expected.length;
+        final byte[] buf = is.getBuffer();
+        final int off = is.getPosition();
+        for (int i = 0; equals && i < len; i++) {
+            equals = buf[off + i] == expected[i];
+        }
+        is.skipBuffered(len + 2);
+        return equals;
+    }
+
+    private static void visitBulk(final RedisInputStream is, final int len, final int skip,
+                                  final ReplyVisitor visitor) {
+        if (len == -1) {
+            visitor.onNull();
+        } else if (is.ensureBuffered(len + 2)) {
+            visitor.onBulk(is.getBuffer(), is.getPosition() + skip, len - skip);
+            is.skipBuffered(len + 2);
+        } else {
+            // 超过缓冲区大小的值只能复制出来
+            final byte[] value = readBulkBytes(is, len);
+            visitor.onBulk(value, skip, len - skip);
+        }
+    }
+
+    private static void visitArray(final RedisInputStream is, final int num, final ReplyVisitor visitor) {
+        if (num == -1) {
+            visitor.onNull();
+            return;
+        }
+        visitor.onArrayStart(num);
+        for (int i = 0; i < num; i++) {
+            read(is, visitor);
+        }
+    }
+
+    /**
+     * 读取数组响应的头部，返回元素个数，nil 数组返回 -1；map 按 2n 个元素的数组处理
+     *
+     * @throws JedisDataException 响应不是数组时抛出，此时响应已经被完整读取
+     */
+    public static int readArrayHeader(final RedisInputStream is) {
+        final int size = readArrayHeaderIfPresent(is);
+        if (size == NOT_AN_ARRAY) {
+            // 服务端返回的错误在这里抛出
+            process(is);
+            throw new JedisDataException("Expected an array reply.");
+        }
+        return size;
+    }
+
+    /**
+     * 下一个响应是数组时读取头部并返回元素个数，否则不消费任何数据，返回 {@link #NOT_AN_ARRAY}
+     */
+    static int readArrayHeaderIfPresent(final RedisInputStream is) {
+        while (true) {
+            switch (is.peekByte()) {
+                case ASTERISK_BYTE:
+                case TILDE_BYTE:
+                case GREATER_THAN_BYTE:
+                    is.readByte();
+                    return is.readIntCrLf();
+                case PERCENT_BYTE: {
+                    is.readByte();
+                    final int num = is.readIntCrLf();
+                    return num == -1 ? -1 : num * 2;
+                }
+                case PIPE_BYTE:
+                    // 跳过属性，继续看后面真正的响应
+                    is.readByte();
+                    processMapReply(is);
+                    break;
+                default:
+                    return NOT_AN_ARRAY;
+            }
+        }
+    }
+
+    /**
+     * 读取数组中的一个非数组元素，错误元素以异常对象返回
+     */
+    static Object readElement(final RedisInputStream is) {
+        try {
+            return process(is);
+        } catch (JedisDataException e) {
+            return e;
+        }
+    }
+
+    /**
+     * 跳过一个完整的响应，不构造任何对象
+     */
+    public static void skip(final RedisInputStream is) {
+        final byte b = is.readByte();
+        switch (b) {
+            case DOLLAR_BYTE:
+            case EXCLAMATION_BYTE:
+            case EQUAL_BYTE: {
+                final long len = is.readLongCrLf();
+                if (len != -1) {
+                    is.skipBytes(len + 2);
+                }
+                break;
+            }
+            case ASTERISK_BYTE:
+            case TILDE_BYTE:
+            case GREATER_THAN_BYTE:
+                skip(is, is.readIntCrLf());
+                break;
+            case PERCENT_BYTE:
+                skip(is, is.readIntCrLf() * 2);
+                break;
+            case PIPE_BYTE:
+                skip(is, is.readIntCrLf() * 2);
+                skip(is);
+                break;
+            case PLUS_BYTE:
+            case MINUS_BYTE:
+            case COLON_BYTE:
+            case UNDERSCORE_BYTE:
+            case POUND_BYTE:
+            case COMMA_BYTE:
+            case LEFT_BRACE_BYTE: {
+                final int len = is.scanLine();
+                if (len >= 0) {
+                    is.skipBuffered(len + 2);
+                } else {
+                    is.readLineBytes();
+                }
+                break;
+            }
+            default:
+                throw new JedisConnectionException("Unknown reply: " + (char) b);
+        }
+    }
+
+    private static void skip(final RedisInputStream is, final int num) {
+        for (int i = 0; i < num; i++) {
+            skip(is);
+        }
+    }
+
+    /**
+     * 读取一条推送消息（>），消息内容和数组相同
+     */
+    public static List<Object> readPush(final RedisInputStream is) {
+        final byte b = is.readByte();
+        if (b != GREATER_THAN_BYTE) {
+            throw new JedisConnectionException("Expected a push message but got: " + (char) b);
+        }
+        return processMultiBulkReply(is);
+    }
+
+    /**
+     * 读取一个 bulk 响应并分块写入 out，不在堆上完整构造这个值。
+     *
+     * @return 值的长度，值不存在时返回 -1
+     * @throws JedisDataException 值超过 maxLength 时抛出，此时响应已经被完整丢弃，连接仍然可用
+     * @throws IOException        写入 out 失败，此时响应只读取了一部分，连接不能继续使用
+     */
+    public static long readBulkReply(final RedisInputStream is, final OutputStream out, final long maxLength)
+            throws IOException {
+        final long len = readBulkLength(is, maxLength);
+        if (len != -1) {
+            is.transferTo(out, len);
+            skipCrLf(is);
+        }
+        return len;
+    }
+
+    public static long readBulkReply(final RedisInputStream is, final WritableByteChannel channel,
+                                     final long maxLength) throws IOException {
+        final long len = readBulkLength(is, maxLength);
+        if (len != -1) {
+            is.transferTo(channel, len);
+            skipCrLf(is);
+        }
+        return len;
+    }
+
+    public static long readBulkReply(final RedisInputStream is, final ByteBuffer dst, final long maxLength) {
+        final long len = readBulkLength(is, Math.min(maxLength, dst.remaining()));
+        if (len != -1) {
+            is.transferTo(dst, (int) len);
+            skipCrLf(is);
+        }
+        return len;
+    }
+
+    private static long readBulkLength(final RedisInputStream is, final long maxLength) {
+        final byte b = is.readByte();
+        if (b == MINUS_BYTE) {
+            processError(is);
+        }
+        if (b != DOLLAR_BYTE) {
+            throw new JedisConnectionException("Expected a bulk reply but got: " + (char) b);
+        }
+        final long len = is.readLongCrLf();
+        if (len > maxLength) {
+            // 丢弃整个响应，保证连接上的后续响应不受影响
+            is.skipBytes(len + 2);
+            throw new JedisDataException("Bulk reply of " + len + " bytes exceeds the limit of " + maxLength + " bytes.");
+        }
+        return len;
+    }
+
+    private static void skipCrLf(final RedisInputStream is) {
+        // read 2 more bytes for the command delimiter
+        is.readByte();
+        is.readByte();
+    }
+
     private static Object process(final RedisInputStream is) {
         // 按字节进行读取
         final byte b = is.readByte();
@@ -112,6 +568,32 @@ public class Protocol {
             case MINUS_BYTE:
                 processError(is);
                 return null;
+            // 以下为 RESP3 类型
+            case UNDERSCORE_BYTE:
+                is.readLineBytes();
+                return null;
+            case POUND_BYTE:
+                return processBoolean(is);
+            case COMMA_BYTE:
+                return processDouble(is);
+            case LEFT_BRACE_BYTE:
+                return new BigInteger(is.readLine());
+            case EXCLAMATION_BYTE:
+                processBlobError(is);
+                return null;
+            case EQUAL_BYTE:
+                return processVerbatimString(is);
+            // map 展开为 key、value 交替的列表，和 RESP2 下的响应格式一致
+            case PERCENT_BYTE:
+                return processMapReply(is);
+            case TILDE_BYTE:
+                return processMultiBulkReply(is);
+            case GREATER_THAN_BYTE:
+                return processMultiBulkReply(is);
+            // 属性是附加在响应前的元数据，跳过后读取真正的响应
+            case PIPE_BYTE:
+                processMapReply(is);
+                return process(is);
             default:
                 throw new JedisConnectionException("Unknown reply: " + (char) b);
         }
@@ -126,7 +608,10 @@ public class Protocol {
         if (len == -1) {
             return null;
         }
+        return readBulkBytes(is, len);
+    }
 
+    private static byte[] readBulkBytes(final RedisInputStream is, final int len) {
         final byte[] read = new byte[len];
         int offset = 0;
         while (offset < len) {
@@ -144,12 +629,16 @@ public class Protocol {
         return read;
     }
 
+    static int initialArrayCapacity(final long length) {
+        return (int) Math.max(0, Math.min(length, MAX_INITIAL_ARRAY_CAPACITY));
+    }
+
     private static List<Object> processMultiBulkReply(final RedisInputStream is) {
         final int num = is.readIntCrLf();
         if (num == -1) {
             return null;
         }
-        final List<Object> ret = new ArrayList<>(num);
+        final List<Object> ret = new ArrayList<>(initialArrayCapacity(num));
         for (int i = 0; i < num; i++) {
             try {
                 ret.add(process(is));
@@ -160,36 +649,89 @@ public class Protocol {
         return ret;
     }
 
+    private static List<Object> processMapReply(final RedisInputStream is) {
+        final int num = is.readIntCrLf();
+        if (num == -1) {
+            return null;
+        }
+        final List<Object> ret = new ArrayList<>(initialArrayCapacity(num * 2L));
+        for (int i = 0; i < num * 2; i++) {
+            try {
+                ret.add(process(is));
+            } catch (JedisDataException e) {
+                ret.add(e);
+            }
+        }
+        return ret;
+    }
+
+    private static Boolean processBoolean(final RedisInputStream is) {
+        final byte b = is.readByte();
+        skipCrLf(is);
+        return b == 't';
+    }
+
+    private static Double processDouble(final RedisInputStream is) {
+        final String value = is.readLine();
+        switch (value) {
+            case "inf":
+                return Double.POSITIVE_INFINITY;
+            case "-inf":
+                return Double.NEGATIVE_INFINITY;
+            case "nan":
+                return Double.NaN;
+            default:
+                return Double.valueOf(value);
+        }
+    }
+
+    private static void processBlobError(final RedisInputStream is) {
+        final byte[] message = processBulkReply(is);
+        throw buildError(SafeEncoder.encode(message));
+    }
+
+    private static byte[] processVerbatimString(final RedisInputStream is) {
+        // 前 4 个字节是格式说明，例如 "txt:"
+        final byte[] raw = processBulkReply(is);
+        return Arrays.copyOfRange(raw, 4, raw.length);
+    }
+
     private static Long processInteger(final RedisInputStream is) {
         return is.readLongCrLf();
     }
 
     private static void processError(final RedisInputStream is) {
         String message = is.readLine();
+        throw buildError(message);
+    }
+
+    /**
+     * 根据错误消息构造对应的异常，同步读取和异步解析共用；都是 {@link JedisDataException}，
+     * 管道和事务中的错误响应被读取后不会影响后续的响应
+     */
+    static JedisDataException buildError(final String message) {
         // TODO: I'm not sure if this is the best way to do this.
         // Maybe Read only first 5 bytes instead?
         if (message.startsWith(MOVED_PREFIX)) {
             String[] movedInfo = parseTargetHostAndSlot(message);
 //      throw new JedisMovedDataException(message, new HostAndPort(movedInfo[1],
 //          Integer.parseInt(movedInfo[2])), Integer.parseInt(movedInfo[0]));
-            throw new JedisMovedDataException(message, HostAndPort.from(movedInfo[1]), Integer.parseInt(movedInfo[0]));
+            return new JedisMovedDataException(message, HostAndPort.from(movedInfo[1]), Integer.parseInt(movedInfo[0]));
         } else if (message.startsWith(ASK_PREFIX)) {
             String[] askInfo = parseTargetHostAndSlot(message);
 //      throw new JedisAskDataException(message, new HostAndPort(askInfo[1],
 //          Integer.parseInt(askInfo[2])), Integer.parseInt(askInfo[0]));
-            throw new JedisAskDataException(message, HostAndPort.from(askInfo[1]), Integer.parseInt(askInfo[0]));
+            return new JedisAskDataException(message, HostAndPort.from(askInfo[1]), Integer.parseInt(askInfo[0]));
         } else if (message.startsWith(CLUSTERDOWN_PREFIX)) {
-            throw new UnsupportedOperationException(message);
+            return new JedisClusterException(message);
         } else if (message.startsWith(BUSY_PREFIX)) {
-            throw new UnsupportedOperationException(message);
+            return new JedisBusyException(message);
         } else if (message.startsWith(NOSCRIPT_PREFIX)) {
-            throw new UnsupportedOperationException(message);
-        } else if (message.startsWith(WRONGPASS_PREFIX)) {
-            throw new UnsupportedOperationException(message);
-        } else if (message.startsWith(NOPERM_PREFIX)) {
-            throw new UnsupportedOperationException(message);
+            return new JedisNoScriptException(message);
+        } else if (message.startsWith(WRONGPASS_PREFIX) || message.startsWith(NOPERM_PREFIX)) {
+            return new JedisAccessControlException(message);
         }
-        throw new JedisDataException(message);
+        return new JedisDataException(message);
     }
 
     private static String[] parseTargetHostAndSlot(String clusterRedirectResponse) {
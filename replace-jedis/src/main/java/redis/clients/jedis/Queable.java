@@ -0,0 +1,34 @@
+package redis.clients.jedis;
+
+import java.util.LinkedList;
+import java.util.Queue;
+
+/**
+ * @author wangguangwu
+ */
+public class Queable {
+
+    private final Queue<Response<?>> pipelinedResponses = new LinkedList<>();
+
+    protected final void clean() {
+        pipelinedResponses.clear();
+    }
+
+    protected final Response<?> generateResponse(Object data) {
+        Response<?> response = pipelinedResponses.poll();
+        if (response != null) {
+            response.set(data);
+        }
+        return response;
+    }
+
+    protected final <T> Response<T> enqueResponse(Builder<T> builder) {
+        Response<T> lr = new Response<>(builder);
+        pipelinedResponses.add(lr);
+        return lr;
+    }
+
+    protected final int getPipelinedResponseLength() {
+        return pipelinedResponses.size();
+    }
+}
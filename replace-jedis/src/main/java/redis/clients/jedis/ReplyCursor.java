@@ -0,0 +1,146 @@
+package redis.clients.jedis;
+
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.util.RedisInputStream;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * 按需解析的数组响应，调用方取一个元素才从输入流中解析一个元素，不在堆上构造整个数组。
+ * <p>
+ * 元素的类型和 {@link Protocol#read} 的结果相同，但嵌套的数组以子游标返回；取下一个元素时，
+ * 上一个子游标中没有读取的元素会被跳过。错误元素以异常对象返回。
+ * <p>
+ * 游标读完或关闭之前，连接上不能执行其他命令；{@link #close()} 会跳过剩余的元素，保证连接可以继续使用。
+ *
+ * @author wangguangwu
+ */
+public class ReplyCursor implements Iterator<Object>, Closeable {
+
+    private final ReplyCursor root;
+    private final RedisInputStream is;
+    private final int size;
+    private int remaining;
+    private ReplyCursor child;
+    private boolean finishedNotified;
+
+    /**
+     * @param size 数组的元素个数，-1 表示 nil 数组
+     */
+    protected ReplyCursor(final RedisInputStream is, final int size) {
+        this(null, is, size);
+    }
+
+    private ReplyCursor(final ReplyCursor root, final RedisInputStream is, final int size) {
+        this.root = root == null ? this : root;
+        this.is = is;
+        this.size = size;
+        this.remaining = Math.max(size, 0);
+    }
+
+    /**
+     * 数组的元素个数，nil 数组返回 -1
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isNull() {
+        return size == -1;
+    }
+
+    /**
+     * 所有元素（包括嵌套数组中的元素）都已经从输入流中读取
+     */
+    public boolean isFinished() {
+        return remaining == 0 && (child == null || child.isFinished());
+    }
+
+    @Override
+    public boolean hasNext() {
+        return remaining > 0;
+    }
+
+    /**
+     * @return byte[]、Long 等单个值，嵌套数组返回 {@link ReplyCursor}，错误元素返回异常对象
+     */
+    @Override
+    public Object next() {
+        if (remaining == 0) {
+            throw new NoSuchElementException();
+        }
+        try {
+            if (child != null) {
+                child.skipRemaining();
+                child = null;
+            }
+            final Object element;
+            final int childSize = Protocol.readArrayHeaderIfPresent(is);
+            if (childSize != Protocol.NOT_AN_ARRAY) {
+                child = new ReplyCursor(root, is, childSize);
+                element = child;
+            } else {
+                element = Protocol.readElement(is);
+            }
+            remaining--;
+            root.notifyIfFinished();
+            return element;
+        } catch (JedisConnectionException e) {
+            root.onConnectionError(e);
+            throw e;
+        }
+    }
+
+    /**
+     * 跳过剩余的元素，不构造任何对象
+     */
+    @Override
+    public void close() {
+        if (isFinished()) {
+            root.notifyIfFinished();
+            return;
+        }
+        try {
+            skipRemaining();
+        } catch (JedisConnectionException e) {
+            root.onConnectionError(e);
+            throw e;
+        }
+        root.notifyIfFinished();
+    }
+
+    /**
+     * 顶层游标全部读完时调用一次 {@link #onFinished()}，空数组在创建后立即完成
+     */
+    void notifyIfFinished() {
+        if (!finishedNotified && isFinished()) {
+            finishedNotified = true;
+            onFinished();
+        }
+    }
+
+    private void skipRemaining() {
+        if (child != null) {
+            child.skipRemaining();
+            child = null;
+        }
+        while (remaining > 0) {
+            Protocol.skip(is);
+            remaining--;
+        }
+    }
+
+    /**
+     * 顶层游标的所有元素读完时调用一次
+     */
+    protected void onFinished() {
+    }
+
+    /**
+     * 读取过程中连接出错时调用，连接已经不能继续使用
+     */
+    protected void onConnectionError(final JedisConnectionException e) {
+    }
+}
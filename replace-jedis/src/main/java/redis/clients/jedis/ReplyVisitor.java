@@ -0,0 +1,37 @@
+package redis.clients.jedis;
+
+/**
+ * 事件式的响应解析回调，配合 {@link Protocol#read(redis.clients.jedis.util.RedisInputStream, ReplyVisitor)} 使用。
+ * <p>
+ * 状态和 bulk 的内容直接指向输入流的内部缓冲区，只在回调期间有效，需要保留时由调用方自己复制。
+ * 数组先回调 {@link #onArrayStart(int)}，随后依次回调每个元素，没有结束事件。
+ * <p>
+ * RESP3 类型按 RESP2 的方式回调：map 展开为 2n 个元素的数组，set 和推送消息为数组，
+ * double、大整数和 verbatim string 为 bulk，属性被跳过。
+ *
+ * @author wangguangwu
+ */
+public interface ReplyVisitor {
+
+    void onStatus(byte[] buf, int off, int len);
+
+    void onInteger(long value);
+
+    void onBulk(byte[] buf, int off, int len);
+
+    /**
+     * 值不存在的 bulk、数组和 RESP3 的 null
+     */
+    void onNull();
+
+    void onArrayStart(int length);
+
+    /**
+     * 错误响应，数组中的错误元素同样通过这里回调，不会中断后续元素的解析
+     */
+    void onError(RuntimeException error);
+
+    default void onBoolean(boolean value) {
+        onInteger(value ? 1 : 0);
+    }
+}
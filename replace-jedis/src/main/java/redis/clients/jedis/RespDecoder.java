@@ -0,0 +1,195 @@
+package redis.clients.jedis;
+
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.util.SafeEncoder;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 可增量、可中断的响应解析器，解析结果和 {@link Protocol#read} 相同。
+ * <p>
+ * 每次传入已经收到的数据，解析出尽可能多的完整响应；数据不完整时保存当前的解析状态，等下一批数据到达后继续，
+ * 不需要重新解析已经消费的字节。错误响应以异常对象交给调用方。
+ * <p>
+ * 非线程安全，一个连接对应一个实例。
+ *
+ * @author wangguangwu
+ */
+public class RespDecoder {
+
+    private static final int STATE_TYPE = 0;
+    private static final int STATE_LINE = 1;
+    private static final int STATE_BULK = 2;
+
+    private int state = STATE_TYPE;
+    private byte type;
+
+    // 正在读取的行，不包含 \r\n
+    private byte[] line = new byte[64];
+    private int lineLength;
+    private boolean lineSawCr;
+
+    // 正在读取的 bulk，crlfRemaining 为末尾还没有跳过的 \r\n 字节数
+    private byte[] bulk;
+    private int bulkOffset;
+    private int crlfRemaining;
+
+    // 还没有读完的数组，栈顶为最内层
+    private final ArrayDeque<Frame> frames = new ArrayDeque<>();
+
+    /**
+     * 解析 buffer 中的数据（从 position 到 limit），每得到一个完整的顶层响应就交给 consumer。
+     * 返回时 buffer 中的数据已经全部被消费。
+     */
+    public void decode(final ByteBuffer buffer, final Consumer<Object> consumer) {
+        while (buffer.hasRemaining()) {
+            switch (state) {
+                case STATE_TYPE:
+                    type = buffer.get();
+                    lineLength = 0;
+                    lineSawCr = false;
+                    state = STATE_LINE;
+                    break;
+                case STATE_LINE:
+                    if (readLine(buffer)) {
+                        processLine(consumer);
+                    }
+                    break;
+                case STATE_BULK:
+                    if (readBulk(buffer)) {
+                        final byte[] value = bulk;
+                        bulk = null;
+                        emit(value, consumer);
+                    }
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown decoder state: " + state);
+            }
+        }
+    }
+
+    private boolean readLine(final ByteBuffer buffer) {
+        while (buffer.hasRemaining()) {
+            final byte b = buffer.get();
+            if (lineSawCr) {
+                if (b == '\n') {
+                    return true;
+                }
+                // 单独的 \r 属于行内容
+                appendLine((byte) '\r');
+                lineSawCr = false;
+            }
+            if (b == '\r') {
+                lineSawCr = true;
+            } else {
+                appendLine(b);
+            }
+        }
+        return false;
+    }
+
+    private void appendLine(final byte b) {
+        if (lineLength == line.length) {
+            line = Arrays.copyOf(line, line.length << 1);
+        }
+        line[lineLength++] = b;
+    }
+
+    private boolean readBulk(final ByteBuffer buffer) {
+        final int toCopy = Math.min(bulk.length - bulkOffset, buffer.remaining());
+        buffer.get(bulk, bulkOffset, toCopy);
+        bulkOffset += toCopy;
+        if (bulkOffset < bulk.length) {
+            return false;
+        }
+        // 跳过 bulk 末尾的 \r\n
+        while (crlfRemaining > 0 && buffer.hasRemaining()) {
+            buffer.get();
+            crlfRemaining--;
+        }
+        return crlfRemaining == 0;
+    }
+
+    private void processLine(final Consumer<Object> consumer) {
+        switch (type) {
+            case Protocol.PLUS_BYTE:
+                emit(Arrays.copyOf(line, lineLength), consumer);
+                break;
+            case Protocol.MINUS_BYTE:
+                emit(Protocol.buildError(SafeEncoder.encode(Arrays.copyOf(line, lineLength))), consumer);
+                break;
+            case Protocol.COLON_BYTE:
+                emit(parseLong(), consumer);
+                break;
+            case Protocol.DOLLAR_BYTE: {
+                final int len = (int) parseLong();
+                if (len == -1) {
+                    emit(null, consumer);
+                } else {
+                    bulk = new byte[len];
+                    bulkOffset = 0;
+                    crlfRemaining = 2;
+                    state = STATE_BULK;
+                }
+                break;
+            }
+            case Protocol.ASTERISK_BYTE: {
+                final int num = (int) parseLong();
+                if (num == -1) {
+                    emit(null, consumer);
+                } else if (num == 0) {
+                    emit(new ArrayList<>(0), consumer);
+                } else {
+                    frames.push(new Frame(num));
+                    state = STATE_TYPE;
+                }
+                break;
+            }
+            default:
+                throw new JedisConnectionException("Unknown reply: " + (char) type);
+        }
+    }
+
+    private long parseLong() {
+        final boolean isNeg = lineLength > 0 && line[0] == '-';
+        long value = 0;
+        for (int i = isNeg ? 1 : 0; i < lineLength; i++) {
+            value = value * 10 + line[i] - '0';
+        }
+        return isNeg ? -value : value;
+    }
+
+    /**
+     * 完成一个值：放入外层数组，数组填满后继续向上完成；没有外层数组时交给调用方
+     */
+    private void emit(Object value, final Consumer<Object> consumer) {
+        state = STATE_TYPE;
+        while (!frames.isEmpty()) {
+            // 数组中的错误元素和 Protocol.processMultiBulkReply 一样以异常对象保存
+            final Frame frame = frames.peek();
+            frame.values.add(value);
+            if (frame.values.size() < frame.expected) {
+                return;
+            }
+            frames.pop();
+            value = frame.values;
+        }
+        consumer.accept(value);
+    }
+
+    private static final class Frame {
+
+        final int expected;
+        final List<Object> values;
+
+        Frame(int expected) {
+            this.expected = expected;
+            this.values = new ArrayList<>(Protocol.initialArrayCapacity(expected));
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package redis.clients.jedis;
+
+import redis.clients.jedis.exceptions.JedisDataException;
+
+import java.util.function.Supplier;
+
+/**
+ * 管道中一条命令的延迟结果，在 {@link Pipeline#sync()} 之后才能取值
+ *
+ * @author wangguangwu
+ */
+public class Response<T> implements Supplier<T> {
+
+    protected T response = null;
+    protected JedisDataException exception = null;
+
+    private boolean built = false;
+    private boolean set = false;
+
+    private final Builder<T> builder;
+    private Object data;
+
+    public Response(Builder<T> b) {
+        this.builder = b;
+    }
+
+    public void set(Object data) {
+        this.data = data;
+        set = true;
+    }
+
+    @Override
+    public T get() {
+        if (!set) {
+            throw new IllegalStateException(
+                    "Please close pipeline or multi block before calling this method.");
+        }
+        if (!built) {
+            build();
+        }
+        if (exception != null) {
+            throw exception;
+        }
+        return response;
+    }
+
+    private void build() {
+        try {
+            if (data != null) {
+                if (data instanceof JedisDataException) {
+                    exception = (JedisDataException) data;
+                } else {
+                    response = builder.build(data);
+                }
+            }
+            data = null;
+        } finally {
+            built = true;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Response " + builder.toString();
+    }
+}
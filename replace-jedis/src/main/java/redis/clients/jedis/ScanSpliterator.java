@@ -0,0 +1,239 @@
+package redis.clients.jedis;
+
+import redis.clients.jedis.commands.ProtocolCommand;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.jedis.util.SafeEncoder;
+
+import java.io.Closeable;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * 把 SCAN、HSCAN、SSCAN、ZSCAN 的游标循环包装成 {@link Spliterator}。
+ * <p>
+ * 读到一页结果后，如果游标还没有结束，先把下一页的请求发出去再交出这一页的元素，
+ * 服务端准备下一页和调用方处理这一页同时进行。
+ * <p>
+ * 每个 {@link Source} 对应一个独立的游标，例如集群中的一个主节点。还没有开始扫描的源可以被
+ * {@link #trySplit()} 分出去，由并行流在其他线程中通过各自的连接扫描；同一个游标无法拆分，
+ * 只有一个源时不会拆分。SCAN 可能返回重复的元素，结果不保证 {@link #DISTINCT}。
+ *
+ * @author wangguangwu
+ */
+public class ScanSpliterator<T> implements Spliterator<T>, Closeable {
+
+    public static final byte[] SCAN_POINTER_START = SafeEncoder.encode("0");
+
+    /**
+     * 一个独立的扫描游标所使用的连接
+     */
+    public interface Source {
+
+        Connection borrow();
+
+        /**
+         * 扫描结束或出错后调用，默认关闭连接，属于连接池的连接会归还给连接池
+         */
+        default void giveBack(final Connection connection) {
+            connection.close();
+        }
+    }
+
+    private final Source[] sources;
+    private int nextSource;
+    private final int endSource;
+    private final ProtocolCommand command;
+    private final byte[] key;
+    private final byte[] pattern;
+    private final int count;
+    private final Builder<List<T>> pageBuilder;
+    /**
+     * 同一个扫描拆分出来的所有部分，关闭时一起关闭
+     */
+    private final Queue<ScanSpliterator<T>> family;
+
+    private final CommandArguments arguments;
+    private Source source;
+    private Connection connection;
+    private List<T> page;
+    private int index;
+
+    /**
+     * @param key     HSCAN、SSCAN、ZSCAN 的 key，SCAN 为 null
+     * @param pattern MATCH 参数，null 表示不过滤
+     * @param count   COUNT 参数，不大于 0 时使用服务端的默认值
+     */
+    public ScanSpliterator(final List<? extends Source> sources, final ProtocolCommand command, final byte[] key,
+                           final byte[] pattern, final int count, final Builder<List<T>> pageBuilder) {
+        this(sources.toArray(new Source[0]), 0, sources.size(), command, key, pattern, count, pageBuilder,
+                new ConcurrentLinkedQueue<>());
+    }
+
+    private ScanSpliterator(final Source[] sources, final int from, final int to, final ProtocolCommand command,
+                            final byte[] key, final byte[] pattern, final int count,
+                            final Builder<List<T>> pageBuilder, final Queue<ScanSpliterator<T>> family) {
+        this.sources = sources;
+        this.nextSource = from;
+        this.endSource = to;
+        this.command = command;
+        this.key = key;
+        this.pattern = pattern;
+        this.count = count;
+        this.pageBuilder = pageBuilder;
+        this.family = family;
+        this.arguments = new CommandArguments(command, 7);
+        family.add(this);
+    }
+
+    /**
+     * 返回的流关闭时会关闭所有拆分出来的部分，提前结束遍历时需要关闭流
+     */
+    public Stream<T> stream(final boolean parallel) {
+        return StreamSupport.stream(this, parallel).onClose(this::close);
+    }
+
+    /**
+     * 当前持有连接，连接上有一个已经发出但还没有读取的请求
+     */
+    public boolean isActive() {
+        return connection != null;
+    }
+
+    @Override
+    public boolean tryAdvance(final Consumer<? super T> action) {
+        while (page == null || index >= page.size()) {
+            if (!fetchPage()) {
+                return false;
+            }
+        }
+        action.accept(page.get(index++));
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(final Consumer<? super T> action) {
+        do {
+            if (page != null) {
+                while (index < page.size()) {
+                    action.accept(page.get(index++));
+                }
+            }
+        } while (fetchPage());
+    }
+
+    /**
+     * 只拆分还没有开始扫描的源
+     */
+    @Override
+    public Spliterator<T> trySplit() {
+        final int remaining = endSource - nextSource;
+        if (remaining < 2) {
+            return null;
+        }
+        final int middle = nextSource + (remaining >>> 1);
+        final ScanSpliterator<T> prefix = new ScanSpliterator<>(sources, nextSource, middle, command, key,
+                pattern, count, pageBuilder, family);
+        nextSource = middle;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return Long.MAX_VALUE;
+    }
+
+    @Override
+    public int characteristics() {
+        return NONNULL;
+    }
+
+    /**
+     * 读掉已经发出的下一页请求并归还连接，对所有拆分出来的部分生效
+     */
+    @Override
+    public void close() {
+        for (ScanSpliterator<T> part : family) {
+            part.closePart();
+        }
+    }
+
+    private synchronized void closePart() {
+        nextSource = endSource;
+        page = null;
+        if (connection != null) {
+            try {
+                connection.getOne();
+            } catch (JedisDataException e) {
+                // 只需要把响应从连接上读掉
+            } finally {
+                releaseConnection();
+            }
+        }
+    }
+
+    /**
+     * 读取下一页，没有更多的页时返回 false
+     */
+    @SuppressWarnings("unchecked")
+    private synchronized boolean fetchPage() {
+        page = null;
+        index = 0;
+        boolean started = false;
+        if (connection == null) {
+            if (nextSource >= endSource) {
+                return false;
+            }
+            source = sources[nextSource++];
+            connection = source.borrow();
+            started = true;
+        }
+        try {
+            if (started) {
+                sendScan(SCAN_POINTER_START);
+            }
+            final List<Object> reply = (List<Object>) connection.getOne();
+            final byte[] cursor = (byte[]) reply.get(0);
+            if (Arrays.equals(cursor, SCAN_POINTER_START)) {
+                releaseConnection();
+            } else {
+                // 预取：先发出下一页的请求，再处理这一页
+                sendScan(cursor);
+                connection.flush();
+            }
+            page = pageBuilder.build(reply.get(1));
+            return true;
+        } catch (RuntimeException e) {
+            if (connection != null) {
+                releaseConnection();
+            }
+            throw e;
+        }
+    }
+
+    private void sendScan(final byte[] cursor) {
+        arguments.reset(command);
+        if (key != null) {
+            arguments.add(key);
+        }
+        arguments.add(cursor);
+        if (pattern != null) {
+            arguments.add(Protocol.Keyword.MATCH).add(pattern);
+        }
+        if (count > 0) {
+            arguments.add(Protocol.Keyword.COUNT).add(count);
+        }
+        connection.sendCommand(arguments);
+    }
+
+    private void releaseConnection() {
+        final Connection released = connection;
+        connection = null;
+        source.giveBack(released);
+    }
+}
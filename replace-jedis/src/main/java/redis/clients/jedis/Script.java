@@ -0,0 +1,78 @@
+package redis.clients.jedis;
+
+import redis.clients.jedis.util.SafeEncoder;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Lua 脚本，SHA1 摘要在创建时计算一次，执行时只发送摘要，通过 {@link ScriptRegistry#register(String)} 创建
+ *
+ * @author wangguangwu
+ */
+public final class Script {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final String source;
+    private final byte[] rawSource;
+    private final String sha1;
+    private final byte[] rawSha1;
+
+    Script(final String source) {
+        this.source = source;
+        this.rawSource = SafeEncoder.encode(source);
+        this.sha1 = sha1Hex(rawSource);
+        this.rawSha1 = SafeEncoder.encode(sha1);
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * 小写十六进制的 SHA1 摘要，和 SCRIPT LOAD 的返回值相同
+     */
+    public String getSha1() {
+        return sha1;
+    }
+
+    byte[] getRawSource() {
+        return rawSource;
+    }
+
+    byte[] getRawSha1() {
+        return rawSha1;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        return this == o || o instanceof Script && sha1.equals(((Script) o).sha1);
+    }
+
+    @Override
+    public int hashCode() {
+        return sha1.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "Script[" + sha1 + "]";
+    }
+
+    private static String sha1Hex(final byte[] data) {
+        final byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1").digest(data);
+        } catch (NoSuchAlgorithmException e) {
+            // 所有 JVM 都必须支持 SHA-1
+            throw new IllegalStateException(e);
+        }
+        final char[] hex = new char[digest.length * 2];
+        for (int i = 0; i < digest.length; i++) {
+            hex[i * 2] = HEX[(digest[i] >> 4) & 0xf];
+            hex[i * 2 + 1] = HEX[digest[i] & 0xf];
+        }
+        return new String(hex);
+    }
+}
@@ -0,0 +1,21 @@
+package redis.clients.jedis;
+
+/**
+ * EVALSHA 命令，同时带着脚本本身，服务端返回 NOSCRIPT 时 {@link Connection#executeCommand(CommandObject)}
+ * 在同一个连接上加载脚本并重试
+ *
+ * @author wangguangwu
+ */
+public class ScriptCommandObject<T> extends CommandObject<T> {
+
+    private final Script script;
+
+    public ScriptCommandObject(CommandArguments args, Builder<T> builder, Script script) {
+        super(args, builder);
+        this.script = script;
+    }
+
+    public Script getScript() {
+        return script;
+    }
+}
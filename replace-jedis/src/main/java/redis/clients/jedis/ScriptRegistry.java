@@ -0,0 +1,67 @@
+package redis.clients.jedis;
+
+import redis.clients.jedis.exceptions.JedisDataException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Lua 脚本注册表：脚本注册时计算一次摘要，执行时总是发送 EVALSHA，不再上传脚本内容。
+ * <p>
+ * 节点上没有脚本时（例如重启或 SCRIPT FLUSH 之后）在同一个连接上加载并重试，集群中按节点各自处理；
+ * 设置到 {@link ConnectionFactory}、{@link JedisFactory} 或 {@link JedisCluster} 上时，
+ * 每个新建的连接都会预先加载所有已注册的脚本。
+ *
+ * @author wangguangwu
+ */
+public class ScriptRegistry {
+
+    private final Map<String, Script> scripts = new ConcurrentHashMap<>();
+
+    /**
+     * 注册脚本，内容相同的脚本返回同一个实例
+     */
+    public Script register(final String source) {
+        final Script script = new Script(source);
+        final Script existing = scripts.putIfAbsent(script.getSha1(), script);
+        return existing != null ? existing : script;
+    }
+
+    public Collection<Script> getScripts() {
+        return Collections.unmodifiableCollection(scripts.values());
+    }
+
+    /**
+     * 在连接上加载所有已注册的脚本，所有 SCRIPT LOAD 一次写出，只需要一次往返。
+     * <p>
+     * 尽力而为：某个脚本加载失败（例如语法错误或没有权限）不影响其它脚本，也不影响连接的创建，
+     * 这个脚本在执行时仍然按 NOSCRIPT 处理并返回真正的错误
+     *
+     * @return 加载失败的脚本
+     */
+    public List<Script> preload(final Connection connection) {
+        final List<Script> all = new ArrayList<>(scripts.values());
+        if (all.isEmpty()) {
+            return Collections.emptyList();
+        }
+        for (Script script : all) {
+            connection.sendCommand(scriptLoadArguments(script));
+        }
+        final List<Object> replies = connection.getMany(all.size());
+        final List<Script> failed = new ArrayList<>();
+        for (int i = 0; i < replies.size(); i++) {
+            if (replies.get(i) instanceof JedisDataException) {
+                failed.add(all.get(i));
+            }
+        }
+        return failed;
+    }
+
+    static CommandArguments scriptLoadArguments(final Script script) {
+        return new CommandArguments(Protocol.Command.SCRIPT).add(Protocol.Keyword.LOAD).add(script.getRawSource());
+    }
+}
@@ -0,0 +1,22 @@
+package redis.clients.jedis;
+
+import java.util.List;
+
+/**
+ * @author wangguangwu
+ */
+public interface StringCommands {
+
+    String get(String key);
+
+    byte[] get(byte[] key);
+
+    String set(String key, String value);
+
+    String set(byte[] key, byte[] value);
+
+    long incr(String key);
+
+    List<String> mget(String... keys);
+
+}
@@ -0,0 +1,130 @@
+package redis.clients.jedis;
+
+import redis.clients.jedis.exceptions.JedisDataException;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 事务：MULTI、排队的命令和 EXEC 都只写入输出缓冲区，在 {@link #exec()} 时一次性刷新，
+ * 再依次读取 MULTI 的 OK、每个命令的 QUEUED 和 EXEC 的结果，整个事务只需要一次往返。
+ * <p>
+ * 需要 WATCH 时在 {@link Jedis#multi()} 之前调用 {@link Jedis#watch(String...)}。
+ *
+ * @author wangguangwu
+ */
+public class Transaction extends PipeliningBase implements Closeable {
+
+    protected final Connection connection;
+    private boolean inMulti;
+
+    public Transaction(Connection connection) {
+        this(connection, new CommandObjects());
+    }
+
+    public Transaction(Connection connection, CommandObjects commandObjects) {
+        super(commandObjects);
+        this.connection = connection;
+        connection.sendCommand(Protocol.Command.MULTI);
+        this.inMulti = true;
+    }
+
+    @Override
+    protected final <T> Response<T> appendCommand(CommandObject<T> commandObject) {
+        checkInMulti();
+        connection.sendCommand(commandObject.getArguments());
+        return enqueResponse(commandObject.getBuilder());
+    }
+
+    /**
+     * 执行事务，填充之前返回的 {@link Response}，并按顺序返回所有已解析的结果，执行失败的命令以异常对象返回。
+     *
+     * @return WATCH 的 key 被修改、事务没有执行时返回 null
+     * @throws JedisDataException 有命令在排队时被拒绝，整个事务被丢弃（EXECABORT）
+     */
+    public List<Object> exec() {
+        checkInMulti();
+        connection.sendCommand(Protocol.Command.EXEC);
+        inMulti = false;
+        try {
+            final JedisDataException queueError = readQueued();
+            final List<?> replies;
+            try {
+                replies = (List<?>) connection.getOne();
+            } catch (JedisDataException e) {
+                if (queueError != null) {
+                    e.addSuppressed(queueError);
+                }
+                throw e;
+            }
+            if (replies == null) {
+                return null;
+            }
+            final List<Object> formatted = new ArrayList<>(replies.size());
+            for (Object o : replies) {
+                try {
+                    formatted.add(generateResponse(o).get());
+                } catch (RuntimeException e) {
+                    formatted.add(e);
+                }
+            }
+            return formatted;
+        } finally {
+            clean();
+        }
+    }
+
+    /**
+     * 丢弃排队的命令，同时取消 WATCH
+     */
+    public String discard() {
+        checkInMulti();
+        connection.sendCommand(Protocol.Command.DISCARD);
+        inMulti = false;
+        try {
+            readQueued();
+            return connection.getStatusCodeReply();
+        } finally {
+            clean();
+        }
+    }
+
+    public boolean isInMulti() {
+        return inMulti;
+    }
+
+    /**
+     * 没有执行的事务被丢弃，保证连接可以被复用
+     */
+    @Override
+    public void close() {
+        if (inMulti) {
+            discard();
+        }
+    }
+
+    /**
+     * 读取 MULTI 和每个排队命令的状态响应，只比较内容不构造对象；返回第一个被拒绝的命令的错误
+     */
+    private JedisDataException readQueued() {
+        JedisDataException firstError = null;
+        final int count = getPipelinedResponseLength();
+        for (int i = 0; i <= count; i++) {
+            try {
+                connection.readStatusEquals(i == 0 ? Protocol.BYTES_OK : Protocol.BYTES_QUEUED);
+            } catch (JedisDataException e) {
+                if (firstError == null) {
+                    firstError = e;
+                }
+            }
+        }
+        return firstError;
+    }
+
+    private void checkInMulti() {
+        if (!inMulti) {
+            throw new IllegalStateException("Transaction has already been executed or discarded.");
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package redis.clients.jedis;
+
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.util.ChannelSocket;
+import redis.clients.jedis.util.IOUtils;
+import redis.clients.jedis.util.UnixDomainSockets;
+
+import java.net.Socket;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * 通过 Unix domain socket 连接同一台机器上的 Redis，省去 TCP 协议栈的开销，需要 Java 16 及以上。
+ * <p>
+ * 返回的 socket 由 {@link ChannelSocket} 包装，{@link Connection} 和使用 TCP 时一样使用它；不支持 SSL。
+ *
+ * @author wangguangwu
+ */
+public class UnixDomainSocketFactory implements JedisSocketFactory {
+
+    private final Path path;
+    private int socketTimeout = Protocol.DEFAULT_TIMEOUT;
+
+    public UnixDomainSocketFactory(final String path) {
+        this(Paths.get(path));
+    }
+
+    public UnixDomainSocketFactory(final Path path) {
+        this.path = path;
+    }
+
+    @Override
+    public Socket createSocket() throws JedisConnectionException {
+        SocketChannel channel = null;
+        try {
+            // 本地连接立即完成或失败，不需要连接超时
+            channel = UnixDomainSockets.openChannel(path);
+            final Socket socket = new ChannelSocket(channel);
+            socket.setSoTimeout(socketTimeout);
+            return socket;
+        } catch (Exception ex) {
+            IOUtils.closeQuietly(channel);
+            throw new JedisConnectionException("Failed to connect to unix socket " + path + ".", ex);
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public void setSocketTimeout(final int socketTimeout) {
+        this.socketTimeout = socketTimeout;
+    }
+}
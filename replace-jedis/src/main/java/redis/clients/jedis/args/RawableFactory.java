@@ -0,0 +1,60 @@
+package redis.clients.jedis.args;
+
+import redis.clients.jedis.util.SafeEncoder;
+
+import java.util.Arrays;
+
+/**
+ * @author wangguangwu
+ */
+public final class RawableFactory {
+
+    public static Rawable from(int i) {
+        return from(Integer.toString(i));
+    }
+
+    public static Rawable from(long l) {
+        return from(Long.toString(l));
+    }
+
+    public static Rawable from(String s) {
+        return from(SafeEncoder.encode(s));
+    }
+
+    public static Rawable from(byte[] binary) {
+        return new Raw(binary);
+    }
+
+    /**
+     * 对 byte[] 的简单包装
+     */
+    public static class Raw implements Rawable {
+
+        private final byte[] raw;
+
+        public Raw(byte[] raw) {
+            this.raw = raw;
+        }
+
+        @Override
+        public byte[] getRaw() {
+            return raw;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Raw)) return false;
+            return Arrays.equals(raw, ((Raw) o).raw);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(raw);
+        }
+    }
+
+    private RawableFactory() {
+        throw new InstantiationError("Must not instantiate this class");
+    }
+}
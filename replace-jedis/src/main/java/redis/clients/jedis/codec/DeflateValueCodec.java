@@ -0,0 +1,190 @@
+package redis.clients.jedis.codec;
+
+import redis.clients.jedis.exceptions.JedisDataException;
+
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 用 JDK 的 Deflater 压缩超过阈值的值，默认使用最快的压缩级别，JSON 这类文本通常可以压缩到几分之一。
+ * <p>
+ * 压缩后的值以 8 字节的头开始：3 字节的魔数 0xF5 'J' 'Z'、1 字节的格式和 4 字节的原始长度；
+ * 0xF5 不会出现在 UTF-8 文本中，所以没有头的文本值原样读取。
+ * 压缩后没有变小的值原样写入，恰好以魔数开始的二进制值加上“不压缩”格式的头，读取时不会被误认为压缩过的值。
+ * <p>
+ * 头中的原始长度来自服务端，解压前会检查：超过 maxValueLength，或者超过 deflate 能达到的最大压缩比
+ * （约 1032:1）对应的长度时，认为数据已经损坏，不会按这个长度分配内存。
+ * <p>
+ * Deflater 和 Inflater 按线程缓存复用，不需要每次分配本地内存。
+ *
+ * @author wangguangwu
+ */
+public class DeflateValueCodec implements ValueCodec {
+
+    public static final int DEFAULT_THRESHOLD = 1024;
+    /**
+     * 和 Redis 的 proto-max-bulk-len 默认值相同
+     */
+    public static final int DEFAULT_MAX_VALUE_LENGTH = 512 * 1024 * 1024;
+
+    /**
+     * deflate 的最大压缩比，每个长度为 258 的匹配至少需要 2 比特
+     */
+    private static final int MAX_DEFLATE_RATIO = 1032;
+
+    private static final int HEADER_LENGTH = 8;
+    private static final byte MAGIC_0 = (byte) 0xF5;
+    private static final byte MAGIC_1 = 'J';
+    private static final byte MAGIC_2 = 'Z';
+    private static final byte FORMAT_STORED = 0;
+    private static final byte FORMAT_DEFLATE = 1;
+
+    private final int threshold;
+    private final int maxValueLength;
+    private final ThreadLocal<Deflater> deflaters;
+    private final ThreadLocal<Inflater> inflaters = ThreadLocal.withInitial(() -> new Inflater(true));
+
+    public DeflateValueCodec() {
+        this(DEFAULT_THRESHOLD, Deflater.BEST_SPEED);
+    }
+
+    /**
+     * @param threshold 小于这个长度的值不压缩
+     * @param level     Deflater 的压缩级别，1 最快，9 压缩率最高
+     */
+    public DeflateValueCodec(final int threshold, final int level) {
+        this(threshold, level, DEFAULT_MAX_VALUE_LENGTH);
+    }
+
+    /**
+     * @param threshold      小于这个长度的值不压缩
+     * @param level          Deflater 的压缩级别，1 最快，9 压缩率最高
+     * @param maxValueLength 解压后允许的最大长度
+     */
+    public DeflateValueCodec(final int threshold, final int level, final int maxValueLength) {
+        if (level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("level must be between 1 and 9");
+        }
+        if (maxValueLength <= 0) {
+            throw new IllegalArgumentException("maxValueLength must be positive");
+        }
+        this.threshold = Math.max(threshold, HEADER_LENGTH + 1);
+        this.maxValueLength = maxValueLength;
+        this.deflaters = ThreadLocal.withInitial(() -> new Deflater(level, true));
+    }
+
+    @Override
+    public byte[] encode(final byte[] value) {
+        if (value.length >= threshold) {
+            final byte[] compressed = deflate(value);
+            if (compressed != null) {
+                return compressed;
+            }
+        }
+        if (hasMagic(value)) {
+            final byte[] stored = new byte[HEADER_LENGTH + value.length];
+            writeHeader(stored, FORMAT_STORED, value.length);
+            System.arraycopy(value, 0, stored, HEADER_LENGTH, value.length);
+            return stored;
+        }
+        return value;
+    }
+
+    @Override
+    public byte[] decode(final byte[] stored) {
+        if (!hasMagic(stored) || stored.length < HEADER_LENGTH) {
+            return stored;
+        }
+        final int length = ((stored[4] & 0xff) << 24) | ((stored[5] & 0xff) << 16) | ((stored[6] & 0xff) << 8)
+                | (stored[7] & 0xff);
+        if (length < 0) {
+            throw new JedisDataException("Compressed value is corrupted.");
+        }
+        switch (stored[3]) {
+            case FORMAT_STORED:
+                final byte[] value = new byte[stored.length - HEADER_LENGTH];
+                System.arraycopy(stored, HEADER_LENGTH, value, 0, value.length);
+                return value;
+            case FORMAT_DEFLATE:
+                if (length > maxValueLength) {
+                    throw new JedisDataException("Compressed value declares " + length
+                            + " bytes, more than the limit of " + maxValueLength + " bytes.");
+                }
+                if (length > (long) (stored.length - HEADER_LENGTH) * MAX_DEFLATE_RATIO) {
+                    throw new JedisDataException("Compressed value declares " + length + " bytes, more than "
+                            + (stored.length - HEADER_LENGTH) + " compressed bytes can hold.");
+                }
+                return inflate(stored, length);
+            default:
+                throw new JedisDataException("Unknown compressed value format " + stored[3] + ".");
+        }
+    }
+
+    /**
+     * 压缩后不小于原始长度时返回 null
+     */
+    private byte[] deflate(final byte[] value) {
+        final Deflater deflater = deflaters.get();
+        try {
+            deflater.setInput(value);
+            deflater.finish();
+            // 输出缓冲区和原始值一样长，写满了还没有结束说明压缩没有收益
+            final byte[] out = new byte[value.length];
+            int length = HEADER_LENGTH;
+            while (!deflater.finished() && length < out.length) {
+                length += deflater.deflate(out, length, out.length - length);
+            }
+            if (!deflater.finished()) {
+                return null;
+            }
+            writeHeader(out, FORMAT_DEFLATE, value.length);
+            final byte[] compressed = new byte[length];
+            System.arraycopy(out, 0, compressed, 0, length);
+            return compressed;
+        } finally {
+            deflater.reset();
+        }
+    }
+
+    private byte[] inflate(final byte[] stored, final int length) {
+        final Inflater inflater = inflaters.get();
+        try {
+            inflater.setInput(stored, HEADER_LENGTH, stored.length - HEADER_LENGTH);
+            final byte[] value = new byte[length];
+            int n = 0;
+            while (n < length) {
+                final int read = inflater.inflate(value, n, length - n);
+                if (read == 0) {
+                    // 数据已经结束或者不完整
+                    break;
+                }
+                n += read;
+            }
+            if (n != length) {
+                throw new JedisDataException("Compressed value is truncated, expected " + length + " bytes but got "
+                        + n + ".");
+            }
+            return value;
+        } catch (DataFormatException e) {
+            throw new JedisDataException("Compressed value is corrupted.", e);
+        } finally {
+            inflater.reset();
+        }
+    }
+
+    private static boolean hasMagic(final byte[] value) {
+        return value.length >= 3 && value[0] == MAGIC_0 && value[1] == MAGIC_1 && value[2] == MAGIC_2;
+    }
+
+    private static void writeHeader(final byte[] out, final byte format, final int length) {
+        out[0] = MAGIC_0;
+        out[1] = MAGIC_1;
+        out[2] = MAGIC_2;
+        out[3] = format;
+        out[4] = (byte) (length >>> 24);
+        out[5] = (byte) (length >>> 16);
+        out[6] = (byte) (length >>> 8);
+        out[7] = (byte) length;
+    }
+}
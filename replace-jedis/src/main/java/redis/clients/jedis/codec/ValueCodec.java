@@ -0,0 +1,23 @@
+package redis.clients.jedis.codec;
+
+/**
+ * 二进制值的编解码，通过客户端的 setValueCodec 设置，作用于 SET 的值和 GET 的结果；
+ * key 和其他参数不经过编解码。
+ * <p>
+ * 实现需要是线程安全的，decode 必须能原样返回不是由 encode 生成的值，
+ * 这样设置编解码之前写入的值仍然可以正确读取。
+ *
+ * @author wangguangwu
+ */
+public interface ValueCodec {
+
+    /**
+     * 写入 Redis 之前调用，可以返回 value 本身
+     */
+    byte[] encode(byte[] value);
+
+    /**
+     * 读取到值之后调用，stored 为 null 时不会调用
+     */
+    byte[] decode(byte[] stored);
+}
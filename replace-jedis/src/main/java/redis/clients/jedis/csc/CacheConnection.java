@@ -0,0 +1,87 @@
+package redis.clients.jedis.csc;
+
+import redis.clients.jedis.CommandArguments;
+import redis.clients.jedis.CommandObject;
+import redis.clients.jedis.Connection;
+import redis.clients.jedis.DefaultJedisSocketFactory;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.JedisSocketFactory;
+import redis.clients.jedis.Protocol;
+import redis.clients.jedis.exceptions.JedisException;
+
+/**
+ * 带本地缓存的连接：可缓存的命令先查 {@link ClientSideCache}，未命中时才访问服务端。
+ * 跟踪模式下，连接建立后开启 CLIENT TRACKING，并把失效消息重定向到缓存的监听连接。
+ * 写命令（包括管道和事务中的）发送之前先让本地缓存的 key 失效，保证同一个连接能读到自己的写入。
+ *
+ * @author wangguangwu
+ */
+public class CacheConnection extends Connection {
+
+    private final ClientSideCache cache;
+
+    public CacheConnection(final HostAndPort hostAndPort, final ClientSideCache cache) {
+        this(new DefaultJedisSocketFactory(hostAndPort), cache);
+    }
+
+    public CacheConnection(final JedisSocketFactory socketFactory, final ClientSideCache cache) {
+        super(socketFactory);
+        this.cache = cache;
+    }
+
+    @Override
+    public void connect() {
+        if (!isConnected()) {
+            super.connect();
+            if (cache.isTracking()) {
+                enableTracking();
+            }
+        }
+    }
+
+    private void enableTracking() {
+        try {
+            sendCommand(new CommandArguments(Protocol.Command.CLIENT)
+                    .add("TRACKING").add("ON").add("REDIRECT").add(cache.getTrackingClientId()));
+            getStatusCodeReply();
+        } catch (JedisException e) {
+            // 没有开启跟踪的连接不能使用缓存
+            setBroken();
+            disconnect();
+            throw e;
+        }
+    }
+
+    @Override
+    public void sendCommand(final CommandArguments args) {
+        cache.invalidateWritten(args);
+        super.sendCommand(args);
+    }
+
+    @Override
+    public <T> T executeCommand(final CommandObject<T> commandObject) {
+        final CommandArguments args = commandObject.getArguments();
+        if (!cache.isCacheable(args)) {
+            return super.executeCommand(commandObject);
+        }
+
+        final CacheKey key = new CacheKey(args);
+        final Object cached = cache.get(key);
+        if (cached != ClientSideCache.NOT_CACHED) {
+            return commandObject.getBuilder().build(copyOf(cached));
+        }
+
+        final long epoch = cache.currentEpoch();
+        sendCommand(args);
+        final Object reply = getOne();
+        cache.put(key, reply, epoch);
+        return commandObject.getBuilder().build(copyOf(reply));
+    }
+
+    /**
+     * 缓存中的数组是共享的，不论使用哪个 Builder 都交给它一个副本，避免调用方修改缓存内容
+     */
+    private static Object copyOf(final Object reply) {
+        return reply instanceof byte[] ? ((byte[]) reply).clone() : reply;
+    }
+}
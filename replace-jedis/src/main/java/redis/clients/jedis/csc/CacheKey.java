@@ -0,0 +1,44 @@
+package redis.clients.jedis.csc;
+
+import redis.clients.jedis.CommandArguments;
+
+import java.util.Arrays;
+
+/**
+ * 本地缓存的 key：命令及其全部参数
+ *
+ * @author wangguangwu
+ */
+public final class CacheKey {
+
+    private final byte[][] args;
+    private final int hashCode;
+
+    public CacheKey(final CommandArguments arguments) {
+        this.args = new byte[arguments.size()][];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = arguments.get(i);
+        }
+        this.hashCode = Arrays.deepHashCode(args);
+    }
+
+    /**
+     * 命令操作的 Redis key，即命令名后的第一个参数
+     */
+    public byte[] getRedisKey() {
+        return args[1];
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof CacheKey)) return false;
+        CacheKey other = (CacheKey) o;
+        return hashCode == other.hashCode && Arrays.deepEquals(args, other.args);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+}
@@ -0,0 +1,379 @@
+package redis.clients.jedis.csc;
+
+import redis.clients.jedis.BuilderFactory;
+import redis.clients.jedis.CommandArguments;
+import redis.clients.jedis.CommandObject;
+import redis.clients.jedis.Connection;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Protocol;
+import redis.clients.jedis.exceptions.JedisException;
+import redis.clients.jedis.util.SafeEncoder;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 客户端本地缓存，缓存只读命令（目前为 GET）的原始响应。
+ * <p>
+ * 有两种模式：
+ * <ul>
+ * <li>跟踪模式：使用一个专门的 RESP3 连接接收 CLIENT TRACKING 的失效推送，
+ * 数据连接通过 {@link CacheConnection} 把失效消息重定向到这个连接。监听连接断开后缓存被清空并停用。</li>
+ * <li>TTL 模式：用于不支持 CLIENT TRACKING 的服务端，条目在 ttl 后过期，期间可能读到旧值。</li>
+ * </ul>
+ * 通过 {@link CacheConnection} 发送的写命令在发送之前就让本地缓存的 key 失效，同一个连接随后的读取不需要等待失效消息。
+ * <p>
+ * 容量满时按 CLOCK（second chance）算法淘汰，这是 LRU 的近似，命中路径上只设置一个访问标记，不加锁。
+ *
+ * @author wangguangwu
+ */
+public class ClientSideCache implements Closeable {
+
+    static final Object NOT_CACHED = new Object();
+    private static final Object NULL_VALUE = new Object();
+    /**
+     * 不修改 key 的命令，其他命令（包括不认识的命令）都按写命令处理
+     */
+    private static final Set<Protocol.Command> READ_ONLY_COMMANDS = EnumSet.of(Protocol.Command.PING,
+            Protocol.Command.GET, Protocol.Command.EXISTS, Protocol.Command.MGET, Protocol.Command.KEYS,
+            Protocol.Command.LRANGE, Protocol.Command.HGETALL, Protocol.Command.ZRANGE, Protocol.Command.SMEMBERS,
+            Protocol.Command.SCAN, Protocol.Command.HSCAN, Protocol.Command.SSCAN, Protocol.Command.ZSCAN,
+            Protocol.Command.INFO, Protocol.Command.CLUSTER, Protocol.Command.ASKING, Protocol.Command.HELLO,
+            Protocol.Command.CLIENT, Protocol.Command.MULTI, Protocol.Command.EXEC, Protocol.Command.DISCARD,
+            Protocol.Command.WATCH, Protocol.Command.UNWATCH, Protocol.Command.SCRIPT);
+
+    private final int maxSize;
+    private final long ttlNanos;
+
+    private final ConcurrentHashMap<CacheKey, Entry> entries = new ConcurrentHashMap<>();
+    // Redis key 到缓存条目的索引，用于处理失效消息
+    private final ConcurrentHashMap<ByteBuffer, Set<CacheKey>> keyIndex = new ConcurrentHashMap<>();
+    // CLOCK 淘汰队列
+    private final ConcurrentLinkedQueue<Entry> clock = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean evicting = new AtomicBoolean(false);
+    // 上次清理之后加入淘汰队列的条目数，被替换、失效或过期的条目仍留在队列中，累计超过 maxSize 时清理一次
+    private final AtomicInteger clockAdds = new AtomicInteger();
+    // 每收到一次失效消息加一，用于丢弃和失效消息并发的写入
+    private final AtomicLong invalidationEpoch = new AtomicLong();
+
+    private final TrackingListener trackingListener;
+    private volatile boolean disabled = false;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    /**
+     * 跟踪模式，ttlMillis 为 0 表示不过期
+     */
+    public ClientSideCache(final HostAndPort trackingNode, final int maxSize, final long ttlMillis) {
+        this.maxSize = maxSize;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.trackingListener = new TrackingListener(trackingNode);
+    }
+
+    /**
+     * TTL 模式
+     */
+    public ClientSideCache(final int maxSize, final long ttlMillis) {
+        if (ttlMillis <= 0) {
+            throw new IllegalArgumentException("A TTL-only cache requires a positive ttl.");
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.trackingListener = null;
+    }
+
+    public boolean isTracking() {
+        return trackingListener != null;
+    }
+
+    /**
+     * 接收失效消息的连接 ID，数据连接需要把 CLIENT TRACKING 重定向到这里
+     */
+    public long getTrackingClientId() {
+        if (trackingListener == null) {
+            throw new IllegalStateException("The cache is not in tracking mode.");
+        }
+        return trackingListener.clientId;
+    }
+
+    public boolean isCacheable(final CommandArguments args) {
+        return !disabled && args.getCommand() == Protocol.Command.GET && args.size() == 2;
+    }
+
+    /**
+     * 发送写命令之前调用：参数中已经缓存的 key 立即失效。
+     * 不知道命令的哪些参数是 key，所以检查所有参数，值恰好和缓存的 key 相同时只会多一次未命中
+     */
+    void invalidateWritten(final CommandArguments args) {
+        if (entries.isEmpty() || READ_ONLY_COMMANDS.contains(args.getCommand())) {
+            return;
+        }
+        for (int i = 1; i < args.size(); i++) {
+            final byte[] arg = args.get(i);
+            if (keyIndex.containsKey(ByteBuffer.wrap(arg))) {
+                invalidate(arg);
+            }
+        }
+    }
+
+    long currentEpoch() {
+        return invalidationEpoch.get();
+    }
+
+    /**
+     * 返回缓存的原始响应，未命中时返回 {@link #NOT_CACHED}
+     */
+    Object get(final CacheKey key) {
+        final Entry entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return NOT_CACHED;
+        }
+        if (ttlNanos > 0 && System.nanoTime() - entry.createTime > ttlNanos) {
+            removeEntry(entry);
+            misses.increment();
+            return NOT_CACHED;
+        }
+        if (!entry.referenced) {
+            entry.referenced = true;
+        }
+        hits.increment();
+        return entry.value == NULL_VALUE ? null : entry.value;
+    }
+
+    /**
+     * 写入缓存。epoch 为发送命令前的 {@link #currentEpoch()}，期间收到过失效消息则不缓存这个响应
+     */
+    void put(final CacheKey key, final Object value, final long epoch) {
+        if (disabled || epoch != invalidationEpoch.get()) {
+            return;
+        }
+        final Entry entry = new Entry(key, value == null ? NULL_VALUE : value);
+        final Entry previous = entries.put(key, entry);
+        if (previous != null) {
+            previous.removed = true;
+        }
+        // 在 compute 中添加，避免加入 removeEntry 刚刚移除的空集合
+        keyIndex.compute(ByteBuffer.wrap(key.getRedisKey()), (k, keys) -> {
+            final Set<CacheKey> result = keys != null ? keys : ConcurrentHashMap.newKeySet();
+            result.add(key);
+            return result;
+        });
+        clock.add(entry);
+        clockAdds.incrementAndGet();
+
+        // 写入期间收到了失效消息，失效处理可能已经错过这个条目
+        if (epoch != invalidationEpoch.get()) {
+            removeEntry(entry);
+            return;
+        }
+        evictIfNeeded();
+    }
+
+    /**
+     * 淘汰超出容量的条目，并定期清理队列中已经移除的条目，队列长度不超过 maxSize 的两倍左右
+     */
+    private void evictIfNeeded() {
+        if ((entries.size() <= maxSize && clockAdds.get() <= maxSize) || !evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            if (clockAdds.get() > maxSize) {
+                clockAdds.set(0);
+                clock.removeIf(entry -> entry.removed);
+            }
+            while (entries.size() > maxSize) {
+                final Entry entry = clock.poll();
+                if (entry == null) {
+                    break;
+                }
+                if (entry.removed) {
+                    continue;
+                }
+                // 最近访问过的条目再给一次机会
+                if (entry.referenced) {
+                    entry.referenced = false;
+                    clock.add(entry);
+                } else {
+                    removeEntry(entry);
+                    evictions.increment();
+                }
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    private void removeEntry(final Entry entry) {
+        entry.removed = true;
+        if (entries.remove(entry.key, entry)) {
+            keyIndex.computeIfPresent(ByteBuffer.wrap(entry.key.getRedisKey()), (k, keys) -> {
+                keys.remove(entry.key);
+                return keys.isEmpty() ? null : keys;
+            });
+        }
+    }
+
+    public void invalidate(final byte[] redisKey) {
+        invalidationEpoch.incrementAndGet();
+        invalidations.increment();
+        final Set<CacheKey> keys = keyIndex.remove(ByteBuffer.wrap(redisKey));
+        if (keys != null) {
+            for (CacheKey key : keys) {
+                final Entry entry = entries.remove(key);
+                if (entry != null) {
+                    entry.removed = true;
+                }
+            }
+        }
+    }
+
+    public void clear() {
+        invalidationEpoch.incrementAndGet();
+        entries.clear();
+        keyIndex.clear();
+        clock.clear();
+        clockAdds.set(0);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * 淘汰队列的长度，包括已经移除但还没有清理的条目，需要遍历队列
+     */
+    public int getClockSize() {
+        return clock.size();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public long getInvalidations() {
+        return invalidations.sum();
+    }
+
+    @Override
+    public void close() {
+        disabled = true;
+        if (trackingListener != null) {
+            trackingListener.close();
+        }
+        clear();
+    }
+
+    private static final class Entry {
+
+        final CacheKey key;
+        final Object value;
+        final long createTime = System.nanoTime();
+        volatile boolean referenced = false;
+        volatile boolean removed = false;
+
+        Entry(CacheKey key, Object value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    /**
+     * 在专门的 RESP3 连接上接收失效推送
+     */
+    private final class TrackingListener implements Runnable, Closeable {
+
+        private final Connection connection;
+        private final long clientId;
+        private final Thread thread;
+        private volatile boolean running = true;
+
+        TrackingListener(final HostAndPort node) {
+            connection = new Connection(node);
+            try {
+                connection.executeCommand(new CommandObject<>(
+                        new CommandArguments(Protocol.Command.HELLO).add(3), BuilderFactory.RAW_OBJECT));
+                clientId = connection.executeCommand(new CommandObject<>(
+                        new CommandArguments(Protocol.Command.CLIENT).add("ID"), BuilderFactory.LONG));
+                connection.setTimeoutInfinite();
+            } catch (JedisException e) {
+                connection.disconnect();
+                throw e;
+            }
+            thread = new Thread(this, "jedis-cache-invalidation");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    onPush(connection.getOne());
+                }
+            } catch (JedisException e) {
+                // 收不到失效消息就无法保证一致，清空并停用缓存
+                disabled = true;
+                clear();
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void onPush(final Object message) {
+            if (!(message instanceof List)) {
+                return;
+            }
+            final List<Object> push = (List<Object>) message;
+            if (push.isEmpty()) {
+                return;
+            }
+            // RESP3 格式：["invalidate", keys]；通过 Pub/Sub 接收时为 ["message", "__redis__:invalidate", keys]
+            final String type = SafeEncoder.encode((byte[]) push.get(0));
+            final Object keys;
+            if ("invalidate".equals(type) && push.size() >= 2) {
+                keys = push.get(1);
+            } else if ("message".equals(type) && push.size() >= 3) {
+                keys = push.get(2);
+            } else {
+                return;
+            }
+
+            if (keys == null) {
+                // FLUSHALL/FLUSHDB 时失效全部 key
+                invalidations.increment();
+                clear();
+            } else {
+                for (Object key : (List<Object>) keys) {
+                    invalidate((byte[]) key);
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            running = false;
+            connection.disconnect();
+        }
+    }
+}
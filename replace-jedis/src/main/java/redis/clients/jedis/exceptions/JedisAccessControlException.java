@@ -0,0 +1,23 @@
+package redis.clients.jedis.exceptions;
+
+/**
+ * 认证失败（WRONGPASS）或当前用户没有执行命令的权限（NOPERM）
+ *
+ * @author wangguangwu
+ */
+public class JedisAccessControlException extends JedisDataException {
+
+  private static final long serialVersionUID = 1024087466135287493L;
+
+  public JedisAccessControlException(String message) {
+    super(message);
+  }
+
+  public JedisAccessControlException(Throwable cause) {
+    super(cause);
+  }
+
+  public JedisAccessControlException(String message, Throwable cause) {
+    super(message, cause);
+  }
+}
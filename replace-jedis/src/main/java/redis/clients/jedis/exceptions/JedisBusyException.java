@@ -0,0 +1,23 @@
+package redis.clients.jedis.exceptions;
+
+/**
+ * 服务端正在执行脚本或函数，暂时不能处理命令（BUSY）
+ *
+ * @author wangguangwu
+ */
+public class JedisBusyException extends JedisDataException {
+
+  private static final long serialVersionUID = 3992655220229243478L;
+
+  public JedisBusyException(String message) {
+    super(message);
+  }
+
+  public JedisBusyException(Throwable cause) {
+    super(cause);
+  }
+
+  public JedisBusyException(String message, Throwable cause) {
+    super(message, cause);
+  }
+}
@@ -0,0 +1,23 @@
+package redis.clients.jedis.exceptions;
+
+/**
+ * 集群返回的错误，例如 CLUSTERDOWN
+ *
+ * @author wangguangwu
+ */
+public class JedisClusterException extends JedisDataException {
+
+    private static final long serialVersionUID = 3878126572474819403L;
+
+    public JedisClusterException(String message) {
+        super(message);
+    }
+
+    public JedisClusterException(Throwable cause) {
+        super(cause);
+    }
+
+    public JedisClusterException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,23 @@
+package redis.clients.jedis.exceptions;
+
+/**
+ * 集群客户端自身的错误，例如重定向次数用尽、key 不在同一个槽
+ *
+ * @author wangguangwu
+ */
+public class JedisClusterOperationException extends JedisException {
+
+    private static final long serialVersionUID = 8124535086306604887L;
+
+    public JedisClusterOperationException(String message) {
+        super(message);
+    }
+
+    public JedisClusterOperationException(Throwable cause) {
+        super(cause);
+    }
+
+    public JedisClusterOperationException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
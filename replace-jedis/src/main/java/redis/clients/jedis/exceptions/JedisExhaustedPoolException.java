@@ -0,0 +1,23 @@
+package redis.clients.jedis.exceptions;
+
+/**
+ * 连接池耗尽，并且在等待时间内没有可用的对象
+ *
+ * @author wangguangwu
+ */
+public class JedisExhaustedPoolException extends JedisException {
+
+    private static final long serialVersionUID = 5463547721893839462L;
+
+    public JedisExhaustedPoolException(String message) {
+        super(message);
+    }
+
+    public JedisExhaustedPoolException(Throwable e) {
+        super(e);
+    }
+
+    public JedisExhaustedPoolException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
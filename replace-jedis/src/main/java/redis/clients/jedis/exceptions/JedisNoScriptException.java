@@ -0,0 +1,23 @@
+package redis.clients.jedis.exceptions;
+
+/**
+ * EVALSHA 指定的脚本不在服务端的脚本缓存中，需要先 SCRIPT LOAD
+ *
+ * @author wangguangwu
+ */
+public class JedisNoScriptException extends JedisDataException {
+
+  private static final long serialVersionUID = 4674378093072060731L;
+
+  public JedisNoScriptException(String message) {
+    super(message);
+  }
+
+  public JedisNoScriptException(Throwable cause) {
+    super(cause);
+  }
+
+  public JedisNoScriptException(String message, Throwable cause) {
+    super(message, cause);
+  }
+}
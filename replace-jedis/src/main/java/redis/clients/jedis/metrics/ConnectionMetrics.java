@@ -0,0 +1,105 @@
+package redis.clients.jedis.metrics;
+
+import redis.clients.jedis.commands.ProtocolCommand;
+import redis.clients.jedis.util.TimedQueue;
+
+/**
+ * 单个连接的计时状态，把结果汇报给 {@link MetricsRegistry}，只在持有连接的线程中使用。
+ * <p>
+ * 写出的命令按顺序记下开始时间，每读完一个响应取出最早的一个，得到包含管道排队时间的命令耗时。
+ * 编码时间是写命令的耗时减去其中阻塞在 socket 上的时间，解析时间同理；网络时间是阻塞在 socket 上的时间。
+ *
+ * @author wangguangwu
+ */
+public class ConnectionMetrics {
+
+    private final MetricsRegistry registry;
+    private final IoMeter writeMeter = new IoMeter();
+    private final IoMeter readMeter = new IoMeter();
+
+    // 已经写出、还没有读到响应的命令
+    private final TimedQueue<ProtocolCommand> pending = new TimedQueue<>();
+
+    private long sendStart;
+    private long sendWriteNanos;
+    private long readStart;
+    private long readReadNanos;
+    private long encodeNanos;
+
+    // 上一次汇报时的累计值
+    private long reportedWriteBytes;
+    private long reportedReadBytes;
+    private long reportedNetworkNanos;
+
+    public ConnectionMetrics(final MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    public MetricsRegistry getRegistry() {
+        return registry;
+    }
+
+    public IoMeter getWriteMeter() {
+        return writeMeter;
+    }
+
+    public IoMeter getReadMeter() {
+        return readMeter;
+    }
+
+    /**
+     * 新建立的连接上没有等待中的命令
+     */
+    public void connected(final long nanos) {
+        pending.clear();
+        encodeNanos = 0;
+        registry.recordConnect(nanos);
+    }
+
+    public void broken() {
+        registry.recordBrokenConnection();
+    }
+
+    public void beforeSend() {
+        sendStart = System.nanoTime();
+        sendWriteNanos = writeMeter.getNanos();
+    }
+
+    public void afterSend(final ProtocolCommand command) {
+        encodeNanos += System.nanoTime() - sendStart - (writeMeter.getNanos() - sendWriteNanos);
+        pending.add(command, sendStart);
+    }
+
+    public void beforeRead() {
+        readStart = System.nanoTime();
+        readReadNanos = readMeter.getNanos();
+    }
+
+    /**
+     * 读完一个响应，不论成功还是失败
+     */
+    public void afterRead() {
+        final long now = System.nanoTime();
+        final long decodeNanos = now - readStart - (readMeter.getNanos() - readReadNanos);
+        if (!pending.isEmpty()) {
+            final long start = pending.peekTime();
+            registry.recordCommandLatency(pending.poll(), now - start);
+        }
+
+        final long networkNanos = writeMeter.getNanos() + readMeter.getNanos();
+        registry.recordPhases(encodeNanos, networkNanos - reportedNetworkNanos, decodeNanos);
+        encodeNanos = 0;
+        reportedNetworkNanos = networkNanos;
+
+        final long writeBytes = writeMeter.getBytes();
+        if (writeBytes != reportedWriteBytes) {
+            registry.recordBytesWritten(writeBytes - reportedWriteBytes);
+            reportedWriteBytes = writeBytes;
+        }
+        final long readBytes = readMeter.getBytes();
+        if (readBytes != reportedReadBytes) {
+            registry.recordBytesRead(readBytes - reportedReadBytes);
+            reportedReadBytes = readBytes;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package redis.clients.jedis.metrics;
+
+import redis.clients.jedis.commands.ProtocolCommand;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 在内存中汇总指标：每个命令一个 {@link LatencyHistogram}，其余指标是累加的计数器。
+ * 多个连接可以共享同一个实例。
+ *
+ * @author wangguangwu
+ */
+public class DefaultMetricsRegistry implements MetricsRegistry {
+
+    private final Map<ProtocolCommand, LatencyHistogram> commandLatencies = new ConcurrentHashMap<>();
+    private final LatencyHistogram connectLatency = new LatencyHistogram();
+    private final LatencyHistogram tlsHandshakeLatency = new LatencyHistogram();
+    private final LongAdder resumedTlsHandshakes = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder brokenConnections = new LongAdder();
+    private final LongAdder encodeNanos = new LongAdder();
+    private final LongAdder networkNanos = new LongAdder();
+    private final LongAdder decodeNanos = new LongAdder();
+
+    @Override
+    public void recordCommandLatency(final ProtocolCommand command, final long nanos) {
+        LatencyHistogram histogram = commandLatencies.get(command);
+        if (histogram == null) {
+            histogram = commandLatencies.computeIfAbsent(command, c -> new LatencyHistogram());
+        }
+        histogram.record(nanos);
+    }
+
+    @Override
+    public void recordConnect(final long nanos) {
+        connectLatency.record(nanos);
+    }
+
+    @Override
+    public void recordTlsHandshake(final long nanos, final boolean resumed) {
+        tlsHandshakeLatency.record(nanos);
+        if (resumed) {
+            resumedTlsHandshakes.increment();
+        }
+    }
+
+    @Override
+    public void recordBytesWritten(final long bytes) {
+        bytesWritten.add(bytes);
+    }
+
+    @Override
+    public void recordBytesRead(final long bytes) {
+        bytesRead.add(bytes);
+    }
+
+    @Override
+    public void recordBrokenConnection() {
+        brokenConnections.increment();
+    }
+
+    @Override
+    public void recordPhases(final long encode, final long network, final long decode) {
+        encodeNanos.add(encode);
+        networkNanos.add(network);
+        decodeNanos.add(decode);
+    }
+
+    /**
+     * 命令的耗时直方图，还没有执行过这个命令时返回 null
+     */
+    public LatencyHistogram getCommandLatency(final ProtocolCommand command) {
+        return commandLatencies.get(command);
+    }
+
+    public Map<ProtocolCommand, LatencyHistogram> getCommandLatencies() {
+        return Collections.unmodifiableMap(commandLatencies);
+    }
+
+    public LatencyHistogram getConnectLatency() {
+        return connectLatency;
+    }
+
+    public LatencyHistogram getTlsHandshakeLatency() {
+        return tlsHandshakeLatency;
+    }
+
+    /**
+     * 恢复了缓存会话的握手次数，握手总数是 {@link #getTlsHandshakeLatency()} 的样本数
+     */
+    public long getResumedTlsHandshakes() {
+        return resumedTlsHandshakes.sum();
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten.sum();
+    }
+
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    public long getBrokenConnections() {
+        return brokenConnections.sum();
+    }
+
+    public long getEncodeNanos() {
+        return encodeNanos.sum();
+    }
+
+    public long getNetworkNanos() {
+        return networkNanos.sum();
+    }
+
+    public long getDecodeNanos() {
+        return decodeNanos.sum();
+    }
+}
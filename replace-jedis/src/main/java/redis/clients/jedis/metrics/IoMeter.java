@@ -0,0 +1,77 @@
+package redis.clients.jedis.metrics;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * 统计单个连接一个方向上的字节数和阻塞在 socket 读写上的时间，只在持有连接的线程中使用
+ *
+ * @author wangguangwu
+ */
+public class IoMeter {
+
+    private long bytes;
+    private long nanos;
+
+    public void record(final long bytes, final long nanos) {
+        this.bytes += bytes;
+        this.nanos += nanos;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getNanos() {
+        return nanos;
+    }
+
+    public InputStream wrap(final InputStream in) {
+        return new FilterInputStream(in) {
+            @Override
+            public int read() throws IOException {
+                final long start = System.nanoTime();
+                final int b = in.read();
+                record(b < 0 ? 0 : 1, System.nanoTime() - start);
+                return b;
+            }
+
+            @Override
+            public int read(final byte[] b, final int off, final int len) throws IOException {
+                final long start = System.nanoTime();
+                final int n = in.read(b, off, len);
+                record(Math.max(n, 0), System.nanoTime() - start);
+                return n;
+            }
+        };
+    }
+
+    public OutputStream wrap(final OutputStream out) {
+        return new FilterOutputStream(out) {
+            @Override
+            public void write(final int b) throws IOException {
+                final long start = System.nanoTime();
+                out.write(b);
+                record(1, System.nanoTime() - start);
+            }
+
+            @Override
+            public void write(final byte[] b, final int off, final int len) throws IOException {
+                // FilterOutputStream 默认逐字节写出，这里直接整块写出
+                final long start = System.nanoTime();
+                out.write(b, off, len);
+                record(len, System.nanoTime() - start);
+            }
+
+            @Override
+            public void flush() throws IOException {
+                final long start = System.nanoTime();
+                out.flush();
+                record(0, System.nanoTime() - start);
+            }
+        };
+    }
+}
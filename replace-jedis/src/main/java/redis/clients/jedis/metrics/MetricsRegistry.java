@@ -0,0 +1,51 @@
+package redis.clients.jedis.metrics;
+
+import redis.clients.jedis.commands.ProtocolCommand;
+
+/**
+ * 连接指标的接收方，通过 {@link redis.clients.jedis.Connection#setMetricsRegistry} 设置。
+ * <p>
+ * 方法在执行命令的线程中同步调用，实现需要是线程安全且足够轻量的；不关心的指标不需要实现。
+ * 没有设置时连接不做任何计时。
+ *
+ * @author wangguangwu
+ */
+public interface MetricsRegistry {
+
+    /**
+     * 一个命令从开始写出到响应读完的耗时，管道中的命令包含排队等待的时间
+     */
+    default void recordCommandLatency(ProtocolCommand command, long nanos) {
+    }
+
+    /**
+     * 建立连接（包括 TLS 握手）的耗时
+     */
+    default void recordConnect(long nanos) {
+    }
+
+    /**
+     * TLS 握手的耗时，resumed 表示恢复了之前缓存的会话；只有 {@link redis.clients.jedis.DefaultJedisSocketFactory}
+     * 设置了 registry 时才会调用
+     */
+    default void recordTlsHandshake(long nanos, boolean resumed) {
+    }
+
+    default void recordBytesWritten(long bytes) {
+    }
+
+    default void recordBytesRead(long bytes) {
+    }
+
+    /**
+     * 连接因为读写失败被标记为不可用
+     */
+    default void recordBrokenConnection() {
+    }
+
+    /**
+     * 编码命令、等待网络、解析响应分别花费的时间
+     */
+    default void recordPhases(long encodeNanos, long networkNanos, long decodeNanos) {
+    }
+}
@@ -0,0 +1,193 @@
+package redis.clients.jedis.metrics;
+
+import redis.clients.jedis.CommandArguments;
+import redis.clients.jedis.CommandInterceptor;
+import redis.clients.jedis.Connection;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.commands.ProtocolCommand;
+import redis.clients.jedis.util.SafeEncoder;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * 慢命令日志：耗时超过阈值的命令按采样率记录命令名、各参数的长度、服务端地址和耗时。
+ * <p>
+ * 执行命令的线程只做一次比较；超过阈值时构造一条记录放入有界队列，队列满了直接丢弃。
+ * 后台线程把记录保存到最近 maxEntries 条的内存日志中，并交给 listener。
+ * 同一个实例可以添加到多个连接上。
+ *
+ * @author wangguangwu
+ */
+public class SlowCommandLog implements CommandInterceptor, Closeable {
+
+    public static final int DEFAULT_MAX_ENTRIES = 128;
+    private static final int BUFFER_CAPACITY = 1024;
+
+    private final long thresholdNanos;
+    private final double sampleRate;
+    private final int maxEntries;
+    private final Consumer<Entry> listener;
+
+    private final BlockingQueue<Entry> buffer = new ArrayBlockingQueue<>(BUFFER_CAPACITY);
+    private final Deque<Entry> entries = new ArrayDeque<>();
+    private final LongAdder dropped = new LongAdder();
+    private final Thread worker;
+
+    public SlowCommandLog(final long threshold, final TimeUnit unit) {
+        this(threshold, unit, 1.0, DEFAULT_MAX_ENTRIES, null);
+    }
+
+    /**
+     * @param sampleRate 超过阈值的命令中被记录的比例，取值 (0, 1]
+     * @param listener   在后台线程中接收每一条记录，可以为 null
+     */
+    public SlowCommandLog(final long threshold, final TimeUnit unit, final double sampleRate, final int maxEntries,
+                          final Consumer<Entry> listener) {
+        if (sampleRate <= 0 || sampleRate > 1) {
+            throw new IllegalArgumentException("Sample rate must be in (0, 1]: " + sampleRate);
+        }
+        this.thresholdNanos = unit.toNanos(threshold);
+        this.sampleRate = sampleRate;
+        this.maxEntries = maxEntries;
+        this.listener = listener;
+        this.worker = new Thread(this::drain, "jedis-slow-command-log");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    @Override
+    public void afterCommand(final Connection connection, final CommandArguments args, final long elapsedNanos) {
+        if (elapsedNanos < thresholdNanos) {
+            return;
+        }
+        if (sampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return;
+        }
+        // 参数可能被重复使用，这里只保存长度
+        final int[] argumentSizes = new int[args.size() - 1];
+        for (int i = 1; i < args.size(); i++) {
+            argumentSizes[i - 1] = args.get(i).length;
+        }
+        final Entry entry = new Entry(System.currentTimeMillis(), args.getCommand(), argumentSizes,
+                connection.getHostAndPort(), elapsedNanos);
+        if (!buffer.offer(entry)) {
+            dropped.increment();
+        }
+    }
+
+    /**
+     * 最近的记录，按时间从早到晚排列；记录由后台线程写入，会稍有延迟
+     */
+    public List<Entry> getEntries() {
+        synchronized (entries) {
+            return new ArrayList<>(entries);
+        }
+    }
+
+    /**
+     * 队列满了被丢弃的记录数
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    @Override
+    public void close() {
+        worker.interrupt();
+    }
+
+    private void drain() {
+        try {
+            while (true) {
+                publish(buffer.take());
+            }
+        } catch (InterruptedException e) {
+            // 关闭前处理完已经放入队列的记录
+            Entry entry;
+            while ((entry = buffer.poll()) != null) {
+                publish(entry);
+            }
+        }
+    }
+
+    private void publish(final Entry entry) {
+        synchronized (entries) {
+            if (entries.size() == maxEntries) {
+                entries.pollFirst();
+            }
+            entries.addLast(entry);
+        }
+        if (listener != null) {
+            try {
+                listener.accept(entry);
+            } catch (RuntimeException e) {
+                // listener 的异常不能让后台线程退出
+            }
+        }
+    }
+
+    public static class Entry {
+
+        private final long timestamp;
+        private final ProtocolCommand command;
+        private final int[] argumentSizes;
+        private final HostAndPort hostAndPort;
+        private final long elapsedNanos;
+
+        Entry(final long timestamp, final ProtocolCommand command, final int[] argumentSizes,
+              final HostAndPort hostAndPort, final long elapsedNanos) {
+            this.timestamp = timestamp;
+            this.command = command;
+            this.argumentSizes = argumentSizes;
+            this.hostAndPort = hostAndPort;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * 响应读完的时间，毫秒
+         */
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public ProtocolCommand getCommand() {
+            return command;
+        }
+
+        public String getCommandName() {
+            return SafeEncoder.encode(command.getRaw());
+        }
+
+        /**
+         * 除命令名之外每个参数的字节数
+         */
+        public int[] getArgumentSizes() {
+            return argumentSizes.clone();
+        }
+
+        public HostAndPort getHostAndPort() {
+            return hostAndPort;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return getCommandName() + " " + Arrays.toString(argumentSizes) + " " + hostAndPort + " "
+                    + TimeUnit.NANOSECONDS.toMicros(elapsedNanos) + "us";
+        }
+    }
+}
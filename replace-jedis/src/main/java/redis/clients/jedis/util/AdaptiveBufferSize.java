@@ -0,0 +1,61 @@
+package redis.clients.jedis.util;
+
+/**
+ * 根据每次读取的字节数调整单个连接的读缓冲区大小。
+ * <p>
+ * 一次读满整个缓冲区说明响应比缓冲区大，下次翻倍；连续多次只用到不足四分之一时减半。
+ * 大小始终是 2 的幂，并限制在 [min, max] 之间。
+ *
+ * @author wangguangwu
+ */
+public class AdaptiveBufferSize {
+
+    private static final int SHRINK_AFTER = 8;
+
+    private final int min;
+    private final int max;
+    private int size;
+    private int smallReads;
+
+    public AdaptiveBufferSize(final int min, final int initial, final int max) {
+        this.min = min;
+        this.max = max;
+        this.size = Math.max(min, Math.min(initial, max));
+    }
+
+    /**
+     * 下一次借用缓冲区时应使用的大小
+     */
+    public int next() {
+        return size;
+    }
+
+    /**
+     * 记录一次读取：读到 read 个字节，缓冲区容量为 capacity
+     */
+    public void record(final int read, final int capacity) {
+        if (read >= capacity) {
+            smallReads = 0;
+            if (capacity >= size) {
+                size = Math.min(max, capacity << 1);
+            }
+        } else if (read <= capacity >> 2) {
+            if (++smallReads >= SHRINK_AFTER && size > min) {
+                size = Math.max(min, size >> 1);
+                smallReads = 0;
+            }
+        } else {
+            smallReads = 0;
+        }
+    }
+
+    /**
+     * 需要一次容纳 required 个字节时直接扩大
+     */
+    public void require(final int required) {
+        while (size < required && size < max) {
+            size <<= 1;
+        }
+        smallReads = 0;
+    }
+}
@@ -0,0 +1,142 @@
+package redis.clients.jedis.util;
+
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 连接输入输出缓冲区的共享池。
+ * <p>
+ * 缓冲区按 2 的幂分级，从 minBufferSize 到 maxBufferSize；每一级用无锁的双端队列保存空闲缓冲区，
+ * 保存的总字节数不超过 maxPooledBytesPerClass。超过最大级别的请求直接分配，归还时丢弃。
+ * <p>
+ * 连接只在读写命令期间持有缓冲区，空闲连接不占用缓冲区。
+ *
+ * @author wangguangwu
+ */
+public class BufferPool {
+
+    public static final int DEFAULT_MIN_BUFFER_SIZE = 1024;
+    public static final int DEFAULT_MAX_BUFFER_SIZE = Integer.parseInt(
+            System.getProperty("jedis.bufferSize.max", String.valueOf(1024 * 1024)));
+    public static final long DEFAULT_MAX_POOLED_BYTES_PER_CLASS = 4L * 1024 * 1024;
+
+    private static final BufferPool DEFAULT = new BufferPool(DEFAULT_MIN_BUFFER_SIZE, DEFAULT_MAX_BUFFER_SIZE,
+            DEFAULT_MAX_POOLED_BYTES_PER_CLASS);
+
+    private final int minShift;
+    private final int maxBufferSize;
+    private final ConcurrentLinkedDeque<byte[]>[] classes;
+    private final AtomicInteger[] pooledCounts;
+    private final int[] maxPooledCounts;
+
+    // 统计信息
+    private final LongAdder allocatedCount = new LongAdder();
+    private final LongAdder reusedCount = new LongAdder();
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public BufferPool(final int minBufferSize, final int maxBufferSize, final long maxPooledBytesPerClass) {
+        if (minBufferSize <= 0 || minBufferSize > maxBufferSize) {
+            throw new IllegalArgumentException("Invalid buffer sizes: " + minBufferSize + ", " + maxBufferSize);
+        }
+        this.minShift = shift(minBufferSize);
+        final int maxShift = shift(maxBufferSize);
+        this.maxBufferSize = 1 << maxShift;
+
+        final int n = maxShift - minShift + 1;
+        this.classes = new ConcurrentLinkedDeque[n];
+        this.pooledCounts = new AtomicInteger[n];
+        this.maxPooledCounts = new int[n];
+        for (int i = 0; i < n; i++) {
+            classes[i] = new ConcurrentLinkedDeque<>();
+            pooledCounts[i] = new AtomicInteger();
+            maxPooledCounts[i] = (int) Math.max(1, maxPooledBytesPerClass >> (minShift + i));
+        }
+    }
+
+    /**
+     * 所有连接默认共享的池
+     */
+    public static BufferPool getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * 借出长度不小于 size 的缓冲区，长度为 2 的幂
+     */
+    public byte[] acquire(final int size) {
+        final int index = index(size);
+        if (index >= classes.length) {
+            allocatedCount.increment();
+            return new byte[size];
+        }
+        final byte[] buf = classes[index].pollFirst();
+        if (buf != null) {
+            pooledCounts[index].decrementAndGet();
+            reusedCount.increment();
+            return buf;
+        }
+        allocatedCount.increment();
+        return new byte[1 << (minShift + index)];
+    }
+
+    /**
+     * 归还缓冲区，归还后调用方不能再使用它
+     */
+    public void release(final byte[] buf) {
+        if (buf == null || Integer.bitCount(buf.length) != 1) {
+            return;
+        }
+        final int index = index(buf.length);
+        if (index < 0 || index >= classes.length || buf.length != 1 << (minShift + index)) {
+            return;
+        }
+        if (pooledCounts[index].incrementAndGet() > maxPooledCounts[index]) {
+            pooledCounts[index].decrementAndGet();
+            return;
+        }
+        classes[index].offerFirst(buf);
+    }
+
+    public int getMaxBufferSize() {
+        return maxBufferSize;
+    }
+
+    /**
+     * 不超过 maxBufferSize 时向上取整到 2 的幂
+     */
+    public int normalize(final int size) {
+        final int index = index(size);
+        return index >= classes.length ? size : 1 << (minShift + index);
+    }
+
+    public long getAllocatedCount() {
+        return allocatedCount.sum();
+    }
+
+    public long getReusedCount() {
+        return reusedCount.sum();
+    }
+
+    /**
+     * 当前池中空闲缓冲区的总字节数
+     */
+    public long getPooledBytes() {
+        long bytes = 0;
+        for (int i = 0; i < classes.length; i++) {
+            bytes += (long) pooledCounts[i].get() << (minShift + i);
+        }
+        return bytes;
+    }
+
+    private int index(final int size) {
+        return Math.max(0, shift(size) - minShift);
+    }
+
+    /**
+     * 不小于 size 的最小 2 的幂的指数
+     */
+    private static int shift(final int size) {
+        return size <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(size - 1);
+    }
+}
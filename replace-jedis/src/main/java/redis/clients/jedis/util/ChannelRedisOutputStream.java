@@ -0,0 +1,93 @@
+package redis.clients.jedis.util;
+
+import redis.clients.jedis.metrics.IoMeter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+
+/**
+ * 直接写入 {@link SocketChannel} 的输出流。
+ * <p>
+ * 不小于 gatheringThreshold 的数据不再复制到缓冲区，而是和缓冲区中已有的协议头一起，
+ * 通过一次聚集写 {@link SocketChannel#write(ByteBuffer[])} 发出。
+ * <p>
+ * 协议头和数据都在堆内存中，JDK 发送前仍会把它们复制到线程缓存的临时直接缓冲区，
+ * 所以聚集写省掉的是复制到 {@code buf} 和缓冲区扩容的那一次，不是全部复制。
+ * 临时缓冲区按单次写出的大小分配，默认会一直缓存在写线程上（见 {@code jdk.nio.maxCachedBufferSize}），
+ * 因此大数据按 {@link #MAX_GATHERING_CHUNK} 分段写出，每个线程缓存的临时缓冲区不超过这个大小加协议头。
+ *
+ * @author wangguangwu
+ */
+public class ChannelRedisOutputStream extends RedisOutputStream {
+
+    private static final int DEFAULT_GATHERING_THRESHOLD = Integer.parseInt(
+            System.getProperty("jedis.gatheringWriteThreshold", "1024"));
+    static final int MAX_GATHERING_CHUNK = 256 * 1024;
+
+    private final SocketChannel channel;
+    private final int gatheringThreshold;
+    private ByteBuffer header;
+    private final ByteBuffer[] srcs = new ByteBuffer[2];
+    private IoMeter meter;
+
+    public ChannelRedisOutputStream(final SocketChannel channel) {
+        this(channel, DEFAULT_GATHERING_THRESHOLD);
+    }
+
+    public ChannelRedisOutputStream(final SocketChannel channel, final int gatheringThreshold) {
+        super(Channels.newOutputStream(channel));
+        this.channel = channel;
+        this.gatheringThreshold = gatheringThreshold;
+    }
+
+    public ChannelRedisOutputStream(final SocketChannel channel, final BufferPool pool) {
+        super(Channels.newOutputStream(channel), pool);
+        this.channel = channel;
+        this.gatheringThreshold = DEFAULT_GATHERING_THRESHOLD;
+    }
+
+    /**
+     * 统计写出的字节数和耗时，包括聚集写
+     */
+    public void setMeter(final IoMeter meter) {
+        this.meter = meter;
+        this.out = meter.wrap(this.out);
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+        if (len < gatheringThreshold) {
+            super.write(b, off, len);
+            return;
+        }
+        ensureBuffer();
+        // 使用缓冲池时缓冲区可能已经更换
+        if (header == null || header.array() != buf) {
+            header = ByteBuffer.wrap(buf);
+        }
+        header.limit(count).position(0);
+        srcs[0] = header;
+        final ByteBuffer payload = ByteBuffer.wrap(b, off, len);
+        srcs[1] = payload;
+        final long start = meter == null ? 0 : System.nanoTime();
+        final int total = count + len;
+        final int end = off + len;
+        try {
+            while (payload.position() < end) {
+                payload.limit(Math.min(end, payload.position() + MAX_GATHERING_CHUNK));
+                // 阻塞模式下 write 也可能只写出一部分
+                while (payload.hasRemaining()) {
+                    channel.write(srcs);
+                }
+            }
+            if (meter != null) {
+                meter.record(total, System.nanoTime() - start);
+            }
+        } finally {
+            srcs[1] = null;
+            count = 0;
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package redis.clients.jedis.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.net.SocketException;
+import java.net.SocketImpl;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 把没有 socket 适配器的 {@link SocketChannel}（例如 Unix domain socket）包装成 {@link Socket}，
+ * 让 {@link redis.clients.jedis.Connection} 不需要区分传输方式。
+ * <p>
+ * 通道切换为非阻塞模式，读写在数据没有就绪时通过 Selector 等待，读取的超时和普通 socket 一样由 soTimeout 控制。
+ * 只支持 soTimeout，其他 socket 选项被忽略。读和写各自使用一个 Selector，
+ * 可以像 {@link redis.clients.jedis.MultiplexedConnection} 那样在不同的线程中同时读写。
+ *
+ * @author wangguangwu
+ */
+public class ChannelSocket extends Socket {
+
+    private final SocketChannel channel;
+    private final Selector readSelector;
+    private final Selector writeSelector;
+    private final InputStream inputStream = new ChannelInputStream();
+    private final OutputStream outputStream = new ChannelOutputStream();
+    private volatile int soTimeout;
+    private volatile boolean inputShutdown;
+    private volatile boolean outputShutdown;
+
+    public ChannelSocket(final SocketChannel channel) throws IOException {
+        super((SocketImpl) null);
+        this.channel = channel;
+        channel.configureBlocking(false);
+        this.readSelector = Selector.open();
+        try {
+            this.writeSelector = Selector.open();
+        } catch (IOException e) {
+            readSelector.close();
+            throw e;
+        }
+        try {
+            channel.register(readSelector, SelectionKey.OP_READ);
+            channel.register(writeSelector, SelectionKey.OP_WRITE);
+        } catch (IOException | RuntimeException e) {
+            readSelector.close();
+            writeSelector.close();
+            throw e;
+        }
+    }
+
+    public SocketChannel getSocketChannel() {
+        return channel;
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        ensureOpen();
+        return inputStream;
+    }
+
+    @Override
+    public OutputStream getOutputStream() throws IOException {
+        ensureOpen();
+        return outputStream;
+    }
+
+    @Override
+    public int getSoTimeout() {
+        return soTimeout;
+    }
+
+    @Override
+    public void setSoTimeout(final int timeout) {
+        if (timeout < 0) {
+            throw new IllegalArgumentException("timeout can't be negative");
+        }
+        this.soTimeout = timeout;
+    }
+
+    @Override
+    public SocketAddress getRemoteSocketAddress() {
+        try {
+            return channel.getRemoteAddress();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public SocketAddress getLocalSocketAddress() {
+        try {
+            return channel.getLocalAddress();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 不是 IP 连接，返回 null
+     */
+    @Override
+    public InetAddress getInetAddress() {
+        return null;
+    }
+
+    @Override
+    public int getPort() {
+        return 0;
+    }
+
+    @Override
+    public boolean isConnected() {
+        return channel.isConnected();
+    }
+
+    @Override
+    public boolean isBound() {
+        return channel.isConnected();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return !channel.isOpen();
+    }
+
+    @Override
+    public boolean isInputShutdown() {
+        return inputShutdown;
+    }
+
+    @Override
+    public boolean isOutputShutdown() {
+        return outputShutdown;
+    }
+
+    @Override
+    public void shutdownInput() throws IOException {
+        channel.shutdownInput();
+        inputShutdown = true;
+    }
+
+    @Override
+    public void shutdownOutput() throws IOException {
+        channel.shutdownOutput();
+        outputShutdown = true;
+    }
+
+    @Override
+    public void setTcpNoDelay(final boolean on) {
+    }
+
+    @Override
+    public void setKeepAlive(final boolean on) {
+    }
+
+    @Override
+    public void setReuseAddress(final boolean on) {
+    }
+
+    @Override
+    public void setSoLinger(final boolean on, final int linger) {
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            channel.close();
+        } finally {
+            try {
+                readSelector.close();
+            } finally {
+                writeSelector.close();
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ChannelSocket[" + getRemoteSocketAddress() + "]";
+    }
+
+    private void ensureOpen() throws IOException {
+        if (!channel.isOpen()) {
+            throw new IOException("Socket is closed");
+        }
+    }
+
+    /**
+     * 等待通道可读或可写，timeout 为 0 时一直等待
+     */
+    private void await(final Selector selector, final int timeout) throws IOException {
+        try {
+            final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+            long remaining = timeout;
+            while (selector.select(remaining) == 0) {
+                if (Thread.interrupted()) {
+                    throw new InterruptedIOException();
+                }
+                ensureOpen();
+                if (timeout > 0) {
+                    remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                    if (remaining <= 0) {
+                        throw new SocketTimeoutException("Read timed out");
+                    }
+                }
+            }
+            selector.selectedKeys().clear();
+        } catch (ClosedSelectorException e) {
+            // 其他线程关闭了 socket
+            throw new SocketException("Socket is closed");
+        }
+    }
+
+    private final class ChannelInputStream extends InputStream {
+
+        @Override
+        public int read() throws IOException {
+            final byte[] b = new byte[1];
+            final int n = read(b, 0, 1);
+            return n < 0 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            final ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+            int n;
+            while ((n = channel.read(buffer)) == 0) {
+                await(readSelector, soTimeout);
+            }
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            ChannelSocket.this.close();
+        }
+    }
+
+    private final class ChannelOutputStream extends OutputStream {
+
+        @Override
+        public void write(final int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            final ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+            while (buffer.hasRemaining()) {
+                if (channel.write(buffer) == 0) {
+                    // 和普通 socket 一样，写入没有超时
+                    await(writeSelector, 0);
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            ChannelSocket.this.close();
+        }
+    }
+}
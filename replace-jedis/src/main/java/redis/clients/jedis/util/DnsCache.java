@@ -0,0 +1,100 @@
+package redis.clients.jedis.util;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按 TTL 缓存主机名解析的结果。
+ * <p>
+ * 同一个主机名同一时间只有一个线程去解析，其他线程等待它的结果，启动时大量建连不会同时打到 DNS 服务器。
+ * 解析失败时如果有过期的结果就继续使用，失败本身不缓存。
+ *
+ * @author wangguangwu
+ */
+public class DnsCache {
+
+    public static final long DEFAULT_TTL_MILLIS = Long.parseLong(System.getProperty("jedis.dns.ttl", "30000"));
+
+    private static final DnsCache DEFAULT = new DnsCache(DEFAULT_TTL_MILLIS, TimeUnit.MILLISECONDS);
+
+    private final long ttlNanos;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, Object> locks = new ConcurrentHashMap<>();
+
+    public DnsCache(final long ttl, final TimeUnit unit) {
+        this.ttlNanos = unit.toNanos(ttl);
+    }
+
+    /**
+     * 所有 {@link redis.clients.jedis.DefaultJedisSocketFactory} 默认共享的缓存
+     */
+    public static DnsCache getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * 解析出的所有地址，返回的列表不能修改
+     */
+    public List<InetAddress> resolve(final String host) throws UnknownHostException {
+        final Entry cached = entries.get(host);
+        if (cached != null && !cached.isExpired()) {
+            return cached.addresses;
+        }
+        synchronized (locks.computeIfAbsent(host, h -> new Object())) {
+            final Entry current = entries.get(host);
+            if (current != null && !current.isExpired()) {
+                // 等待期间已经被其他线程解析
+                return current.addresses;
+            }
+            try {
+                final List<InetAddress> addresses = Collections.unmodifiableList(Arrays.asList(lookup(host)));
+                entries.put(host, new Entry(addresses, System.nanoTime() + ttlNanos));
+                return addresses;
+            } catch (UnknownHostException e) {
+                if (current != null) {
+                    return current.addresses;
+                }
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * 实际的解析，默认使用 {@link InetAddress#getAllByName(String)}
+     */
+    protected InetAddress[] lookup(final String host) throws UnknownHostException {
+        return InetAddress.getAllByName(host);
+    }
+
+    /**
+     * 连接解析出的所有地址都失败时调用，下次连接重新解析
+     */
+    public void invalidate(final String host) {
+        entries.remove(host);
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    private static final class Entry {
+
+        private final List<InetAddress> addresses;
+        private final long expiresAt;
+
+        private Entry(final List<InetAddress> addresses, final long expiresAt) {
+            this.addresses = addresses;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired() {
+            return System.nanoTime() - expiresAt >= 0;
+        }
+    }
+}
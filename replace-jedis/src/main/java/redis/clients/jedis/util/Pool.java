@@ -0,0 +1,495 @@
+package redis.clients.jedis.util;
+
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisException;
+import redis.clients.jedis.exceptions.JedisExhaustedPoolException;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 有界对象池。
+ * <p>
+ * 借用时先尝试当前线程上次归还的对象，再从无锁的空闲双端队列中取，都没有时才创建新对象或等待归还。
+ * 对象的归属通过 CAS 修改状态来竞争，借用和归还的常规路径上没有全局锁。
+ * <p>
+ * 池中对象以自身作为 key 管理，因此不能重写 equals/hashCode。
+ *
+ * @author wangguangwu
+ */
+public class Pool<T> implements Closeable {
+
+    private static final int IDLE = 0;
+    private static final int ALLOCATED = 1;
+    private static final int INVALID = 2;
+
+    /**
+     * 等待者每隔这么久重新检查一次空闲队列，避免错过归还通知
+     */
+    private static final long WAIT_RECHECK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    /**
+     * 预热时同时建立连接的最大线程数
+     */
+    private static final int MAX_WARM_UP_PARALLELISM = 16;
+
+    private static ScheduledThreadPoolExecutor evictionTimer;
+
+    private final PooledObjectFactory<T> factory;
+    private final GenericPoolConfig config;
+
+    private final ConcurrentHashMap<T, PooledEntry<T>> allObjects = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedDeque<PooledEntry<T>> idleObjects = new ConcurrentLinkedDeque<>();
+    private final ThreadLocal<PooledEntry<T>> lastReturned;
+    private final SynchronousQueue<PooledEntry<T>> handoffQueue = new SynchronousQueue<>();
+    private final AtomicInteger createCount = new AtomicInteger();
+    private final AtomicInteger waiters = new AtomicInteger();
+    private volatile boolean closed = false;
+    private final ScheduledFuture<?> evictionTask;
+
+    // 统计信息
+    private final LongAdder borrowedCount = new LongAdder();
+    private final LongAdder createdCount = new LongAdder();
+    private final LongAdder destroyedCount = new LongAdder();
+    private final LongAdder totalBorrowWaitNanos = new LongAdder();
+    private final AtomicLong maxBorrowWaitNanos = new AtomicLong();
+
+    public Pool(final GenericPoolConfig config, final PooledObjectFactory<T> factory) {
+        this.config = config;
+        this.factory = factory;
+        this.lastReturned = config.getThreadAffinity() ? new ThreadLocal<>() : null;
+
+        final long period = config.getTimeBetweenEvictionRunsMillis();
+        if (period > 0) {
+            evictionTask = getEvictionTimer().scheduleWithFixedDelay(this::evict, period, period,
+                    TimeUnit.MILLISECONDS);
+        } else {
+            evictionTask = null;
+        }
+    }
+
+    public T getResource() {
+        assertOpen();
+        final long start = System.nanoTime();
+        final long maxWait = config.getMaxWaitMillis();
+        final long deadline = maxWait < 0 ? Long.MAX_VALUE : start + TimeUnit.MILLISECONDS.toNanos(maxWait);
+
+        while (true) {
+            boolean created = false;
+            PooledEntry<T> entry = pollIdle();
+            if (entry == null) {
+                entry = create();
+                created = entry != null;
+            }
+            if (entry == null) {
+                entry = awaitIdle(deadline);
+            }
+
+            if (!created && config.getTestOnBorrow() && !validate(entry)) {
+                destroy(entry);
+                continue;
+            }
+
+            borrowedCount.increment();
+            recordBorrowWait(System.nanoTime() - start);
+            return entry.object;
+        }
+    }
+
+    public void returnResource(final T resource) {
+        if (resource == null) {
+            return;
+        }
+        final PooledEntry<T> entry = allObjects.get(resource);
+        if (entry == null) {
+            throw new JedisException("Could not return the resource to the pool: not part of this pool.");
+        }
+        if (closed || (config.getTestOnReturn() && !validate(entry))) {
+            destroy(entry);
+            return;
+        }
+
+        entry.lastReturnTime = System.currentTimeMillis();
+        if (!entry.state.compareAndSet(ALLOCATED, IDLE)) {
+            throw new JedisException("Could not return the resource to the pool: already returned.");
+        }
+
+        // 有线程在等待时直接交给它
+        if (waiters.get() > 0 && handoffQueue.offer(entry)) {
+            return;
+        }
+        if (lastReturned != null) {
+            lastReturned.set(entry);
+        }
+        if (entry.queued.compareAndSet(false, true)) {
+            idleObjects.offerFirst(entry);
+        }
+    }
+
+    public void returnBrokenResource(final T resource) {
+        if (resource == null) {
+            return;
+        }
+        final PooledEntry<T> entry = allObjects.get(resource);
+        if (entry != null) {
+            destroy(entry);
+        }
+    }
+
+    private PooledEntry<T> pollIdle() {
+        if (lastReturned != null) {
+            final PooledEntry<T> entry = lastReturned.get();
+            if (entry != null && entry.tryAllocate()) {
+                return entry;
+            }
+        }
+
+        PooledEntry<T> entry;
+        while ((entry = idleObjects.pollFirst()) != null) {
+            // 必须先清除入队标记，再竞争对象，否则并发归还时对象可能不再回到队列
+            entry.queued.set(false);
+            if (entry.tryAllocate()) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    private PooledEntry<T> create() {
+        while (true) {
+            final int count = createCount.get();
+            if (count >= config.getMaxTotal()) {
+                return null;
+            }
+            if (createCount.compareAndSet(count, count + 1)) {
+                break;
+            }
+        }
+
+        final T object;
+        try {
+            object = factory.makeObject();
+        } catch (Exception e) {
+            createCount.decrementAndGet();
+            throw new JedisConnectionException("Could not get a resource from the pool", e);
+        }
+        final PooledEntry<T> entry = new PooledEntry<>(object);
+        allObjects.put(object, entry);
+        createdCount.increment();
+        return entry;
+    }
+
+    private PooledEntry<T> awaitIdle(final long deadline) {
+        waiters.incrementAndGet();
+        try {
+            while (true) {
+                final long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    throw new JedisExhaustedPoolException("Could not get a resource since the pool is exhausted");
+                }
+                PooledEntry<T> entry = handoffQueue.poll(Math.min(remaining, WAIT_RECHECK_NANOS), TimeUnit.NANOSECONDS);
+                if (entry != null && entry.tryAllocate()) {
+                    return entry;
+                }
+                assertOpen();
+                entry = pollIdle();
+                if (entry == null) {
+                    entry = create();
+                }
+                if (entry != null) {
+                    return entry;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JedisException("Interrupted while waiting for a resource from the pool", e);
+        } finally {
+            waiters.decrementAndGet();
+        }
+    }
+
+    private boolean validate(final PooledEntry<T> entry) {
+        try {
+            return factory.validateObject(entry.object);
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private void destroy(final PooledEntry<T> entry) {
+        entry.state.set(INVALID);
+        if (allObjects.remove(entry.object, entry)) {
+            try {
+                factory.destroyObject(entry.object);
+            } catch (Exception e) {
+                // ignored
+            } finally {
+                // 销毁之后才释放名额，存活的对象数不超过 maxTotal
+                createCount.decrementAndGet();
+                destroyedCount.increment();
+            }
+        }
+    }
+
+    /**
+     * 空闲检测：销毁空闲过久或超过 maxIdle 的对象，校验其余空闲对象，再补足 minIdle
+     */
+    void evict() {
+        if (closed) {
+            return;
+        }
+        final long now = System.currentTimeMillis();
+        int idle = getNumIdle();
+        for (PooledEntry<T> entry : allObjects.values()) {
+            if (entry.state.get() != IDLE) {
+                continue;
+            }
+            final boolean expired = now - entry.lastReturnTime > config.getMinEvictableIdleTimeMillis();
+            if ((expired && idle > config.getMinIdle()) || idle > config.getMaxIdle()) {
+                if (entry.state.compareAndSet(IDLE, INVALID)) {
+                    destroy(entry);
+                    idle--;
+                }
+            } else if (config.getTestWhileIdle() && entry.tryAllocate()) {
+                if (validate(entry)) {
+                    entry.state.set(IDLE);
+                    if (entry.queued.compareAndSet(false, true)) {
+                        idleObjects.offerLast(entry);
+                    }
+                } else {
+                    destroy(entry);
+                    idle--;
+                }
+            }
+        }
+        ensureMinIdle();
+    }
+
+    private void ensureMinIdle() {
+        while (!closed && getNumIdle() < config.getMinIdle()) {
+            final PooledEntry<T> entry;
+            try {
+                entry = create();
+            } catch (JedisException e) {
+                return;
+            }
+            if (entry == null) {
+                return;
+            }
+            entry.state.set(IDLE);
+            entry.queued.set(true);
+            idleObjects.offerLast(entry);
+        }
+    }
+
+    /**
+     * 并行创建 count 个对象，校验通过后放入空闲队列，用于在实例对外提供服务之前预热连接池。
+     * 受 maxTotal 限制；超时后不再等待还没有完成的对象。
+     *
+     * @return 预热成功的对象个数
+     */
+    public int warmUp(final int count, final long timeout, final TimeUnit unit) {
+        assertOpen();
+        if (count <= 0) {
+            return 0;
+        }
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.min(count, MAX_WARM_UP_PARALLELISM),
+                r -> {
+                    Thread t = new Thread(r, "jedis-pool-warm-up");
+                    t.setDaemon(true);
+                    return t;
+                });
+        try {
+            final List<Future<Boolean>> futures = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                futures.add(executor.submit(this::warmUpOne));
+            }
+            final long deadline = System.nanoTime() + unit.toNanos(timeout);
+            int warmed = 0;
+            for (Future<Boolean> future : futures) {
+                try {
+                    if (future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                        warmed++;
+                    }
+                } catch (ExecutionException | TimeoutException e) {
+                    // 这个对象没有预热成功
+                }
+            }
+            return warmed;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JedisException("Interrupted while warming up the pool", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private boolean warmUpOne() {
+        final PooledEntry<T> entry;
+        try {
+            entry = create();
+        } catch (JedisException e) {
+            return false;
+        }
+        if (entry == null) {
+            return false;
+        }
+        if (closed || !validate(entry)) {
+            destroy(entry);
+            return false;
+        }
+        entry.lastReturnTime = System.currentTimeMillis();
+        entry.state.set(IDLE);
+        // 和归还一样，有线程在等待时直接交给它
+        if (waiters.get() > 0 && handoffQueue.offer(entry)) {
+            return true;
+        }
+        if (entry.queued.compareAndSet(false, true)) {
+            idleObjects.offerLast(entry);
+        }
+        // 入队之前连接池可能已经关闭，close 不会再看到这个对象
+        if (closed && entry.state.compareAndSet(IDLE, INVALID)) {
+            destroy(entry);
+            return false;
+        }
+        return true;
+    }
+
+    private void recordBorrowWait(final long waitNanos) {
+        totalBorrowWaitNanos.add(waitNanos);
+        long max;
+        while (waitNanos > (max = maxBorrowWaitNanos.get())) {
+            if (maxBorrowWaitNanos.compareAndSet(max, waitNanos)) {
+                break;
+            }
+        }
+    }
+
+    private void assertOpen() {
+        if (closed) {
+            throw new JedisException("Could not get a resource since the pool is closed");
+        }
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (evictionTask != null) {
+            evictionTask.cancel(false);
+        }
+        // 借出的对象在归还时销毁
+        for (PooledEntry<T> entry : allObjects.values()) {
+            if (entry.state.compareAndSet(IDLE, INVALID)) {
+                destroy(entry);
+            }
+        }
+        idleObjects.clear();
+    }
+
+    public int getNumActive() {
+        return countInState(ALLOCATED);
+    }
+
+    public int getNumIdle() {
+        return countInState(IDLE);
+    }
+
+    public int getNumWaiters() {
+        return waiters.get();
+    }
+
+    public long getBorrowedCount() {
+        return borrowedCount.sum();
+    }
+
+    public long getCreatedCount() {
+        return createdCount.sum();
+    }
+
+    public long getDestroyedCount() {
+        return destroyedCount.sum();
+    }
+
+    public long getMeanBorrowWaitTimeMillis() {
+        final long borrowed = borrowedCount.sum();
+        return borrowed == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalBorrowWaitNanos.sum() / borrowed);
+    }
+
+    public long getMaxBorrowWaitTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxBorrowWaitNanos.get());
+    }
+
+    /**
+     * 借出对象数占 maxTotal 的比例
+     */
+    public double getUtilization() {
+        return (double) getNumActive() / config.getMaxTotal();
+    }
+
+    private int countInState(final int state) {
+        int count = 0;
+        for (PooledEntry<T> entry : allObjects.values()) {
+            if (entry.state.get() == state) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static synchronized ScheduledThreadPoolExecutor getEvictionTimer() {
+        if (evictionTimer == null) {
+            evictionTimer = new ScheduledThreadPoolExecutor(1, r -> {
+                Thread t = new Thread(r, "jedis-pool-evictor");
+                t.setDaemon(true);
+                return t;
+            });
+            evictionTimer.setRemoveOnCancelPolicy(true);
+        }
+        return evictionTimer;
+    }
+
+    private static final class PooledEntry<T> {
+
+        final T object;
+        /**
+         * 新创建的对象直接交给创建它的借用者
+         */
+        final AtomicInteger state = new AtomicInteger(ALLOCATED);
+        /**
+         * 是否已经在空闲队列中，防止同一个对象被重复入队
+         */
+        final AtomicBoolean queued = new AtomicBoolean(false);
+        volatile long lastReturnTime = System.currentTimeMillis();
+
+        PooledEntry(T object) {
+            this.object = object;
+        }
+
+        boolean tryAllocate() {
+            return state.compareAndSet(IDLE, ALLOCATED);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package redis.clients.jedis.util;
+
+/**
+ * {@link Pool} 中对象的创建、销毁和校验
+ *
+ * @author wangguangwu
+ */
+public interface PooledObjectFactory<T> {
+
+    T makeObject() throws Exception;
+
+    void destroyObject(T obj) throws Exception;
+
+    boolean validateObject(T obj);
+
+}
@@ -6,8 +6,16 @@ import java.io.ByteArrayOutputStream;
 import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 
 /**
+ * 带缓冲区的响应输入流。
+ * <p>
+ * 使用 {@link BufferPool} 构造时，缓冲区在需要读取时才从池中借出，数据全部消费后通过 {@link #releaseBuffer()} 归还，
+ * 每次借用的大小由 {@link AdaptiveBufferSize} 根据之前的读取情况决定。
+ *
  * @author wangguangwu
  */
 public class RedisInputStream extends FilterInputStream {
@@ -15,10 +23,16 @@ public class RedisInputStream extends FilterInputStream {
             System.getProperty("jedis.bufferSize.input",
                     System.getProperty("jedis.bufferSize", "8192")));
 
-    protected final byte[] buf;
+    /**
+     * 使用缓冲池时，没有未读数据的期间为 null
+     */
+    protected byte[] buf;
 
     protected int count, limit;
 
+    private final BufferPool pool;
+    private final AdaptiveBufferSize bufferSize;
+
     public RedisInputStream(InputStream in) {
         this(in, INPUT_BUFFER_SIZE);
     }
@@ -29,6 +43,27 @@ public class RedisInputStream extends FilterInputStream {
             throw new IllegalArgumentException("Buffer size <= 0");
         }
         buf = new byte[size];
+        pool = null;
+        bufferSize = null;
+    }
+
+    public RedisInputStream(InputStream in, BufferPool pool) {
+        super(in);
+        this.pool = pool;
+        this.bufferSize = new AdaptiveBufferSize(pool.normalize(BufferPool.DEFAULT_MIN_BUFFER_SIZE),
+                pool.normalize(INPUT_BUFFER_SIZE), pool.getMaxBufferSize());
+    }
+
+    /**
+     * 缓冲区中的数据已经全部消费时，把缓冲区归还给缓冲池；没有使用缓冲池或还有未读数据时什么都不做
+     */
+    public void releaseBuffer() {
+        if (pool != null && buf != null && count >= limit) {
+            pool.release(buf);
+            buf = null;
+            count = 0;
+            limit = 0;
+        }
     }
 
     public byte readByte() throws JedisConnectionException {
@@ -37,9 +72,28 @@ public class RedisInputStream extends FilterInputStream {
         return buf[count++];
     }
 
+    /**
+     * 查看下一个字节但不消费，没有数据时阻塞
+     */
+    public byte peekByte() throws JedisConnectionException {
+        ensureFill();
+        return buf[count];
+    }
+
+    /**
+     * 缓冲区中剩余的字节数加上底层流不阻塞可以读取的字节数
+     */
+    @Override
+    public int available() throws IOException {
+        return (limit - count) + in.available();
+    }
+
     private void ensureFill() throws JedisConnectionException {
         // 如果读取的字节数超出了缓冲区的极限
         if (count >= limit) {
+            if (pool != null) {
+                prepareBuffer();
+            }
             try {
                 // 读取新的数据
                 limit = in.read(buf);
@@ -48,6 +102,9 @@ public class RedisInputStream extends FilterInputStream {
                 if (limit == -1) {
                     throw new JedisConnectionException("Unexpected end of stream.");
                 }
+                if (bufferSize != null) {
+                    bufferSize.record(limit, buf.length);
+                }
             } catch (IOException e) {
                 throw new JedisConnectionException(e);
             }
@@ -119,8 +176,7 @@ public class RedisInputStream extends FilterInputStream {
     }
 
     public long readLongCrLf() {
-        final byte[] buf = this.buf;
-
+        // ensureFill 可能更换缓冲区，不能把 buf 缓存在局部变量中
         ensureFill();
 
         final boolean isNeg = buf[count] == '-';
@@ -165,6 +221,174 @@ public class RedisInputStream extends FilterInputStream {
         return length;
     }
 
+    /**
+     * 把接下来的 len 个字节按缓冲区大小分块直接写入 out，不分配额外的数组
+     */
+    public void transferTo(final OutputStream out, long len) throws IOException {
+        while (len > 0) {
+            ensureFill();
+            final int length = (int) Math.min(limit - count, len);
+            out.write(buf, count, length);
+            count += length;
+            len -= length;
+        }
+    }
+
+    public void transferTo(final WritableByteChannel channel, long len) throws IOException {
+        while (len > 0) {
+            ensureFill();
+            final int length = (int) Math.min(limit - count, len);
+            final ByteBuffer chunk = ByteBuffer.wrap(buf, count, length);
+            while (chunk.hasRemaining()) {
+                channel.write(chunk);
+            }
+            count += length;
+            len -= length;
+        }
+    }
+
+    public void transferTo(final ByteBuffer dst, int len) {
+        while (len > 0) {
+            ensureFill();
+            final int length = Math.min(limit - count, len);
+            dst.put(buf, count, length);
+            count += length;
+            len -= length;
+        }
+    }
+
+    /**
+     * 丢弃接下来的 len 个字节
+     */
+    public void skipBytes(long len) {
+        while (len > 0) {
+            ensureFill();
+            final int length = (int) Math.min(limit - count, len);
+            count += length;
+            len -= length;
+        }
+    }
+
+    /**
+     * 保证缓冲区中至少有 n 个连续的未读字节，之后可以通过 {@link #getBuffer()} 和 {@link #getPosition()} 直接读取。
+     * 使用缓冲池时缓冲区会按需扩大；n 超过缓冲区能达到的最大大小时返回 false，不消费任何数据。
+     */
+    public boolean ensureBuffered(final int n) {
+        if (buf != null && limit - count >= n) {
+            return true;
+        }
+        ensureFill();
+        if (limit - count >= n) {
+            return true;
+        }
+        if (n > buf.length && !grow(n)) {
+            return false;
+        }
+        compact();
+        while (limit < n) {
+            fillMore();
+        }
+        return true;
+    }
+
+    /**
+     * 在缓冲区中查找下一行，返回不包含 \r\n 的长度，行从 {@link #getPosition()} 开始；
+     * 行超过缓冲区能达到的最大大小时返回 -1，不消费任何数据
+     */
+    public int scanLine() {
+        ensureFill();
+        // 已经检查过的字节数，最后一个字节可能是 \r，下次从它开始找
+        int scanned = 0;
+        while (true) {
+            for (int i = count + scanned; i < limit - 1; i++) {
+                if (buf[i] == '\r' && buf[i + 1] == '\n') {
+                    return i - count;
+                }
+            }
+            if (limit - count == buf.length && !grow(buf.length << 1)) {
+                return -1;
+            }
+            scanned = Math.max(0, limit - 1 - count);
+            compact();
+            fillMore();
+        }
+    }
+
+    /**
+     * 内部缓冲区，只能读取 {@link #ensureBuffered(int)} 或 {@link #scanLine()} 确认过的范围
+     */
+    public byte[] getBuffer() {
+        return buf;
+    }
+
+    public int getPosition() {
+        return count;
+    }
+
+    /**
+     * 消费缓冲区中已经确认过的 n 个字节
+     */
+    public void skipBuffered(final int n) {
+        count += n;
+    }
+
+    /**
+     * 缓冲区已经消费完：按照预测的大小借出或更换缓冲区
+     */
+    private void prepareBuffer() {
+        final int size = bufferSize.next();
+        if (buf == null) {
+            buf = pool.acquire(size);
+        } else if (buf.length != size) {
+            pool.release(buf);
+            buf = pool.acquire(size);
+        }
+        count = 0;
+        limit = 0;
+    }
+
+    /**
+     * 换成至少能容纳 n 个字节的缓冲区，保留未读数据
+     */
+    private boolean grow(final int n) {
+        if (pool == null || n > pool.getMaxBufferSize()) {
+            return false;
+        }
+        bufferSize.require(n);
+        final byte[] bigger = pool.acquire(Math.max(n, bufferSize.next()));
+        final int remaining = limit - count;
+        System.arraycopy(buf, count, bigger, 0, remaining);
+        pool.release(buf);
+        buf = bigger;
+        count = 0;
+        limit = remaining;
+        return true;
+    }
+
+    /**
+     * 把未读数据移到缓冲区开头，腾出后面的空间
+     */
+    private void compact() {
+        if (count > 0) {
+            final int remaining = limit - count;
+            System.arraycopy(buf, count, buf, 0, remaining);
+            count = 0;
+            limit = remaining;
+        }
+    }
+
+    private void fillMore() {
+        try {
+            final int read = in.read(buf, limit, buf.length - limit);
+            if (read == -1) {
+                throw new JedisConnectionException("Unexpected end of stream.");
+            }
+            limit += read;
+        } catch (IOException e) {
+            throw new JedisConnectionException(e);
+        }
+    }
+
     private byte[] readLineBytesSlowly() {
     ByteArrayOutputStream bout = null;
     while (true) {
@@ -3,6 +3,10 @@ package redis.clients.jedis.util;
 import java.io.*;
 
 /**
+ * 带缓冲区的命令输出流。
+ * <p>
+ * 使用 {@link BufferPool} 构造时，缓冲区在第一次写入时才从池中借出，{@link #flush()} 之后归还。
+ *
  * @author wangguangwu
  */
 public class RedisOutputStream extends FilterOutputStream {
@@ -11,10 +15,15 @@ public class RedisOutputStream extends FilterOutputStream {
             System.getProperty("jedis.bufferSize.output",
                     System.getProperty("jedis.bufferSize", "8192")));
 
-    protected final byte[] buf;
+    /**
+     * 使用缓冲池时，没有待发送数据的期间为 null
+     */
+    protected byte[] buf;
 
     protected int count;
 
+    private final BufferPool pool;
+
     private final static int[] sizeTable = {9, 99, 999, 9999, 99999, 999999, 9999999, 99999999,
             999999999, Integer.MAX_VALUE};
 
@@ -48,9 +57,25 @@ public class RedisOutputStream extends FilterOutputStream {
             throw new IllegalArgumentException("Buffer size <= 0");
         }
         buf = new byte[size];
+        pool = null;
+    }
+
+    public RedisOutputStream(final OutputStream out, final BufferPool pool) {
+        super(out);
+        this.pool = pool;
+    }
+
+    /**
+     * 写入缓冲区之前调用，使用缓冲池时借出缓冲区
+     */
+    protected void ensureBuffer() {
+        if (buf == null) {
+            buf = pool.acquire(OUTPUT_BUFFER_SIZE);
+        }
     }
 
     public void writeIntCrLf(int value) throws IOException {
+        ensureBuffer();
         // 如果值是负数，先写入 '-' 号，再将值转为正数写入
         if (value < 0) {
             write((byte) '-');
@@ -96,6 +121,7 @@ public class RedisOutputStream extends FilterOutputStream {
     }
 
     public void writeCrLf() throws IOException {
+        ensureBuffer();
         // 空间不够，刷新缓冲区
         if (2 >= buf.length - count) {
             flushBuffer();
@@ -114,6 +140,7 @@ public class RedisOutputStream extends FilterOutputStream {
     }
 
     public void write(final byte b) throws IOException {
+        ensureBuffer();
         if (count == buf.length) {
             flushBuffer();
         }
@@ -124,6 +151,10 @@ public class RedisOutputStream extends FilterOutputStream {
     public void flush() throws IOException {
         flushBuffer();
         out.flush();
+        if (pool != null && buf != null) {
+            pool.release(buf);
+            buf = null;
+        }
     }
 
     @Override
@@ -133,6 +164,7 @@ public class RedisOutputStream extends FilterOutputStream {
 
     @Override
     public void write(final byte[] b, final int off, final int len) throws IOException {
+        ensureBuffer();
         if (len >= buf.length) {
             flushBuffer();
             out.write(b, off, len);
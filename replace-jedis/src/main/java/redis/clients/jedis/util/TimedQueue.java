@@ -0,0 +1,79 @@
+package redis.clients.jedis.util;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * 带时间戳的先进先出环形队列，用于记录已经写出、还没有读到响应的命令。
+ * 时间戳和元素分别保存在数组中，入队不装箱；只在单个线程中使用。
+ *
+ * @author wangguangwu
+ */
+public class TimedQueue<T> {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private Object[] items = new Object[INITIAL_CAPACITY];
+    private long[] times = new long[INITIAL_CAPACITY];
+    private int head;
+    private int size;
+
+    public void add(final T item, final long time) {
+        if (size == items.length) {
+            grow();
+        }
+        final int tail = (head + size) & (items.length - 1);
+        items[tail] = item;
+        times[tail] = time;
+        size++;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 队首元素的时间戳
+     */
+    public long peekTime() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return times[head];
+    }
+
+    @SuppressWarnings("unchecked")
+    public T poll() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        final T item = (T) items[head];
+        items[head] = null;
+        head = (head + 1) & (items.length - 1);
+        size--;
+        return item;
+    }
+
+    public void clear() {
+        Arrays.fill(items, null);
+        head = 0;
+        size = 0;
+    }
+
+    private void grow() {
+        final int capacity = items.length;
+        final Object[] newItems = new Object[capacity << 1];
+        final long[] newTimes = new long[capacity << 1];
+        for (int i = 0; i < size; i++) {
+            newItems[i] = items[(head + i) & (capacity - 1)];
+            newTimes[i] = times[(head + i) & (capacity - 1)];
+        }
+        items = newItems;
+        times = newTimes;
+        head = 0;
+    }
+}
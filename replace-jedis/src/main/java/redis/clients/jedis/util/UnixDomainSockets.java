@@ -0,0 +1,110 @@
+package redis.clients.jedis.util;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.ProtocolFamily;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+
+/**
+ * 打开 Unix domain socket 通道，需要 Java 16 及以上。
+ * <p>
+ * 这是 Java 8 版本，通过反射调用 Java 16 的 API，类路径不支持多版本 JAR（例如直接使用编译输出目录）时也能工作；
+ * 多版本 JAR 在 Java 16 及以上使用 META-INF/versions/16 下直接调用 API 的版本。
+ *
+ * @author wangguangwu
+ */
+public final class UnixDomainSockets {
+
+    private static final ProtocolFamily UNIX;
+    private static final Method ADDRESS_OF;
+    private static final Method OPEN_CHANNEL;
+    private static final Method OPEN_SERVER_CHANNEL;
+
+    static {
+        ProtocolFamily unix = null;
+        Method addressOf = null;
+        Method openChannel = null;
+        Method openServerChannel = null;
+        try {
+            unix = StandardProtocolFamily.valueOf("UNIX");
+            addressOf = Class.forName("java.net.UnixDomainSocketAddress").getMethod("of", Path.class);
+            openChannel = SocketChannel.class.getMethod("open", ProtocolFamily.class);
+            openServerChannel = ServerSocketChannel.class.getMethod("open", ProtocolFamily.class);
+        } catch (IllegalArgumentException | ReflectiveOperationException e) {
+            // Java 16 之前不支持
+            unix = null;
+        }
+        UNIX = unix;
+        ADDRESS_OF = addressOf;
+        OPEN_CHANNEL = openChannel;
+        OPEN_SERVER_CHANNEL = openServerChannel;
+    }
+
+    private UnixDomainSockets() {
+        throw new InstantiationError("Must not instantiate this class");
+    }
+
+    public static boolean isSupported() {
+        return UNIX != null;
+    }
+
+    public static SocketAddress address(final Path path) {
+        checkSupported();
+        return (SocketAddress) invoke(ADDRESS_OF, path);
+    }
+
+    /**
+     * 连接 path 上的服务端，返回阻塞模式的通道
+     */
+    public static SocketChannel openChannel(final Path path) throws IOException {
+        checkSupported();
+        final SocketChannel channel = (SocketChannel) invoke(OPEN_CHANNEL, UNIX);
+        try {
+            channel.connect(address(path));
+            return channel;
+        } catch (IOException | RuntimeException e) {
+            IOUtils.closeQuietly(channel);
+            throw e;
+        }
+    }
+
+    /**
+     * 在 path 上监听，path 不能已经存在
+     */
+    public static ServerSocketChannel openServerChannel(final Path path) throws IOException {
+        checkSupported();
+        final ServerSocketChannel channel = (ServerSocketChannel) invoke(OPEN_SERVER_CHANNEL, UNIX);
+        try {
+            channel.bind(address(path));
+            return channel;
+        } catch (IOException | RuntimeException e) {
+            IOUtils.closeQuietly(channel);
+            throw e;
+        }
+    }
+
+    private static void checkSupported() {
+        if (UNIX == null) {
+            throw new UnsupportedOperationException("Unix domain sockets require Java 16 or later.");
+        }
+    }
+
+    private static Object invoke(final Method method, final Object arg) {
+        try {
+            return method.invoke(null, arg);
+        } catch (InvocationTargetException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package redis.clients.jedis.util;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+
+/**
+ * 打开 Unix domain socket 通道，Java 16 及以上的多版本 JAR 使用这个版本，直接调用 JDK 的 API。
+ *
+ * @author wangguangwu
+ */
+public final class UnixDomainSockets {
+
+    private UnixDomainSockets() {
+        throw new InstantiationError("Must not instantiate this class");
+    }
+
+    public static boolean isSupported() {
+        return true;
+    }
+
+    public static SocketAddress address(final Path path) {
+        return UnixDomainSocketAddress.of(path);
+    }
+
+    /**
+     * 连接 path 上的服务端，返回阻塞模式的通道
+     */
+    public static SocketChannel openChannel(final Path path) throws IOException {
+        final SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+        try {
+            channel.connect(address(path));
+            return channel;
+        } catch (IOException | RuntimeException e) {
+            IOUtils.closeQuietly(channel);
+            throw e;
+        }
+    }
+
+    /**
+     * 在 path 上监听，path 不能已经存在
+     */
+    public static ServerSocketChannel openServerChannel(final Path path) throws IOException {
+        final ServerSocketChannel channel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        try {
+            channel.bind(address(path));
+            return channel;
+        } catch (IOException | RuntimeException e) {
+            IOUtils.closeQuietly(channel);
+            throw e;
+        }
+    }
+}
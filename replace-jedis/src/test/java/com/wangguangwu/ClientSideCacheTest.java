@@ -0,0 +1,236 @@
+package com.wangguangwu;
+
+import com.wangguangwu.server.EmbeddedRedisServer;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.codec.DeflateValueCodec;
+import redis.clients.jedis.csc.CacheConnection;
+import redis.clients.jedis.csc.ClientSideCache;
+import redis.clients.jedis.util.SafeEncoder;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link ClientSideCache} 和 {@link CacheConnection} 的命中、失效和淘汰
+ *
+ * @author wangguangwu
+ */
+public class ClientSideCacheTest {
+
+    private static EmbeddedRedisServer server;
+
+    @BeforeClass
+    public static void startServer() throws IOException {
+        server = new EmbeddedRedisServer().start();
+    }
+
+    @AfterClass
+    public static void stopServer() {
+        server.close();
+    }
+
+    @Test
+    public void testCachedRepliesAreCopied() {
+        final byte[] key = SafeEncoder.encode("csc:copy");
+        final byte[] value = SafeEncoder.encode("value");
+        try (Jedis plain = new Jedis(server.getHostAndPort())) {
+            plain.set(key, value);
+        }
+
+        try (ClientSideCache cache = new ClientSideCache(100, 60_000)) {
+            // 默认的 Builder 和值编码器的 Builder 拿到的都是副本，修改返回值不影响缓存内容
+            for (boolean withCodec : new boolean[]{false, true}) {
+                cache.clear();
+                try (Jedis jedis = new Jedis(new CacheConnection(server.getHostAndPort(), cache))) {
+                    if (withCodec) {
+                        jedis.setValueCodec(new DeflateValueCodec());
+                    }
+                    final long hits = cache.getHits();
+                    jedis.get(key)[0] = 'X';
+                    jedis.get(key)[0] = 'Y';
+                    assertArrayEquals(value, jedis.get(key));
+                    assertEquals(hits + 2, cache.getHits());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testHitAndMiss() {
+        try (Jedis plain = new Jedis(server.getHostAndPort())) {
+            plain.set("csc:hit", "value");
+            plain.del("csc:missing");
+        }
+
+        try (ClientSideCache cache = new ClientSideCache(server.getHostAndPort(), 100, 0);
+             Jedis jedis = new Jedis(new CacheConnection(server.getHostAndPort(), cache))) {
+            assertEquals("value", jedis.get("csc:hit"));
+            assertEquals(1, cache.getMisses());
+            // 命中时不访问服务端，不存在的 key 也会缓存
+            final long commands = server.getCommandCount();
+            assertEquals("value", jedis.get("csc:hit"));
+            assertNull(jedis.get("csc:missing"));
+            assertNull(jedis.get("csc:missing"));
+            assertEquals(commands + 1, server.getCommandCount());
+            assertEquals(2, cache.getHits());
+            assertEquals(2, cache.getMisses());
+            assertEquals(2, cache.size());
+        }
+    }
+
+    @Test
+    public void testServerInvalidation() throws Exception {
+        try (ClientSideCache cache = new ClientSideCache(server.getHostAndPort(), 100, 0);
+             Jedis jedis = new Jedis(new CacheConnection(server.getHostAndPort(), cache));
+             Jedis other = new Jedis(server.getHostAndPort())) {
+            other.set("csc:shared", "v1");
+            assertEquals("v1", jedis.get("csc:shared"));
+            assertEquals("v1", jedis.get("csc:shared"));
+
+            // 其他连接修改 key 后服务端推送失效消息
+            other.set("csc:shared", "v2");
+            waitFor(() -> cache.size() == 0);
+            assertEquals("v2", jedis.get("csc:shared"));
+
+            // FLUSHALL 时全部失效
+            jedis.get("csc:other");
+            assertEquals(2, cache.size());
+            server.flushAll();
+            waitFor(() -> cache.size() == 0);
+            assertNull(jedis.get("csc:shared"));
+        }
+    }
+
+    @Test
+    public void testWriteInvalidatesLocally() {
+        // TTL 模式没有失效消息，写入之后能读到新值只能是因为本地失效
+        try (ClientSideCache cache = new ClientSideCache(100, 60_000);
+             Jedis jedis = new Jedis(new CacheConnection(server.getHostAndPort(), cache))) {
+            jedis.set("csc:local", "v1");
+            assertEquals("v1", jedis.get("csc:local"));
+            assertEquals(1, cache.size());
+
+            jedis.set("csc:local", "v2");
+            assertEquals(0, cache.size());
+            assertEquals("v2", jedis.get("csc:local"));
+
+            // 管道中的写命令同样在发送前失效
+            final Pipeline pipeline = jedis.pipelined();
+            pipeline.incr("csc:counter");
+            pipeline.sync();
+            assertEquals("1", jedis.get("csc:counter"));
+            pipeline.incr("csc:counter");
+            pipeline.sync();
+            assertEquals("2", jedis.get("csc:counter"));
+
+            // 只读命令不会让缓存失效
+            jedis.exists("csc:local");
+            jedis.mget("csc:local", "csc:counter");
+            assertEquals(2, cache.size());
+            jedis.del("csc:local", "csc:counter");
+            assertEquals(0, cache.size());
+        }
+    }
+
+    @Test
+    public void testClockEviction() {
+        try (Jedis plain = new Jedis(server.getHostAndPort())) {
+            for (int i = 1; i <= 4; i++) {
+                plain.set("csc:clock:" + i, String.valueOf(i));
+            }
+        }
+
+        try (ClientSideCache cache = new ClientSideCache(3, 60_000);
+             Jedis jedis = new Jedis(new CacheConnection(server.getHostAndPort(), cache))) {
+            for (int i = 1; i <= 3; i++) {
+                jedis.get("csc:clock:" + i);
+            }
+            // 访问过的条目多一次机会，第 4 个条目挤掉最早的没有访问过的条目
+            jedis.get("csc:clock:1");
+            jedis.get("csc:clock:4");
+            assertEquals(3, cache.size());
+            assertEquals(1, cache.getEvictions());
+
+            final long hits = cache.getHits();
+            jedis.get("csc:clock:1");
+            jedis.get("csc:clock:3");
+            jedis.get("csc:clock:4");
+            assertEquals(hits + 3, cache.getHits());
+            final long misses = cache.getMisses();
+            jedis.get("csc:clock:2");
+            assertEquals(misses + 1, cache.getMisses());
+        }
+    }
+
+    @Test
+    public void testClockStaysBounded() {
+        final int maxSize = 10;
+        try (ClientSideCache cache = new ClientSideCache(maxSize, 60_000);
+             Jedis jedis = new Jedis(new CacheConnection(server.getHostAndPort(), cache))) {
+            // 反复改写同一个 key，每次都在队列中留下一个已经失效的条目
+            for (int i = 0; i < 2000; i++) {
+                jedis.set("csc:rewrite", String.valueOf(i));
+                assertEquals(String.valueOf(i), jedis.get("csc:rewrite"));
+            }
+            assertEquals(1, cache.size());
+            assertTrue("clock grew to " + cache.getClockSize(), cache.getClockSize() <= 2 * maxSize + 1);
+        }
+    }
+
+    @Test
+    public void testInvalidationDuringRead() throws Exception {
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (ClientSideCache cache = new ClientSideCache(server.getHostAndPort(), 100, 0);
+             Jedis jedis = new Jedis(new CacheConnection(server.getHostAndPort(), cache));
+             Jedis other = new Jedis(server.getHostAndPort())) {
+            other.set("csc:race:tracked", "v1");
+            other.set("csc:race:slow", "v1");
+            jedis.get("csc:race:tracked");
+
+            // 读取还在进行时收到了失效消息，这次的响应可能已经过期，不写入缓存
+            server.setLatency("GET", 300, TimeUnit.MILLISECONDS);
+            final Future<String> slow;
+            try {
+                slow = executor.submit(() -> jedis.get("csc:race:slow"));
+                Thread.sleep(50);
+                final long invalidations = cache.getInvalidations();
+                other.set("csc:race:tracked", "v2");
+                waitFor(() -> cache.getInvalidations() > invalidations);
+                assertFalse(slow.isDone());
+                assertEquals("v1", slow.get(5, TimeUnit.SECONDS));
+            } finally {
+                server.setLatency("GET", 0, TimeUnit.MILLISECONDS);
+            }
+            assertEquals(0, cache.size());
+
+            final long misses = cache.getMisses();
+            assertEquals("v1", jedis.get("csc:race:slow"));
+            assertEquals(misses + 1, cache.getMisses());
+            assertEquals(1, cache.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void waitFor(final BooleanSupplier condition) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue("condition not met in time", System.nanoTime() < deadline);
+            Thread.sleep(10);
+        }
+    }
+}
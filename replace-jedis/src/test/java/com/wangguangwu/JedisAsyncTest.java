@@ -0,0 +1,291 @@
+package com.wangguangwu;
+
+import com.wangguangwu.server.EmbeddedRedisServer;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import redis.clients.jedis.Builder;
+import redis.clients.jedis.CommandArguments;
+import redis.clients.jedis.CommandObject;
+import redis.clients.jedis.JedisAsync;
+import redis.clients.jedis.Protocol;
+import redis.clients.jedis.RespDecoder;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.jedis.exceptions.JedisException;
+import redis.clients.jedis.util.SafeEncoder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * {@link JedisAsync} 的事件循环、连接故障处理，以及 {@link RespDecoder} 的增量解析
+ *
+ * @author wangguangwu
+ */
+public class JedisAsyncTest {
+
+    /**
+     * 依次包含状态、整数、bulk、nil、空 bulk、嵌套数组、空数组、nil 数组和错误响应
+     */
+    private static final byte[] REPLIES = SafeEncoder.encode("+OK\r\n:-42\r\n$12\r\nhello\r\nworld\r\n$-1\r\n$0\r\n\r\n"
+            + "*3\r\n$3\r\nfoo\r\n*2\r\n:1\r\n-ERR inner\r\n+bar\r\n*0\r\n*-1\r\n-ERR something went wrong\r\n");
+
+    private static EmbeddedRedisServer server;
+
+    @BeforeClass
+    public static void startServer() throws IOException {
+        server = new EmbeddedRedisServer().start();
+    }
+
+    @AfterClass
+    public static void stopServer() {
+        server.close();
+    }
+
+    @Test
+    public void testCommands() throws Exception {
+        try (JedisAsync jedis = new JedisAsync(server.getHostAndPort(), 2)) {
+            assertEquals("PONG", jedis.ping().get(5, TimeUnit.SECONDS));
+            jedis.del("async:counter").get(5, TimeUnit.SECONDS);
+
+            // 多个线程同时提交，同一个线程的命令按提交顺序执行
+            final ExecutorService executor = Executors.newFixedThreadPool(4);
+            try {
+                final List<Future<Boolean>> results = new ArrayList<>();
+                for (int t = 0; t < 4; t++) {
+                    final String key = "async:thread:" + t;
+                    results.add(executor.submit(() -> {
+                        jedis.del(key);
+                        final List<CompletableFuture<Long>> futures = new ArrayList<>();
+                        for (int i = 0; i < 500; i++) {
+                            futures.add(jedis.incr(key));
+                            jedis.incr("async:counter");
+                        }
+                        for (int i = 0; i < futures.size(); i++) {
+                            if (futures.get(i).get(5, TimeUnit.SECONDS) != i + 1) {
+                                return false;
+                            }
+                        }
+                        return true;
+                    }));
+                }
+                for (Future<Boolean> result : results) {
+                    assertTrue(result.get(10, TimeUnit.SECONDS));
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+            assertEquals("2000", jedis.get("async:counter").get(5, TimeUnit.SECONDS));
+
+            // 超过读缓冲区的值分多次读取后拼接
+            final byte[] value = new byte[200 * 1024];
+            Arrays.fill(value, (byte) 'v');
+            jedis.set(SafeEncoder.encode("async:large"), value).get(5, TimeUnit.SECONDS);
+            assertArrayEquals(value, jedis.get(SafeEncoder.encode("async:large")).get(5, TimeUnit.SECONDS));
+
+            final CompletableFuture<Long> wrongType = jedis.incr("async:large");
+            try {
+                wrongType.get(5, TimeUnit.SECONDS);
+                fail("INCR on a non-integer value should fail");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof JedisDataException);
+            }
+            assertEquals("PONG", jedis.ping().get(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void testConnectionReset() throws Exception {
+        try (EmbeddedRedisServer resetting = new EmbeddedRedisServer().start();
+             JedisAsync jedis = new JedisAsync(resetting.getHostAndPort(), 1)) {
+            assertEquals("OK", jedis.set("async:key", "v").get(5, TimeUnit.SECONDS));
+            resetting.setLatency("GET", 200, TimeUnit.MILLISECONDS);
+            final CompletableFuture<String> inFlight = jedis.get("async:key");
+            Thread.sleep(50);
+            resetting.resetConnections();
+            assertConnectionFailure(inFlight);
+            // 连接关闭之后提交的命令立即失败，不会一直等待
+            assertConnectionFailure(jedis.ping());
+        }
+    }
+
+    @Test
+    public void testCommandTimeout() throws Exception {
+        try (JedisAsync jedis = new JedisAsync(server.getHostAndPort(), 1, 100,
+                JedisAsync.DEFAULT_MAX_PENDING_COMMANDS)) {
+            assertEquals("OK", jedis.set("async:timeout", "v").get(5, TimeUnit.SECONDS));
+            server.setLatency("GET", 500, TimeUnit.MILLISECONDS);
+            try {
+                final CompletableFuture<String> stalled = jedis.get("async:timeout");
+                final long start = System.nanoTime();
+                assertConnectionFailure(stalled);
+                assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(450));
+            } finally {
+                server.setLatency("GET", 0, TimeUnit.MILLISECONDS);
+            }
+            // 迟到的响应被丢弃，后续命令的响应不会错位
+            Thread.sleep(600);
+            assertEquals("PONG", jedis.ping().get(5, TimeUnit.SECONDS));
+            assertEquals("v", jedis.get("async:timeout").get(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void testPendingCommandsLimit() throws Exception {
+        try (JedisAsync jedis = new JedisAsync(server.getHostAndPort(), 1, 0, 2)) {
+            assertEquals("OK", jedis.set("async:pending", "v").get(5, TimeUnit.SECONDS));
+            server.setLatency("GET", 300, TimeUnit.MILLISECONDS);
+            final List<CompletableFuture<String>> accepted = new ArrayList<>();
+            try {
+                accepted.add(jedis.get("async:pending"));
+                accepted.add(jedis.get("async:pending"));
+                final CompletableFuture<String> rejected = jedis.get("async:pending");
+                assertTrue(rejected.isCompletedExceptionally());
+                try {
+                    rejected.get();
+                    fail("command over the limit should fail");
+                } catch (ExecutionException e) {
+                    assertTrue(e.getCause() instanceof JedisException);
+                }
+            } finally {
+                server.setLatency("GET", 0, TimeUnit.MILLISECONDS);
+            }
+            for (CompletableFuture<String> future : accepted) {
+                assertEquals("v", future.get(5, TimeUnit.SECONDS));
+            }
+            // 响应之后名额释放
+            assertEquals("v", jedis.get("async:pending").get(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void testBuilderError() throws Exception {
+        final JedisAsync jedis = new JedisAsync(server.getHostAndPort(), 1);
+        try {
+            final CompletableFuture<Object> failing = jedis.executeCommand(new CommandObject<>(
+                    new CommandArguments(Protocol.Command.PING), new Builder<Object>() {
+                @Override
+                public Object build(Object data) {
+                    throw new AssertionError("builder failed");
+                }
+            }));
+            final CompletableFuture<String> next = jedis.ping();
+            try {
+                failing.get(5, TimeUnit.SECONDS);
+                fail("builder error should fail the future");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof AssertionError);
+            }
+            // Error 使事件循环退出，其他命令以连接异常结束
+            assertConnectionFailure(next);
+            assertConnectionFailure(jedis.ping());
+        } finally {
+            jedis.close();
+        }
+    }
+
+    @Test
+    public void testDecoderFragments() {
+        final List<Object> whole = decode(Collections.singletonList(REPLIES));
+        assertReplies(whole);
+
+        // 在每个位置切成两段
+        for (int split = 1; split < REPLIES.length; split++) {
+            assertReplies(decode(Arrays.asList(Arrays.copyOfRange(REPLIES, 0, split),
+                    Arrays.copyOfRange(REPLIES, split, REPLIES.length))));
+        }
+
+        // 每次只有一个字节
+        final List<byte[]> bytes = new ArrayList<>();
+        for (byte b : REPLIES) {
+            bytes.add(new byte[]{b});
+        }
+        assertReplies(decode(bytes));
+    }
+
+    @Test
+    public void testDecoderLargeBulk() {
+        final byte[] value = new byte[100_000];
+        for (int i = 0; i < value.length; i++) {
+            value[i] = (byte) i;
+        }
+        final byte[] header = SafeEncoder.encode("$" + value.length + "\r\n");
+        final ByteBuffer encoded = ByteBuffer.allocate(header.length + value.length + 2);
+        encoded.put(header).put(value).put(SafeEncoder.encode("\r\n")).flip();
+
+        // 按读缓冲区大小分段，bulk 中间和末尾的 \r\n 都可能被切开
+        final List<byte[]> chunks = new ArrayList<>();
+        while (encoded.hasRemaining()) {
+            final byte[] chunk = new byte[Math.min(8191, encoded.remaining())];
+            encoded.get(chunk);
+            chunks.add(chunk);
+        }
+        final List<Object> replies = decode(chunks);
+        assertEquals(1, replies.size());
+        assertArrayEquals(value, (byte[]) replies.get(0));
+    }
+
+    @Test
+    public void testDecoderHugeArrayHeader() {
+        // 数组长度不可信，不能按长度预分配
+        final List<Object> replies = decode(Arrays.asList(SafeEncoder.encode("*2147483647\r\n"),
+                SafeEncoder.encode(":1\r\n$1\r\nx\r\n")));
+        assertEquals(0, replies.size());
+    }
+
+    private static List<Object> decode(final List<byte[]> chunks) {
+        final RespDecoder decoder = new RespDecoder();
+        final List<Object> replies = new ArrayList<>();
+        for (byte[] chunk : chunks) {
+            final ByteBuffer buffer = ByteBuffer.wrap(chunk);
+            decoder.decode(buffer, replies::add);
+            assertEquals(0, buffer.remaining());
+        }
+        return replies;
+    }
+
+    private static void assertReplies(final List<Object> replies) {
+        assertEquals(9, replies.size());
+        assertEquals("OK", SafeEncoder.encode((byte[]) replies.get(0)));
+        assertEquals(-42L, replies.get(1));
+        assertEquals("hello\r\nworld", SafeEncoder.encode((byte[]) replies.get(2)));
+        assertNull(replies.get(3));
+        assertEquals(0, ((byte[]) replies.get(4)).length);
+        final List<?> array = (List<?>) replies.get(5);
+        assertEquals(3, array.size());
+        assertEquals("foo", SafeEncoder.encode((byte[]) array.get(0)));
+        final List<?> inner = (List<?>) array.get(1);
+        assertEquals(1L, inner.get(0));
+        assertTrue(inner.get(1) instanceof JedisDataException);
+        assertEquals("bar", SafeEncoder.encode((byte[]) array.get(2)));
+        assertEquals(Collections.emptyList(), replies.get(6));
+        assertNull(replies.get(7));
+        assertEquals("ERR something went wrong", ((JedisDataException) replies.get(8)).getMessage());
+    }
+
+    private static void assertConnectionFailure(final CompletableFuture<?> future) throws Exception {
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("command should fail");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof JedisConnectionException);
+        }
+    }
+}
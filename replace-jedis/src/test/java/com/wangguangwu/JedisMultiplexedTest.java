@@ -0,0 +1,184 @@
+package com.wangguangwu;
+
+import com.wangguangwu.server.EmbeddedRedisServer;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import redis.clients.jedis.DefaultJedisSocketFactory;
+import redis.clients.jedis.JedisClientConfig;
+import redis.clients.jedis.JedisMultiplexed;
+import redis.clients.jedis.MultiplexedConnection;
+import redis.clients.jedis.UnixDomainSocketFactory;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.util.UnixDomainSockets;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * {@link MultiplexedConnection} 在多个线程并发调用、连接断开和响应超时时的行为
+ *
+ * @author wangguangwu
+ */
+public class JedisMultiplexedTest {
+
+    private static EmbeddedRedisServer server;
+
+    @BeforeClass
+    public static void startServer() throws IOException {
+        server = new EmbeddedRedisServer().start();
+    }
+
+    @AfterClass
+    public static void stopServer() {
+        server.close();
+    }
+
+    @Test
+    public void testConcurrentCommands() throws Exception {
+        final int threads = 8;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try (JedisMultiplexed jedis = new JedisMultiplexed(server.getHostAndPort())) {
+            jedis.del("mux:counter");
+            final CountDownLatch start = new CountDownLatch(1);
+            final List<Future<Boolean>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                final String key = "mux:thread:" + t;
+                results.add(executor.submit(() -> {
+                    jedis.del(key);
+                    start.await();
+                    // 每个调用方拿到的是自己的命令的响应
+                    for (int i = 1; i <= 1000; i++) {
+                        jedis.incr("mux:counter");
+                        if (jedis.incr(key) != i) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }));
+            }
+            start.countDown();
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get(30, TimeUnit.SECONDS));
+            }
+            assertEquals("8000", jedis.get("mux:counter"));
+            assertEquals(0, jedis.getConnection().getInFlightCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testConnectionKilledWithCommandsInFlight() throws Exception {
+        final int threads = 8;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try (EmbeddedRedisServer killed = new EmbeddedRedisServer().start();
+             JedisMultiplexed jedis = new JedisMultiplexed(killed.getHostAndPort())) {
+            jedis.set("mux:key", "v");
+            killed.setLatency("GET", 50, TimeUnit.MILLISECONDS);
+            final CountDownLatch started = new CountDownLatch(threads);
+            final List<Future<?>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                results.add(executor.submit(() -> {
+                    started.countDown();
+                    // 一直发送命令，直到连接断开
+                    while (true) {
+                        jedis.get("mux:key");
+                    }
+                }));
+            }
+            started.await();
+            Thread.sleep(100);
+            killed.resetConnections();
+
+            // 所有调用方都以连接异常结束，不会一直等待
+            for (Future<?> result : results) {
+                try {
+                    result.get(10, TimeUnit.SECONDS);
+                    fail("command should fail after the connection is reset");
+                } catch (ExecutionException e) {
+                    assertTrue(e.getCause() instanceof JedisConnectionException);
+                }
+            }
+            assertTrue(jedis.getConnection().isBroken());
+            assertEquals(0, jedis.getConnection().getInFlightCount());
+            try {
+                jedis.ping();
+                fail("broken connection should not accept commands");
+            } catch (JedisConnectionException expected) {
+                // 断开后的命令直接失败
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testReplyTimeout() throws Exception {
+        try (EmbeddedRedisServer slow = new EmbeddedRedisServer().start()) {
+            final JedisClientConfig config = JedisClientConfig.builder().socketTimeoutMillis(200).build();
+            try (MultiplexedConnection connection = new MultiplexedConnection(
+                    new DefaultJedisSocketFactory(slow.getHostAndPort(), config), 16);
+                 JedisMultiplexed jedis = new JedisMultiplexed(connection)) {
+                assertEquals("PONG", jedis.ping());
+                slow.setLatency("GET", 2, TimeUnit.SECONDS);
+                final long start = System.nanoTime();
+                try {
+                    jedis.get("mux:slow");
+                    fail("GET should time out");
+                } catch (JedisConnectionException expected) {
+                    assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testUnixDomainSocket() throws Exception {
+        assumeTrue(UnixDomainSockets.isSupported());
+        final Path dir = Files.createTempDirectory("jedis");
+        final Path path = dir.resolve("redis.sock");
+        final int threads = 4;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try (EmbeddedRedisServer unixServer = new EmbeddedRedisServer().startUnixSocket(path);
+             JedisMultiplexed jedis = new JedisMultiplexed(new MultiplexedConnection(
+                     new UnixDomainSocketFactory(path), MultiplexedConnection.DEFAULT_MAX_IN_FLIGHT))) {
+            // 写线程等待通道可写的同时，读线程在等待响应，两者不能互相影响
+            final List<Future<Boolean>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                final byte[] key = ("mux:unix:" + t).getBytes();
+                final byte[] value = new byte[256 * 1024];
+                Arrays.fill(value, (byte) ('a' + t));
+                results.add(executor.submit(() -> {
+                    for (int i = 0; i < 20; i++) {
+                        assertEquals("OK", jedis.set(key, value));
+                        assertArrayEquals(value, jedis.get(key));
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get(30, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+            Files.deleteIfExists(dir);
+        }
+    }
+}
@@ -1,18 +1,1164 @@
 package com.wangguangwu;
 
+import com.wangguangwu.server.EmbeddedRedisServer;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
 import org.junit.Test;
+import redis.clients.jedis.BuilderFactory;
+import redis.clients.jedis.CommandArguments;
+import redis.clients.jedis.CommandInterceptor;
+import redis.clients.jedis.CommandObject;
+import redis.clients.jedis.Connection;
+import redis.clients.jedis.ConnectionFactory;
+import redis.clients.jedis.ConnectionPool;
+import redis.clients.jedis.DefaultJedisChannelFactory;
+import redis.clients.jedis.DefaultJedisSocketFactory;
+import redis.clients.jedis.HostAndPort;
 import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisClientConfig;
+import redis.clients.jedis.JedisCluster;
+import redis.clients.jedis.JedisClusterInfoCache;
+import redis.clients.jedis.JedisFactory;
+import redis.clients.jedis.JedisMasterReplica;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Protocol;
+import redis.clients.jedis.ReplyCursor;
+import redis.clients.jedis.ReplyVisitor;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.Script;
+import redis.clients.jedis.ScriptRegistry;
+import redis.clients.jedis.Transaction;
+import redis.clients.jedis.UnixDomainSocketFactory;
+import redis.clients.jedis.codec.DeflateValueCodec;
+import redis.clients.jedis.exceptions.JedisAccessControlException;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.jedis.exceptions.JedisException;
+import redis.clients.jedis.metrics.DefaultMetricsRegistry;
+import redis.clients.jedis.metrics.LatencyHistogram;
+import redis.clients.jedis.metrics.SlowCommandLog;
+import redis.clients.jedis.util.BufferPool;
+import redis.clients.jedis.util.DnsCache;
+import redis.clients.jedis.util.GenericPoolConfig;
+import redis.clients.jedis.util.JedisClusterCRC16;
+import redis.clients.jedis.util.SafeEncoder;
+import redis.clients.jedis.util.UnixDomainSockets;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManagerFactory;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyStore;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
 
 /**
  * @author wangguangwu
  */
 public class JedisTest {
 
+    private static EmbeddedRedisServer server;
+
+    @BeforeClass
+    public static void startServer() throws IOException {
+        server = new EmbeddedRedisServer().start();
+    }
+
+    @AfterClass
+    public static void stopServer() {
+        server.close();
+    }
+
     @Test
     public void testConnect() {
-        Jedis jedis = new Jedis("127.0.0.1", 6379);
+        try (Jedis jedis = new Jedis(server.getHostAndPort())) {
+            // 验证连接，如果返回 PONG 表示连接成功
+            assertEquals("PONG", jedis.ping());
+        }
+    }
+
+    @Test
+    public void testPipeline() {
+        try (Jedis jedis = new Jedis(server.getHostAndPort())) {
+            jedis.del("counter");
+            final Pipeline pipeline = jedis.pipelined();
+            Response<Long> last = null;
+            for (int i = 0; i < 1000; i++) {
+                last = pipeline.incr("counter");
+            }
+            pipeline.sync();
+            assertEquals(Long.valueOf(1000), last.get());
+        }
+    }
+
+    @Test
+    public void testPipelineErrorReply() throws IOException {
+        try (EmbeddedRedisServer denying = new EmbeddedRedisServer().start();
+             JedisPool pool = new JedisPool(new JedisPoolConfig(), denying.getHostAndPort())) {
+            denying.denyCommand("KEYS");
+            final Jedis jedis = pool.getResource();
+            final Pipeline pipeline = jedis.pipelined();
+            final Response<String> set = pipeline.set("acl:key", "v");
+            final Response<Object> keys = pipeline.sendCommand(Protocol.Command.KEYS, "*");
+            final Response<String> get = pipeline.get("acl:key");
+            final List<Object> results = pipeline.syncAndReturnAll();
+            // 被拒绝的命令以异常对象返回，后面的响应照常读取
+            assertEquals(3, results.size());
+            assertTrue(results.get(1) instanceof JedisAccessControlException);
+            assertEquals("OK", set.get());
+            assertEquals("v", get.get());
+            try {
+                keys.get();
+                fail("KEYS should have been denied");
+            } catch (JedisAccessControlException expected) {
+                assertTrue(expected.getMessage().startsWith("NOPERM"));
+            }
+
+            // 排队时被拒绝的命令使事务被丢弃
+            final Transaction transaction = jedis.multi();
+            transaction.set("acl:key", "w");
+            transaction.sendCommand(Protocol.Command.KEYS, "*");
+            try {
+                transaction.exec();
+                fail("transaction should have been aborted");
+            } catch (JedisDataException expected) {
+                assertTrue(expected.getMessage().startsWith("EXECABORT"));
+            }
+            assertFalse(jedis.getConnection().isBroken());
+            jedis.close();
+
+            // 连接的响应没有错位，归还后可以继续使用
+            try (Jedis reused = pool.getResource()) {
+                assertSame(jedis.getConnection(), reused.getConnection());
+                assertEquals("v", reused.get("acl:key"));
+            }
+        }
+    }
+
+    @Test
+    public void testTransaction() {
+        try (Jedis jedis = new Jedis(server.getHostAndPort());
+             Jedis other = new Jedis(server.getHostAndPort())) {
+            jedis.del("tx:counter", "tx:text");
+            jedis.set("tx:text", "abc");
+
+            final Transaction transaction = jedis.multi();
+            final Response<String> set = transaction.set("tx:value", "1");
+            final Response<Long> incr = transaction.incr("tx:counter");
+            final Response<Long> wrongType = transaction.incr("tx:text");
+            final Response<String> get = transaction.get("tx:value");
+            try {
+                jedis.get("tx:value");
+                fail("jedis should not be usable in multi");
+            } catch (IllegalStateException expected) {
+                // 事务还没有执行
+            }
+            final List<Object> results = transaction.exec();
+            assertEquals(4, results.size());
+            assertEquals("OK", set.get());
+            assertEquals(Long.valueOf(1), incr.get());
+            assertEquals("1", get.get());
+            assertTrue(results.get(2) instanceof JedisDataException);
+            try {
+                wrongType.get();
+                fail("INCR on a non-integer value should fail");
+            } catch (JedisDataException expected) {
+                // 执行失败的命令不影响事务中的其他命令
+            }
+
+            // WATCH 的 key 被其他客户端修改，事务不执行
+            assertEquals("OK", jedis.watch("tx:counter"));
+            other.incr("tx:counter");
+            final Transaction watched = jedis.multi();
+            watched.set("tx:counter", "100");
+            assertNull(watched.exec());
+            assertEquals("2", jedis.get("tx:counter"));
+
+            final Transaction discarded = jedis.multi();
+            discarded.set("tx:counter", "100");
+            assertEquals("OK", discarded.discard());
+            assertEquals("2", jedis.get("tx:counter"));
+
+            // 排队时被拒绝的命令使整个事务被丢弃
+            final Transaction aborted = jedis.multi();
+            aborted.set("tx:counter", "100");
+            aborted.sendCommand(() -> SafeEncoder.encode("NOSUCHCOMMAND"), new String[0]);
+            try {
+                aborted.exec();
+                fail("transaction should have been aborted");
+            } catch (JedisDataException expected) {
+                assertTrue(expected.getMessage().startsWith("EXECABORT"));
+            }
+            assertEquals("2", jedis.get("tx:counter"));
+        }
+    }
+
+    @Test
+    public void testScriptRegistry() throws IOException {
+        final ScriptRegistry registry = new ScriptRegistry();
+        final Script script = registry.register("return {KEYS[1], ARGV[1]}");
+        assertSame(script, registry.register("return {KEYS[1], ARGV[1]}"));
+        assertEquals(40, script.getSha1().length());
+
+        try (Jedis jedis = new Jedis(server.getHostAndPort())) {
+            flushScripts(jedis.getConnection());
+            // 服务端没有这个脚本，EVALSHA 返回 NOSCRIPT 后加载脚本并重试：EVALSHA、SCRIPT LOAD、EVALSHA
+            long commands = server.getCommandCount();
+            assertEquals(Arrays.asList(script.getSource(), "script:key", "arg"),
+                    jedis.eval(script, Collections.singletonList("script:key"), Collections.singletonList("arg")));
+            assertEquals(commands + 3, server.getCommandCount());
+            // 已经加载之后只发送一次 EVALSHA
+            commands = server.getCommandCount();
+            jedis.eval(script, Collections.singletonList("script:key"), Collections.singletonList("arg"));
+            assertEquals(commands + 1, server.getCommandCount());
+        }
+
+        // 连接池创建连接时预先加载注册的脚本
+        final ConnectionFactory factory = new ConnectionFactory(server.getHostAndPort());
+        factory.setScriptRegistry(registry);
+        try (ConnectionPool pool = new ConnectionPool(new GenericPoolConfig(), factory)) {
+            try (Connection first = pool.getResource()) {
+                flushScripts(first);
+                // 第一个连接还没有归还，这里创建新的连接
+                final long loads = server.getScriptLoadCount();
+                try (Connection second = pool.getResource()) {
+                    assertEquals(loads + 1, server.getScriptLoadCount());
+                    final long commands = server.getCommandCount();
+                    second.executeCommand(new CommandObject<>(new CommandArguments(Protocol.Command.PING),
+                            BuilderFactory.STRING));
+                    assertEquals(Arrays.asList(script.getSource(), "script:key", "arg"), new Jedis(second)
+                            .eval(script, Collections.singletonList("script:key"), Collections.singletonList("arg")));
+                    assertEquals(commands + 2, server.getCommandCount());
+                }
+            }
+        }
+
+        try (EmbeddedRedisServer nodeA = new EmbeddedRedisServer().start();
+             EmbeddedRedisServer nodeB = new EmbeddedRedisServer().start()) {
+            final HostAndPort a = nodeA.getHostAndPort();
+            final HostAndPort b = nodeB.getHostAndPort();
+            for (EmbeddedRedisServer node : new EmbeddedRedisServer[]{nodeA, nodeB}) {
+                node.assignSlots(0, 8191, a);
+                node.assignSlots(8192, 16383, b);
+            }
+            try (JedisCluster cluster = new JedisCluster(Collections.singleton(a), new GenericPoolConfig(), 5,
+                    registry)) {
+                // EVALSHA 按第一个 key 路由，节点的连接在创建时已经加载了脚本
+                for (String key : new String[]{"foo", "bar"}) {
+                    assertEquals(Arrays.asList(script.getSource(), key, "arg"),
+                            cluster.eval(script, Collections.singletonList(key), Collections.singletonList("arg")));
+                }
+                assertTrue(nodeA.getScriptLoadCount() > 0);
+                assertTrue(nodeB.getScriptLoadCount() > 0);
+            }
+        }
+
+        // 预加载失败不影响连接的创建，脚本执行时才返回错误
+        try (EmbeddedRedisServer denied = new EmbeddedRedisServer().start()) {
+            denied.denyCommand("SCRIPT");
+            final ConnectionFactory deniedFactory = new ConnectionFactory(denied.getHostAndPort());
+            deniedFactory.setScriptRegistry(registry);
+            try (ConnectionPool pool = new ConnectionPool(new GenericPoolConfig(), deniedFactory);
+                 Connection connection = pool.getResource()) {
+                assertEquals(Collections.singletonList(script), registry.preload(connection));
+                assertTrue(connection.ping());
+            }
+
+            final JedisFactory jedisFactory = new JedisFactory(denied.getHostAndPort());
+            jedisFactory.setScriptRegistry(registry);
+            try (JedisPool pool = new JedisPool(new GenericPoolConfig(), jedisFactory);
+                 Jedis jedis = pool.getResource()) {
+                assertEquals("PONG", jedis.ping());
+                try {
+                    jedis.eval(script, Collections.singletonList("script:key"), Collections.singletonList("arg"));
+                    fail("SCRIPT LOAD is denied");
+                } catch (JedisAccessControlException expected) {
+                    // NOSCRIPT 之后加载脚本返回 NOPERM
+                }
+            }
+        }
+    }
+
+    private static void flushScripts(final Connection connection) {
+        assertEquals("OK", connection.executeCommand(new CommandObject<>(
+                new CommandArguments(Protocol.Command.SCRIPT).add("FLUSH"), BuilderFactory.STRING)));
+    }
+
+    @Test
+    public void testValueCompression() {
+        final StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < 1000; i++) {
+            json.append("{\"id\":").append(i).append(",\"name\":\"user-").append(i).append("\",\"active\":true},");
+        }
+        final byte[] value = SafeEncoder.encode(json.append("{}]").toString());
+        final byte[] key = SafeEncoder.encode("codec:json");
+        final byte[] small = SafeEncoder.encode("small");
+        final byte[] magic = new byte[]{(byte) 0xF5, 'J', 'Z', 1, 0};
+
+        try (Jedis jedis = new Jedis(server.getHostAndPort());
+             Jedis plain = new Jedis(server.getHostAndPort())) {
+            jedis.setValueCodec(new DeflateValueCodec());
+            assertEquals("OK", jedis.set(key, value));
+            assertArrayEquals(value, jedis.get(key));
+            // Redis 中保存的是带头的压缩数据
+            final byte[] stored = plain.get(key);
+            assertEquals((byte) 0xF5, stored[0]);
+            assertTrue(stored.length * 5 < value.length);
+
+            // 没有经过编码的值原样读取
+            plain.set(key, value);
+            assertArrayEquals(value, jedis.get(key));
+            jedis.set(key, small);
+            assertArrayEquals(small, plain.get(key));
+            // 恰好以魔数开始的值不会被误认为压缩过的值
+            jedis.set(key, magic);
+            assertArrayEquals(magic, jedis.get(key));
+
+            final Pipeline pipeline = jedis.pipelined();
+            pipeline.set(key, value);
+            final Response<byte[]> get = pipeline.get(key);
+            pipeline.sync();
+            assertArrayEquals(value, get.get());
+
+            // 头中声明的长度超过限制或者超过压缩数据能容纳的长度时不会按这个长度分配内存
+            plain.set(key, new byte[]{(byte) 0xF5, 'J', 'Z', 1, 0x7F, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0, 0});
+            try {
+                jedis.get(key);
+                fail("declared length exceeds the compression ratio");
+            } catch (JedisDataException expected) {
+                // 损坏的数据
+            }
+            jedis.set(key, value);
+            jedis.setValueCodec(new DeflateValueCodec(DeflateValueCodec.DEFAULT_THRESHOLD, 1, value.length - 1));
+            try {
+                jedis.get(key);
+                fail("declared length exceeds maxValueLength");
+            } catch (JedisDataException expected) {
+                // 超过限制
+            }
+
+            // 连接池中的 Jedis 使用 JedisFactory 上设置的编解码
+            final JedisFactory factory = new JedisFactory(server.getHostAndPort());
+            factory.setValueCodec(new DeflateValueCodec());
+            try (JedisPool pool = new JedisPool(new GenericPoolConfig(), factory);
+                 Jedis pooled = pool.getResource()) {
+                pooled.set(key, value);
+                assertArrayEquals(value, pooled.get(key));
+                assertTrue(plain.get(key).length * 5 < value.length);
+            }
+        }
+    }
+
+    @Test
+    public void testStreamingBulkReply() {
+        final byte[] key = SafeEncoder.encode("stream:large");
+        final byte[] value = new byte[200 * 1024];
+        for (int i = 0; i < value.length; i++) {
+            value[i] = (byte) i;
+        }
+        try (Jedis jedis = new Jedis(server.getHostAndPort())) {
+            jedis.set(key, value);
+            jedis.del("stream:missing");
+            final byte[] missing = SafeEncoder.encode("stream:missing");
+
+            // 值不存在时返回 -1，不写入任何数据
+            final ByteArrayOutputStream nil = new ByteArrayOutputStream();
+            assertEquals(-1, jedis.get(missing, nil));
+            assertEquals(0, nil.size());
+            assertEquals(-1, jedis.get(missing, Channels.newChannel(nil)));
+            final ByteBuffer empty = ByteBuffer.allocate(16);
+            assertEquals(-1, jedis.get(missing, empty));
+            assertEquals(0, empty.position());
+
+            // 超过读缓冲区的值分多次写出
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            assertEquals(value.length, jedis.get(key, out));
+            assertArrayEquals(value, out.toByteArray());
+            final ByteArrayOutputStream channelOut = new ByteArrayOutputStream();
+            assertEquals(value.length, jedis.get(key, Channels.newChannel(channelOut)));
+            assertArrayEquals(value, channelOut.toByteArray());
+            final ByteBuffer dst = ByteBuffer.allocate(value.length + 10);
+            dst.position(5);
+            assertEquals(value.length, jedis.get(key, dst));
+            assertEquals(value.length + 5, dst.position());
+            assertArrayEquals(value, Arrays.copyOfRange(dst.array(), 5, value.length + 5));
+            assertEquals("PONG", jedis.ping());
+
+            // ByteBuffer 放不下时丢弃整个响应，连接仍然可用
+            final ByteBuffer full = ByteBuffer.allocate(1024);
+            try {
+                jedis.get(key, full);
+                fail("value should not fit into the buffer");
+            } catch (JedisDataException expected) {
+                assertEquals(0, full.position());
+            }
+            assertFalse(jedis.getConnection().isBroken());
+            assertEquals("PONG", jedis.ping());
+
+            // 超过 maxBulkReplySize 的响应同样被丢弃
+            jedis.getConnection().setMaxBulkReplySize(1024);
+            final ByteArrayOutputStream limited = new ByteArrayOutputStream();
+            try {
+                jedis.get(key, limited);
+                fail("value should exceed maxBulkReplySize");
+            } catch (JedisDataException expected) {
+                assertEquals(0, limited.size());
+            }
+            assertFalse(jedis.getConnection().isBroken());
+            assertEquals("PONG", jedis.ping());
+            jedis.getConnection().setMaxBulkReplySize(Long.MAX_VALUE);
+
+            // 错误响应照常抛出，连接仍然可用
+            try {
+                jedis.getConnection().sendCommand(new CommandArguments(Protocol.Command.INCR).add(key));
+                jedis.getConnection().getBulkReply(new ByteArrayOutputStream());
+                fail("INCR on a non-integer value should fail");
+            } catch (JedisDataException expected) {
+                assertTrue(expected.getMessage().startsWith("ERR"));
+            }
+            assertEquals("PONG", jedis.ping());
+        }
+
+        // 写出目标失败时响应只读了一部分，连接被标记为断开
+        try (Jedis jedis = new Jedis(server.getHostAndPort())) {
+            final OutputStream failing = new OutputStream() {
+                private int written;
+
+                @Override
+                public void write(int b) throws IOException {
+                    write(new byte[]{(byte) b}, 0, 1);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    written += len;
+                    if (written > 1024) {
+                        throw new IOException("disk full");
+                    }
+                }
+            };
+            try {
+                jedis.get(key, failing);
+                fail("output stream failure should be reported");
+            } catch (JedisException expected) {
+                assertTrue(expected.getCause() instanceof IOException);
+            }
+            assertTrue(jedis.getConnection().isBroken());
+        }
+    }
+
+    @Test
+    public void testReplyVisitor() {
+        try (Jedis jedis = new Jedis(server.getHostAndPort())) {
+            jedis.set("visitor:a", "1");
+            jedis.del("visitor:b");
+            final StringBuilder events = new StringBuilder();
+            final Connection connection = jedis.getConnection();
+            connection.sendCommand(new CommandArguments(Protocol.Command.MGET).key("visitor:a").key("visitor:b"));
+            connection.readReply(new ReplyVisitor() {
+                @Override
+                public void onStatus(byte[] buf, int off, int len) {
+                    events.append("status ");
+                }
+
+                @Override
+                public void onInteger(long value) {
+                    events.append("integer ");
+                }
+
+                @Override
+                public void onBulk(byte[] buf, int off, int len) {
+                    events.append("bulk:").append(new String(buf, off, len)).append(' ');
+                }
+
+                @Override
+                public void onNull() {
+                    events.append("null ");
+                }
+
+                @Override
+                public void onArrayStart(int length) {
+                    events.append("array:").append(length).append(' ');
+                }
+
+                @Override
+                public void onError(RuntimeException error) {
+                    events.append("error ");
+                }
+            });
+            assertEquals("array:2 bulk:1 null ", events.toString());
+
+            connection.sendCommand(Protocol.Command.PING);
+            assertTrue(connection.readStatusEquals(Protocol.BYTES_PONG));
+            assertEquals(2, jedis.incr("visitor:a"));
+        }
+    }
+
+    @Test
+    public void testChannelTransport() {
+        final Connection connection = new Connection(new DefaultJedisChannelFactory(server.getHostAndPort()));
+        try (Jedis jedis = new Jedis(connection)) {
+            final byte[] key = "channel:large".getBytes();
+            final byte[] value = new byte[100 * 1024];
+            Arrays.fill(value, (byte) 'v');
+            assertEquals("OK", jedis.set(key, value));
+            assertArrayEquals(value, jedis.get(key));
+            assertEquals("PONG", jedis.ping());
+        }
+    }
+
+    @Test
+    public void testUnixDomainSocket() throws IOException {
+        assumeTrue(UnixDomainSockets.isSupported());
+        final Path dir = Files.createTempDirectory("jedis");
+        final Path path = dir.resolve("redis.sock");
+        try (EmbeddedRedisServer unixServer = new EmbeddedRedisServer().startUnixSocket(path)) {
+            final UnixDomainSocketFactory factory = new UnixDomainSocketFactory(path);
+            try (Jedis jedis = new Jedis(new Connection(factory))) {
+                final byte[] value = new byte[300 * 1024];
+                Arrays.fill(value, (byte) 'u');
+                assertEquals("OK", jedis.set("unix:large".getBytes(), value));
+                assertArrayEquals(value, jedis.get("unix:large".getBytes()));
+                final Pipeline pipeline = jedis.pipelined();
+                for (int i = 0; i < 100; i++) {
+                    pipeline.incr("unix:counter");
+                }
+                pipeline.sync();
+                assertEquals("100", jedis.get("unix:counter"));
+            }
+
+            // 读超时和 TCP 连接一样生效
+            factory.setSocketTimeout(200);
+            unixServer.setLatency("PING", 1, TimeUnit.SECONDS);
+            try (Connection connection = new Connection(factory)) {
+                connection.connect();
+                assertEquals(path.toString(), connection.getHostAndPort().getHost());
+                try {
+                    connection.ping();
+                    fail("read should have timed out");
+                } catch (JedisConnectionException expected) {
+                    assertTrue(connection.isBroken());
+                }
+            }
+        } finally {
+            Files.deleteIfExists(dir);
+        }
+    }
+
+    @Test
+    public void testBufferPool() {
+        final BufferPool bufferPool = new BufferPool(1024, 1024 * 1024, 4 * 1024 * 1024);
+        final Connection connection = new Connection(server.getHostAndPort());
+        connection.setBufferPool(bufferPool);
+        try (Jedis jedis = new Jedis(connection)) {
+            final byte[] value = new byte[300 * 1024];
+            Arrays.fill(value, (byte) 'p');
+            jedis.set("buffer:large".getBytes(), value);
+            assertArrayEquals(value, jedis.get("buffer:large".getBytes()));
+            assertEquals("PONG", jedis.ping());
+            // 命令之间连接不持有缓冲区，读写缓冲区都已经归还
+            assertTrue(bufferPool.getPooledBytes() > 0);
+            assertTrue(bufferPool.getReusedCount() > 0);
+        }
+    }
+
+    @Test
+    public void testMetrics() {
+        final DefaultMetricsRegistry registry = new DefaultMetricsRegistry();
+        final Connection connection = new Connection(server.getHostAndPort());
+        connection.setMetricsRegistry(registry);
+        try (Jedis jedis = new Jedis(connection)) {
+            jedis.set("metrics", "value");
+            assertEquals("value", jedis.get("metrics"));
+            final Pipeline pipeline = jedis.pipelined();
+            for (int i = 0; i < 100; i++) {
+                pipeline.incr("metrics:counter");
+            }
+            pipeline.sync();
+        }
+        assertEquals(1, registry.getConnectLatency().getCount());
+        assertEquals(1, registry.getCommandLatency(Protocol.Command.SET).getCount());
+        assertEquals(1, registry.getCommandLatency(Protocol.Command.GET).getCount());
+        assertEquals(100, registry.getCommandLatency(Protocol.Command.INCR).getCount());
+        assertTrue(registry.getBytesWritten() > 0);
+        assertTrue(registry.getBytesRead() > 0);
+        assertTrue(registry.getNetworkNanos() > 0);
+        assertEquals(0, registry.getBrokenConnections());
+
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        // 每个桶的相对误差不超过 1/32
+        assertEquals(500_000, histogram.getValueAtPercentile(50), 500_000 / 32.0);
+        assertEquals(990_000, histogram.getValueAtPercentile(99), 990_000 / 32.0);
+        assertEquals(1_000_000, histogram.getMax());
+    }
+
+    @Test
+    public void testSlowCommandLog() throws Exception {
+        try (EmbeddedRedisServer slow = new EmbeddedRedisServer().start();
+             SlowCommandLog slowLog = new SlowCommandLog(20, TimeUnit.MILLISECONDS)) {
+            slow.setLatency("GET", 50, TimeUnit.MILLISECONDS);
+            final Connection connection = new Connection(slow.getHostAndPort());
+            connection.addInterceptor(slowLog);
+            try (Jedis jedis = new Jedis(connection)) {
+                jedis.set("slow", "value");
+                assertEquals("value", jedis.get("slow"));
+                assertEquals("PONG", jedis.ping());
+            }
+
+            // 记录由后台线程写入
+            final long deadline = System.currentTimeMillis() + 5000;
+            while (slowLog.getEntries().isEmpty() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            final List<SlowCommandLog.Entry> entries = slowLog.getEntries();
+            assertEquals(1, entries.size());
+            assertEquals("GET", entries.get(0).getCommandName());
+            assertArrayEquals(new int[]{4}, entries.get(0).getArgumentSizes());
+            assertEquals(slow.getPort(), entries.get(0).getHostAndPort().getPort());
+            assertTrue(entries.get(0).getElapsedNanos() >= TimeUnit.MILLISECONDS.toNanos(50));
+        }
+    }
+
+    @Test
+    public void testPoolWarmUp() throws Exception {
+        final long connections = server.getConnectionCount();
+        try (JedisPool pool = new JedisPool(new JedisPoolConfig(), server.getHostAndPort())) {
+            assertEquals(4, pool.warmUp(4, 5, TimeUnit.SECONDS));
+            assertEquals(4, pool.getNumIdle());
+            assertEquals(connections + 4, server.getConnectionCount());
+            try (Jedis jedis = pool.getResource()) {
+                assertEquals("PONG", jedis.ping());
+            }
+            // 借用预热好的连接，不再新建
+            assertEquals(4, pool.getCreatedCount());
+        }
+    }
+
+    @Test
+    public void testDnsCache() throws Exception {
+        final InetAddress loopback = InetAddress.getByName("127.0.0.1");
+        final AtomicInteger lookups = new AtomicInteger();
+        final AtomicBoolean failing = new AtomicBoolean();
+        final DnsCache dnsCache = new DnsCache(100, TimeUnit.MILLISECONDS) {
+            @Override
+            protected InetAddress[] lookup(final String host) throws UnknownHostException {
+                lookups.incrementAndGet();
+                if (failing.get()) {
+                    throw new UnknownHostException(host);
+                }
+                return new InetAddress[]{loopback};
+            }
+        };
+
+        // TTL 之内使用缓存，过期之后重新解析
+        final List<InetAddress> resolved = dnsCache.resolve("redis.test");
+        assertSame(resolved, dnsCache.resolve("redis.test"));
+        assertEquals(1, lookups.get());
+        Thread.sleep(150);
+        assertEquals(Collections.singletonList(loopback), dnsCache.resolve("redis.test"));
+        assertEquals(2, lookups.get());
+
+        // 解析失败时继续使用过期的结果，失败本身不缓存
+        final List<InetAddress> stale = dnsCache.resolve("redis.test");
+        Thread.sleep(150);
+        failing.set(true);
+        assertSame(stale, dnsCache.resolve("redis.test"));
+        assertSame(stale, dnsCache.resolve("redis.test"));
+        assertEquals(4, lookups.get());
+        try {
+            dnsCache.resolve("other.test");
+            fail("lookup without a previous result should fail");
+        } catch (UnknownHostException expected) {
+            // 没有可以使用的旧结果
+        }
+        failing.set(false);
+
+        // 连接解析出的地址都失败之后丢弃缓存，下次连接重新解析
+        final int closedPort;
+        try (ServerSocket socket = new ServerSocket(0, 1, loopback)) {
+            closedPort = socket.getLocalPort();
+        }
+        final DefaultJedisSocketFactory factory = new DefaultJedisSocketFactory(
+                new HostAndPort("redis.test", closedPort));
+        factory.setDnsCache(dnsCache);
+        dnsCache.resolve("redis.test");
+        final int before = lookups.get();
+        for (int i = 1; i <= 2; i++) {
+            try {
+                factory.createSocket();
+                fail("nothing listens on port " + closedPort);
+            } catch (JedisConnectionException expected) {
+                assertEquals(before + i - 1, lookups.get());
+            }
+        }
+    }
+
+    @Test
+    public void testHappyEyeballsConnect() throws IOException {
+        // 127.0.0.2 上的监听队列被占满，新的连接会一直等到超时。
+        // 需要能绑定 127.0.0.2（macOS 默认没有这个地址），并且队列满时丢弃 SYN 而不是回复 RST（Linux 的行为）
+        final InetAddress blackHole = InetAddress.getByName("127.0.0.2");
+        final ServerSocket full;
+        try {
+            full = new ServerSocket(server.getPort(), 1, blackHole);
+        } catch (IOException e) {
+            assumeTrue("cannot bind " + blackHole + ": " + e, false);
+            return;
+        }
+        final List<Socket> backlog = new ArrayList<>();
+        try {
+            boolean blackHoled = false;
+            for (int i = 0; i < 10 && !blackHoled; i++) {
+                final Socket socket = new Socket();
+                backlog.add(socket);
+                try {
+                    socket.connect(new InetSocketAddress(blackHole, server.getPort()), 200);
+                } catch (SocketTimeoutException e) {
+                    blackHoled = true;
+                } catch (IOException e) {
+                    // 队列满时直接拒绝连接，无法模拟不响应的地址
+                    break;
+                }
+            }
+            assumeTrue("a full backlog on " + blackHole + " does not drop SYNs", blackHoled);
+
+            final DnsCache dnsCache = new DnsCache(1, TimeUnit.MINUTES) {
+                @Override
+                public List<InetAddress> resolve(final String host) throws UnknownHostException {
+                    return Arrays.asList(blackHole, InetAddress.getByName("127.0.0.1"));
+                }
+            };
+            final DefaultJedisSocketFactory factory = new DefaultJedisSocketFactory(
+                    new HostAndPort("redis.test", server.getPort()));
+            factory.setDnsCache(dnsCache);
+            factory.setHappyEyeballsDelay(50);
+            for (int i = 0; i < 4; i++) {
+                final long start = System.nanoTime();
+                try (Connection connection = new Connection(factory)) {
+                    assertTrue(connection.ping());
+                }
+                assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(Protocol.DEFAULT_TIMEOUT / 2));
+            }
+        } finally {
+            for (Socket socket : backlog) {
+                socket.close();
+            }
+            full.close();
+        }
+    }
+
+    @Test
+    public void testReplyCursor() {
+        final List<Long> completed = new ArrayList<>();
+        final Connection connection = new Connection(server.getHostAndPort());
+        connection.addInterceptor(new CommandInterceptor() {
+            @Override
+            public void afterCommand(final Connection connection, final CommandArguments args,
+                                     final long elapsedNanos) {
+                completed.add(elapsedNanos);
+            }
+        });
+        try (Jedis jedis = new Jedis(connection)) {
+            for (int i = 0; i < 1000; i++) {
+                jedis.set("cursor:" + i, String.valueOf(i));
+            }
+            int count = 0;
+            try (ReplyCursor cursor = jedis.sendCommandCursor(Protocol.Command.KEYS, "cursor:*")) {
+                assertEquals(1000, cursor.size());
+                while (cursor.hasNext()) {
+                    assertTrue(new String((byte[]) cursor.next()).startsWith("cursor:"));
+                    count++;
+                }
+            }
+            assertEquals(1000, count);
+
+            // 只读一部分就关闭，剩余的元素被跳过，连接可以继续使用
+            final int commands = completed.size();
+            final ReplyCursor partial = jedis.sendCommandCursor(Protocol.Command.KEYS, "cursor:*");
+            partial.next();
+            try {
+                jedis.ping();
+                fail("connection should be busy while the cursor is open");
+            } catch (IllegalStateException expected) {
+                // 游标还没有读完
+            }
+            // 游标关闭之后响应才算读完
+            assertEquals(commands, completed.size());
+            partial.close();
+            assertEquals(commands + 1, completed.size());
+            assertEquals("PONG", jedis.ping());
+        }
+    }
+
+    @Test
+    public void testScanStream() {
+        try (Jedis jedis = new Jedis(server.getHostAndPort())) {
+            for (int i = 0; i < 100; i++) {
+                jedis.set("scan:" + i, String.valueOf(i));
+            }
+            try (Stream<String> keys = jedis.scanStream("scan:*", 7)) {
+                assertEquals(100, keys.distinct().count());
+            }
+
+            // 提前结束时关闭流，预取的请求被读掉，连接可以继续使用
+            final Stream<String> partial = jedis.scanStream("scan:*", 7);
+            assertTrue(partial.findFirst().isPresent());
+            try {
+                jedis.ping();
+                fail("connection should be busy while the scan stream is open");
+            } catch (IllegalStateException expected) {
+                // 下一页的请求已经发出
+            }
+            partial.close();
+            assertEquals("PONG", jedis.ping());
+        }
+    }
+
+    @Test
+    public void testReplicaReads() throws IOException {
+        try (EmbeddedRedisServer primary = new EmbeddedRedisServer().start();
+             EmbeddedRedisServer replicaA = new EmbeddedRedisServer().start();
+             EmbeddedRedisServer replicaB = new EmbeddedRedisServer().start()) {
+            primary.setReplicationInfo(replicationInfo(100, replicaA, 100, replicaB, 100));
+            for (EmbeddedRedisServer node : new EmbeddedRedisServer[]{primary, replicaA, replicaB}) {
+                try (Jedis jedis = new Jedis(node.getHostAndPort())) {
+                    jedis.set("role", node == primary ? "primary" : "replica");
+                }
+            }
+
+            try (JedisMasterReplica client = new JedisMasterReplica(primary.getHostAndPort(), new JedisPoolConfig(),
+                    60_000)) {
+                assertEquals(2, client.getReadableReplicas().size());
+                for (int i = 0; i < 20; i++) {
+                    assertEquals("replica", client.get("role"));
+                }
+                // 写命令发给主节点
+                assertEquals("OK", client.set("written", "1"));
+                try (Jedis jedis = new Jedis(primary.getHostAndPort())) {
+                    assertEquals("1", jedis.get("written"));
+                }
+
+                // A 落后太多，只从 B 读取
+                client.setMaxReplicationLag(1024);
+                primary.setReplicationInfo(replicationInfo(10_000, replicaA, 0, replicaB, 10_000));
+                client.refreshReplicas();
+                assertEquals(Collections.singletonList(replicaB.getHostAndPort()), client.getReadableReplicas());
+
+                // 没有可用的从节点时读取主节点
+                primary.setReplicationInfo(replicationInfo(10_000, replicaA, 0, replicaB, 0));
+                client.refreshReplicas();
+                assertEquals("primary", client.get("role"));
+            }
+        }
+    }
+
+    @Test
+    public void testReplicaRemovedDuringReads() throws Exception {
+        try (EmbeddedRedisServer primary = new EmbeddedRedisServer().start();
+             EmbeddedRedisServer replicaA = new EmbeddedRedisServer().start();
+             EmbeddedRedisServer replicaB = new EmbeddedRedisServer().start()) {
+            final String withReplicas = replicationInfo(100, replicaA, 100, replicaB, 100);
+            final String withoutReplicas = "# Replication\r\nrole:master\r\nconnected_slaves:0\r\n"
+                    + "master_repl_offset:100\r\n";
+            primary.setReplicationInfo(withReplicas);
+            for (EmbeddedRedisServer node : new EmbeddedRedisServer[]{primary, replicaA, replicaB}) {
+                try (Jedis jedis = new Jedis(node.getHostAndPort())) {
+                    jedis.set("role", node == primary ? "primary" : "replica");
+                }
+            }
+
+            try (JedisMasterReplica client = new JedisMasterReplica(primary.getHostAndPort(), new JedisPoolConfig(),
+                    60_000)) {
+                final AtomicBoolean running = new AtomicBoolean(true);
+                final List<Throwable> errors = new CopyOnWriteArrayList<>();
+                final Thread[] readers = new Thread[4];
+                for (int t = 0; t < readers.length; t++) {
+                    readers[t] = new Thread(() -> {
+                        while (running.get()) {
+                            try {
+                                final String role = client.get("role");
+                                if (!"replica".equals(role) && !"primary".equals(role)) {
+                                    errors.add(new AssertionError("unexpected reply " + role));
+                                }
+                            } catch (Throwable e) {
+                                errors.add(e);
+                            }
+                        }
+                    });
+                    readers[t].start();
+                }
+
+                // 从节点反复被移除和加入，移除时会关闭它的连接池，已经选中它的读取应改为读取主节点
+                for (int round = 0; round < 200; round++) {
+                    primary.setReplicationInfo(round % 2 == 0 ? withoutReplicas : withReplicas);
+                    client.refreshReplicas();
+                    Thread.sleep(2);
+                }
+
+                running.set(false);
+                for (Thread reader : readers) {
+                    reader.join();
+                }
+                assertTrue("reads failed while replicas were removed: " + errors, errors.isEmpty());
+            }
+        }
+    }
+
+    @Test
+    public void testReplicaPoolExhausted() throws Exception {
+        try (EmbeddedRedisServer primary = new EmbeddedRedisServer().start();
+             EmbeddedRedisServer replica = new EmbeddedRedisServer().start()) {
+            primary.setReplicationInfo("# Replication\r\nrole:master\r\nconnected_slaves:1\r\n"
+                    + "slave0:ip=" + replica.getHostAndPort().getHost() + ",port=" + replica.getPort()
+                    + ",state=online,offset=100,lag=0\r\nmaster_repl_offset:100\r\n");
+            for (EmbeddedRedisServer node : new EmbeddedRedisServer[]{primary, replica}) {
+                try (Jedis jedis = new Jedis(node.getHostAndPort())) {
+                    jedis.set("role", node == primary ? "primary" : "replica");
+                }
+            }
+
+            final JedisPoolConfig poolConfig = new JedisPoolConfig();
+            poolConfig.setMaxTotal(1);
+            poolConfig.setMaxWaitMillis(200);
+            final ExecutorService executor = Executors.newSingleThreadExecutor();
+            try (JedisMasterReplica client = new JedisMasterReplica(primary.getHostAndPort(), poolConfig, 60_000)) {
+                assertEquals("replica", client.get("role"));
+
+                // 唯一的连接被慢读取占用，连接池耗尽时改为读取主节点
+                replica.setLatency("GET", 1000, TimeUnit.MILLISECONDS);
+                final Future<String> slow;
+                try {
+                    slow = executor.submit(() -> client.get("role"));
+                    Thread.sleep(100);
+                    assertEquals("primary", client.get("role"));
+                    // 在下次刷新之前不再选择这个从节点，不用等待连接池
+                    final long start = System.nanoTime();
+                    assertEquals("primary", client.get("role"));
+                    assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(150));
+                    assertEquals("replica", slow.get(5, TimeUnit.SECONDS));
+                } finally {
+                    replica.setLatency("GET", 0, TimeUnit.MILLISECONDS);
+                }
+
+                client.refreshReplicas();
+                assertEquals("replica", client.get("role"));
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    private static String replicationInfo(final long primaryOffset, final EmbeddedRedisServer replicaA,
+                                          final long offsetA, final EmbeddedRedisServer replicaB, final long offsetB) {
+        return "# Replication\r\nrole:master\r\nconnected_slaves:2\r\n"
+                + "slave0:ip=" + replicaA.getHostAndPort().getHost() + ",port=" + replicaA.getPort()
+                + ",state=online,offset=" + offsetA + ",lag=0\r\n"
+                + "slave1:ip=" + replicaB.getHostAndPort().getHost() + ",port=" + replicaB.getPort()
+                + ",state=online,offset=" + offsetB + ",lag=0\r\n"
+                + "master_repl_offset:" + primaryOffset + "\r\n";
+    }
+
+    @Test
+    public void testTlsSessionResumption() throws Exception {
+        final SSLContext sslContext = sslContext();
+        try (EmbeddedRedisServer tlsServer = new EmbeddedRedisServer().useTls(sslContext).start()) {
+            final JedisClientConfig config = JedisClientConfig.builder()
+                    .sslContext(sslContext)
+                    .tlsSessionTimeoutSeconds(300)
+                    .build();
+            assertTrue(config.isSsl());
+            assertSame(config.getSslSocketFactory(), config.getSslSocketFactory());
+
+            final DefaultMetricsRegistry registry = new DefaultMetricsRegistry();
+            final DefaultJedisSocketFactory factory = new DefaultJedisSocketFactory(
+                    new HostAndPort("localhost", tlsServer.getPort()), config);
+            factory.setMetricsRegistry(registry);
+            for (int i = 0; i < 4; i++) {
+                try (Connection connection = new Connection(factory)) {
+                    assertTrue(connection.ping());
+                }
+            }
+            // 第一次完整握手，之后都恢复缓存的会话
+            assertEquals(4, registry.getTlsHandshakeLatency().getCount());
+            assertEquals(3, registry.getResumedTlsHandshakes());
+
+            try (Connection connection = new Connection(tlsServer.getHostAndPort(), config)) {
+                assertTrue(connection.ping());
+            }
+        }
+    }
+
+    /**
+     * 服务端和客户端使用同一个自签名证书
+     */
+    private static SSLContext sslContext() throws Exception {
+        final KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        try (InputStream in = JedisTest.class.getResourceAsStream("/embedded-redis.p12")) {
+            keyStore.load(in, "changeit".toCharArray());
+        }
+        final KeyManagerFactory keyManagers = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keyManagers.init(keyStore, "changeit".toCharArray());
+        final TrustManagerFactory trustManagers = TrustManagerFactory.getInstance(
+                TrustManagerFactory.getDefaultAlgorithm());
+        trustManagers.init(keyStore);
+        final SSLContext sslContext = SSLContext.getInstance("TLS");
+        sslContext.init(keyManagers.getKeyManagers(), trustManagers.getTrustManagers(), null);
+        return sslContext;
+    }
+
+    @Test
+    public void testConnectionReset() throws IOException {
+        try (EmbeddedRedisServer faulty = new EmbeddedRedisServer().start();
+             Jedis jedis = new Jedis(faulty.getHostAndPort())) {
+            faulty.setResetAfterCommands(1);
+            assertEquals("PONG", jedis.ping());
+            try {
+                jedis.ping();
+                fail("connection should have been reset");
+            } catch (JedisConnectionException expected) {
+                // 服务端重置了连接
+            }
+        }
+    }
+
+    @Test
+    public void testClusterRedirect() throws IOException {
+        try (EmbeddedRedisServer nodeA = new EmbeddedRedisServer().start();
+             EmbeddedRedisServer nodeB = new EmbeddedRedisServer().start()) {
+            final HostAndPort a = nodeA.getHostAndPort();
+            final HostAndPort b = nodeB.getHostAndPort();
+            for (EmbeddedRedisServer node : new EmbeddedRedisServer[]{nodeA, nodeB}) {
+                node.assignSlots(0, 8191, a);
+                node.assignSlots(8192, 16383, b);
+            }
+
+            final Set<HostAndPort> nodes = new HashSet<>();
+            nodes.add(a);
+            try (JedisCluster cluster = new JedisCluster(nodes)) {
+                assertEquals("OK", cluster.set("foo", "bar"));
+                assertEquals("bar", cluster.get("foo"));
+
+                // 槽迁移到 A 之后，客户端收到 MOVED 并重新路由
+                final int slot = JedisClusterCRC16.getSlot("foo");
+                nodeA.assignSlots(slot, slot, a);
+                nodeB.assignSlots(slot, slot, a);
+                assertEquals("OK", cluster.set("foo", "baz"));
+                assertEquals("baz", cluster.get("foo"));
+
+                // 每个节点各自扫描，并行流在不同线程中同时扫描两个节点
+                for (int i = 0; i < 50; i++) {
+                    cluster.set("node:" + i, String.valueOf(i));
+                }
+                try (Stream<String> keys = cluster.scanStream("node:*", 5).parallel()) {
+                    assertEquals(50, keys.distinct().count());
+                }
+
+                // 槽正在迁回 B，收到 ASK 后这一次请求发给 B
+                nodeA.migrateSlot(slot, b);
+                assertEquals("bar", cluster.get("foo"));
+            }
+        }
+    }
+
+    @Test
+    public void testClusterTopologyRefreshUnderLoad() throws Exception {
+        try (EmbeddedRedisServer nodeA = new EmbeddedRedisServer().start();
+             EmbeddedRedisServer nodeB = new EmbeddedRedisServer().start()) {
+            final HostAndPort a = nodeA.getHostAndPort();
+            final HostAndPort b = nodeB.getHostAndPort();
+            for (EmbeddedRedisServer node : new EmbeddedRedisServer[]{nodeA, nodeB}) {
+                node.assignSlots(0, 8191, a);
+                node.assignSlots(8192, 16383, b);
+            }
+
+            // 拓扑翻转很频繁，MOVED 来回跳转需要更多的尝试次数
+            try (JedisCluster cluster = new JedisCluster(Collections.singleton(a), new GenericPoolConfig(), 50)) {
+                final JedisClusterInfoCache cache = cluster.getClusterInfoCache();
+                // 取到的连接池刚好被关闭：重新查找连接池，不应直接失败
+                String key = "closed";
+                for (int i = 0; JedisClusterCRC16.getSlot(key) < 8192; i++) {
+                    key = "closed:" + i;
+                }
+                final int slot = JedisClusterCRC16.getSlot(key);
+                cache.getSlotPool(slot).close();
+                assertEquals("OK", cluster.set(key, "v"));
+                assertFalse(cache.getSlotPool(slot).isClosed());
+
+                final AtomicBoolean running = new AtomicBoolean(true);
+                final List<Throwable> errors = new CopyOnWriteArrayList<>();
+                final Thread[] workers = new Thread[8];
+                for (int t = 0; t < workers.length; t++) {
+                    final int id = t;
+                    workers[t] = new Thread(() -> {
+                        int i = 0;
+                        while (running.get()) {
+                            try {
+                                final String churnKey = "churn:" + id + ":" + (i++ % 64);
+                                cluster.set(churnKey, "v");
+                                cluster.get(churnKey);
+                            } catch (Throwable e) {
+                                errors.add(e);
+                            }
+                        }
+                    });
+                    workers[t].start();
+                }
+
+                // B 反复上下线，刷新拓扑时会关闭 B 的连接池，正在借用它的线程应当重新路由而不是失败
+                for (int round = 0; round < 40; round++) {
+                    final HostAndPort owner = round % 2 == 0 ? a : b;
+                    for (EmbeddedRedisServer node : new EmbeddedRedisServer[]{nodeA, nodeB}) {
+                        node.assignSlots(8192, 16383, owner);
+                    }
+                    cache.renewClusterSlots();
+                    Thread.sleep(10);
+                }
 
-        // 验证连接，如果返回 PONG 表示连接成功
-        System.out.println("Connection successful: " + jedis.ping());
+                running.set(false);
+                for (Thread worker : workers) {
+                    worker.join();
+                }
+                assertTrue("commands failed during topology refresh: " + errors, errors.isEmpty());
+            }
+        }
     }
 }
@@ -0,0 +1,245 @@
+package com.wangguangwu;
+
+import org.junit.Test;
+import redis.clients.jedis.exceptions.JedisExhaustedPoolException;
+import redis.clients.jedis.util.GenericPoolConfig;
+import redis.clients.jedis.util.Pool;
+import redis.clients.jedis.util.PooledObjectFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * {@link Pool} 的并发借还、耗尽等待和空闲检测，池中的对象不需要连接 Redis
+ *
+ * @author wangguangwu
+ */
+public class PoolTest {
+
+    @Test
+    public void testConcurrentBorrowAndReturn() throws Exception {
+        final GenericPoolConfig config = new GenericPoolConfig();
+        config.setMaxTotal(4);
+        final CountingFactory factory = new CountingFactory();
+        final Set<Item> inUse = ConcurrentHashMap.newKeySet();
+        final AtomicInteger maxInUse = new AtomicInteger();
+        final AtomicBoolean handedOutTwice = new AtomicBoolean();
+        final int threads = 16;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try (Pool<Item> pool = new Pool<>(config, factory)) {
+            final CountDownLatch start = new CountDownLatch(1);
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    final ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < 2000; i++) {
+                        final Item item = pool.getResource();
+                        if (!inUse.add(item)) {
+                            handedOutTwice.set(true);
+                        }
+                        maxInUse.accumulateAndGet(inUse.size(), Math::max);
+                        if (random.nextInt(4) == 0) {
+                            Thread.yield();
+                        }
+                        inUse.remove(item);
+                        // 少量对象作为损坏的对象归还，触发销毁和重新创建
+                        if (random.nextInt(20) == 0) {
+                            pool.returnBrokenResource(item);
+                        } else {
+                            pool.returnResource(item);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+
+            assertFalse(handedOutTwice.get());
+            assertTrue(maxInUse.get() <= 4);
+            assertTrue(factory.maxLive.get() <= 4);
+            assertEquals(0, pool.getNumActive());
+            assertEquals(threads * 2000, pool.getBorrowedCount());
+            assertEquals(factory.created.get() - factory.destroyed.get(), pool.getNumIdle());
+            assertTrue(factory.destroyed.get() > 0);
+        } finally {
+            executor.shutdownNow();
+        }
+        // 关闭后空闲对象都被销毁
+        assertEquals(0, factory.live.get());
+    }
+
+    @Test
+    public void testExhaustedPool() throws Exception {
+        final GenericPoolConfig config = new GenericPoolConfig();
+        config.setMaxTotal(1);
+        config.setMaxWaitMillis(50);
+        final CountingFactory factory = new CountingFactory();
+        try (Pool<Item> pool = new Pool<>(config, factory)) {
+            final Item item = pool.getResource();
+            final long start = System.nanoTime();
+            try {
+                pool.getResource();
+                fail("pool should be exhausted");
+            } catch (JedisExhaustedPoolException expected) {
+                assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+            }
+            assertEquals(1, factory.created.get());
+
+            // 等待中的借用者直接拿到归还的对象
+            config.setMaxWaitMillis(5000);
+            final ExecutorService executor = Executors.newSingleThreadExecutor();
+            try {
+                final Future<Item> waiter = executor.submit(pool::getResource);
+                while (pool.getNumWaiters() == 0) {
+                    Thread.sleep(1);
+                }
+                pool.returnResource(item);
+                assertSame(item, waiter.get(5, TimeUnit.SECONDS));
+            } finally {
+                executor.shutdownNow();
+            }
+
+            // 损坏的对象被销毁，下次借用创建新的对象
+            pool.returnBrokenResource(item);
+            assertEquals(1, factory.destroyed.get());
+            final Item replacement = pool.getResource();
+            assertNotSame(item, replacement);
+            assertEquals(2, factory.created.get());
+            pool.returnResource(replacement);
+            try {
+                pool.returnResource(replacement);
+                fail("returning twice should fail");
+            } catch (RuntimeException expected) {
+                // 同一个对象不能归还两次
+            }
+        }
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        final GenericPoolConfig config = new GenericPoolConfig();
+        config.setMaxTotal(8);
+        config.setMinIdle(1);
+        config.setMinEvictableIdleTimeMillis(50);
+        config.setTimeBetweenEvictionRunsMillis(20);
+        config.setTestWhileIdle(true);
+        final CountingFactory factory = new CountingFactory();
+        try (Pool<Item> pool = new Pool<>(config, factory)) {
+            final List<Item> items = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                items.add(pool.getResource());
+            }
+            for (Item item : items) {
+                pool.returnResource(item);
+            }
+            // 空闲过久的对象被销毁，保留 minIdle 个
+            awaitCondition(() -> factory.destroyed.get() == 2);
+            assertEquals(1, pool.getNumIdle());
+
+            // 空闲检测发现失效的对象后销毁，再补足 minIdle
+            final Item survivor = pool.getResource();
+            survivor.valid = false;
+            pool.returnResource(survivor);
+            awaitCondition(() -> factory.destroyed.get() == 3 && pool.getNumIdle() == 1);
+            final Item replenished = pool.getResource();
+            assertNotSame(survivor, replenished);
+            assertTrue(replenished.valid);
+            pool.returnResource(replenished);
+        }
+    }
+
+    @Test
+    public void testMaxIdle() {
+        final GenericPoolConfig config = new GenericPoolConfig();
+        config.setMaxTotal(8);
+        config.setMaxIdle(2);
+        config.setTimeBetweenEvictionRunsMillis(20);
+        final CountingFactory factory = new CountingFactory();
+        try (Pool<Item> pool = new Pool<>(config, factory)) {
+            final List<Item> items = new ArrayList<>();
+            for (int i = 0; i < 6; i++) {
+                items.add(pool.getResource());
+            }
+            assertEquals(6, pool.getNumActive());
+            for (Item item : items) {
+                pool.returnResource(item);
+            }
+            // 超过 maxIdle 的空闲对象在下次检测时销毁
+            awaitCondition(() -> pool.getNumIdle() == 2);
+            assertEquals(4, factory.destroyed.get());
+        }
+    }
+
+    private static void awaitCondition(final Condition condition) {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.met()) {
+            if (System.nanoTime() > deadline) {
+                fail("condition not met in time");
+            }
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail("interrupted");
+            }
+        }
+    }
+
+    private interface Condition {
+        boolean met();
+    }
+
+    /**
+     * 不能重写 equals/hashCode，池以对象本身作为 key
+     */
+    private static final class Item {
+        volatile boolean valid = true;
+    }
+
+    private static final class CountingFactory implements PooledObjectFactory<Item> {
+
+        final AtomicInteger created = new AtomicInteger();
+        final AtomicInteger destroyed = new AtomicInteger();
+        final AtomicInteger live = new AtomicInteger();
+        final AtomicInteger maxLive = new AtomicInteger();
+
+        @Override
+        public Item makeObject() {
+            created.incrementAndGet();
+            maxLive.accumulateAndGet(live.incrementAndGet(), Math::max);
+            return new Item();
+        }
+
+        @Override
+        public void destroyObject(final Item item) {
+            destroyed.incrementAndGet();
+            live.decrementAndGet();
+        }
+
+        @Override
+        public boolean validateObject(final Item item) {
+            return item.valid;
+        }
+    }
+}
@@ -0,0 +1,1069 @@
+package com.wangguangwu.server;
+
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Protocol;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.util.ChannelSocket;
+import redis.clients.jedis.util.IOUtils;
+import redis.clients.jedis.util.JedisClusterCRC16;
+import redis.clients.jedis.util.RedisInputStream;
+import redis.clients.jedis.util.RedisOutputStream;
+import redis.clients.jedis.util.SafeEncoder;
+import redis.clients.jedis.util.UnixDomainSockets;
+
+import javax.net.ssl.SSLContext;
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.regex.Pattern;
+
+/**
+ * 进程内的 RESP 服务端，用于在没有 Redis 的环境下测试客户端。
+ * <p>
+ * 支持 PING/ECHO/GET/SET/INCR/DEL/EXISTS/MGET/KEYS/SCAN/INFO/FLUSHALL、管道和 MULTI/EXEC/WATCH 事务；
+ * 支持 SCRIPT LOAD/FLUSH 和 EVALSHA，但不执行 Lua，EVALSHA 返回脚本内容和收到的 key、参数；
+ * 支持 HELLO 3 和 CLIENT TRACKING ON [REDIRECT id]：开启跟踪的连接 GET 过的 key 被修改或 FLUSHALL 时，
+ * 向接收失效消息的 RESP3 连接推送 invalidate 消息，用于测试客户端本地缓存；
+ * 分配了槽之后按集群模式工作，对不属于自己的槽返回 MOVED，对正在迁出的槽返回 ASK，并响应 CLUSTER SLOTS。
+ * <p>
+ * 可以配置每个命令的处理延迟、GET 不存在的 key 时生成的值的大小，以及故障注入：每次读取 socket 前的延迟、
+ * 处理一定数量的命令后重置连接。所有配置都可以在运行时修改；{@link #useTls(SSLContext)} 需要在启动之前调用。
+ *
+ * @author wangguangwu
+ */
+public class EmbeddedRedisServer implements Closeable {
+
+    private static final int CLUSTER_HASHSLOTS = 16384;
+    private static final Set<String> TRANSACTION_COMMANDS = new HashSet<>(
+            Arrays.asList("MULTI", "EXEC", "DISCARD", "WATCH"));
+    private static final Set<String> QUEUEABLE_COMMANDS = new HashSet<>(Arrays.asList("PING", "ECHO", "GET",
+            "SET", "INCR", "DEL", "EXISTS", "MGET", "KEYS", "SCAN", "INFO", "FLUSHALL", "FLUSHDB", "UNWATCH", "SCRIPT",
+            "EVALSHA"));
+
+    private final int requestedPort;
+    private ServerSocket serverSocket;
+    private HostAndPort hostAndPort;
+    private final ExecutorService executor = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "embedded-redis-server");
+        t.setDaemon(true);
+        return t;
+    });
+    private final Set<Socket> clients = ConcurrentHashMap.newKeySet();
+    private volatile boolean running;
+    private SSLContext sslContext;
+    private ServerSocketChannel unixServerChannel;
+    private Path unixSocketPath;
+
+    private final Map<ByteBuffer, byte[]> store = new ConcurrentHashMap<>();
+    private final Map<String, byte[]> scripts = new ConcurrentHashMap<>();
+    private final AtomicLong scriptLoadCount = new AtomicLong();
+    /**
+     * key 被修改的次数和 FLUSHALL 的次数，用于判断 WATCH 的 key 是否被修改
+     */
+    private final Map<ByteBuffer, Long> keyVersions = new ConcurrentHashMap<>();
+    private final AtomicLong flushVersion = new AtomicLong();
+    /**
+     * 连接 ID 到连接状态，用于向 CLIENT TRACKING 重定向的连接推送失效消息
+     */
+    private final Map<Integer, ClientState> clientStates = new ConcurrentHashMap<>();
+    /**
+     * 开启跟踪的连接读取过的 key，以及应当接收失效消息的连接 ID
+     */
+    private final Map<ByteBuffer, Set<Integer>> trackedKeys = new ConcurrentHashMap<>();
+    /**
+     * EXEC 执行期间不和其他 EXEC 交错
+     */
+    private final Object execLock = new Object();
+
+    // 延迟和响应大小
+    private volatile long defaultLatencyNanos;
+    private final Map<String, Long> commandLatencyNanos = new ConcurrentHashMap<>();
+    private final Set<String> deniedCommands = ConcurrentHashMap.newKeySet();
+    private volatile int generatedValueSize;
+    private volatile String replicationInfo = "# Replication\r\nrole:master\r\nconnected_slaves:0\r\n"
+            + "master_repl_offset:0\r\n";
+
+    // 故障注入
+    private volatile long slowReadNanos;
+    private volatile int resetAfterCommands;
+
+    // 集群模式：槽的归属节点，以及正在迁出的槽的目标节点
+    private final AtomicReferenceArray<HostAndPort> slotOwners = new AtomicReferenceArray<>(CLUSTER_HASHSLOTS);
+    private final AtomicReferenceArray<HostAndPort> migratingSlots = new AtomicReferenceArray<>(CLUSTER_HASHSLOTS);
+    private volatile boolean clusterEnabled;
+
+    // 统计信息
+    private final AtomicLong commandCount = new AtomicLong();
+    private final AtomicLong connectionCount = new AtomicLong();
+    private final AtomicInteger clientIds = new AtomicInteger();
+
+    /**
+     * 监听随机端口
+     */
+    public EmbeddedRedisServer() {
+        this(0);
+    }
+
+    public EmbeddedRedisServer(final int port) {
+        this.requestedPort = port;
+    }
+
+    /**
+     * 在 {@link #start()} 之前调用，之后只接受 TLS 连接
+     */
+    public EmbeddedRedisServer useTls(final SSLContext sslContext) {
+        this.sslContext = sslContext;
+        return this;
+    }
+
+    public EmbeddedRedisServer start() throws IOException {
+        serverSocket = sslContext == null
+                ? new ServerSocket(requestedPort, 128, InetAddress.getLoopbackAddress())
+                : sslContext.getServerSocketFactory().createServerSocket(requestedPort, 128,
+                InetAddress.getLoopbackAddress());
+        serverSocket.setReuseAddress(true);
+        hostAndPort = new HostAndPort(serverSocket.getInetAddress().getHostAddress(), serverSocket.getLocalPort());
+        running = true;
+        executor.execute(this::acceptLoop);
+        return this;
+    }
+
+    /**
+     * 在 Unix domain socket 上监听，需要 Java 16 及以上；path 不能已经存在，关闭时删除。
+     * {@link #getHostAndPort()} 返回以路径为主机名、端口为 0 的地址
+     */
+    public EmbeddedRedisServer startUnixSocket(final Path path) throws IOException {
+        unixServerChannel = UnixDomainSockets.openServerChannel(path);
+        unixSocketPath = path;
+        hostAndPort = new HostAndPort(path.toString(), 0);
+        running = true;
+        executor.execute(this::acceptUnixLoop);
+        return this;
+    }
+
+    public int getPort() {
+        return hostAndPort.getPort();
+    }
+
+    public HostAndPort getHostAndPort() {
+        return hostAndPort;
+    }
+
+    /**
+     * 所有命令的处理延迟，可以被 {@link #setLatency(String, long, TimeUnit)} 覆盖
+     */
+    public void setLatency(final long latency, final TimeUnit unit) {
+        this.defaultLatencyNanos = unit.toNanos(latency);
+    }
+
+    public void setLatency(final String command, final long latency, final TimeUnit unit) {
+        commandLatencyNanos.put(command.toUpperCase(Locale.ROOT), unit.toNanos(latency));
+    }
+
+    /**
+     * 之后收到的 command 返回 NOPERM，和 ACL 拒绝执行时一样；在事务中排队时被拒绝会使事务被丢弃
+     */
+    public void denyCommand(final String command) {
+        deniedCommands.add(command.toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * INFO replication 返回的内容，用于模拟主从复制的拓扑和偏移量
+     */
+    public void setReplicationInfo(final String replicationInfo) {
+        this.replicationInfo = replicationInfo;
+    }
+
+    /**
+     * GET 不存在的 key 时返回这个大小的值，用于测试大响应；0 表示返回 nil
+     */
+    public void setGeneratedValueSize(final int size) {
+        this.generatedValueSize = size;
+    }
+
+    /**
+     * 每次从 socket 读取数据之前等待的时间，模拟网络慢或服务端繁忙
+     */
+    public void setSlowRead(final long delay, final TimeUnit unit) {
+        this.slowReadNanos = unit.toNanos(delay);
+    }
+
+    /**
+     * 每个连接处理完这么多命令后被重置（RST），0 表示不重置
+     */
+    public void setResetAfterCommands(final int commands) {
+        this.resetAfterCommands = commands;
+    }
+
+    /**
+     * 立即重置所有客户端连接
+     */
+    public void resetConnections() {
+        for (Socket socket : clients) {
+            reset(socket);
+        }
+    }
+
+    /**
+     * 把 [start, end] 范围的槽分配给 owner，分配给自己的槽正常处理，其他槽返回 MOVED
+     */
+    public void assignSlots(final int start, final int end, final HostAndPort owner) {
+        for (int slot = start; slot <= end; slot++) {
+            slotOwners.set(slot, owner);
+            migratingSlots.set(slot, null);
+        }
+        clusterEnabled = true;
+    }
+
+    /**
+     * 槽正在迁往 target：普通请求返回 ASK，ASKING 之后的请求由 target 处理
+     */
+    public void migrateSlot(final int slot, final HostAndPort target) {
+        migratingSlots.set(slot, target);
+    }
+
+    /**
+     * 和 FLUSHALL 命令相同，包括向开启跟踪的连接推送失效消息
+     */
+    public void flushAll() {
+        store.clear();
+        flushVersion.incrementAndGet();
+        invalidateAll();
+    }
+
+    public long getCommandCount() {
+        return commandCount.get();
+    }
+
+    /**
+     * 收到的 SCRIPT LOAD 的次数
+     */
+    public long getScriptLoadCount() {
+        return scriptLoadCount.get();
+    }
+
+    public long getConnectionCount() {
+        return connectionCount.get();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        IOUtils.closeQuietly(serverSocket);
+        IOUtils.closeQuietly(unixServerChannel);
+        for (Socket socket : clients) {
+            IOUtils.closeQuietly(socket);
+        }
+        executor.shutdownNow();
+        if (unixSocketPath != null) {
+            try {
+                Files.deleteIfExists(unixSocketPath);
+            } catch (IOException e) {
+                // ignored
+            }
+        }
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                final Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                accepted(socket);
+            } catch (IOException e) {
+                // 关闭时 accept 抛出异常
+            }
+        }
+    }
+
+    private void acceptUnixLoop() {
+        while (running) {
+            try {
+                accepted(new ChannelSocket(unixServerChannel.accept()));
+            } catch (IOException e) {
+                // 关闭时 accept 抛出异常
+            }
+        }
+    }
+
+    private void accepted(final Socket socket) {
+        clients.add(socket);
+        connectionCount.incrementAndGet();
+        executor.execute(() -> serve(socket));
+    }
+
+    private void serve(final Socket socket) {
+        final ClientState state = new ClientState(clientIds.incrementAndGet());
+        try {
+            final RedisInputStream in = new RedisInputStream(new SlowInputStream(socket.getInputStream()));
+            final RedisOutputStream out = new RedisOutputStream(socket.getOutputStream());
+            state.out = out;
+            clientStates.put(state.id, state);
+            int handled = 0;
+            while (running) {
+                final Object request = Protocol.read(in);
+                if (!(request instanceof List)) {
+                    writeError(out, "ERR Protocol error: expected array of bulk strings");
+                    out.flush();
+                    continue;
+                }
+                @SuppressWarnings("unchecked")
+                final List<Object> args = (List<Object>) request;
+                commandCount.incrementAndGet();
+                // 其他连接推送失效消息时也会写这个输出流
+                synchronized (state) {
+                    handle(args, state, out);
+
+                    final int resetAfter = resetAfterCommands;
+                    if (resetAfter > 0 && ++handled >= resetAfter) {
+                        out.flush();
+                        reset(socket);
+                        return;
+                    }
+                    // 管道中还有后续命令时先不刷新
+                    if (in.available() == 0) {
+                        out.flush();
+                    }
+                }
+                if (state.quit) {
+                    return;
+                }
+            }
+        } catch (JedisConnectionException | IOException e) {
+            // 客户端断开
+        } finally {
+            clientStates.remove(state.id);
+            clients.remove(socket);
+            IOUtils.closeQuietly(socket);
+        }
+    }
+
+    private void handle(final List<Object> args, final ClientState state, final RedisOutputStream out)
+            throws IOException {
+        final String command = SafeEncoder.encode((byte[]) args.get(0)).toUpperCase(Locale.ROOT);
+        if (deniedCommands.contains(command)) {
+            if (state.queued != null) {
+                state.dirty = true;
+            }
+            writeError(out, "NOPERM User default has no permissions to run the '" + command.toLowerCase(Locale.ROOT)
+                    + "' command");
+            return;
+        }
+        if (state.queued != null && !TRANSACTION_COMMANDS.contains(command)) {
+            // 事务中的命令只检查是否支持，EXEC 时才执行
+            if (QUEUEABLE_COMMANDS.contains(command)) {
+                state.queued.add(args);
+                writeStatus(out, "QUEUED");
+            } else {
+                state.dirty = true;
+                writeError(out, "ERR unknown command '" + command + "'");
+            }
+            return;
+        }
+        sleep(commandLatencyNanos.getOrDefault(command, defaultLatencyNanos));
+
+        final boolean asking = state.asking;
+        state.asking = false;
+        if (clusterEnabled && !checkSlots(command, args, asking, out)) {
+            return;
+        }
+
+        switch (command) {
+            case "PING":
+                if (args.size() > 1) {
+                    writeBulk(out, (byte[]) args.get(1));
+                } else {
+                    writeStatus(out, "PONG");
+                }
+                break;
+            case "ECHO":
+                writeBulk(out, (byte[]) args.get(1));
+                break;
+            case "GET":
+                track(state, args.get(1));
+                writeBulk(out, get((byte[]) args.get(1)));
+                break;
+            case "SET":
+                store.put(key(args.get(1)), (byte[]) args.get(2));
+                touch(key(args.get(1)));
+                writeStatus(out, "OK");
+                break;
+            case "INCR":
+                incr(args.get(1), out);
+                break;
+            case "DEL": {
+                long removed = 0;
+                for (int i = 1; i < args.size(); i++) {
+                    if (store.remove(key(args.get(i))) != null) {
+                        touch(key(args.get(i)));
+                        removed++;
+                    }
+                }
+                writeInteger(out, removed);
+                break;
+            }
+            case "EXISTS": {
+                long count = 0;
+                for (int i = 1; i < args.size(); i++) {
+                    if (store.containsKey(key(args.get(i)))) {
+                        count++;
+                    }
+                }
+                writeInteger(out, count);
+                break;
+            }
+            case "MGET":
+                out.write(Protocol.ASTERISK_BYTE);
+                out.writeIntCrLf(args.size() - 1);
+                for (int i = 1; i < args.size(); i++) {
+                    track(state, args.get(i));
+                    writeBulk(out, get((byte[]) args.get(i)));
+                }
+                break;
+            case "KEYS":
+                keys((byte[]) args.get(1), out);
+                break;
+            case "SCAN":
+                scan(args, out);
+                break;
+            case "INFO":
+                writeBulk(out, SafeEncoder.encode(replicationInfo));
+                break;
+            case "FLUSHALL":
+            case "FLUSHDB":
+                store.clear();
+                flushVersion.incrementAndGet();
+                invalidateAll();
+                writeStatus(out, "OK");
+                break;
+            case "SCRIPT":
+                script(args, out);
+                break;
+            case "EVALSHA":
+                evalsha(args, out);
+                break;
+            case "MULTI":
+                if (state.queued != null) {
+                    writeError(out, "ERR MULTI calls can not be nested");
+                } else {
+                    state.queued = new ArrayList<>();
+                    writeStatus(out, "OK");
+                }
+                break;
+            case "EXEC":
+                exec(state, out);
+                break;
+            case "DISCARD":
+                if (state.queued == null) {
+                    writeError(out, "ERR DISCARD without MULTI");
+                } else {
+                    state.resetTransaction();
+                    writeStatus(out, "OK");
+                }
+                break;
+            case "WATCH":
+                if (state.queued != null) {
+                    writeError(out, "ERR WATCH inside MULTI is not allowed");
+                    break;
+                }
+                if (state.watched.isEmpty()) {
+                    state.watchedFlushVersion = flushVersion.get();
+                }
+                for (int i = 1; i < args.size(); i++) {
+                    final ByteBuffer key = key(args.get(i));
+                    state.watched.putIfAbsent(key, keyVersions.getOrDefault(key, 0L));
+                }
+                writeStatus(out, "OK");
+                break;
+            case "UNWATCH":
+                state.watched.clear();
+                writeStatus(out, "OK");
+                break;
+            case "ASKING":
+                state.asking = true;
+                writeStatus(out, "OK");
+                break;
+            case "CLUSTER":
+                cluster(args, out);
+                break;
+            case "CLIENT":
+                client(args, state, out);
+                break;
+            case "HELLO":
+                hello(args, state, out);
+                break;
+            case "QUIT":
+                state.quit = true;
+                writeStatus(out, "OK");
+                break;
+            default:
+                writeError(out, "ERR unknown command '" + command + "'");
+        }
+    }
+
+    /**
+     * 集群模式下检查命令中的 key 是否都属于自己，不属于时写出重定向并返回 false
+     */
+    private boolean checkSlots(final String command, final List<Object> args, final boolean asking,
+                               final RedisOutputStream out) throws IOException {
+        final int firstKey;
+        final int lastKey;
+        switch (command) {
+            case "GET":
+            case "SET":
+            case "INCR":
+                firstKey = 1;
+                lastKey = 1;
+                break;
+            case "DEL":
+            case "EXISTS":
+            case "MGET":
+                firstKey = 1;
+                lastKey = args.size() - 1;
+                break;
+            case "EVALSHA":
+                firstKey = 3;
+                lastKey = 2 + Integer.parseInt(SafeEncoder.encode((byte[]) args.get(2)));
+                break;
+            default:
+                return true;
+        }
+        if (args.size() <= firstKey || lastKey < firstKey) {
+            return true;
+        }
+
+        final int slot = JedisClusterCRC16.getSlot((byte[]) args.get(firstKey));
+        for (int i = firstKey + 1; i <= lastKey; i++) {
+            if (JedisClusterCRC16.getSlot((byte[]) args.get(i)) != slot) {
+                writeError(out, "CROSSSLOT Keys in request don't hash to the same slot");
+                return false;
+            }
+        }
+
+        final HostAndPort owner = slotOwners.get(slot);
+        if (owner == null) {
+            writeError(out, "CLUSTERDOWN Hash slot not served");
+            return false;
+        }
+        if (!owner.equals(hostAndPort)) {
+            // ASKING 之后，正在迁入的槽由本节点处理
+            if (asking) {
+                return true;
+            }
+            writeError(out, "MOVED " + slot + " " + owner);
+            return false;
+        }
+        final HostAndPort migrating = migratingSlots.get(slot);
+        if (migrating != null) {
+            writeError(out, "ASK " + slot + " " + migrating);
+            return false;
+        }
+        return true;
+    }
+
+    private void cluster(final List<Object> args, final RedisOutputStream out) throws IOException {
+        if (!clusterEnabled) {
+            writeError(out, "ERR This instance has cluster support disabled");
+            return;
+        }
+        final String sub = args.size() > 1 ? SafeEncoder.encode((byte[]) args.get(1)).toUpperCase(Locale.ROOT) : "";
+        if (!"SLOTS".equals(sub)) {
+            writeError(out, "ERR Unknown subcommand or wrong number of arguments for '" + sub + "'");
+            return;
+        }
+
+        // 把连续且归属相同的槽合并为一个范围
+        final List<int[]> ranges = new ArrayList<>();
+        final List<HostAndPort> owners = new ArrayList<>();
+        int start = -1;
+        HostAndPort current = null;
+        for (int slot = 0; slot <= CLUSTER_HASHSLOTS; slot++) {
+            final HostAndPort owner = slot < CLUSTER_HASHSLOTS ? slotOwners.get(slot) : null;
+            if (owner != null && owner.equals(current)) {
+                continue;
+            }
+            if (current != null) {
+                ranges.add(new int[]{start, slot - 1});
+                owners.add(current);
+            }
+            start = slot;
+            current = owner;
+        }
+
+        out.write(Protocol.ASTERISK_BYTE);
+        out.writeIntCrLf(ranges.size());
+        for (int i = 0; i < ranges.size(); i++) {
+            out.write(Protocol.ASTERISK_BYTE);
+            out.writeIntCrLf(3);
+            writeInteger(out, ranges.get(i)[0]);
+            writeInteger(out, ranges.get(i)[1]);
+            out.write(Protocol.ASTERISK_BYTE);
+            out.writeIntCrLf(2);
+            writeBulk(out, SafeEncoder.encode(owners.get(i).getHost()));
+            writeInteger(out, owners.get(i).getPort());
+        }
+    }
+
+    private void client(final List<Object> args, final ClientState state, final RedisOutputStream out)
+            throws IOException {
+        final String sub = args.size() > 1 ? SafeEncoder.encode((byte[]) args.get(1)).toUpperCase(Locale.ROOT) : "";
+        if ("ID".equals(sub)) {
+            writeInteger(out, state.id);
+        } else if ("TRACKING".equals(sub)) {
+            tracking(args, state, out);
+        } else {
+            writeStatus(out, "OK");
+        }
+    }
+
+    private void keys(final byte[] pattern, final RedisOutputStream out) throws IOException {
+        final Pattern compiled = compileGlob(pattern);
+        final List<byte[]> matched = new ArrayList<>();
+        for (ByteBuffer key : store.keySet()) {
+            final byte[] raw = new byte[key.remaining()];
+            key.duplicate().get(raw);
+            if (compiled.matcher(SafeEncoder.encode(raw)).matches()) {
+                matched.add(raw);
+            }
+        }
+        out.write(Protocol.ASTERISK_BYTE);
+        out.writeIntCrLf(matched.size());
+        for (byte[] key : matched) {
+            writeBulk(out, key);
+        }
+    }
+
+    /**
+     * SCAN cursor [MATCH pattern] [COUNT count]，key 按字典序排列，游标是下一次开始的下标
+     */
+    private void scan(final List<Object> args, final RedisOutputStream out) throws IOException {
+        final int cursor = Integer.parseInt(SafeEncoder.encode((byte[]) args.get(1)));
+        Pattern compiled = null;
+        int count = 10;
+        for (int i = 2; i + 1 < args.size(); i += 2) {
+            final String option = SafeEncoder.encode((byte[]) args.get(i)).toUpperCase(Locale.ROOT);
+            if ("MATCH".equals(option)) {
+                compiled = compileGlob((byte[]) args.get(i + 1));
+            } else if ("COUNT".equals(option)) {
+                count = Integer.parseInt(SafeEncoder.encode((byte[]) args.get(i + 1)));
+            }
+        }
+        final List<String> keys = new ArrayList<>();
+        for (ByteBuffer key : store.keySet()) {
+            keys.add(StandardCharsets.UTF_8.decode(key.duplicate()).toString());
+        }
+        Collections.sort(keys);
+        final int end = Math.min(cursor + count, keys.size());
+        final List<String> matched = new ArrayList<>();
+        for (int i = cursor; i < end; i++) {
+            if (compiled == null || compiled.matcher(keys.get(i)).matches()) {
+                matched.add(keys.get(i));
+            }
+        }
+        out.write(Protocol.ASTERISK_BYTE);
+        out.writeIntCrLf(2);
+        writeBulk(out, SafeEncoder.encode(String.valueOf(end >= keys.size() ? 0 : end)));
+        out.write(Protocol.ASTERISK_BYTE);
+        out.writeIntCrLf(matched.size());
+        for (String key : matched) {
+            writeBulk(out, SafeEncoder.encode(key));
+        }
+    }
+
+    /**
+     * 只支持 * 和 ? 通配符
+     */
+    private static Pattern compileGlob(final byte[] pattern) {
+        final StringBuilder regex = new StringBuilder();
+        for (char c : SafeEncoder.encode(pattern).toCharArray()) {
+            if (c == '*') {
+                regex.append(".*");
+            } else if (c == '?') {
+                regex.append('.');
+            } else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return Pattern.compile(regex.toString(), Pattern.DOTALL);
+    }
+
+    private byte[] get(final byte[] key) {
+        final byte[] value = store.get(ByteBuffer.wrap(key));
+        if (value == null && generatedValueSize > 0) {
+            final byte[] generated = new byte[generatedValueSize];
+            Arrays.fill(generated, (byte) 'x');
+            return generated;
+        }
+        return value;
+    }
+
+    private void incr(final Object keyArg, final RedisOutputStream out) throws IOException {
+        final ByteBuffer key = key(keyArg);
+        while (true) {
+            final byte[] old = store.get(key);
+            final long value;
+            try {
+                value = old == null ? 1 : Long.parseLong(SafeEncoder.encode(old)) + 1;
+            } catch (NumberFormatException e) {
+                writeError(out, "ERR value is not an integer or out of range");
+                return;
+            }
+            final byte[] updated = SafeEncoder.encode(String.valueOf(value));
+            final boolean swapped = old == null
+                    ? store.putIfAbsent(key, updated) == null
+                    : store.replace(key, old, updated);
+            if (swapped) {
+                touch(key);
+                writeInteger(out, value);
+                return;
+            }
+        }
+    }
+
+    /**
+     * 依次执行排队的命令，WATCH 的 key 被修改时返回空数组
+     */
+    private void exec(final ClientState state, final RedisOutputStream out) throws IOException {
+        final List<List<Object>> queued = state.queued;
+        if (queued == null) {
+            writeError(out, "ERR EXEC without MULTI");
+            return;
+        }
+        try {
+            if (state.dirty) {
+                writeError(out, "EXECABORT Transaction discarded because of previous errors.");
+                return;
+            }
+            state.queued = null;
+            synchronized (execLock) {
+                if (isWatchedKeyModified(state)) {
+                    out.write(Protocol.ASTERISK_BYTE);
+                    out.writeIntCrLf(-1);
+                    return;
+                }
+                out.write(Protocol.ASTERISK_BYTE);
+                out.writeIntCrLf(queued.size());
+                for (List<Object> args : queued) {
+                    handle(args, state, out);
+                }
+            }
+        } finally {
+            state.resetTransaction();
+        }
+    }
+
+    private boolean isWatchedKeyModified(final ClientState state) {
+        if (state.watched.isEmpty()) {
+            return false;
+        }
+        if (flushVersion.get() != state.watchedFlushVersion) {
+            return true;
+        }
+        for (Map.Entry<ByteBuffer, Long> entry : state.watched.entrySet()) {
+            if (!entry.getValue().equals(keyVersions.getOrDefault(entry.getKey(), 0L))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void script(final List<Object> args, final RedisOutputStream out) throws IOException {
+        final String subcommand = SafeEncoder.encode((byte[]) args.get(1)).toUpperCase(Locale.ROOT);
+        switch (subcommand) {
+            case "LOAD": {
+                final byte[] source = (byte[]) args.get(2);
+                final String sha1 = sha1Hex(source);
+                scripts.put(sha1, source);
+                scriptLoadCount.incrementAndGet();
+                writeBulk(out, SafeEncoder.encode(sha1));
+                break;
+            }
+            case "FLUSH":
+                scripts.clear();
+                writeStatus(out, "OK");
+                break;
+            default:
+                writeError(out, "ERR unknown subcommand '" + subcommand + "'");
+        }
+    }
+
+    /**
+     * 不执行 Lua，返回脚本内容以及收到的 key 和参数
+     */
+    private void evalsha(final List<Object> args, final RedisOutputStream out) throws IOException {
+        final byte[] source = scripts.get(SafeEncoder.encode((byte[]) args.get(1)).toLowerCase(Locale.ROOT));
+        if (source == null) {
+            writeError(out, "NOSCRIPT No matching script. Please use EVAL.");
+            return;
+        }
+        out.write(Protocol.ASTERISK_BYTE);
+        out.writeIntCrLf(args.size() - 2);
+        writeBulk(out, source);
+        for (int i = 3; i < args.size(); i++) {
+            writeBulk(out, (byte[]) args.get(i));
+        }
+    }
+
+    private static String sha1Hex(final byte[] data) {
+        try {
+            final StringBuilder hex = new StringBuilder();
+            for (byte b : MessageDigest.getInstance("SHA-1").digest(data)) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void touch(final ByteBuffer key) {
+        keyVersions.merge(key, 1L, Long::sum);
+        final Set<Integer> redirects = trackedKeys.remove(key);
+        if (redirects != null) {
+            final byte[] raw = new byte[key.remaining()];
+            key.duplicate().get(raw);
+            for (Integer redirect : redirects) {
+                pushInvalidation(redirect, raw);
+            }
+        }
+    }
+
+    /**
+     * HELLO 3 切换到 RESP3，只有 RESP3 连接可以接收失效推送
+     */
+    private void hello(final List<Object> args, final ClientState state, final RedisOutputStream out)
+            throws IOException {
+        final String protocol = args.size() > 1 ? SafeEncoder.encode((byte[]) args.get(1)) : "2";
+        if (!"2".equals(protocol) && !"3".equals(protocol)) {
+            writeError(out, "NOPROTO unsupported protocol version");
+            return;
+        }
+        state.resp3 = "3".equals(protocol);
+        out.write(state.resp3 ? Protocol.PERCENT_BYTE : Protocol.ASTERISK_BYTE);
+        out.writeIntCrLf(state.resp3 ? 3 : 6);
+        writeBulk(out, SafeEncoder.encode("server"));
+        writeBulk(out, SafeEncoder.encode("redis"));
+        writeBulk(out, SafeEncoder.encode("proto"));
+        writeInteger(out, state.resp3 ? 3 : 2);
+        writeBulk(out, SafeEncoder.encode("id"));
+        writeInteger(out, state.id);
+    }
+
+    /**
+     * CLIENT TRACKING ON [REDIRECT id] | OFF，没有 REDIRECT 时推送给自己
+     */
+    private void tracking(final List<Object> args, final ClientState state, final RedisOutputStream out)
+            throws IOException {
+        final String mode = args.size() > 2 ? SafeEncoder.encode((byte[]) args.get(2)).toUpperCase(Locale.ROOT) : "";
+        if ("OFF".equals(mode)) {
+            state.trackingRedirect = 0;
+            writeStatus(out, "OK");
+            return;
+        }
+        if (!"ON".equals(mode)) {
+            writeError(out, "ERR syntax error");
+            return;
+        }
+        int redirect = state.id;
+        if (args.size() > 4 && "REDIRECT".equalsIgnoreCase(SafeEncoder.encode((byte[]) args.get(3)))) {
+            redirect = Integer.parseInt(SafeEncoder.encode((byte[]) args.get(4)));
+            if (!clientStates.containsKey(redirect)) {
+                writeError(out, "ERR The client ID you want redirect to does not exist");
+                return;
+            }
+        }
+        state.trackingRedirect = redirect;
+        writeStatus(out, "OK");
+    }
+
+    private void track(final ClientState state, final Object key) {
+        final int redirect = state.trackingRedirect;
+        if (redirect != 0) {
+            trackedKeys.computeIfAbsent(key(key), k -> ConcurrentHashMap.newKeySet()).add(redirect);
+        }
+    }
+
+    /**
+     * FLUSHALL 时向所有接收失效消息的连接推送 null，表示全部失效
+     */
+    private void invalidateAll() {
+        trackedKeys.clear();
+        final Set<Integer> redirects = new HashSet<>();
+        for (ClientState client : clientStates.values()) {
+            if (client.trackingRedirect != 0) {
+                redirects.add(client.trackingRedirect);
+            }
+        }
+        for (Integer redirect : redirects) {
+            pushInvalidation(redirect, null);
+        }
+    }
+
+    /**
+     * 推送 [invalidate, [key]]，key 为 null 时推送 [invalidate, null]。
+     * 在修改 key 的连接的线程中直接写目标连接的输出流，两个连接互相重定向时可能死锁，测试中不会这样使用
+     */
+    private void pushInvalidation(final int redirect, final byte[] key) {
+        final ClientState target = clientStates.get(redirect);
+        if (target == null || !target.resp3) {
+            return;
+        }
+        synchronized (target) {
+            try {
+                final RedisOutputStream out = target.out;
+                out.write(Protocol.GREATER_THAN_BYTE);
+                out.writeIntCrLf(2);
+                writeBulk(out, SafeEncoder.encode("invalidate"));
+                if (key == null) {
+                    out.write(Protocol.UNDERSCORE_BYTE);
+                    out.writeCrLf();
+                } else {
+                    out.write(Protocol.ASTERISK_BYTE);
+                    out.writeIntCrLf(1);
+                    writeBulk(out, key);
+                }
+                out.flush();
+            } catch (IOException e) {
+                // 接收失效消息的连接已经断开
+            }
+        }
+    }
+
+    private static ByteBuffer key(final Object arg) {
+        return ByteBuffer.wrap((byte[]) arg);
+    }
+
+    private static void writeStatus(final RedisOutputStream out, final String status) throws IOException {
+        out.write(Protocol.PLUS_BYTE);
+        out.write(SafeEncoder.encode(status));
+        out.writeCrLf();
+    }
+
+    private static void writeError(final RedisOutputStream out, final String message) throws IOException {
+        out.write(Protocol.MINUS_BYTE);
+        out.write(SafeEncoder.encode(message));
+        out.writeCrLf();
+    }
+
+    private static void writeInteger(final RedisOutputStream out, final long value) throws IOException {
+        out.write(Protocol.COLON_BYTE);
+        out.write(SafeEncoder.encode(String.valueOf(value)));
+        out.writeCrLf();
+    }
+
+    private static void writeBulk(final RedisOutputStream out, final byte[] value) throws IOException {
+        out.write(Protocol.DOLLAR_BYTE);
+        if (value == null) {
+            out.writeIntCrLf(-1);
+            return;
+        }
+        out.writeIntCrLf(value.length);
+        out.write(value);
+        out.writeCrLf();
+    }
+
+    /**
+     * SO_LINGER 为 0 时关闭 socket 会发送 RST，客户端看到的是 connection reset
+     */
+    private static void reset(final Socket socket) {
+        try {
+            socket.setSoLinger(true, 0);
+        } catch (IOException e) {
+            // ignored
+        }
+        IOUtils.closeQuietly(socket);
+    }
+
+    private static void sleep(final long nanos) {
+        if (nanos <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class ClientState {
+
+        final int id;
+        volatile RedisOutputStream out;
+        volatile boolean resp3;
+        /**
+         * 接收失效消息的连接 ID，0 表示没有开启跟踪
+         */
+        volatile int trackingRedirect;
+        boolean asking;
+        boolean quit;
+        /**
+         * MULTI 之后排队的命令，不在事务中时为 null
+         */
+        List<List<Object>> queued;
+        /**
+         * 有命令在排队时被拒绝，EXEC 返回 EXECABORT
+         */
+        boolean dirty;
+        final Map<ByteBuffer, Long> watched = new HashMap<>();
+        long watchedFlushVersion;
+
+        ClientState(int id) {
+            this.id = id;
+        }
+
+        /**
+         * EXEC 和 DISCARD 之后清除事务状态，同时取消 WATCH
+         */
+        void resetTransaction() {
+            queued = null;
+            dirty = false;
+            watched.clear();
+        }
+    }
+
+    private final class SlowInputStream extends FilterInputStream {
+
+        SlowInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            sleep(slowReadNanos);
+            return super.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            sleep(slowReadNanos);
+            return super.read(b, off, len);
+        }
+    }
+}